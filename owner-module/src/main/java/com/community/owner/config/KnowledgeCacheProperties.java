@@ -0,0 +1,57 @@
+package com.community.owner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 知识库文件缓存配置
+ * 知识库文件（OSS）下载后缓存在本地目录，按 ETag/Last-Modified 条件请求重新验证
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "smart-qa.knowledge-cache")
+public class KnowledgeCacheProperties {
+    
+    /**
+     * 缓存目录（文件写入其下的 cache 子目录）
+     */
+    private String dir = "./temp/knowledge";
+    
+    /**
+     * 最多缓存的文件数
+     */
+    private int maxEntries = 200;
+    
+    /**
+     * 缓存总大小上限（字节）
+     */
+    private long maxBytes = 200L * 1024 * 1024;
+    
+    /**
+     * 连接超时
+     */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    
+    /**
+     * 读取超时（单次请求，到收到响应头为止）
+     */
+    private Duration readTimeout = Duration.ofSeconds(30);
+    
+    /**
+     * 响应体下载超时（从收到响应头到文件写完），超时后中断下载
+     */
+    private Duration bodyTimeout = Duration.ofSeconds(120);
+    
+    /**
+     * 被淘汰或被新版本替换的文件延迟删除的时间，留给已拿到该文件的调用方读完
+     */
+    private Duration evictionGrace = Duration.ofMinutes(10);
+    
+    /**
+     * 缓存文件在该时间内直接使用，超过后发起条件请求重新验证
+     */
+    private Duration revalidateAfter = Duration.ofSeconds(60);
+}
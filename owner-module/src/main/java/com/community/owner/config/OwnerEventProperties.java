@@ -0,0 +1,41 @@
+package com.community.owner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 业主事件推送（SSE）配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "owner.events")
+public class OwnerEventProperties {
+
+    /**
+     * 是否开放事件推送
+     */
+    private boolean enabled = true;
+
+    /**
+     * 是否订阅 Redis 频道（物业端发布的事件经此到达；关闭后只推送本进程内发布的事件）
+     */
+    private boolean redisEnabled = true;
+
+    /**
+     * Redis 订阅频道，需与物业端一致
+     */
+    private String channel = "owner:events";
+
+    /**
+     * 心跳间隔，防止代理和浏览器因空闲断开连接
+     */
+    private Duration heartbeat = Duration.ofSeconds(25);
+
+    /**
+     * 单个连接待发送事件的缓冲条数，客户端消费过慢时超出部分丢弃
+     */
+    private int bufferSize = 256;
+}
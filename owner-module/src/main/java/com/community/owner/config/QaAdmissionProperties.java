@@ -0,0 +1,47 @@
+package com.community.owner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 智能问答准入控制配置
+ * 全局并发上限 + 有界等待队列 + 每个业主的令牌桶
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "smart-qa.admission")
+public class QaAdmissionProperties {
+    
+    /**
+     * 是否启用准入控制
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 全局最大并发问答数（同时进行的模型流）
+     */
+    private int maxConcurrent = 20;
+    
+    /**
+     * 等待队列长度，队列满时直接拒绝
+     */
+    private int maxQueue = 50;
+    
+    /**
+     * 排队最长等待时间，超时拒绝
+     */
+    private Duration maxWait = Duration.ofSeconds(10);
+    
+    /**
+     * 每个业主的令牌桶容量（允许的突发请求数）
+     */
+    private int ownerBurst = 5;
+    
+    /**
+     * 每个业主每分钟补充的令牌数
+     */
+    private int ownerRefillPerMinute = 10;
+}
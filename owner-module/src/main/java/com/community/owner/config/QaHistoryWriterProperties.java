@@ -0,0 +1,41 @@
+package com.community.owner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 知识库查询副作用（搜索历史、查看次数）异步批量写入配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "smart-qa.history-writer")
+public class QaHistoryWriterProperties {
+    
+    /**
+     * 内存队列容量
+     */
+    private int queueCapacity = 10000;
+    
+    /**
+     * 单批写入的最大条数
+     */
+    private int batchSize = 200;
+    
+    /**
+     * 刷新间隔（队列未满一批时最多等待的时间）
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+    
+    /**
+     * 队列满时的策略：drop(丢弃并计数，默认) / sync(在调用线程同步写入)
+     */
+    private String overflowPolicy = "drop";
+    
+    /**
+     * 停机时等待写线程写完剩余数据的最长时间
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,69 @@
+package com.community.owner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 智能问答模型路由配置
+ * 简单问题走快速模型，复杂问题升级到大模型；首字超时后向该档位的备用模型发起对冲请求
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "smart-qa.model")
+public class QaModelProperties {
+    
+    /**
+     * 简单问题（FAQ类）使用的模型
+     */
+    private String simpleModel = "qwen-plus";
+    
+    /**
+     * 复杂问题使用的模型
+     */
+    private String complexModel = "qwen-max";
+    
+    /**
+     * 简单问题对冲请求使用的备用模型
+     */
+    private String simpleBackupModel = "qwen-turbo";
+    
+    /**
+     * 复杂问题对冲请求使用的备用模型（不降到 turbo，避免复杂问题的回答质量明显下降）
+     */
+    private String complexBackupModel = "qwen-plus";
+    
+    /**
+     * 温度
+     */
+    private Double temperature = 0.7;
+    
+    /**
+     * 问题长度超过该值视为复杂问题
+     */
+    private int complexQuestionLength = 60;
+    
+    /**
+     * 历史消息数达到该值视为复杂问题（多轮对话）
+     */
+    private int complexHistorySize = 4;
+    
+    /**
+     * 同时命中的意图数（房屋/车辆/费用/仪表）达到该值视为复杂问题
+     * 默认 3：意图关键词较宽，"停车费""水费"这类常见单一问题本身就会命中两个意图，
+     * 上下文已按命中的意图加载对应数据，简单模型即可回答；跨三个及以上领域才升级
+     */
+    private int complexIntentCount = 3;
+    
+    /**
+     * 是否启用对冲请求
+     */
+    private boolean hedgeEnabled = true;
+    
+    /**
+     * 首字等待期限，超时未收到首字则向备用模型发起请求
+     */
+    private Duration hedgeDelay = Duration.ofSeconds(3);
+}
@@ -7,14 +7,20 @@ import com.community.owner.dto.NoticeSearchRequest;
 import com.community.owner.utils.JwtUtil;
 import com.community.owner.entity.Owner;
 import com.community.owner.service.CommunityNoticeService;
+import com.community.owner.service.NoticeAudienceIndex;
+import com.community.owner.service.NoticeListCache;
 import com.community.owner.service.OwnerService;
 import com.community.owner.service.OwnerQueryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -25,6 +31,7 @@ import java.util.ArrayList;
 /**
  * 社区公告控制器
  */
+@Slf4j
 @RestController
 @RequestMapping("/api/owner/notices")
 @Tag(name = "社区公告管理", description = "业主查看社区公告相关接口")
@@ -41,6 +48,12 @@ public class CommunityNoticeController {
 
     @Autowired
     private OwnerQueryService ownerQueryService;
+
+    @Autowired
+    private NoticeAudienceIndex noticeAudienceIndex;
+
+    @Autowired
+    private NoticeListCache noticeListCache;
     
     @Value("${aliyun.oss.bucket-name}")
     private String bucketName;
@@ -72,106 +85,107 @@ public class CommunityNoticeController {
      * 分页显示公告列表（显示标题和图片）
      */
     @GetMapping("/list")
-    @Operation(summary = "分页查询公告列表", description = "查询公告列表，显示标题和图片，按发布时间倒序排列，置顶公告优先")
+    @Operation(summary = "分页查询公告列表", description = "查询公告列表，显示标题和图片，按发布时间倒序排列，置顶公告优先；响应带 ETag，携带 If-None-Match 且内容未变时返回 304")
     public Map<String, Object> listNotices(
             @Parameter(description = "Authorization Token", required = true)
             @RequestHeader("Authorization") String token,
             @Parameter(description = "页码(从1开始)") 
             @RequestParam(value = "page", required = false, defaultValue = "1") Integer page,
             @Parameter(description = "每页数量") 
-            @RequestParam(value = "size", required = false, defaultValue = "10") Integer size) {
+            @RequestParam(value = "size", required = false, defaultValue = "10") Integer size,
+            WebRequest webRequest,
+            HttpServletResponse httpResponse) {
         
         Map<String, Object> response = new HashMap<>();
         try {
-            System.out.println("========== 开始查询首页公告 ==========");
-            System.out.println("请求参数 - page: " + page + ", size: " + size);
-            
             String realToken = token.replace("Bearer ", "");
             String username = jwtUtil.getUsernameFromToken(realToken);
-            System.out.println("用户名: " + username);
             
             Owner owner = ownerService.findByUsername(username);
             if (owner == null) {
-                System.out.println("错误：用户不存在");
                 response.put("success", false);
                 response.put("message", "用户不存在");
                 return response;
             }
-            System.out.println("业主ID: " + owner.getId());
 
             if (page == null || page < 1) page = 1;
             if (size == null || size < 1) size = 10;
             int offset = (page - 1) * size;
-            System.out.println("计算得出 offset: " + offset);
             
-            // 使用OwnerQueryService进行多表JOIN查询，自动获取业主所属社区的公告
-            Long total = ownerQueryService.countOwnerCommunityNotices(owner.getId());
-            System.out.println("公告总数: " + total);
-            
-            List<Map<String, Object>> rawItems = ownerQueryService.listOwnerCommunityNoticesWithDetails(
-                    owner.getId(), size, offset);
-            System.out.println("查询得到的原始数据数量: " + (rawItems != null ? rawItems.size() : 0));
-            if (rawItems != null && !rawItems.isEmpty()) {
-                System.out.println("第一条原始数据: " + rawItems.get(0));
+            // 受众相同的业主共用缓存，相关社区公告版本号不变时直接复用
+            int currentPage = page;
+            int pageSize = size;
+            String cacheKey = "feed:" + noticeAudienceIndex.audienceKey(owner.getId()) + ":" + page + ":" + size;
+            NoticeListCache.Cached cached = noticeListCache.get(cacheKey,
+                    noticeAudienceIndex.ownerCommunityIds(owner.getId()),
+                    () -> buildOwnerFeedPage(owner.getId(), currentPage, pageSize, offset));
+            httpResponse.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            if (webRequest.checkNotModified(cached.getEtag())) {
+                log.debug("首页公告未变化，返回 304: ownerId={}", owner.getId());
+                return null;
             }
-            
-            // 将原始Map转换为NoticeListVO格式（蛇形命名转驼峰命名）
-            List<NoticeListVO> items = new ArrayList<>();
-            for (Map<String, Object> raw : rawItems) {
-                NoticeListVO vo = new NoticeListVO();
-                vo.setId(raw.get("id") != null ? ((Number) raw.get("id")).longValue() : null);
-                vo.setTitle((String) raw.get("title"));
-                vo.setContent((String) raw.get("content"));
-                vo.setNoticeImages(getImageUrl((String) raw.get("notice_images")));
-                vo.setNoticeType((String) raw.get("notice_type"));
-                // is_urgent 字段可能不存在，需要处理
-                if (raw.get("is_urgent") != null) {
-                    vo.setIsUrgent(((Number) raw.get("is_urgent")).intValue());
-                }
-                if (raw.get("is_top") != null) {
-                    vo.setIsTop(((Number) raw.get("is_top")).intValue());
-                }
-                // 处理 publish_time 时间戳转 LocalDateTime
-                if (raw.get("publish_time") != null) {
-                    Object timeObj = raw.get("publish_time");
-                    if (timeObj instanceof java.sql.Timestamp) {
-                        vo.setPublishTime(((java.sql.Timestamp) timeObj).toLocalDateTime());
-                    } else if (timeObj instanceof Long) {
-                        vo.setPublishTime(new java.sql.Timestamp((Long) timeObj).toLocalDateTime());
-                    }
-                }
-                if (raw.get("read_count") != null) {
-                    vo.setReadCount(((Number) raw.get("read_count")).intValue());
-                }
-                items.add(vo);
-            }
-            System.out.println("转换后的VO数据数量: " + items.size());
-            if (!items.isEmpty()) {
-                System.out.println("第一条VO数据: " + items.get(0));
-            }
-            
-            Map<String, Object> pageData = new LinkedHashMap<>();
-            pageData.put("page", page);
-            pageData.put("size", size);
-            pageData.put("total", total);
-            pageData.put("pages", size == 0 ? 0 : ((total + size - 1) / size));
-            pageData.put("items", items);
 
             response.put("success", true);
-            response.put("data", pageData);
+            response.put("data", cached.getData());
             response.put("message", "查询成功");
-            System.out.println("========== 首页公告查询完成，返回成功 ==========");
             return response;
         } catch (Exception e) {
-            System.out.println("========== 首页公告查询出错 ==========");
-            System.out.println("错误信息: " + e.getMessage());
-            e.printStackTrace();
+            log.error("首页公告查询失败: page={}, size={}", page, size, e);
             response.put("success", false);
             response.put("message", "查询失败: " + e.getMessage());
             return response;
         }
     }
     
+    /**
+     * 组装业主公告流的一页：受众索引在内存中求出业主可见的公告ID，再按ID批量查询当前页
+     */
+    private Map<String, Object> buildOwnerFeedPage(Long ownerId, int page, int size, int offset) {
+        NoticeAudienceIndex.IdPage feed = noticeAudienceIndex.ownerFeed(ownerId, offset, size);
+        long total = feed.getTotal();
+        List<Map<String, Object>> rawItems = ownerQueryService.listNoticesByIds(feed.getIds());
+        log.debug("业主公告流: ownerId={}, total={}, page={}, 本页 {} 条", ownerId, total, page, rawItems.size());
+        
+        // 将原始Map转换为NoticeListVO格式（蛇形命名转驼峰命名）
+        List<NoticeListVO> items = new ArrayList<>();
+        for (Map<String, Object> raw : rawItems) {
+            NoticeListVO vo = new NoticeListVO();
+            vo.setId(raw.get("id") != null ? ((Number) raw.get("id")).longValue() : null);
+            vo.setTitle((String) raw.get("title"));
+            vo.setContent((String) raw.get("content"));
+            vo.setNoticeImages(getImageUrl((String) raw.get("notice_images")));
+            vo.setNoticeType((String) raw.get("notice_type"));
+            // is_urgent 字段可能不存在，需要处理
+            if (raw.get("is_urgent") != null) {
+                vo.setIsUrgent(((Number) raw.get("is_urgent")).intValue());
+            }
+            if (raw.get("is_top") != null) {
+                vo.setIsTop(((Number) raw.get("is_top")).intValue());
+            }
+            // 处理 publish_time 时间戳转 LocalDateTime
+            if (raw.get("publish_time") != null) {
+                Object timeObj = raw.get("publish_time");
+                if (timeObj instanceof java.sql.Timestamp) {
+                    vo.setPublishTime(((java.sql.Timestamp) timeObj).toLocalDateTime());
+                } else if (timeObj instanceof Long) {
+                    vo.setPublishTime(new java.sql.Timestamp((Long) timeObj).toLocalDateTime());
+                }
+            }
+            if (raw.get("read_count") != null) {
+                vo.setReadCount(((Number) raw.get("read_count")).intValue());
+            }
+            items.add(vo);
+        }
+        
+        Map<String, Object> pageData = new LinkedHashMap<>();
+        pageData.put("page", page);
+        pageData.put("size", size);
+        pageData.put("total", total);
+        pageData.put("pages", size == 0 ? 0 : ((total + size - 1) / size));
+        pageData.put("items", items);
+        return pageData;
+    }
+    
     /**
      * 查看公告详情
      */
@@ -237,10 +251,14 @@ public class CommunityNoticeController {
                 return response;
             }
             
-            Map<String, Object> pageData = communityNoticeService.searchNotices(1L, request);
+            // 同一社区同一关键词同一页的结果对所有业主相同，社区公告版本号不变时直接复用
+            Long communityId = 1L;
+            String cacheKey = "search:" + communityId + ":" + request.getKeyword() + ":" + request.getPage() + ":" + request.getSize();
+            NoticeListCache.Cached cached = noticeListCache.get(cacheKey, List.of(communityId),
+                    () -> communityNoticeService.searchNotices(communityId, request));
             
             response.put("success", true);
-            response.put("data", pageData);
+            response.put("data", cached.getData());
             response.put("message", "搜索成功");
             return response;
         } catch (Exception e) {
@@ -290,10 +308,12 @@ public class CommunityNoticeController {
      * 获取公告分类列表
      */
     @GetMapping("/categories")
-    @Operation(summary = "获取公告分类列表", description = "获取所有可用的公告分类")
+    @Operation(summary = "获取公告分类列表", description = "获取所有可用的公告分类；响应带 ETag，携带 If-None-Match 且内容未变时返回 304")
     public Map<String, Object> getNoticeCategories(
             @Parameter(description = "Authorization Token", required = true)
-            @RequestHeader("Authorization") String token) {
+            @RequestHeader("Authorization") String token,
+            WebRequest webRequest,
+            HttpServletResponse httpResponse) {
         
         Map<String, Object> response = new HashMap<>();
         try {
@@ -307,31 +327,15 @@ public class CommunityNoticeController {
                 return response;
             }
             
-            // 返回公告分类列表
-            List<Map<String, String>> categories = new ArrayList<>();
-            categories.add(new HashMap<String, String>() {{
-                put("value", "");
-                put("label", "全部");
-            }});
-            categories.add(new HashMap<String, String>() {{
-                put("value", "社区公告");
-                put("label", "社区公告");
-            }});
-            categories.add(new HashMap<String, String>() {{
-                put("value", "活动公告");
-                put("label", "活动公告");
-            }});
-            categories.add(new HashMap<String, String>() {{
-                put("value", "紧急通知");
-                put("label", "紧急通知");
-            }});
-            categories.add(new HashMap<String, String>() {{
-                put("value", "温馨提示");
-                put("label", "温馨提示");
-            }});
+            // 分类固定，不依赖任何社区的公告
+            NoticeListCache.Cached cached = noticeListCache.get("categories", List.of(), this::buildCategories);
+            httpResponse.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            if (webRequest.checkNotModified(cached.getEtag())) {
+                return null;
+            }
             
             response.put("success", true);
-            response.put("data", categories);
+            response.put("data", cached.getData());
             response.put("message", "获取分类成功");
             return response;
         } catch (Exception e) {
@@ -340,5 +344,29 @@ public class CommunityNoticeController {
             return response;
         }
     }
+    
+    private List<Map<String, String>> buildCategories() {
+        List<Map<String, String>> categories = new ArrayList<>();
+        categories.add(new HashMap<String, String>() {{
+            put("value", "");
+            put("label", "全部");
+        }});
+        categories.add(new HashMap<String, String>() {{
+            put("value", "社区公告");
+            put("label", "社区公告");
+        }});
+        categories.add(new HashMap<String, String>() {{
+            put("value", "活动公告");
+            put("label", "活动公告");
+        }});
+        categories.add(new HashMap<String, String>() {{
+            put("value", "紧急通知");
+            put("label", "紧急通知");
+        }});
+        categories.add(new HashMap<String, String>() {{
+            put("value", "温馨提示");
+            put("label", "温馨提示");
+        }});
+        return categories;
+    }
 }
-
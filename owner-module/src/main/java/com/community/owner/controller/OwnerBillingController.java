@@ -79,7 +79,7 @@ public class OwnerBillingController {
 
             List<Map<String, Object>> cards = new ArrayList<>();
 
-            // 1. 查询仪表账单（仅包含有抄表记录的仪表）
+            // 1. 查询仪表账单（读取账单台账）
             List<Map<String, Object>> meterItems = ownerQueryService.listOwnerBillingCardsWithDetails(me.getId());
             if (meterItems != null && !meterItems.isEmpty()) {
                 for (Map<String, Object> row : meterItems) {
@@ -96,19 +96,18 @@ public class OwnerBillingController {
                     card.put("buildingNo", row.get("building_no"));
                     card.put("buildingName", row.get("building_name"));
                     
-                    // 从meter_reading获取用量信息
+                    // 用量、单价、应缴金额均取自账单台账（抄表时已计算）
                     BigDecimal usage = row.get("usage_amount") != null ? 
-                            new BigDecimal(row.get("usage_amount").toString()) : BigDecimal.ZERO;
-                    
-                    // 获取单价（从meter_config）
+                            (BigDecimal) row.get("usage_amount") : BigDecimal.ZERO;
                     BigDecimal unitPrice = row.get("unit_price") != null ? 
-                            new BigDecimal(row.get("unit_price").toString()) : BigDecimal.ZERO;
-                    
-                    // 计算应缴金额 = 用量 × 单价
-                    BigDecimal amount = usage.multiply(unitPrice);
+                            (BigDecimal) row.get("unit_price") : BigDecimal.ZERO;
+                    BigDecimal amount = row.get("amount") != null ? 
+                            (BigDecimal) row.get("amount") : BigDecimal.ZERO;
                     
                     // 仅添加有待缴费用的账单
                     if (amount.compareTo(BigDecimal.ZERO) > 0) {
+                        card.put("billId", row.get("bill_id"));
+                        card.put("readingId", row.get("reading_id"));
                         card.put("usage", usage);
                         card.put("unitPrice", unitPrice);
                         card.put("amount", amount);
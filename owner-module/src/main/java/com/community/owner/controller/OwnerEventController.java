@@ -0,0 +1,98 @@
+package com.community.owner.controller;
+
+import com.community.owner.config.OwnerEventProperties;
+import com.community.owner.entity.Owner;
+import com.community.owner.service.OwnerEventBus;
+import com.community.owner.service.OwnerQueryService;
+import com.community.owner.service.OwnerService;
+import com.community.owner.utils.JwtUtil;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 业主事件推送控制器
+ * 工单状态变更、新公告、车位/车辆申请审核结果通过 SSE 实时推送，小程序无需轮询列表接口
+ */
+@RestController
+@RequestMapping("/api/owner/events")
+@Tag(name = "业主事件推送", description = "SSE 推送工单、公告、申请审核等状态变更")
+public class OwnerEventController {
+
+    private static final Logger logger = LoggerFactory.getLogger(OwnerEventController.class);
+
+    @Autowired
+    private OwnerEventBus ownerEventBus;
+
+    @Autowired
+    private OwnerEventProperties properties;
+
+    @Autowired
+    private OwnerService ownerService;
+
+    @Autowired
+    private OwnerQueryService ownerQueryService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    /**
+     * 订阅事件流
+     * 连接建立后先推送 connected 事件，之后按事件类型（issue/notice/application）推送，
+     * 数据为 JSON：{"ownerId","communityId","type","data","ts"}；空闲时定期发送心跳注释
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "订阅事件流", description = "SSE 长连接，实时接收工单状态、社区公告、申请审核结果，收到事件后再按需刷新对应列表")
+    public Flux<ServerSentEvent<String>> stream(
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        return Flux.defer(() -> {
+            if (!properties.isEnabled()) {
+                return Flux.just(errorEvent("事件推送未开启"));
+            }
+            Owner owner;
+            try {
+                String username = jwtUtil.getUsernameFromToken(token.replace("Bearer ", ""));
+                owner = ownerService.findByUsername(username);
+            } catch (Exception e) {
+                logger.warn("事件流鉴权失败: {}", e.getMessage());
+                owner = null;
+            }
+            if (owner == null) {
+                return Flux.just(errorEvent("用户不存在，请重新登录。"));
+            }
+
+            Long ownerId = owner.getId();
+            List<Long> communityIds = ownerQueryService.listOwnerCommunityIds(ownerId);
+            OwnerEventBus.Subscription subscription = ownerEventBus.subscribe(ownerId, communityIds);
+
+            ServerSentEvent<String> connected = ServerSentEvent.<String>builder()
+                    .event("connected")
+                    .data("{\"ownerId\":" + ownerId + "}")
+                    .build();
+            Flux<ServerSentEvent<String>> heartbeat = Flux.interval(properties.getHeartbeat())
+                    .map(i -> ServerSentEvent.<String>builder().comment("heartbeat").build());
+
+            return Flux.just(connected)
+                    .concatWith(Flux.merge(subscription.flux(), heartbeat))
+                    .doFinally(signal -> ownerEventBus.unsubscribe(subscription));
+        });
+    }
+
+    private static ServerSentEvent<String> errorEvent(String message) {
+        return ServerSentEvent.<String>builder()
+                .event("error")
+                .data(message)
+                .build();
+    }
+}
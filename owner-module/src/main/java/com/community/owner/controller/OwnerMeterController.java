@@ -22,6 +22,8 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
 
 @RestController
@@ -276,6 +278,88 @@ public class OwnerMeterController {
         }
     }
 
+    @GetMapping("/{meterId}/trend")
+    @Operation(summary = "仪表用量趋势", description = "读取日/月/年用量汇总，默认最近24个月，缺失周期补0")
+    public Map<String, Object> getMeterTrend(
+            @RequestHeader("Authorization") String token,
+            @PathVariable("meterId") Long meterId,
+            @RequestParam(defaultValue = "month") String granularity,
+            @RequestParam(defaultValue = "24") Integer periods
+    ) {
+        Map<String, Object> resp = new LinkedHashMap<>();
+        try {
+            if (!Arrays.asList("day", "month", "year").contains(granularity) || periods == null || periods < 1 || periods > 366) {
+                resp.put("success", false);
+                resp.put("message", "参数无效");
+                return resp;
+            }
+            Owner me = getCurrentOwner(token);
+            if (me == null) {
+                resp.put("success", false);
+                resp.put("message", "用户不存在");
+                return resp;
+            }
+            MeterInfo m = meterInfoService.getById(meterId);
+            if (m == null) {
+                resp.put("success", false);
+                resp.put("message", "仪表不存在");
+                return resp;
+            }
+            QueryWrapper<HouseOwner> hoQ = new QueryWrapper<>();
+            hoQ.eq("house_id", m.getHouseId()).eq("owner_id", me.getId());
+            if (houseOwnerService.count(hoQ) == 0) {
+                resp.put("success", false);
+                resp.put("message", "无权查看该仪表");
+                return resp;
+            }
+
+            LocalDate today = LocalDate.now();
+            LocalDate end = "day".equals(granularity) ? today
+                    : "year".equals(granularity) ? today.withDayOfYear(1) : today.withDayOfMonth(1);
+            LocalDate start = stepPeriod(granularity, end, -(periods - 1));
+
+            Map<LocalDate, Map<String, Object>> rows = new HashMap<>();
+            for (Map<String, Object> row : ownerQueryService.listMeterUsageRollup(meterId, granularity, start, end)) {
+                rows.put(((java.sql.Date) row.get("period_start")).toLocalDate(), row);
+            }
+            List<Map<String, Object>> trend = new ArrayList<>(periods);
+            for (LocalDate p = start; !p.isAfter(end); p = stepPeriod(granularity, p, 1)) {
+                Map<String, Object> row = rows.get(p);
+                Map<String, Object> point = new LinkedHashMap<>();
+                point.put("periodStart", p.toString());
+                point.put("period", "day".equals(granularity) ? p.toString()
+                        : "year".equals(granularity) ? String.valueOf(p.getYear()) : p.toString().substring(0, 7));
+                point.put("usageAmount", row != null ? row.get("usage_amount") : BigDecimal.ZERO);
+                point.put("readingCount", row != null ? row.get("reading_count") : 0);
+                trend.add(point);
+            }
+
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("meterId", m.getId());
+            data.put("meterName", m.getMeterName());
+            data.put("categoryName", m.getCategoryName());
+            data.put("unit", m.getUnit());
+            data.put("granularity", granularity);
+            data.put("trend", trend);
+
+            resp.put("success", true);
+            resp.put("data", data);
+            resp.put("message", "获取成功");
+            return resp;
+        } catch (Exception e) {
+            resp.put("success", false);
+            resp.put("message", "获取失败: " + e.getMessage());
+            return resp;
+        }
+    }
+
+    private static LocalDate stepPeriod(String granularity, LocalDate date, int n) {
+        if ("day".equals(granularity)) {
+            return date.plusDays(n);
+        }
+        return "year".equals(granularity) ? date.plusYears(n) : date.plusMonths(n);
+    }
+
     public static class ApplyAddMeterRequest {
         public Long communityId; // 必填
         public Long houseId; // 必填
@@ -478,25 +562,18 @@ public class OwnerMeterController {
                 item.put("readingDate", row.get("reading_date"));
                 item.put("readingStatus", row.get("reading_status"));
                 item.put("processed", row.get("processed"));
+                item.put("billingPeriod", row.get("billing_period"));
+                item.put("payStatus", row.get("pay_status"));
                 item.put("createdAt", row.get("created_at"));
                 
                 // 配置信息
                 item.put("calculationMethod", row.get("calculation_method"));
                 item.put("configStatus", row.get("config_status"));
                 
-                // 账单金额：直接使用数据库计算结果（ROUND处理过）
-                Object billAmountObj = row.get("total_amount");
-                java.math.BigDecimal billAmount = java.math.BigDecimal.ZERO;
-                
-                if (billAmountObj != null) {
-                    if (billAmountObj instanceof java.math.BigDecimal) {
-                        billAmount = (java.math.BigDecimal) billAmountObj;
-                    } else if (billAmountObj instanceof Number) {
-                        billAmount = new java.math.BigDecimal(((Number) billAmountObj).doubleValue());
-                    } else if (billAmountObj instanceof String) {
-                        billAmount = new java.math.BigDecimal((String) billAmountObj);
-                    }
-                }
+                // 账单金额：直接使用账单台账中的金额（抄表时已按配置单价计算）
+                item.put("billId", row.get("bill_id"));
+                java.math.BigDecimal billAmount = row.get("bill_amount") != null
+                        ? (java.math.BigDecimal) row.get("bill_amount") : java.math.BigDecimal.ZERO;
                 
                 item.put("billAmount", billAmount);
                 totalAmount = totalAmount.add(billAmount);
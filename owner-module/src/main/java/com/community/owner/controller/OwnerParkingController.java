@@ -9,6 +9,7 @@ import com.community.owner.service.OwnerService;
 import com.community.owner.service.ParkingLotService;
 import com.community.owner.service.ParkingSpaceService;
 import com.community.owner.service.OwnerQueryService;
+import com.community.owner.service.ParkingAvailabilityIndex;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -41,6 +42,9 @@ public class OwnerParkingController {
     @Autowired
     private OwnerQueryService ownerQueryService;
 
+    @Autowired
+    private ParkingAvailabilityIndex parkingAvailabilityIndex;
+
     private Owner getCurrentOwner(String token) {
         String realToken = token.replace("Bearer ", "");
         String username = jwtUtil.getUsernameFromToken(realToken);
@@ -393,10 +397,10 @@ public class OwnerParkingController {
             if (size == null || size < 1) size = 10;
             int offset = (page - 1) * size;
 
-            // 查询所有停车位（按状态筛选）
-            List<Map<String, Object>> spaceRows = ownerQueryService.listAvailableParkingSpacesByStatus(
-                    me.getId(), spaceStatus, size, offset);
-            Long total = ownerQueryService.countAvailableParkingSpacesByStatus(me.getId(), spaceStatus);
+            // 查询所有停车位（按状态筛选）：分页和总数取自车位状态索引，只回表取当前页
+            List<Long> spaceIds = parkingAvailabilityIndex.page(null, spaceStatus, offset, size, true);
+            List<Map<String, Object>> spaceRows = ownerQueryService.listParkingSpacesByIds(spaceIds);
+            long total = parkingAvailabilityIndex.count(null, spaceStatus);
 
             logger.info("查询结果 - 找到 {} 条停车位记录，总数: {}", spaceRows != null ? spaceRows.size() : 0, total);
 
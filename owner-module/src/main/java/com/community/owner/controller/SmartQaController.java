@@ -4,6 +4,7 @@ import com.community.owner.dto.QaRequest;
 import com.community.owner.utils.JwtUtil;
 import com.community.owner.entity.Owner;
 import com.community.owner.service.OwnerService;
+import com.community.owner.service.QaAdmissionService;
 import com.community.owner.service.SmartQaService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,6 +18,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 
 import java.time.Duration;
@@ -39,6 +41,9 @@ public class SmartQaController {
     @Autowired
     private SmartQaService smartQaService;
     
+    @Autowired
+    private QaAdmissionService admissionService;
+    
     @Autowired
     private OwnerService ownerService;
     
@@ -96,8 +101,8 @@ public class SmartQaController {
                 
                 logger.info("开始为用户 {} (ID: {}) 处理问题", owner.getName(), owner.getId());
                 
-                // 3. 调用智能问答服务（流式输出）
-                return smartQaService.streamChat(request, owner.getId())
+                // 3. 准入后调用智能问答服务（流式输出）
+                return admissionService.admit(owner.getId(), () -> smartQaService.streamChat(request, owner.getId()))
                         .filter(chunk -> chunk != null && !chunk.trim().isEmpty())
                         .map(chunk -> ServerSentEvent.<String>builder()
                             .event("message")
@@ -109,6 +114,15 @@ public class SmartQaController {
                             .build()))
                         .doOnComplete(() -> logger.info("流式输出完成"))
                         .doOnError(e -> logger.error("流式输出错误: {}", e.getMessage(), e))
+                        .onErrorResume(QaAdmissionService.RejectedException.class, e -> {
+                            logger.warn("智能问答请求被拒绝: 用户={}, 原因={}", owner.getId(), e.getMessage());
+                            return Flux.just(
+                                ServerSentEvent.<String>builder()
+                                    .event("error")
+                                    .data(e.getMessage())
+                                    .build()
+                            );
+                        })
                         .onErrorResume(e -> {
                             logger.error("智能问答服务异常", e);
                             return Flux.just(
@@ -187,11 +201,11 @@ public class SmartQaController {
             
             logger.info("开始为用户 {} (ID: {}) 处理异步问题", owner.getName(), owner.getId());
             
-            // 3. 调用智能问答服务，异步收集所有流式数据
+            // 3. 准入后调用智能问答服务，异步收集所有流式数据
             CompletableFuture<String> future = new CompletableFuture<>();
             StringBuilder fullResponse = new StringBuilder();
             
-            smartQaService.streamChat(request, owner.getId())
+            Disposable subscription = admissionService.admit(owner.getId(), () -> smartQaService.streamChat(request, owner.getId()))
                     .filter(chunk -> chunk != null && !chunk.trim().isEmpty())
                     .subscribe(
                         chunk -> {
@@ -208,8 +222,13 @@ public class SmartQaController {
                         }
                     );
             
-            // 等待异步处理完成（最多60秒）
-            String answer = future.orTimeout(60, java.util.concurrent.TimeUnit.SECONDS).get();
+            // 等待异步处理完成（最多60秒），超时或中断时取消上游模型流并归还准入许可
+            String answer;
+            try {
+                answer = future.orTimeout(60, java.util.concurrent.TimeUnit.SECONDS).get();
+            } finally {
+                subscription.dispose();
+            }
             
             if (answer == null || answer.isEmpty()) {
                 logger.warn("异步问答无响应");
@@ -230,6 +249,12 @@ public class SmartQaController {
             
         } catch (java.util.concurrent.ExecutionException e) {
             logger.error("异步问答执行异常: {}", e.getMessage(), e);
+            // 准入被拒绝
+            if (e.getCause() instanceof QaAdmissionService.RejectedException) {
+                resp.put("success", false);
+                resp.put("message", e.getCause().getMessage());
+                return ResponseEntity.status(429).body(resp);
+            }
             // 检查是否是超时异常
             if (e.getCause() instanceof java.util.concurrent.TimeoutException) {
                 resp.put("success", false);
@@ -0,0 +1,39 @@
+package com.community.owner.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.TableId;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("smart_qa_keyword")
+public class SmartQaKeyword {
+    
+    @TableId
+    private Long id;
+    
+    /**
+     * 词条
+     */
+    private String word;
+    
+    /**
+     * 词条标签: keyword(知识库检索关键词)/house/vehicle/fee/meter(意图)
+     */
+    private String tag;
+    
+    /**
+     * 状态:启用/禁用
+     */
+    private String status;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createdAt;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,12 @@
+package com.community.owner.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.community.owner.entity.SmartQaKeyword;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 智能问答词典DAO接口
+ */
+@Mapper
+public interface SmartQaKeywordMapper extends BaseMapper<SmartQaKeyword> {
+}
@@ -4,7 +4,6 @@ import com.community.owner.dto.AIDialogResponse;
 import com.community.owner.entity.SmartQaKnowledge;
 import com.community.owner.entity.SmartQaSearchHistory;
 import com.community.owner.mapper.SmartQaKnowledgeMapper;
-import com.community.owner.mapper.SmartQaSearchHistoryMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -29,7 +28,7 @@ public class AIDialogService {
     private SmartQaKnowledgeMapper kbMapper;
     
     @Autowired
-    private SmartQaSearchHistoryMapper historyMapper;
+    private SearchHistoryWriter historyWriter;
     
     @Autowired
     private DocumentContentService contentService;
@@ -173,18 +172,14 @@ public class AIDialogService {
     }
     
     /**
-     * 保存搜索历史
+     * 保存搜索历史（放入队列，由后台线程批量写入）
      */
     private void saveSearchHistory(Long ownerId, String query, String queryType, Long docId) {
-        try {
-            SmartQaSearchHistory history = new SmartQaSearchHistory();
-            history.setOwnerId(ownerId);
-            history.setQuery(query);
-            history.setQueryType(queryType);
-            history.setDocId(docId);
-            historyMapper.insert(history);
-        } catch (Exception e) {
-            log.warn("保存搜索历史失败", e);
-        }
+        SmartQaSearchHistory history = new SmartQaSearchHistory();
+        history.setOwnerId(ownerId);
+        history.setQuery(query);
+        history.setQueryType(queryType);
+        history.setDocId(docId);
+        historyWriter.enqueue(history);
     }
 }
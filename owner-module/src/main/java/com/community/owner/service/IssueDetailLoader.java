@@ -0,0 +1,119 @@
+package com.community.owner.service;
+
+import com.community.owner.dto.IssueDetailVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 业主端工单详情加载
+ * 详情由 OwnerQueryService 一次关联查询（工单、房屋、楼栋、社区、处理人员）得到。
+ * 已结束的工单（已解决/已完成/已关闭）组装结果放入 LRU 缓存，命中时只按主键查一次状态指纹
+ * （修改时间、状态、工单进度、评价、房屋与处理人员），并校验工单归属，指纹不变即直接返回；业主端、物业端的修改都会改变指纹。
+ * 房屋、楼栋、社区、处理人员的名称等不在指纹内，缓存最多保留 ttl-ms
+ */
+@Service
+public class IssueDetailLoader {
+
+    private static final Set<String> FINISHED_STATUSES = Set.of("已解决", "已完成", "已关闭");
+
+    private static final int MAX_CACHED = 5000;
+
+    private static final String FINGERPRINT_SQL =
+            "SELECT updated_at, issue_status, work_status, is_evaluated, satisfaction_level, satisfaction_feedback, " +
+            "house_id, assigned_staff_id FROM owner_issue WHERE id = ? AND owner_id = ?";
+
+    @Autowired
+    private OwnerQueryService ownerQueryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${issue.detail.cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    /** 工单ID -> 已结束工单的详情 */
+    private final Map<Long, CachedDetail> cache = Collections.synchronizedMap(
+            new LinkedHashMap<Long, CachedDetail>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedDetail> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = meterRegistry.counter("owner.issue.detail.cache", "result", "hit");
+        missCounter = meterRegistry.counter("owner.issue.detail.cache", "result", "miss");
+    }
+
+    /**
+     * 加载业主自己的工单详情
+     *
+     * @return 工单不存在或不属于该业主时返回 null；返回的对象可能被缓存共享，调用方不要修改
+     */
+    public IssueDetailVO load(Long issueId, Long ownerId) {
+        CachedDetail cached = cache.get(issueId);
+        if (cached != null) {
+            if (System.currentTimeMillis() - cached.loadedAt < ttlMs) {
+                String fingerprint = fingerprint(issueId, ownerId);
+                if (fingerprint == null) {
+                    return null;
+                }
+                if (fingerprint.equals(cached.fingerprint)) {
+                    hitCounter.increment();
+                    return cached.detail;
+                }
+            }
+            cache.remove(issueId);
+        }
+        missCounter.increment();
+
+        // 先取指纹再查详情：两次查询之间工单若被修改，缓存的指纹较旧，下次访问即重新加载
+        String fingerprint = fingerprint(issueId, ownerId);
+        if (fingerprint == null) {
+            return null;
+        }
+        IssueDetailVO detail = ownerQueryService.findIssueDetail(issueId, ownerId);
+        if (detail != null && FINISHED_STATUSES.contains(detail.getIssueStatus())) {
+            cache.put(issueId, new CachedDetail(fingerprint, detail, System.currentTimeMillis()));
+        }
+        return detail;
+    }
+
+    /**
+     * 工单状态指纹，工单不存在或不属于该业主时返回 null
+     */
+    private String fingerprint(Long issueId, Long ownerId) {
+        List<String> rows = jdbcTemplate.query(FINGERPRINT_SQL, (rs, i) -> rs.getTimestamp("updated_at") + "|" +
+                rs.getString("issue_status") + '|' + rs.getString("work_status") + '|' +
+                rs.getObject("is_evaluated") + '|' + rs.getObject("satisfaction_level") + '|' +
+                rs.getString("satisfaction_feedback") + '|' + rs.getObject("house_id") + '|' +
+                rs.getObject("assigned_staff_id"), issueId, ownerId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static final class CachedDetail {
+        final String fingerprint;
+        final IssueDetailVO detail;
+        final long loadedAt;
+
+        CachedDetail(String fingerprint, IssueDetailVO detail, long loadedAt) {
+            this.fingerprint = fingerprint;
+            this.detail = detail;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
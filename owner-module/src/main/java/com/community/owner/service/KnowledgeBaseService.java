@@ -20,6 +20,12 @@ public class KnowledgeBaseService {
     @Autowired
     private DocumentContentService contentService;
     
+    @Autowired
+    private QaDictionaryService dictionaryService;
+    
+    @Autowired
+    private SearchHistoryWriter historyWriter;
+    
     /**
      * 在知识库中搜索相关文档
      */
@@ -63,38 +69,17 @@ public class KnowledgeBaseService {
     }
     
     /**
-     * 提取问题中的关键词
+     * 提取问题中的关键词（词典自动机一次扫描）
      */
     private List<String> extractKeywords(String question) {
-        List<String> keywords = new ArrayList<>();
-        
-        // 常见关键词
-        String[] commonKeywords = {
-            "停车", "费用", "物业", "报修", "投诉", 
-            "缴费", "车辆", "房屋", "通知", "账户",
-            "打折", "优惠", "如何", "怎么", "申请",
-            "办理", "流程", "规定", "政策", "制度",
-            "服务", "管理", "规则", "收费", "缴纳"
-        };
-        
-        for (String keyword : commonKeywords) {
-            if (question.contains(keyword)) {
-                keywords.add(keyword);
-            }
-        }
-        
-        return keywords;
+        return dictionaryService.match(question).getWords(QaDictionaryService.TAG_KEYWORD);
     }
     
     /**
-     * 增加文档查看次数
+     * 增加文档查看次数（聚合后由后台线程批量更新）
      */
     public void increaseViewCount(Long docId) {
-        SmartQaKnowledge doc = kbMapper.selectById(docId);
-        if (doc != null) {
-            doc.setViewCount((doc.getViewCount() == null ? 0 : doc.getViewCount()) + 1);
-            kbMapper.updateById(doc);
-        }
+        historyWriter.recordView(docId);
     }
 }
 
@@ -0,0 +1,371 @@
+package com.community.owner.service;
+
+import com.community.owner.config.KnowledgeCacheProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 知识库文件缓存
+ * 1. 共享的 HttpClient（HTTP/2 优先、连接复用、连接/读取超时）
+ * 2. 本地磁盘 LRU 缓存（条目数和总大小双上限），元数据（ETag/Last-Modified）写入同名 .meta 文件，重启后可继续使用
+ * 3. 超过 revalidateAfter 后用 If-None-Match / If-Modified-Since 条件请求，304 时不再下载
+ * 4. 下载失败时若本地有旧文件则继续使用旧文件
+ * 5. 每次下载写入新的文件名，被淘汰或替换的旧文件延迟 evictionGrace 后删除，已返回给调用方的文件在此期间可继续读取
+ * 缓存文件放在配置目录下专用的 cache 子目录，启动清理只处理该子目录，不会删除配置目录中其他程序写入的 knowledge_* 文件
+ */
+@Slf4j
+@Service
+public class KnowledgeFileCache {
+
+    private static final String META_SUFFIX = ".meta";
+
+    private static final String KEY_PREFIX = "knowledge_";
+
+    /** 缓存专用子目录 */
+    private static final String CACHE_SUBDIR = "cache";
+
+    /** 下载锁分段数 */
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private KnowledgeCacheProperties properties;
+
+    private HttpClient httpClient;
+
+    private Path cacheDir;
+
+    /** LRU 索引（访问顺序），受 this 保护 */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    /** 同一文件同时只下载一次（按缓存键分段加锁，锁对象数量固定） */
+    private final Object[] keyLocks = new Object[LOCK_STRIPES];
+
+    /** 下载超时中断、旧文件延迟删除 */
+    private ScheduledExecutorService timer;
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new Object();
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "knowledge-cache-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        cacheDir = Path.of(properties.getDir()).resolve(CACHE_SUBDIR);
+        try {
+            Files.createDirectories(cacheDir);
+            loadIndex();
+        } catch (Exception e) {
+            log.warn("知识库缓存目录初始化失败: {}", cacheDir.toAbsolutePath(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取知识库文件的本地副本
+     *
+     * @param url 文件地址
+     * @return 本地文件；下载失败且无缓存时返回 null
+     */
+    public File fetch(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            return null;
+        }
+
+        String key = cacheKey(url);
+        Object keyLock = keyLocks[Math.floorMod(key.hashCode(), keyLocks.length)];
+        synchronized (keyLock) {
+            Entry cached;
+            synchronized (this) {
+                cached = entries.get(key);
+            }
+            if (cached != null && !cached.file.exists()) {
+                remove(key);
+                cached = null;
+            }
+
+            long now = System.currentTimeMillis();
+            if (cached != null && now - cached.validatedAt < properties.getRevalidateAfter().toMillis()) {
+                return cached.file;
+            }
+
+            return download(url, key, cached);
+        }
+    }
+
+    private File download(String url, String key, Entry cached) {
+        Path tmp = null;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(properties.getReadTimeout())
+                    .header("User-Agent", "Mozilla/5.0")
+                    .GET();
+            if (cached != null && cached.etag != null) {
+                builder.header("If-None-Match", cached.etag);
+            }
+            if (cached != null && cached.lastModified != null) {
+                builder.header("If-Modified-Since", cached.lastModified);
+            }
+
+            HttpResponse<InputStream> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+            if (response.statusCode() == 304 && cached != null) {
+                response.body().close();
+                cached.validatedAt = System.currentTimeMillis();
+                log.debug("知识库文件未修改，使用缓存: {}", url);
+                return cached.file;
+            }
+
+            if (response.statusCode() != 200) {
+                response.body().close();
+                log.warn("知识库文件下载失败: status={}, url={}", response.statusCode(), url);
+                return cached != null ? cached.file : null;
+            }
+
+            // 每个版本一个文件名，替换时不覆盖调用方可能正在读取的旧文件
+            File target = cacheDir.resolve(key + "_" + System.currentTimeMillis() + fileExt(url)).toFile();
+            tmp = Files.createTempFile(cacheDir, key, ".part");
+            long size;
+            InputStream in = response.body();
+            // HttpRequest.timeout 只限制到收到响应头为止，响应体超时由定时任务关闭输入流中断读取
+            ScheduledFuture<?> bodyTimeout = timer.schedule(() -> closeQuietly(in),
+                    properties.getBodyTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            try (in; OutputStream out = Files.newOutputStream(tmp)) {
+                size = in.transferTo(out);
+            } finally {
+                bodyTimeout.cancel(false);
+            }
+            if (size == 0) {
+                log.warn("知识库文件为空: {}", url);
+                return cached != null ? cached.file : null;
+            }
+            Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Entry entry = new Entry(url, target,
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null),
+                    size);
+            writeMeta(key, entry);
+            put(key, entry);
+            log.info("知识库文件已下载: {} ({} 字节)", url, size);
+            return target;
+        } catch (Exception e) {
+            log.warn("知识库文件下载异常: {} - {}", url, e.getMessage());
+            return cached != null ? cached.file : null;
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (Exception e) {
+                    log.warn("删除下载临时文件失败: {}", tmp);
+                }
+            }
+        }
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            totalBytes -= old.size;
+            if (!old.file.equals(entry.file)) {
+                retire(old.file);
+            }
+        }
+        totalBytes += entry.size;
+
+        // 淘汰最久未使用的文件
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > properties.getMaxEntries() || totalBytes > properties.getMaxBytes()) && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= eldest.getValue().size;
+            deleteMeta(eldest.getKey());
+            retire(eldest.getValue().file);
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            totalBytes -= old.size;
+            deleteMeta(key);
+        }
+    }
+
+    /**
+     * 启动时从 .meta 文件恢复索引（按文件修改时间近似 LRU 顺序），并清理上次未删除的旧版本文件和下载临时文件
+     * （只清理缓存子目录）
+     */
+    private void loadIndex() throws Exception {
+        List<Path> metas = new ArrayList<>();
+        try (var stream = Files.list(cacheDir)) {
+            stream.filter(p -> p.getFileName().toString().endsWith(META_SUFFIX)).forEach(metas::add);
+        }
+        metas.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+
+        for (Path meta : metas) {
+            String name = meta.getFileName().toString();
+            String key = name.substring(0, name.length() - META_SUFFIX.length());
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(meta)) {
+                props.load(in);
+            }
+            String url = props.getProperty("url");
+            String fileName = props.getProperty("file", url != null ? key + fileExt(url) : null);
+            File file = url != null ? cacheDir.resolve(fileName).toFile() : null;
+            if (file == null || !file.exists()) {
+                Files.deleteIfExists(meta);
+                continue;
+            }
+            Entry entry = new Entry(url, file, props.getProperty("etag"), props.getProperty("lastModified"), file.length());
+            // 重启后首次使用时重新验证
+            entry.validatedAt = 0;
+            put(key, entry);
+        }
+
+        Set<String> inUse = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            inUse.add(entry.file.getName());
+        }
+        try (var stream = Files.list(cacheDir)) {
+            stream.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(KEY_PREFIX) && !name.endsWith(META_SUFFIX) && !inUse.contains(name);
+            }).forEach(p -> p.toFile().delete());
+        }
+        log.info("知识库缓存索引加载完成: {} 个文件, {} 字节", entries.size(), totalBytes);
+    }
+
+    private void writeMeta(String key, Entry entry) {
+        Properties props = new Properties();
+        props.setProperty("url", entry.url);
+        props.setProperty("file", entry.file.getName());
+        if (entry.etag != null) {
+            props.setProperty("etag", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            props.setProperty("lastModified", entry.lastModified);
+        }
+        try (OutputStream out = Files.newOutputStream(cacheDir.resolve(key + META_SUFFIX))) {
+            props.store(out, null);
+        } catch (Exception e) {
+            log.warn("写入缓存元数据失败: {}", key, e);
+        }
+    }
+
+    private void deleteMeta(String key) {
+        try {
+            Files.deleteIfExists(cacheDir.resolve(key + META_SUFFIX));
+        } catch (Exception e) {
+            log.warn("删除缓存元数据失败: {}", key);
+        }
+    }
+
+    /**
+     * 已不在索引中的文件延迟删除，调用方在此期间仍可读取
+     */
+    private void retire(File file) {
+        timer.schedule(() -> {
+            if (file.exists() && !file.delete()) {
+                log.warn("删除缓存文件失败: {}", file.getAbsolutePath());
+            }
+        }, properties.getEvictionGrace().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (Exception e) {
+            log.debug("关闭下载流失败: {}", e.getMessage());
+        }
+    }
+
+    private static String cacheKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+            return KEY_PREFIX + HexFormat.of().formatHex(hash, 0, 16);
+        } catch (Exception e) {
+            return KEY_PREFIX + Integer.toHexString(url.hashCode());
+        }
+    }
+
+    private static String fileExt(String url) {
+        String path = url.contains("?") ? url.substring(0, url.indexOf("?")) : url;
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        return dot > slash ? path.substring(dot) : "";
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+
+        final String url;
+        final File file;
+        final String etag;
+        final String lastModified;
+        final long size;
+        volatile long validatedAt;
+
+        Entry(String url, File file, String etag, String lastModified, long size) {
+            this.url = url;
+            this.file = file;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.validatedAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,603 @@
+package com.community.owner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 公告受众索引
+ * 按社区保存对业主可见（已发布、已审核、面向全体业主）的公告：公告ID按置顶、发布时间排好序，
+ * 公告类型、目标楼栋、目标业主类型各建一组位图（位下标即排序后的位置），未限定楼栋/业主类型的公告单独一张位图。
+ * 业主所在社区、楼栋、身份缓存 owner-ttl-ms（房屋认证在物业端完成，过期后重新加载）。业主公告流和按受众筛选都在内存里做位图求交，
+ * 只把当前页的公告ID交给调用方按 IN 查询，不再对 JSON 文本做 LIKE，也不再连 house、house_owner 去重。
+ * 物业端修改公告后经 Redis 发布 notice 事件，本进程立即重载该社区；另按 updated_at 增量同步、定期全量重建兜底。
+ * 当前有效期内的公告由 NoticeWindowScheduler 维护，快照装入时一并交给它。
+ * 目标楼栋装入时按社区的楼栋表统一换成楼栋ID（楼栋ID、编号、名称各自解析，不混在一起比较），业主按所在房屋的楼栋ID匹配
+ */
+@Slf4j
+@Service
+public class NoticeAudienceIndex {
+
+    private static final String SELECT_NOTICES_SQL =
+            "SELECT id, community_id, notice_type, is_top, publish_time, start_time, end_time, " +
+            "target_buildings, target_owner_types, updated_at FROM community_notice " +
+            "WHERE status = '已发布' AND approval_status = '已审核' AND target_audience = '全体业主'";
+
+    private static final String CHANGED_COMMUNITIES_SQL =
+            "SELECT community_id, MAX(updated_at) AS last_updated FROM community_notice " +
+            "WHERE updated_at >= ? GROUP BY community_id";
+
+    private static final String OWNER_AUDIENCE_SQL =
+            "SELECT h.community_id, h.building_id, ho.relationship " +
+            "FROM house_owner ho INNER JOIN house h ON h.id = ho.house_id " +
+            "WHERE ho.owner_id = ? AND ho.is_verified = 1";
+
+    private static final String SELECT_BUILDINGS_SQL =
+            "SELECT id, community_id, building_no, building_name FROM building";
+
+    /** 目标楼栋中按楼栋ID给出的值（JSON 数字，或已解析出的楼栋） */
+    private static final String BUILDING_ID = "id:";
+
+    /** 目标楼栋中的文本值，装入时再按楼栋编号、名称、ID解析；解析不出的保持原样 */
+    private static final String BUILDING_TEXT = "text:";
+
+    /** 同社区内的排序：置顶在前，再按发布时间、ID 倒序 */
+    private static final Comparator<Entry> FEED_ORDER = Comparator
+            .comparingInt((Entry e) -> e.isTop).reversed()
+            .thenComparing(Comparator.comparingLong((Entry e) -> e.publishTime).reversed())
+            .thenComparing(Comparator.comparingLong((Entry e) -> e.id).reversed());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OwnerEventBus ownerEventBus;
+
+    @Autowired
+    private NoticeWindowScheduler windowScheduler;
+
+    @Value("${notice.index.refresh-interval-ms:30000}")
+    private long refreshIntervalMs;
+
+    @Value("${notice.index.rebuild-interval-ms:600000}")
+    private long rebuildIntervalMs;
+
+    @Value("${notice.index.owner-ttl-ms:300000}")
+    private long ownerTtlMs;
+
+    private ScheduledExecutorService refresher;
+
+    /** 社区ID -> 该社区的公告快照（不可变，整体替换） */
+    private final Map<Long, CommunityNotices> communities = new ConcurrentHashMap<>();
+
+    /** 业主ID -> 所在社区、楼栋、身份 */
+    private final Map<Long, OwnerAudience> owners = new ConcurrentHashMap<>();
+
+    /** 已同步到的最大 updated_at */
+    private volatile Timestamp watermark;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notice-index-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.warn("公告受众索引同步失败", e);
+            }
+        }, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.warn("公告受众索引重建失败", e);
+            }
+        }, rebuildIntervalMs, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+        ownerEventBus.addListener("notice", message -> {
+            JsonNode communityId = message.get("communityId");
+            if (communityId != null && !communityId.isNull()) {
+                refresher.execute(() -> reloadCommunity(communityId.asLong(), true));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 全量重建（删除公告不会改变 updated_at，靠全量重建和 notice 事件同步）
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Timestamp since = currentMaxUpdatedAt();
+        Map<Long, List<Entry>> grouped = new HashMap<>();
+        jdbcTemplate.query(SELECT_NOTICES_SQL, rs -> {
+            Entry entry = readEntry(rs);
+            grouped.computeIfAbsent(entry.communityId, k -> new ArrayList<>()).add(entry);
+        });
+        Map<Long, BuildingDirectory> directories = new HashMap<>();
+        jdbcTemplate.query(SELECT_BUILDINGS_SQL, rs -> {
+            directories.computeIfAbsent(rs.getLong("community_id"), k -> new BuildingDirectory())
+                    .add(rs.getString("id"), rs.getString("building_no"), rs.getString("building_name"));
+        });
+        for (Long communityId : new ArrayList<>(communities.keySet())) {
+            if (!grouped.containsKey(communityId)) {
+                install(communityId, Collections.emptyList(), BuildingDirectory.EMPTY, false);
+            }
+        }
+        grouped.forEach((communityId, entries) -> install(communityId, entries,
+                directories.getOrDefault(communityId, BuildingDirectory.EMPTY), false));
+        watermark = since;
+        log.info("公告受众索引已加载: {} 个社区, {} ms", grouped.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 按 updated_at 增量同步，有变化的社区整体重载
+     */
+    public void refresh() {
+        Timestamp since = watermark;
+        if (since == null) {
+            rebuild();
+            return;
+        }
+        Timestamp latest = since;
+        List<Long> changed = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(CHANGED_COMMUNITIES_SQL, since)) {
+            Object communityId = row.get("community_id");
+            if (communityId instanceof Number) {
+                changed.add(((Number) communityId).longValue());
+            }
+            Object lastUpdated = row.get("last_updated");
+            if (lastUpdated instanceof Timestamp && ((Timestamp) lastUpdated).after(latest)) {
+                latest = (Timestamp) lastUpdated;
+            }
+        }
+        for (Long communityId : changed) {
+            reloadCommunity(communityId, false);
+        }
+        watermark = latest;
+    }
+
+    /**
+     * 重载单个社区
+     *
+     * @param force 是否无论内容指纹是否变化都递增社区版本号（收到 notice 事件时，公告标题等未入索引的字段也可能变了）
+     */
+    public void reloadCommunity(Long communityId, boolean force) {
+        List<Entry> entries = jdbcTemplate.query(SELECT_NOTICES_SQL + " AND community_id = ?",
+                (rs, i) -> readEntry(rs), communityId);
+        BuildingDirectory directory = new BuildingDirectory();
+        jdbcTemplate.query(SELECT_BUILDINGS_SQL + " WHERE community_id = ?", rs -> {
+            directory.add(rs.getString("id"), rs.getString("building_no"), rs.getString("building_name"));
+        }, communityId);
+        install(communityId, entries, directory, force);
+    }
+
+    /**
+     * 业主公告流：业主各社区中未限定楼栋/身份，或限定范围包含业主楼栋/身份的公告（含已过期公告）
+     */
+    public IdPage ownerFeed(Long ownerId, int offset, int limit) {
+        OwnerAudience audience = ownerAudience(ownerId);
+        List<Entry> matched = new ArrayList<>();
+        for (Long communityId : audience.communityIds) {
+            CommunityNotices notices = communities.get(communityId);
+            if (notices == null) {
+                continue;
+            }
+            BitSet mask = notices.all();
+            mask.and(notices.audienceMask(notices.anyBuilding, notices.byBuilding, audience.buildings));
+            mask.and(notices.audienceMask(notices.anyOwnerType, notices.byOwnerType, audience.ownerTypes));
+            notices.collect(mask, matched, Long.MIN_VALUE);
+        }
+        if (audience.communityIds.size() > 1) {
+            matched.sort(FEED_ORDER);
+        }
+        return page(matched, offset, limit);
+    }
+
+    /**
+     * 业主所在的社区
+     */
+    public List<Long> ownerCommunityIds(Long ownerId) {
+        return ownerAudience(ownerId).communityIds;
+    }
+
+    /**
+     * 业主的受众标识：社区、楼栋、身份都相同的业主看到的公告流相同，可共用缓存
+     */
+    public String audienceKey(Long ownerId) {
+        OwnerAudience audience = ownerAudience(ownerId);
+        List<Long> communityIds = new ArrayList<>(audience.communityIds);
+        Collections.sort(communityIds);
+        return communityIds + "|" + new TreeSet<>(audience.buildings) + "|" + new TreeSet<>(audience.ownerTypes);
+    }
+
+    /**
+     * 按受众筛选社区内当前有效的公告，参数为空表示不限
+     *
+     * @param building 楼栋编号、名称或ID，按与公告目标楼栋相同的规则解析
+     */
+    public IdPage filter(Long communityId, String noticeType, String building, String ownerType, int offset, int limit) {
+        CommunityNotices notices = communities.get(communityId);
+        if (notices == null) {
+            return new IdPage(0, Collections.emptyList());
+        }
+        BitSet mask = notices.all();
+        if (noticeType != null && !noticeType.trim().isEmpty()) {
+            BitSet typed = notices.byType.get(noticeType.trim());
+            if (typed == null) {
+                return new IdPage(0, Collections.emptyList());
+            }
+            mask.and(typed);
+        }
+        if (building != null && !building.trim().isEmpty()) {
+            mask.and(notices.audienceMask(notices.anyBuilding, notices.byBuilding,
+                    notices.directory.resolve(Set.of(BUILDING_TEXT + building.trim()))));
+        }
+        if (ownerType != null && !ownerType.trim().isEmpty()) {
+            mask.and(notices.audienceMask(notices.anyOwnerType, notices.byOwnerType, Set.of(ownerType.trim())));
+        }
+        List<Entry> matched = new ArrayList<>();
+        BitSet active = windowScheduler.activeMask(communityId, notices.ids);
+        if (active != null) {
+            mask.and(active);
+            notices.collect(mask, matched, Long.MIN_VALUE);
+        } else {
+            // 快照刚替换、调度器尚未装入时按时间判断
+            notices.collect(mask, matched, System.currentTimeMillis());
+        }
+        return page(matched, offset, limit);
+    }
+
+    private void install(Long communityId, List<Entry> entries, BuildingDirectory directory, boolean force) {
+        synchronized (communities) {
+            if (entries.isEmpty()) {
+                communities.remove(communityId);
+                windowScheduler.untrack(communityId);
+                return;
+            }
+            CommunityNotices notices = new CommunityNotices(entries, directory);
+            communities.put(communityId, notices);
+            windowScheduler.track(communityId, notices.ids, notices.startTimes, notices.endTimes,
+                    notices.fingerprint, force);
+        }
+    }
+
+    private OwnerAudience ownerAudience(Long ownerId) {
+        long now = System.currentTimeMillis();
+        OwnerAudience cached = owners.get(ownerId);
+        if (cached != null && now - cached.loadedAt < ownerTtlMs) {
+            return cached;
+        }
+        Set<Long> communityIds = new LinkedHashSet<>();
+        Set<String> buildings = new HashSet<>();
+        Set<String> ownerTypes = new HashSet<>();
+        jdbcTemplate.query(OWNER_AUDIENCE_SQL, rs -> {
+            long communityId = rs.getLong("community_id");
+            if (!rs.wasNull()) {
+                communityIds.add(communityId);
+            }
+            long buildingId = rs.getLong("building_id");
+            if (!rs.wasNull()) {
+                buildings.add(BUILDING_ID + buildingId);
+            }
+            addToken(ownerTypes, rs.getString("relationship"));
+        }, ownerId);
+        OwnerAudience audience = new OwnerAudience(new ArrayList<>(communityIds), buildings, ownerTypes, now);
+        owners.put(ownerId, audience);
+        return audience;
+    }
+
+    private Entry readEntry(ResultSet rs) throws SQLException {
+        Timestamp publishTime = rs.getTimestamp("publish_time");
+        Timestamp startTime = rs.getTimestamp("start_time");
+        Timestamp endTime = rs.getTimestamp("end_time");
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        Integer isTop = rs.getObject("is_top", Integer.class);
+        return new Entry(rs.getLong("id"), rs.getLong("community_id"), rs.getString("notice_type"),
+                isTop != null ? isTop : 0,
+                publishTime != null ? publishTime.getTime() : 0L,
+                startTime != null ? startTime.getTime() : Long.MIN_VALUE,
+                endTime != null ? endTime.getTime() : Long.MAX_VALUE,
+                updatedAt != null ? updatedAt.getTime() : 0L,
+                parseTokens(rs.getString("target_buildings"), true),
+                parseTokens(rs.getString("target_owner_types"), false));
+    }
+
+    /**
+     * 目标楼栋/业主类型一般是 JSON 数组，也兼容逗号分隔的文本；空值、空数组表示不限
+     *
+     * @param building 是否为目标楼栋：JSON 数字记为楼栋ID，其余记为待解析的文本
+     */
+    private Set<String> parseTokens(String raw, boolean building) {
+        Set<String> tokens = new HashSet<>();
+        if (raw == null || raw.trim().isEmpty()) {
+            return tokens;
+        }
+        String text = raw.trim();
+        if (text.startsWith("[")) {
+            try {
+                for (JsonNode node : objectMapper.readTree(text)) {
+                    if (!building) {
+                        addToken(tokens, node.asText());
+                    } else if (node.isIntegralNumber()) {
+                        tokens.add(BUILDING_ID + node.asText());
+                    } else if (!node.asText().trim().isEmpty()) {
+                        tokens.add(BUILDING_TEXT + node.asText().trim());
+                    }
+                }
+                return tokens;
+            } catch (Exception e) {
+                text = text.replace("[", "").replace("]", "").replace("\"", "");
+            }
+        }
+        for (String part : text.split("[,，;；\\s]+")) {
+            if (!part.trim().isEmpty()) {
+                tokens.add(building ? BUILDING_TEXT + part.trim() : part.trim());
+            }
+        }
+        return tokens;
+    }
+
+    private Timestamp currentMaxUpdatedAt() {
+        return jdbcTemplate.queryForObject("SELECT MAX(updated_at) FROM community_notice", Timestamp.class);
+    }
+
+    private static void addToken(Set<String> tokens, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            tokens.add(value.trim());
+        }
+    }
+
+    private static IdPage page(List<Entry> matched, int offset, int limit) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = Math.max(offset, 0); i < matched.size() && ids.size() < limit; i++) {
+            ids.add(matched.get(i).id);
+        }
+        return new IdPage(matched.size(), ids);
+    }
+
+    /**
+     * 一页公告ID（已排序）和命中总数
+     */
+    public static final class IdPage {
+        private final long total;
+        private final List<Long> ids;
+
+        IdPage(long total, List<Long> ids) {
+            this.total = total;
+            this.ids = ids;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+    }
+
+    private static final class Entry {
+        final long id;
+        final long communityId;
+        final String noticeType;
+        final int isTop;
+        final long publishTime;
+        final long startTime;
+        final long endTime;
+        final long updatedAt;
+        final Set<String> buildings;
+        final Set<String> ownerTypes;
+
+        Entry(long id, long communityId, String noticeType, int isTop, long publishTime, long startTime, long endTime,
+              long updatedAt, Set<String> buildings, Set<String> ownerTypes) {
+            this.id = id;
+            this.communityId = communityId;
+            this.noticeType = noticeType;
+            this.isTop = isTop;
+            this.publishTime = publishTime;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.updatedAt = updatedAt;
+            this.buildings = buildings;
+            this.ownerTypes = ownerTypes;
+        }
+    }
+
+    /**
+     * 单个社区的公告快照，构建后只读
+     */
+    private static final class CommunityNotices {
+        final Entry[] entries;
+        /** 与 entries 下标对应，交给 NoticeWindowScheduler 计算有效集合 */
+        final long[] ids;
+        final long[] startTimes;
+        final long[] endTimes;
+        /** 各公告 ID、修改时间、排序与受众字段的散列，用于判断重载后内容是否变化 */
+        final long fingerprint;
+        final BitSet anyBuilding = new BitSet();
+        final Map<String, BitSet> byBuilding = new HashMap<>();
+        final BitSet anyOwnerType = new BitSet();
+        final Map<String, BitSet> byOwnerType = new HashMap<>();
+        final Map<String, BitSet> byType = new HashMap<>();
+        final BuildingDirectory directory;
+
+        CommunityNotices(List<Entry> list, BuildingDirectory directory) {
+            this.directory = directory;
+            entries = list.toArray(new Entry[0]);
+            Arrays.sort(entries, FEED_ORDER);
+            ids = new long[entries.length];
+            startTimes = new long[entries.length];
+            endTimes = new long[entries.length];
+            long hash = 1L;
+            for (int i = 0; i < entries.length; i++) {
+                Entry entry = entries[i];
+                ids[i] = entry.id;
+                startTimes[i] = entry.startTime;
+                endTimes[i] = entry.endTime;
+                hash = 31 * hash + entry.id;
+                hash = 31 * hash + entry.updatedAt;
+                hash = 31 * hash + entry.isTop;
+                hash = 31 * hash + entry.publishTime;
+                hash = 31 * hash + entry.startTime;
+                hash = 31 * hash + entry.endTime;
+                Set<String> buildings = directory.resolve(entry.buildings);
+                hash = 31 * hash + Objects.hash(entry.noticeType, buildings, entry.ownerTypes);
+                if (entry.noticeType != null) {
+                    byType.computeIfAbsent(entry.noticeType, k -> new BitSet()).set(i);
+                }
+                index(i, buildings, anyBuilding, byBuilding);
+                index(i, entry.ownerTypes, anyOwnerType, byOwnerType);
+            }
+            fingerprint = hash;
+        }
+
+        BitSet all() {
+            BitSet bits = new BitSet(entries.length);
+            bits.set(0, entries.length);
+            return bits;
+        }
+
+        /**
+         * 未限定范围的公告，加上限定范围与给定值有交集的公告
+         */
+        BitSet audienceMask(BitSet any, Map<String, BitSet> byValue, Set<String> values) {
+            BitSet mask = (BitSet) any.clone();
+            for (String value : values) {
+                BitSet bits = byValue.get(value);
+                if (bits != null) {
+                    mask.or(bits);
+                }
+            }
+            return mask;
+        }
+
+        /**
+         * 按位图顺序取出公告，now 不为 Long.MIN_VALUE 时只取有效期内的
+         */
+        void collect(BitSet mask, List<Entry> out, long now) {
+            for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+                Entry entry = entries[i];
+                if (now == Long.MIN_VALUE || (entry.startTime <= now && entry.endTime >= now)) {
+                    out.add(entry);
+                }
+            }
+        }
+
+        private static void index(int position, Set<String> targets, BitSet any, Map<String, BitSet> byValue) {
+            if (targets.isEmpty()) {
+                any.set(position);
+                return;
+            }
+            for (String target : targets) {
+                byValue.computeIfAbsent(target, k -> new BitSet()).set(position);
+            }
+        }
+    }
+
+    /**
+     * 社区的楼栋ID、编号、名称，构建后只读
+     */
+    private static final class BuildingDirectory {
+        static final BuildingDirectory EMPTY = new BuildingDirectory();
+
+        final Set<String> ids = new HashSet<>();
+        final Map<String, Set<String>> byNo = new HashMap<>();
+        final Map<String, Set<String>> byName = new HashMap<>();
+
+        void add(String id, String buildingNo, String buildingName) {
+            ids.add(id);
+            if (buildingNo != null && !buildingNo.trim().isEmpty()) {
+                byNo.computeIfAbsent(buildingNo.trim(), k -> new HashSet<>()).add(BUILDING_ID + id);
+            }
+            if (buildingName != null && !buildingName.trim().isEmpty()) {
+                byName.computeIfAbsent(buildingName.trim(), k -> new HashSet<>()).add(BUILDING_ID + id);
+            }
+        }
+
+        /**
+         * 目标楼栋换成楼栋ID。文本值整体按楼栋编号、楼栋名称、楼栋ID依次尝试，取第一种能全部对上的；
+         * 都不能全部对上时逐个按同样顺序解析，仍对不上的保持原样（公告依旧算限定了楼栋，只有同样的筛选值能命中）
+         */
+        Set<String> resolve(Set<String> targets) {
+            Set<String> resolved = new HashSet<>();
+            List<String> texts = new ArrayList<>();
+            for (String target : targets) {
+                if (target.startsWith(BUILDING_TEXT)) {
+                    texts.add(target.substring(BUILDING_TEXT.length()));
+                } else {
+                    resolved.add(target);
+                }
+            }
+            if (texts.isEmpty()) {
+                return resolved;
+            }
+            List<Function<String, Set<String>>> forms = List.of(byNo::get, byName::get,
+                    text -> ids.contains(text) ? Set.of(BUILDING_ID + text) : null);
+            for (Function<String, Set<String>> form : forms) {
+                if (texts.stream().allMatch(text -> form.apply(text) != null)) {
+                    texts.forEach(text -> resolved.addAll(form.apply(text)));
+                    return resolved;
+                }
+            }
+            for (String text : texts) {
+                Set<String> matched = null;
+                for (Function<String, Set<String>> form : forms) {
+                    matched = form.apply(text);
+                    if (matched != null) {
+                        break;
+                    }
+                }
+                if (matched != null) {
+                    resolved.addAll(matched);
+                } else {
+                    resolved.add(BUILDING_TEXT + text);
+                }
+            }
+            return resolved;
+        }
+    }
+
+    private static final class OwnerAudience {
+        final List<Long> communityIds;
+        final Set<String> buildings;
+        final Set<String> ownerTypes;
+        final long loadedAt;
+
+        OwnerAudience(List<Long> communityIds, Set<String> buildings, Set<String> ownerTypes, long loadedAt) {
+            this.communityIds = communityIds;
+            this.buildings = buildings;
+            this.ownerTypes = ownerTypes;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.community.owner.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 公告列表响应缓存
+ * 同一社区（业主公告流为同一受众：社区、楼栋、身份都相同）的同一页对所有业主相同，组装好的分页结果
+ * （含已拼好的图片URL）按键缓存，并记下生成时各相关社区的版本号（NoticeWindowScheduler）；版本号变化即视为过期。
+ * 物业端增删改公告后经 Redis 发布 notice 事件：本进程立即清除该社区的缓存，索引重载后版本号也随之递增。
+ * 每个结果附带按内容计算的强 ETag，内容不变则 ETag 不变，各节点一致，供 If-None-Match 返回 304
+ */
+@Slf4j
+@Service
+public class NoticeListCache {
+
+    @Autowired
+    private NoticeWindowScheduler windowScheduler;
+
+    @Autowired
+    private OwnerEventBus ownerEventBus;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notice.cache.max-entries:2000}")
+    private int maxEntries;
+
+    /** 缓存键 -> 分页结果，按访问顺序淘汰 */
+    private Map<String, Cached> cache;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, Cached>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        hitCounter = meterRegistry.counter("notice.list.cache", "result", "hit");
+        missCounter = meterRegistry.counter("notice.list.cache", "result", "miss");
+        Gauge.builder("notice.list.cache.size", cache, Map::size).register(meterRegistry);
+        ownerEventBus.addListener("notice", message -> {
+            JsonNode communityId = message.get("communityId");
+            if (communityId != null && !communityId.isNull()) {
+                evictCommunity(communityId.asLong());
+            }
+        });
+    }
+
+    /**
+     * 取缓存结果，不存在或相关社区版本号已变化时调用 loader 重新生成
+     *
+     * @param communityIds 结果所依赖的社区，为空表示内容不随公告变化
+     */
+    public Cached get(String key, Collection<Long> communityIds, Supplier<Object> loader) {
+        // 先取版本号再生成：生成期间版本号若再变化，下次访问即重新生成
+        long[] communities = communityIds.stream().mapToLong(Long::longValue).toArray();
+        long[] versions = new long[communities.length];
+        for (int i = 0; i < communities.length; i++) {
+            versions[i] = windowScheduler.version(communities[i]);
+        }
+        Cached cached = cache.get(key);
+        if (cached != null && Arrays.equals(cached.communities, communities) && Arrays.equals(cached.versions, versions)) {
+            hitCounter.increment();
+            return cached;
+        }
+        missCounter.increment();
+        Object data = loader.get();
+        cached = new Cached(communities, versions, data, etagOf(data));
+        cache.put(key, cached);
+        return cached;
+    }
+
+    /**
+     * 清除依赖该社区的缓存
+     */
+    public void evictCommunity(long communityId) {
+        synchronized (cache) {
+            cache.values().removeIf(cached -> {
+                for (long id : cached.communities) {
+                    if (id == communityId) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+    }
+
+    private String etagOf(Object data) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(data)) + "\"";
+        } catch (Exception e) {
+            log.warn("公告列表 ETag 计算失败: {}", e.getMessage());
+            return "\"" + UUID.randomUUID() + "\"";
+        }
+    }
+
+    /**
+     * 一份缓存的结果，data 被多个请求共享，调用方不要修改
+     */
+    public static final class Cached {
+        private final long[] communities;
+        private final long[] versions;
+        private final Object data;
+        private final String etag;
+
+        Cached(long[] communities, long[] versions, Object data, String etag) {
+            this.communities = communities;
+            this.versions = versions;
+            this.data = data;
+            this.etag = etag;
+        }
+
+        public Object getData() {
+            return data;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.community.owner.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 公告有效期调度
+ * 按社区保存当前有效（start_time <= 当前时间 <= end_time）的公告，每个社区只挂一个定时任务，
+ * 在最近的一个生效/失效时间点触发，重新计算有效集合后再挂下一个，查询时不再带时间条件。
+ * 每个社区有一个版本号：有效集合变化、公告内容变化（由 NoticeAudienceIndex 装入新快照时告知）都会递增，
+ * 公告列表的响应缓存按版本号判断是否过期
+ */
+@Slf4j
+@Service
+public class NoticeWindowScheduler {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ScheduledExecutorService timer;
+
+    /** 社区ID -> 当前有效期窗口（不可变，整体替换） */
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+    /** 社区ID -> 版本号，社区被移出后保留，避免版本回退 */
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /** 社区ID -> 下一次边界的定时任务 */
+    private final Map<Long, ScheduledFuture<?>> pending = new HashMap<>();
+
+    private Counter flipCounter;
+
+    @PostConstruct
+    public void init() {
+        flipCounter = meterRegistry.counter("notice.window.flips");
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notice-window-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * 装入社区的公告时间窗（三个数组下标一一对应，调用方之后不得修改）
+     *
+     * @param fingerprint 公告内容指纹，与上次不同或 force 时递增版本号
+     */
+    public synchronized void track(Long communityId, long[] ids, long[] startTimes, long[] endTimes,
+                                   long fingerprint, boolean force) {
+        long now = System.currentTimeMillis();
+        Window previous = windows.get(communityId);
+        Window window = new Window(ids, startTimes, endTimes, activeAt(startTimes, endTimes, now), fingerprint);
+        windows.put(communityId, window);
+        if (force || previous == null || previous.fingerprint != fingerprint || !previous.active.equals(window.active)) {
+            bump(communityId);
+        }
+        schedule(communityId, window, now);
+    }
+
+    /**
+     * 社区已没有可见公告
+     */
+    public synchronized void untrack(Long communityId) {
+        if (windows.remove(communityId) != null) {
+            bump(communityId);
+        }
+        ScheduledFuture<?> future = pending.remove(communityId);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 社区公告列表的当前版本号，未装入过的社区为 0
+     */
+    public long version(Long communityId) {
+        AtomicLong version = versions.get(communityId);
+        return version != null ? version.get() : 0L;
+    }
+
+    /**
+     * 当前有效公告的位图（下标对应 ids 数组），ids 不是最近一次装入的数组时返回 null
+     */
+    public BitSet activeMask(Long communityId, long[] ids) {
+        Window window = windows.get(communityId);
+        if (window == null || window.ids != ids) {
+            return null;
+        }
+        return (BitSet) window.active.clone();
+    }
+
+    /**
+     * 当前有效的公告ID
+     */
+    public List<Long> activeIds(Long communityId) {
+        Window window = windows.get(communityId);
+        if (window == null) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(window.active.cardinality());
+        for (int i = window.active.nextSetBit(0); i >= 0; i = window.active.nextSetBit(i + 1)) {
+            ids.add(window.ids[i]);
+        }
+        return ids;
+    }
+
+    private synchronized void flip(Long communityId) {
+        Window window = windows.get(communityId);
+        if (window == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        BitSet active = activeAt(window.startTimes, window.endTimes, now);
+        if (!active.equals(window.active)) {
+            window = new Window(window.ids, window.startTimes, window.endTimes, active, window.fingerprint);
+            windows.put(communityId, window);
+            bump(communityId);
+            flipCounter.increment();
+        }
+        schedule(communityId, window, now);
+    }
+
+    /**
+     * 挂下一个边界：未生效的取 start_time，有效的取 end_time 之后 1 毫秒
+     */
+    private void schedule(Long communityId, Window window, long now) {
+        ScheduledFuture<?> previous = pending.remove(communityId);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < window.ids.length; i++) {
+            long start = window.startTimes[i];
+            long end = window.endTimes[i];
+            if (start > now) {
+                next = Math.min(next, start);
+            } else if (end >= now && end != Long.MAX_VALUE) {
+                next = Math.min(next, end + 1);
+            }
+        }
+        if (next == Long.MAX_VALUE) {
+            return;
+        }
+        pending.put(communityId, timer.schedule(() -> {
+            try {
+                flip(communityId);
+            } catch (Exception e) {
+                log.warn("公告有效期切换失败: communityId={}", communityId, e);
+            }
+        }, Math.max(next - now, 0L), TimeUnit.MILLISECONDS));
+    }
+
+    private void bump(Long communityId) {
+        versions.computeIfAbsent(communityId, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static BitSet activeAt(long[] startTimes, long[] endTimes, long now) {
+        BitSet active = new BitSet(startTimes.length);
+        for (int i = 0; i < startTimes.length; i++) {
+            if (startTimes[i] <= now && endTimes[i] >= now) {
+                active.set(i);
+            }
+        }
+        return active;
+    }
+
+    private static final class Window {
+        final long[] ids;
+        final long[] startTimes;
+        final long[] endTimes;
+        final BitSet active;
+        final long fingerprint;
+
+        Window(long[] ids, long[] startTimes, long[] endTimes, BitSet active, long fingerprint) {
+            this.ids = ids;
+            this.startTimes = startTimes;
+            this.endTimes = endTimes;
+            this.active = active;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
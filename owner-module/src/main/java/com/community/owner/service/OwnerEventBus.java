@@ -0,0 +1,306 @@
+package com.community.owner.service;
+
+import com.community.owner.config.OwnerEventProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 业主事件总线
+ * 在线业主的 SSE 连接按业主ID、社区ID登记在进程内，事件到达后只投递给相关连接。
+ * 事件统一经 Redis 频道广播（物业端发布、本端发布都走同一频道），每个节点订阅后投递给本节点的连接；
+ * Redis 关闭或发布失败时退化为只投递本进程。
+ * 消息格式：{"ownerId":1,"communityId":null,"type":"issue","data":{...},"ts":...}，
+ * ownerId 非空时只推给该业主，否则推给该社区的全部在线业主
+ */
+@Slf4j
+@Service
+public class OwnerEventBus {
+
+    @Autowired
+    private OwnerEventProperties properties;
+
+    @Autowired
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 业主ID -> 在线连接 */
+    private final Map<Long, Set<Subscription>> byOwner = new ConcurrentHashMap<>();
+
+    /** 社区ID -> 在线连接 */
+    private final Map<Long, Set<Subscription>> byCommunity = new ConcurrentHashMap<>();
+
+    private final AtomicLong connections = new AtomicLong();
+
+    /** 事件类型 -> 本进程内的监听器（缓存、索引等据此失效），与 SSE 连接无关 */
+    private final Map<String, List<Consumer<JsonNode>>> listeners = new ConcurrentHashMap<>();
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    private Counter deliveredCounter;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void init() {
+        deliveredCounter = meterRegistry.counter("owner.events.delivered");
+        droppedCounter = meterRegistry.counter("owner.events.dropped");
+        Gauge.builder("owner.events.connections", connections, AtomicLong::get).register(meterRegistry);
+
+        if (!properties.isEnabled() || !properties.isRedisEnabled()) {
+            return;
+        }
+        try {
+            listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(redisConnectionFactory);
+            listenerContainer.addMessageListener(this::onRedisMessage, new ChannelTopic(properties.getChannel()));
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+            log.info("业主事件总线已订阅 Redis 频道 {}", properties.getChannel());
+        } catch (Exception e) {
+            log.warn("订阅 Redis 频道失败，业主事件只在本进程内投递: {}", e.getMessage());
+            stopListener();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopListener();
+        for (Set<Subscription> subscriptions : byOwner.values()) {
+            subscriptions.forEach(Subscription::complete);
+        }
+    }
+
+    /**
+     * 登记一个在线连接
+     *
+     * @param communityIds 业主已认证房屋所在的社区，接收这些社区的公告事件
+     */
+    public Subscription subscribe(Long ownerId, Collection<Long> communityIds) {
+        Subscription subscription = new Subscription(ownerId, new ArrayList<>(communityIds), properties.getBufferSize());
+        byOwner.computeIfAbsent(ownerId, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+        for (Long communityId : subscription.communityIds) {
+            byCommunity.computeIfAbsent(communityId, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+        }
+        connections.incrementAndGet();
+        return subscription;
+    }
+
+    /**
+     * 注销连接（连接断开、取消时调用）
+     */
+    public void unsubscribe(Subscription subscription) {
+        if (!subscription.closed.compareAndSet(false, true)) {
+            return;
+        }
+        removeFrom(byOwner, subscription.ownerId, subscription);
+        for (Long communityId : subscription.communityIds) {
+            removeFrom(byCommunity, communityId, subscription);
+        }
+        connections.decrementAndGet();
+    }
+
+    /**
+     * 注册事件监听器，每个节点收到该类型事件时回调（参数为完整消息），在 Redis 监听线程上执行，不应阻塞
+     */
+    public void addListener(String type, Consumer<JsonNode> listener) {
+        listeners.computeIfAbsent(type, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * 发布事件：推给指定业主
+     * 处于事务中时在提交后发布
+     */
+    public void publishToOwner(Long ownerId, String type, Object data) {
+        if (ownerId != null) {
+            publish(ownerId, null, type, data);
+        }
+    }
+
+    /**
+     * 发布事件：推给指定社区的全部在线业主
+     */
+    public void publishToCommunity(Long communityId, String type, Object data) {
+        if (communityId != null) {
+            publish(null, communityId, type, data);
+        }
+    }
+
+    private void publish(Long ownerId, Long communityId, String type, Object data) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("ownerId", ownerId);
+        message.put("communityId", communityId);
+        message.put("type", type);
+        message.put("data", data);
+        message.put("ts", System.currentTimeMillis());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(message);
+        } catch (Exception e) {
+            log.warn("业主事件序列化失败: type={}, {}", type, e.getMessage());
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(ownerId, communityId, type, json);
+                }
+            });
+        } else {
+            send(ownerId, communityId, type, json);
+        }
+    }
+
+    private void send(Long ownerId, Long communityId, String type, String json) {
+        if (listenerContainer != null) {
+            try {
+                stringRedisTemplate.convertAndSend(properties.getChannel(), json);
+                return;
+            } catch (Exception e) {
+                log.warn("发布业主事件到 Redis 失败，改为本进程投递: {}", e.getMessage());
+            }
+        }
+        dispatch(ownerId, communityId, type, json);
+        if (listeners.containsKey(type)) {
+            try {
+                notifyListeners(type, objectMapper.readTree(json));
+            } catch (Exception e) {
+                log.warn("业主事件监听器处理失败: type={}, {}", type, e.getMessage());
+            }
+        }
+    }
+
+    private void onRedisMessage(Message message, byte[] pattern) {
+        String json = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            Long ownerId = longOrNull(node.get("ownerId"));
+            Long communityId = longOrNull(node.get("communityId"));
+            String type = node.path("type").asText("message");
+            dispatch(ownerId, communityId, type, json);
+            notifyListeners(type, node);
+        } catch (Exception e) {
+            log.warn("无法解析业主事件: {}", e.getMessage());
+        }
+    }
+
+    private void notifyListeners(String type, JsonNode node) {
+        List<Consumer<JsonNode>> registered = listeners.get(type);
+        if (registered == null) {
+            return;
+        }
+        for (Consumer<JsonNode> listener : registered) {
+            try {
+                listener.accept(node);
+            } catch (Exception e) {
+                log.warn("业主事件监听器处理失败: type={}, {}", type, e.getMessage());
+            }
+        }
+    }
+
+    private void dispatch(Long ownerId, Long communityId, String type, String json) {
+        Set<Subscription> targets = ownerId != null ? byOwner.get(ownerId)
+                : communityId != null ? byCommunity.get(communityId) : null;
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        ServerSentEvent<String> event = ServerSentEvent.<String>builder(json).event(type).build();
+        for (Subscription subscription : targets) {
+            if (subscription.emit(event)) {
+                deliveredCounter.increment();
+            } else {
+                droppedCounter.increment();
+            }
+        }
+    }
+
+    private void stopListener() {
+        if (listenerContainer == null) {
+            return;
+        }
+        try {
+            listenerContainer.stop();
+            listenerContainer.destroy();
+        } catch (Exception e) {
+            log.debug("关闭 Redis 订阅失败: {}", e.getMessage());
+        }
+        listenerContainer = null;
+    }
+
+    private static void removeFrom(Map<Long, Set<Subscription>> index, Long key, Subscription subscription) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static Long longOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asLong();
+    }
+
+    /**
+     * 一个在线连接，事件先放入有界缓冲，客户端消费过慢时丢弃新事件
+     */
+    public static final class Subscription {
+        private final Long ownerId;
+        private final List<Long> communityIds;
+        private final Sinks.Many<ServerSentEvent<String>> sink;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(Long ownerId, List<Long> communityIds, int bufferSize) {
+            this.ownerId = ownerId;
+            this.communityIds = communityIds;
+            this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<ServerSentEvent<String>>get(bufferSize).get());
+        }
+
+        public Flux<ServerSentEvent<String>> flux() {
+            return sink.asFlux();
+        }
+
+        /** Redis 监听线程与本进程发布线程可能并发投递，sink 要求串行写入 */
+        private synchronized boolean emit(ServerSentEvent<String> event) {
+            return sink.tryEmitNext(event).isSuccess();
+        }
+
+        private synchronized void complete() {
+            sink.tryEmitComplete();
+        }
+    }
+}
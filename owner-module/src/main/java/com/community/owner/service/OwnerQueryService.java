@@ -1,8 +1,17 @@
 package com.community.owner.service;
 
+import com.community.owner.dto.IssueDetailVO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -13,6 +22,8 @@ import java.util.Map;
 @Service
 public class OwnerQueryService {
 
+    private static final BeanPropertyRowMapper<IssueDetailVO> ISSUE_DETAIL_MAPPER = new BeanPropertyRowMapper<>(IssueDetailVO.class);
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -121,72 +132,64 @@ public class OwnerQueryService {
     }
 
     /**
-     * 查询业主所属社区的公告列表（已发布且已审核，包括过期公告）
+     * 查询业主已认证房屋所在的社区ID
      */
-    public List<Map<String, Object>> listOwnerCommunityNoticesWithDetails(Long ownerId, int limit, int offset) {
-        String sql = "SELECT DISTINCT cn.id, cn.community_id, cn.notice_type, cn.title, " +
-                "cn.content, cn.notice_images, cn.start_time, cn.end_time, cn.publish_time, " +
-                "cn.status, cn.is_top, cn.read_count, cn.activity_date, cn.activity_time, " +
-                "cn.activity_location, cn.activity_contact, cn.notice_images, " +
-                "cn.created_at, cn.updated_at " +
-                "FROM community_notice cn " +
-                "INNER JOIN community_info c ON cn.community_id = c.id " +
-                "INNER JOIN house h ON c.id = h.community_id " +
-                "INNER JOIN house_owner ho ON h.id = ho.house_id " +
-                "WHERE ho.owner_id = ? AND ho.is_verified = 1 " +
-                "AND cn.status = '已发布' " +
-                "AND cn.approval_status = '已审核' " +
-                "AND cn.target_audience = '全体业主' " +
-                "ORDER BY cn.is_top DESC, cn.publish_time DESC " +
-                "LIMIT ? OFFSET ?";
-        return jdbcTemplate.queryForList(sql, ownerId, limit, offset);
+    public List<Long> listOwnerCommunityIds(Long ownerId) {
+        String sql = "SELECT DISTINCT h.community_id FROM house_owner ho " +
+                "INNER JOIN house h ON h.id = ho.house_id " +
+                "WHERE ho.owner_id = ? AND ho.is_verified = 1";
+        return jdbcTemplate.queryForList(sql, Long.class, ownerId);
     }
 
     /**
-     * 计数：业主所属社区的公告总数
+     * 按ID批量查询公告，结果按传入顺序排列（ID 来自 NoticeAudienceIndex 的分页结果）
      */
-    public Long countOwnerCommunityNotices(Long ownerId) {
-        String sql = "SELECT COUNT(DISTINCT cn.id) FROM community_notice cn " +
-                "INNER JOIN community_info c ON cn.community_id = c.id " +
-                "INNER JOIN house h ON c.id = h.community_id " +
-                "INNER JOIN house_owner ho ON h.id = ho.house_id " +
-                "WHERE ho.owner_id = ? AND ho.is_verified = 1 " +
-                "AND cn.status = '已发布' " +
-                "AND cn.approval_status = '已审核' " +
-                "AND cn.target_audience = '全体业主'";
-        Long count = jdbcTemplate.queryForObject(sql, new Object[]{ownerId}, Long.class);
-        return count != null ? count : 0L;
+    public List<Map<String, Object>> listNoticesByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT cn.id, cn.community_id, cn.notice_type, cn.title, " +
+                "cn.content, cn.notice_images, cn.start_time, cn.end_time, cn.publish_time, " +
+                "cn.status, cn.is_top, cn.is_urgent, cn.read_count, cn.activity_date, cn.activity_time, " +
+                "cn.activity_location, cn.activity_contact, " +
+                "cn.created_at, cn.updated_at " +
+                "FROM community_notice cn WHERE cn.id IN (" + placeholders + ")";
+        Map<Long, Map<String, Object>> byId = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql, ids.toArray())) {
+            byId.put(((Number) row.get("id")).longValue(), row);
+        }
+        List<Map<String, Object>> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Map<String, Object> row = byId.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
     }
 
     /**
      * 查询业主的缴费卡片列表（仅包含有抄表记录的仪表）
-     * 查询路径：house_owner → meter_info → meter_config + meter_reading
-     * 仅返回有抄表记录且费用 > 0 的仪表
+     * 直接读取账单台账 meter_bill（抄表时已按仪表配置计算好金额），
+     * 只关联 house_owner 校验业主关系，按 (house_id, pay_status) 索引读取
      */
     public List<Map<String, Object>> listOwnerBillingCardsWithDetails(Long ownerId) {
         String sql = "SELECT " +
-                "m.id, m.community_id, m.house_id, m.building_id, m.config_id, " +
-                "m.meter_name, m.category_name, m.meter_type, m.meter_code, m.meter_status, " +
-                "m.unit, m.current_reading, m.initial_reading, " +
-                "h.room_no, h.full_room_no, " +
-                "b.building_no, b.building_name, " +
-                "mr.id as reading_id, mr.meter_id, mr.usage_amount, mr.reading_date, mr.previous_reading, " +
-                "mr.unit as reading_unit, mr.reading_status, mr.processed, " +
-                "mc.unit_price, mc.calculation_method " +
+                "mb.meter_id AS id, mb.community_id, mb.house_id, mb.building_id, mb.config_id, " +
+                "mb.meter_name, mb.category_name, mb.meter_type, mb.meter_code, " +
+                "mb.unit, mb.room_no, mb.full_room_no, mb.building_no, mb.building_name, " +
+                "mb.id AS bill_id, mb.reading_id, mb.meter_id, mb.usage_amount, mb.reading_date, mb.previous_reading, " +
+                "mb.unit AS reading_unit, mb.reading_status, " +
+                "mb.unit_price, mb.calculation_method, mb.amount " +
                 "FROM house_owner ho " +
-                "INNER JOIN house h ON ho.house_id = h.id " +
-                "INNER JOIN meter_info m ON h.id = m.house_id " +
-                "INNER JOIN building b ON h.building_id = b.id " +
-                "INNER JOIN meter_reading mr ON m.id = mr.meter_id " +
-                "INNER JOIN meter_config mc ON mc.category_name = m.category_name AND mc.meter_type = m.meter_type " +
+                "INNER JOIN meter_bill mb ON mb.house_id = ho.house_id " +
                 "WHERE " +
                 "ho.owner_id = ? " +
                 "AND ho.relationship = '业主' " +
                 "AND ho.status = '正常' " +
-                "AND mr.processed = 0 " +
-                "AND m.meter_status = '正常' " +
-                "AND mc.status = '启用' " +
-                "ORDER BY mr.reading_date DESC, m.id DESC";
+                "AND mb.pay_status = '未缴' " +
+                "ORDER BY mb.reading_date DESC, mb.meter_id DESC";
         return jdbcTemplate.queryForList(sql, ownerId);
     }
 
@@ -210,62 +213,58 @@ public class OwnerQueryService {
     }
 
     /**
-     * 查询业主的仪表抄表账单（待缴费）- 优化版本
-     * 查询路径：house_owner → house → meter_info → meter_reading → meter_config
-     * 仅返回未支付的抄表记录（processed = 0）
-     * 账单金额 = usage_amount × unit_price
-     * 
+     * 查询业主的仪表抄表账单（待缴费）
+     * 读取账单台账 meter_bill，账单金额在抄表时已按 meter_info.config_id 对应的单价计算（ROUND 2位）
+     * 仪表状态、配置状态在生成账单时校验（仪表正常、配置启用），此处按主键关联仪表、抄表记录与配置表，只取当前状态供展示
+     *
      * 关键过滤条件：
      * - 业主关系为"业主"（relationship = '业主'）
      * - 关系状态为"正常"（status = '正常'）
-     * - 仪表状态为"正常"（meter_status = '正常'）
-     * - 配置状态为"启用"（config status = '启用'）
-     * - 账单未支付（processed = 0）
+     * - 账单未缴（pay_status = '未缴'）
      */
     public List<Map<String, Object>> listOwnerMeterBillingWithDetails(Long ownerId) {
         String sql = "SELECT " +
-                "mr.id AS reading_id, " +
-                "mr.meter_id, " +
-                "mi.meter_name, " +
-                "mi.category_name, " +
-                "mi.meter_type, " +
-                "mi.meter_code, " +
+                "mb.id AS bill_id, " +
+                "mb.reading_id, " +
+                "mb.meter_id, " +
+                "mb.meter_name, " +
+                "mb.category_name, " +
+                "mb.meter_type, " +
+                "mb.meter_code, " +
+                "mb.house_id, " +
+                "mb.room_no, " +
+                "mb.full_room_no, " +
+                "mb.building_id, " +
+                "mb.building_no, " +
+                "mb.building_name, " +
+                "mb.previous_reading, " +
+                "mb.current_reading, " +
+                "mb.usage_amount, " +
+                "mb.unit, " +
+                "mb.reading_date, " +
+                "mb.reading_time, " +
+                "mb.reading_status, " +
+                "mb.billing_period, " +
+                "mb.pay_status, " +
+                "mb.created_at, " +
+                "mb.unit_price, " +
+                "mb.calculation_method, " +
+                "mb.amount AS bill_amount, " +
+                "mb.community_name, " +
                 "mi.meter_status, " +
-                "mi.house_id, " +
-                "h.room_no, " +
-                "h.full_room_no, " +
-                "h.building_id, " +
-                "b.building_no, " +
-                "b.building_name, " +
-                "mr.previous_reading, " +
-                "mr.current_reading, " +
-                "mr.usage_amount, " +
-                "mr.unit, " +
-                "mr.reading_date, " +
-                "mr.reading_time, " +
-                "mr.reading_status, " +
                 "mr.processed, " +
-                "mr.created_at, " +
-                "mc.unit_price, " +
-                "mc.calculation_method, " +
-                "mc.status as config_status, " +
-                "ROUND(mr.usage_amount * mc.unit_price, 2) AS bill_amount, " +
-                "c.community_name " +
+                "mc.status AS config_status " +
                 "FROM house_owner ho " +
-                "INNER JOIN house h ON ho.house_id = h.id " +
-                "INNER JOIN meter_info mi ON mi.house_id = h.id " +
-                "INNER JOIN meter_reading mr ON mr.meter_id = mi.id " +
-                "INNER JOIN building b ON h.building_id = b.id " +
-                "INNER JOIN community_info c ON h.community_id = c.id " +
-                "INNER JOIN meter_config mc ON mc.category_name = mi.category_name AND mc.meter_type = mi.meter_type " +
+                "INNER JOIN meter_bill mb ON mb.house_id = ho.house_id " +
+                "LEFT JOIN meter_info mi ON mi.id = mb.meter_id " +
+                "LEFT JOIN meter_reading mr ON mr.id = mb.reading_id " +
+                "LEFT JOIN meter_config mc ON mc.id = mb.config_id " +
                 "WHERE " +
                 "ho.owner_id = ? " +
                 "AND ho.relationship = '业主' " +
                 "AND ho.status = '正常' " +
-                "AND mr.processed = 0 " +
-                "AND mi.meter_status = '正常' " +
-                "AND mc.status = '启用' " +
-                "ORDER BY mr.reading_date DESC, mi.category_name";
+                "AND mb.pay_status = '未缴' " +
+                "ORDER BY mb.reading_date DESC, mb.category_name";
         return jdbcTemplate.queryForList(sql, ownerId);
     }
 
@@ -383,56 +382,26 @@ public class OwnerQueryService {
     }
 
     /**
-     * 查询所有可用的停车位列表（按车位状态space_status过滤）
-     * 不受业主身份限制，返回数据库中的所有停车位信息
-     */
-    public List<Map<String, Object>> listAvailableParkingSpacesByStatus(Long ownerId, String spaceStatus, int limit, int offset) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT ps.id, ps.parking_lot_id, ps.space_no, ps.full_space_no, ps.space_type, ")
-           .append("ps.space_area, ps.space_status, ps.owner_id, ps.vehicle_id, ps.monthly_fee, ")
-           .append("ps.remark, ps.created_at, ps.updated_at, ")
-           .append("pl.id as lot_id, pl.community_id, pl.lot_name, pl.lot_code, pl.zone_name, pl.charge_method, ")
-           .append("pl.charge_standard, pl.status as lot_status, ")
-           .append("c.community_name ")
-           .append("FROM parking_space ps ")
-           .append("INNER JOIN parking_lot pl ON ps.parking_lot_id = pl.id ")
-           .append("INNER JOIN community_info c ON pl.community_id = c.id ")
-           .append("WHERE 1=1 ");
-        
-        // 只在指定status时过滤，否则查询全部
-        if (spaceStatus != null && !spaceStatus.isEmpty()) {
-            sql.append("AND ps.space_status = ? ");
-        }
-        
-        sql.append("ORDER BY ps.id DESC LIMIT ? OFFSET ?");
-        
-        if (spaceStatus != null && !spaceStatus.isEmpty()) {
-            return jdbcTemplate.queryForList(sql.toString(), spaceStatus, limit, offset);
-        } else {
-            return jdbcTemplate.queryForList(sql.toString(), limit, offset);
-        }
-    }
-
-    /**
-     * 统计所有可用的停车位总数（按车位状态space_status过滤）
-     * 不受业主身份限制
+     * 按车位ID批量查询停车位（含停车场和社区信息），按ID倒序
+     * 分页由 ParkingAvailabilityIndex 完成，这里只回表取一页数据
      */
-    public Long countAvailableParkingSpacesByStatus(Long ownerId, String spaceStatus) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT COUNT(ps.id) FROM parking_space ps ")
-           .append("INNER JOIN parking_lot pl ON ps.parking_lot_id = pl.id ")
-           .append("INNER JOIN community_info c ON pl.community_id = c.id ")
-           .append("WHERE 1=1 ");
-        
-        // 只在指定status时过滤，否则查询全部
-        if (spaceStatus != null && !spaceStatus.isEmpty()) {
-            sql.append("AND ps.space_status = ? ");
-            Long count = jdbcTemplate.queryForObject(sql.toString(), new Object[]{spaceStatus}, Long.class);
-            return count != null ? count : 0L;
-        } else {
-            Long count = jdbcTemplate.queryForObject(sql.toString(), Long.class);
-            return count != null ? count : 0L;
+    public List<Map<String, Object>> listParkingSpacesByIds(List<Long> spaceIds) {
+        if (spaceIds == null || spaceIds.isEmpty()) {
+            return new ArrayList<>();
         }
+        String placeholders = String.join(",", Collections.nCopies(spaceIds.size(), "?"));
+        String sql = "SELECT ps.id, ps.parking_lot_id, ps.space_no, ps.full_space_no, ps.space_type, " +
+                "ps.space_area, ps.space_status, ps.owner_id, ps.vehicle_id, ps.monthly_fee, " +
+                "ps.remark, ps.created_at, ps.updated_at, " +
+                "pl.id as lot_id, pl.community_id, pl.lot_name, pl.lot_code, pl.zone_name, pl.charge_method, " +
+                "pl.charge_standard, pl.status as lot_status, " +
+                "c.community_name " +
+                "FROM parking_space ps " +
+                "INNER JOIN parking_lot pl ON ps.parking_lot_id = pl.id " +
+                "INNER JOIN community_info c ON pl.community_id = c.id " +
+                "WHERE ps.id IN (" + placeholders + ") " +
+                "ORDER BY ps.id DESC";
+        return jdbcTemplate.queryForList(sql, spaceIds.toArray());
     }
 
     /**
@@ -456,4 +425,84 @@ public class OwnerQueryService {
                 "ORDER BY oi.reported_time DESC";
         return jdbcTemplate.queryForList(sql, ownerId);
     }
+
+    /**
+     * 查询仪表用量汇总（meter_usage_rollup，由物业端写入抄表记录时增量维护）
+     *
+     * @param granularity day/month/year
+     */
+    public List<Map<String, Object>> listMeterUsageRollup(Long meterId, String granularity, LocalDate fromDate, LocalDate toDate) {
+        String sql = "SELECT period_start, usage_amount, reading_count FROM meter_usage_rollup " +
+                "WHERE scope_type = 'meter' AND scope_id = ? AND granularity = ? " +
+                "AND period_start BETWEEN ? AND ? ORDER BY period_start";
+        return jdbcTemplate.queryForList(sql, meterId, granularity, Date.valueOf(fromDate), Date.valueOf(toDate));
+    }
+
+    /**
+     * 查询业主的问题详情（含房屋、楼栋、社区、处理人员），一次关联查询
+     *
+     * @return 问题不存在或不属于该业主时返回 null
+     */
+    public IssueDetailVO findIssueDetail(Long issueId, Long ownerId) {
+        String sql = "SELECT oi.id, oi.issue_title, oi.issue_content, oi.issue_type, oi.sub_type, oi.specific_location, " +
+                "oi.contact_name, oi.contact_phone, oi.urgency_level, oi.issue_status, oi.work_status, " +
+                "oi.issue_images, oi.additional_images, oi.process_plan, oi.process_result, oi.result_images, " +
+                "oi.has_cost, oi.total_cost, oi.cost_payment_status, oi.satisfaction_level, oi.satisfaction_feedback, " +
+                "oi.reported_time, oi.estimated_complete_time, oi.actual_complete_time, oi.is_evaluated, " +
+                "h.id AS house_id_val, h.room_no, h.full_room_no, h.house_code, h.house_type, h.floor_level, " +
+                "b.id AS building_id_val, b.building_no, b.building_name, b.building_alias, b.unit_no, " +
+                "c.id AS community_id_val, c.community_name, c.community_code, c.detail_address, c.contact_phone AS community_phone, " +
+                "s.id AS staff_id_val, s.name AS assigned_staff_name, s.phone AS staff_phone, s.position AS staff_position " +
+                "FROM owner_issue oi " +
+                "LEFT JOIN house h ON h.id = oi.house_id " +
+                "LEFT JOIN building b ON b.id = h.building_id " +
+                "LEFT JOIN community_info c ON c.id = h.community_id " +
+                "LEFT JOIN staff s ON s.id = oi.assigned_staff_id " +
+                "WHERE oi.id = ? AND oi.owner_id = ?";
+        List<IssueDetailVO> rows = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            IssueDetailVO detail = ISSUE_DETAIL_MAPPER.mapRow(rs, rowNum);
+            Map<String, Object> relations = new LinkedHashMap<>();
+            if (rs.getObject("house_id_val") != null) {
+                Map<String, Object> houseInfo = new LinkedHashMap<>();
+                houseInfo.put("id", rs.getLong("house_id_val"));
+                houseInfo.put("roomNo", rs.getString("room_no"));
+                houseInfo.put("fullRoomNo", rs.getString("full_room_no"));
+                houseInfo.put("houseCode", rs.getString("house_code"));
+                houseInfo.put("houseType", rs.getString("house_type"));
+                houseInfo.put("floorLevel", rs.getObject("floor_level", Integer.class));
+                relations.put("house", houseInfo);
+            }
+            if (rs.getObject("building_id_val") != null) {
+                Map<String, Object> buildingInfo = new LinkedHashMap<>();
+                buildingInfo.put("id", rs.getLong("building_id_val"));
+                buildingInfo.put("buildingNo", rs.getString("building_no"));
+                buildingInfo.put("buildingName", rs.getString("building_name"));
+                buildingInfo.put("buildingAlias", rs.getString("building_alias"));
+                buildingInfo.put("unitNo", rs.getString("unit_no"));
+                relations.put("building", buildingInfo);
+            }
+            if (rs.getObject("community_id_val") != null) {
+                Map<String, Object> communityData = new LinkedHashMap<>();
+                communityData.put("id", rs.getLong("community_id_val"));
+                communityData.put("communityName", rs.getString("community_name"));
+                communityData.put("communityCode", rs.getString("community_code"));
+                communityData.put("detailAddress", rs.getString("detail_address"));
+                communityData.put("contactPhone", rs.getString("community_phone"));
+                relations.put("community", communityData);
+            }
+            if (rs.getObject("staff_id_val") != null) {
+                Map<String, Object> staffInfo = new LinkedHashMap<>();
+                staffInfo.put("id", rs.getLong("staff_id_val"));
+                staffInfo.put("name", rs.getString("assigned_staff_name"));
+                staffInfo.put("phone", rs.getString("staff_phone"));
+                staffInfo.put("position", rs.getString("staff_position"));
+                relations.put("assignedStaff", staffInfo);
+            }
+            if (!relations.isEmpty()) {
+                detail.setRelations(relations);
+            }
+            return detail;
+        }, issueId, ownerId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
 }
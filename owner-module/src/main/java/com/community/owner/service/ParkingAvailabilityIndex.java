@@ -0,0 +1,251 @@
+package com.community.owner.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 业主端车位状态索引
+ * 与物业端 ParkingAvailabilityIndex 相同的位图结构，供业主查询车位列表时分页和计数；
+ * 车位的新增/分配/释放都在物业端，本进程由后台线程按 updated_at 增量同步。
+ * 两个模块是各自打包运行的 Spring Boot 应用，互不依赖，也没有公共模块，因此位图部分（apply、StatusBits）各保留一份；
+ * 与物业端的差异：只收录停车场、社区都存在的车位（与业主端列表查询一致），没有本进程写入的即时更新，
+ * 同步由守护线程执行（本模块未启用 @Scheduled）。修改位图逻辑时两份需同步修改
+ */
+@Slf4j
+@Service
+public class ParkingAvailabilityIndex {
+
+    /** 与车位列表查询保持一致：只收录停车场、社区都存在的车位 */
+    private static final String SELECT_SPACES_SQL =
+            "SELECT ps.id, ps.parking_lot_id, ps.space_status, ps.updated_at FROM parking_space ps " +
+            "INNER JOIN parking_lot pl ON ps.parking_lot_id = pl.id " +
+            "INNER JOIN community_info c ON pl.community_id = c.id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${parking.index.refresh-interval-ms:5000}")
+    private long refreshIntervalMs;
+
+    /** 增量同步向前重叠的时长（毫秒）：updated_at 取语句执行时间，提交较晚的事务可能写入比水位更早的时间 */
+    @Value("${parking.index.sync-overlap-ms:60000}")
+    private long syncOverlapMs;
+
+    private ScheduledExecutorService refresher;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 停车场ID -> 该停车场的位图 */
+    private final Map<Long, StatusBits> lots = new HashMap<>();
+
+    /** 所有停车场合计 */
+    private final StatusBits global = new StatusBits();
+
+    /** 车位ID -> 当前所在停车场和状态 */
+    private final Map<Integer, SpaceRef> spaces = new HashMap<>();
+
+    /** 已同步到的最大 updated_at */
+    private volatile Timestamp watermark;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "parking-index-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.warn("车位状态索引同步失败", e);
+            }
+        }, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            lots.clear();
+            spaces.clear();
+            global.clear();
+            watermark = null;
+            jdbcTemplate.query(SELECT_SPACES_SQL, rs -> {
+                apply(rs.getLong("id"), rs.getObject("parking_lot_id", Long.class),
+                        rs.getString("space_status"), rs.getTimestamp("updated_at"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("车位状态索引已加载: {} 个车位, {} 个停车场, {} ms", spaces.size(), lots.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量同步物业端的修改（按 updated_at，从水位向前重叠一段时间，重复应用无副作用）
+     */
+    public void refresh() {
+        Timestamp since = watermark;
+        if (since == null) {
+            rebuild();
+            return;
+        }
+        List<Object[]> changed = new ArrayList<>();
+        jdbcTemplate.query(SELECT_SPACES_SQL + " WHERE ps.updated_at >= ?", rs -> {
+            changed.add(new Object[]{rs.getLong("id"), rs.getObject("parking_lot_id", Long.class),
+                    rs.getString("space_status"), rs.getTimestamp("updated_at")});
+        }, new Timestamp(since.getTime() - syncOverlapMs));
+        if (changed.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : changed) {
+                apply((Long) row[0], (Long) row[1], (String) row[2], (Timestamp) row[3]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 车位数
+     *
+     * @param parkingLotId 为空时统计所有停车场
+     * @param spaceStatus  为空时统计所有状态
+     */
+    public long count(Long parkingLotId, String spaceStatus) {
+        lock.readLock().lock();
+        try {
+            StatusBits bits = parkingLotId == null ? global : lots.get(parkingLotId);
+            return bits == null ? 0 : bits.get(spaceStatus).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按车位ID顺序取一页车位ID
+     *
+     * @param descending 是否按ID倒序
+     */
+    public List<Long> page(Long parkingLotId, String spaceStatus, int offset, int limit, boolean descending) {
+        lock.readLock().lock();
+        try {
+            StatusBits bits = parkingLotId == null ? global : lots.get(parkingLotId);
+            if (bits == null || limit <= 0) {
+                return Collections.emptyList();
+            }
+            BitSet set = bits.get(spaceStatus);
+            List<Long> ids = new ArrayList<>(limit);
+            int skipped = 0;
+            int i = descending ? set.previousSetBit(set.length() - 1) : set.nextSetBit(0);
+            while (i >= 0 && ids.size() < limit) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    ids.add((long) i);
+                }
+                i = descending ? set.previousSetBit(i - 1) : set.nextSetBit(i + 1);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 更新一个车位（调用方持有写锁）
+     */
+    private void apply(long id, Long parkingLotId, String spaceStatus, Timestamp updatedAt) {
+        if (updatedAt != null && (watermark == null || updatedAt.after(watermark))) {
+            watermark = updatedAt;
+        }
+        if (id > Integer.MAX_VALUE) {
+            return;
+        }
+        int bit = (int) id;
+        SpaceRef old = spaces.get(bit);
+        if (old != null) {
+            global.remove(bit, old.status);
+            StatusBits oldLot = lots.get(old.parkingLotId);
+            if (oldLot != null) {
+                oldLot.remove(bit, old.status);
+            }
+        }
+        SpaceRef ref = new SpaceRef(parkingLotId, spaceStatus);
+        spaces.put(bit, ref);
+        global.add(bit, spaceStatus);
+        if (parkingLotId != null) {
+            lots.computeIfAbsent(parkingLotId, key -> new StatusBits()).add(bit, spaceStatus);
+        }
+    }
+
+    private static final class SpaceRef {
+        final Long parkingLotId;
+        final String status;
+
+        SpaceRef(Long parkingLotId, String status) {
+            this.parkingLotId = parkingLotId;
+            this.status = status;
+        }
+    }
+
+    /**
+     * 一组车位的位图：全部 + 每个状态一个
+     */
+    private static final class StatusBits {
+        final BitSet all = new BitSet();
+        final Map<String, BitSet> byStatus = new LinkedHashMap<>();
+
+        BitSet get(String status) {
+            if (status == null || status.isEmpty()) {
+                return all;
+            }
+            BitSet set = byStatus.get(status);
+            return set != null ? set : new BitSet(0);
+        }
+
+        void add(int bit, String status) {
+            all.set(bit);
+            if (status != null) {
+                byStatus.computeIfAbsent(status, key -> new BitSet()).set(bit);
+            }
+        }
+
+        void remove(int bit, String status) {
+            all.clear(bit);
+            if (status != null) {
+                BitSet set = byStatus.get(status);
+                if (set != null) {
+                    set.clear(bit);
+                }
+            }
+        }
+
+        void clear() {
+            all.clear();
+            byStatus.clear();
+        }
+    }
+}
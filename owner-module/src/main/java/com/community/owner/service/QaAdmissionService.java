@@ -0,0 +1,302 @@
+package com.community.owner.service;
+
+import com.community.owner.config.QaAdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 智能问答准入控制
+ * 放在 SmartQaService 前面，防止突发请求无限制地打开模型流并占用数据库连接：
+ * 1. 每个业主一个令牌桶，超出频率直接拒绝；已回满的桶由后台线程定期清理
+ * 2. 全局并发上限，超出后进入有界等待队列；队列满或等待超时则快速拒绝
+ * 3. 指标：smart_qa.admission.active / queued（当前值）、smart_qa.admission.rejected（按原因计数）
+ */
+@Service
+public class QaAdmissionService {
+
+    /** 清理已回满令牌桶的间隔（秒） */
+    private static final long BUCKET_SWEEP_INTERVAL_SECONDS = 60;
+
+    @Autowired
+    private QaAdmissionProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+
+    /** 当前进行中的问答数（受 lock 保护） */
+    private int active;
+
+    /** 等待队列（受 lock 保护） */
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("smart_qa.admission.active", this, s -> s.activeCount()).register(meterRegistry);
+        Gauge.builder("smart_qa.admission.queued", queued, AtomicInteger::get).register(meterRegistry);
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "qa-bucket-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepBuckets,
+                BUCKET_SWEEP_INTERVAL_SECONDS, BUCKET_SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * 准入后再执行问答调用，流结束（完成/出错/取消）时归还许可
+     *
+     * @param ownerId 业主ID
+     * @param call    问答调用（准入后才会执行，包括上下文检索）
+     * @return 问答流；被拒绝时以 RejectedException 结束
+     */
+    public Flux<String> admit(Long ownerId, Supplier<Flux<String>> call) {
+        if (!properties.isEnabled()) {
+            return Flux.defer(call);
+        }
+
+        if (ownerId != null && !tryConsumeOwnerToken(ownerId)) {
+            rejectCounter("owner_rate").increment();
+            return Flux.error(new RejectedException("提问过于频繁，请稍后再试。"));
+        }
+
+        return Flux.usingWhen(
+                acquire(),
+                permit -> Flux.defer(call).subscribeOn(Schedulers.boundedElastic()),
+                permit -> Mono.fromRunnable(permit::release),
+                (permit, error) -> Mono.fromRunnable(permit::release),
+                permit -> Mono.fromRunnable(permit::release));
+    }
+
+    /**
+     * 当前进行中的问答数
+     */
+    public int activeCount() {
+        synchronized (lock) {
+            return active;
+        }
+    }
+
+    /**
+     * 当前排队数
+     */
+    public int queuedCount() {
+        return queued.get();
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter;
+            synchronized (lock) {
+                if (active < properties.getMaxConcurrent()) {
+                    active++;
+                    sink.success(new Permit());
+                    return;
+                }
+                if (waiters.size() >= properties.getMaxQueue()) {
+                    rejectCounter("queue_full").increment();
+                    sink.error(new RejectedException("当前咨询人数较多，请稍后再试。"));
+                    return;
+                }
+                waiter = new Waiter(sink);
+                waiters.addLast(waiter);
+                queued.incrementAndGet();
+            }
+
+            // 等待超时
+            var timeout = Schedulers.parallel().schedule(() -> {
+                if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.TIMED_OUT)) {
+                    removeWaiter(waiter);
+                    rejectCounter("wait_timeout").increment();
+                    sink.error(new RejectedException("当前咨询人数较多，请稍后再试。"));
+                }
+            }, properties.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+
+            sink.onCancel(() -> {
+                timeout.dispose();
+                if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+                    removeWaiter(waiter);
+                } else if (waiter.state.get() == Waiter.GRANTED) {
+                    // 许可已分配但下游已取消
+                    waiter.permit.release();
+                }
+            });
+            sink.onDispose(timeout::dispose);
+        });
+    }
+
+    /**
+     * 归还许可：优先直接交给队首等待者
+     */
+    private void releaseSlot() {
+        while (true) {
+            Waiter next;
+            synchronized (lock) {
+                next = waiters.pollFirst();
+                if (next == null) {
+                    active--;
+                    return;
+                }
+                queued.decrementAndGet();
+            }
+            Permit permit = new Permit();
+            next.permit = permit;
+            if (next.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                next.sink.success(permit);
+                return;
+            }
+            // 已超时或已取消，继续下一个
+        }
+    }
+
+    private void removeWaiter(Waiter waiter) {
+        synchronized (lock) {
+            if (waiters.remove(waiter)) {
+                queued.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 取令牌与清理都在该业主的映射项上原子执行，清理不会移除刚被取过令牌的桶
+     */
+    private boolean tryConsumeOwnerToken(Long ownerId) {
+        boolean[] consumed = new boolean[1];
+        buckets.compute(ownerId, (id, bucket) -> {
+            if (bucket == null) {
+                bucket = new TokenBucket(properties.getOwnerBurst(), properties.getOwnerRefillPerMinute());
+            }
+            consumed[0] = bucket.tryConsume();
+            return bucket;
+        });
+        return consumed[0];
+    }
+
+    /**
+     * 清理已回满的令牌桶（回满的桶与新建的桶等价）
+     */
+    private void sweepBuckets() {
+        for (Long ownerId : buckets.keySet()) {
+            buckets.computeIfPresent(ownerId, (id, bucket) -> bucket.isFull(System.nanoTime()) ? null : bucket);
+        }
+    }
+
+    private Counter rejectCounter(String reason) {
+        return Counter.builder("smart_qa.admission.rejected")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 准入许可，只归还一次
+     */
+    private final class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                releaseSlot();
+            }
+        }
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private static final class Waiter {
+
+        static final int WAITING = 0;
+        static final int GRANTED = 1;
+        static final int TIMED_OUT = 2;
+        static final int CANCELLED = 3;
+
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        final MonoSink<Permit> sink;
+        volatile Permit permit;
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * 令牌桶（按纳秒时间惰性补充）
+     */
+    private static final class TokenBucket {
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int capacity, int refillPerMinute) {
+            this.capacity = capacity;
+            this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryConsume() {
+            refill(System.nanoTime());
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * 准入拒绝
+     */
+    public static class RejectedException extends RuntimeException {
+
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+}
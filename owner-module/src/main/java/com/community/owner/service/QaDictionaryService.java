@@ -0,0 +1,176 @@
+package com.community.owner.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.community.owner.entity.SmartQaKeyword;
+import com.community.owner.mapper.SmartQaKeywordMapper;
+import com.community.owner.utils.AhoCorasickMatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 智能问答词典服务
+ * 从 smart_qa_keyword 表加载词典并预编译为 Aho–Corasick 自动机，
+ * 一次扫描同时得到知识库检索关键词、意图标签（房屋/车辆/费用/抄表）和复杂问题提示词。
+ * 后台线程定时检查词典表版本（行数、最大修改时间），有变化才重新编译
+ */
+@Slf4j
+@Service
+public class QaDictionaryService {
+
+    /** 知识库检索关键词 */
+    public static final String TAG_KEYWORD = "keyword";
+
+    /** 房屋信息意图 */
+    public static final String TAG_HOUSE = "house";
+
+    /** 车辆车位意图 */
+    public static final String TAG_VEHICLE = "vehicle";
+
+    /** 费用意图 */
+    public static final String TAG_FEE = "fee";
+
+    /** 抄表意图 */
+    public static final String TAG_METER = "meter";
+
+    /** 复杂问题提示词（用于模型路由） */
+    public static final String TAG_COMPLEX = "complex";
+
+    /** 词典表版本：行数 + 最大修改时间（增删改都会改变） */
+    private static final String VERSION_SQL = "SELECT CONCAT(COUNT(*), '|', COALESCE(MAX(updated_at), '')) FROM smart_qa_keyword";
+
+    @Autowired
+    private SmartQaKeywordMapper keywordMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** 检查词典表是否修改的间隔（毫秒），小于等于 0 时只在启动时加载 */
+    @Value("${smart-qa.dictionary.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    private volatile AhoCorasickMatcher matcher = AhoCorasickMatcher.build(defaultDictionary());
+
+    /** 当前词典对应的表版本 */
+    private volatile String loadedVersion;
+
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void init() {
+        reload();
+        if (refreshIntervalMs <= 0) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "qa-dictionary-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshIfChanged, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 词典表版本变化时重新加载
+     */
+    public void refreshIfChanged() {
+        try {
+            String version = jdbcTemplate.queryForObject(VERSION_SQL, String.class);
+            if (!Objects.equals(version, loadedVersion)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("检查词典表版本失败，继续使用当前词典", e);
+        }
+    }
+
+    /**
+     * 重新加载词典
+     * 表为空时使用内置词典；查询失败时保留当前词典（启动时即为内置词典）
+     */
+    public synchronized void reload() {
+        try {
+            String version = jdbcTemplate.queryForObject(VERSION_SQL, String.class);
+            List<SmartQaKeyword> rows = keywordMapper.selectList(
+                new QueryWrapper<SmartQaKeyword>().eq("status", "启用")
+            );
+
+            if (rows == null || rows.isEmpty()) {
+                log.info("词典表为空，使用内置词典");
+                matcher = AhoCorasickMatcher.build(defaultDictionary());
+                loadedVersion = version;
+                return;
+            }
+
+            Map<String, Set<String>> dictionary = new LinkedHashMap<>();
+            for (SmartQaKeyword row : rows) {
+                if (row.getWord() == null || row.getTag() == null) {
+                    continue;
+                }
+                dictionary.computeIfAbsent(row.getWord(), k -> new LinkedHashSet<>()).add(row.getTag());
+            }
+            matcher = AhoCorasickMatcher.build(dictionary);
+            loadedVersion = version;
+            log.info("词典加载完成: {} 个词条", matcher.size());
+        } catch (Exception e) {
+            log.warn("词典加载失败，继续使用当前词典", e);
+        }
+    }
+
+    /**
+     * 匹配问题，返回命中的词条和标签
+     */
+    public AhoCorasickMatcher.MatchResult match(String question) {
+        return matcher.match(question);
+    }
+
+    /**
+     * 内置词典（与原硬编码关键词一致）
+     */
+    private static Map<String, Set<String>> defaultDictionary() {
+        Map<String, Set<String>> dictionary = new LinkedHashMap<>();
+
+        put(dictionary, TAG_KEYWORD, List.of(
+            "停车", "费用", "物业", "报修", "投诉",
+            "缴费", "车辆", "房屋", "通知", "账户",
+            "打折", "优惠", "如何", "怎么", "申请",
+            "办理", "流程", "规定", "政策", "制度",
+            "服务", "管理", "规则", "收费", "缴纳"
+        ));
+        put(dictionary, TAG_HOUSE, List.of("房", "户型", "面积", "地址"));
+        put(dictionary, TAG_VEHICLE, List.of("车", "停车", "车位"));
+        put(dictionary, TAG_FEE, List.of("费", "缴", "账单", "欠"));
+        put(dictionary, TAG_METER, List.of("水", "电", "气", "表"));
+        put(dictionary, TAG_COMPLEX, List.of("为什么", "原因", "分析", "比较", "对比", "区别", "计算"));
+
+        return dictionary;
+    }
+
+    private static void put(Map<String, Set<String>> dictionary, String tag, Collection<String> words) {
+        for (String word : words) {
+            dictionary.computeIfAbsent(word, k -> new LinkedHashSet<>()).add(tag);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.community.owner.service;
+
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatModel;
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
+import com.community.owner.config.QaModelProperties;
+import com.community.owner.dto.QaRequest;
+import com.community.owner.utils.AhoCorasickMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 智能问答模型路由
+ * 1. 按问题复杂度选择模型：FAQ类问题走快速模型，复杂问题升级到大模型
+ * 2. 对冲请求：首字超过期限未到达时向该档位的备用模型发起请求，谁先出字用谁
+ * 3. 按模型记录首字延迟和总耗时直方图（smart_qa.first_token / smart_qa.total）
+ */
+@Slf4j
+@Service
+public class QaModelRouter {
+
+    @Autowired
+    private DashScopeChatModel chatModel;
+
+    @Autowired
+    private QaModelProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 根据问题复杂度选择模型
+     */
+    public String selectModel(QaRequest request, AhoCorasickMatcher.MatchResult match) {
+        String question = request.getQuestion();
+
+        boolean complex = question.length() > properties.getComplexQuestionLength()
+                || (request.getHistory() != null && request.getHistory().size() >= properties.getComplexHistorySize())
+                || match.hasTag(QaDictionaryService.TAG_COMPLEX)
+                || countIntents(match) >= properties.getComplexIntentCount();
+
+        return complex ? properties.getComplexModel() : properties.getSimpleModel();
+    }
+
+    /**
+     * 流式调用模型，首字超时则对冲到备用模型
+     */
+    public Flux<String> stream(List<Message> messages, String model) {
+        Flux<String> primary = streamModel(messages, model);
+
+        String backupModel = model.equals(properties.getComplexModel())
+                ? properties.getComplexBackupModel() : properties.getSimpleBackupModel();
+        if (!properties.isHedgeEnabled() || backupModel == null || backupModel.equals(model)) {
+            return primary;
+        }
+
+        // 备用请求延迟订阅：主模型在期限内出字时被取消，不会真正发出
+        Flux<String> backup = Mono.delay(properties.getHedgeDelay())
+                .doOnNext(t -> {
+                    log.info("模型 {} 首字超时 {}ms，对冲请求 {}", model, properties.getHedgeDelay().toMillis(), backupModel);
+                    hedgeCounter(model, "fired").increment();
+                })
+                .thenMany(streamModel(messages, backupModel));
+
+        // 先出字的一方胜出，另一方被取消
+        AtomicBoolean backupWon = new AtomicBoolean(false);
+        return Flux.firstWithValue(
+                primary,
+                backup.doOnNext(chunk -> {
+                    if (backupWon.compareAndSet(false, true)) {
+                        hedgeCounter(model, "won").increment();
+                    }
+                }));
+    }
+
+    /**
+     * 调用单个模型，过滤空片段并记录延迟
+     */
+    private Flux<String> streamModel(List<Message> messages, String model) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+
+            Prompt prompt = new Prompt(messages, DashScopeChatOptions.builder()
+                    .withModel(model)
+                    .withTemperature(properties.getTemperature())
+                    .build());
+
+            return chatModel.stream(prompt)
+                    .map(response -> {
+                        if (response != null && response.getResult() != null) {
+                            var output = response.getResult().getOutput();
+                            if (output != null) {
+                                String text = output.getText();
+                                return text != null ? text : "";
+                            }
+                        }
+                        return "";
+                    })
+                    .filter(text -> !text.isEmpty())
+                    .doOnNext(text -> {
+                        if (first.compareAndSet(true, false)) {
+                            latencyTimer("smart_qa.first_token", model)
+                                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    })
+                    .doOnComplete(() -> latencyTimer("smart_qa.total", model)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private int countIntents(AhoCorasickMatcher.MatchResult match) {
+        int count = 0;
+        for (String tag : match.getTags()) {
+            if (!QaDictionaryService.TAG_KEYWORD.equals(tag) && !QaDictionaryService.TAG_COMPLEX.equals(tag)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Timer latencyTimer(String name, String model) {
+        return Timer.builder(name)
+                .tag("model", model)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Counter hedgeCounter(String model, String result) {
+        return Counter.builder("smart_qa.hedge")
+                .tag("model", model)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
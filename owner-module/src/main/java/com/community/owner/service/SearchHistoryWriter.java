@@ -0,0 +1,257 @@
+package com.community.owner.service;
+
+import com.community.owner.config.QaHistoryWriterProperties;
+import com.community.owner.entity.SmartQaSearchHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 知识库查询副作用的异步批量写入
+ * 搜索历史放入有界内存队列，查看次数按文档聚合，由后台线程定期批量写库，查询路径上没有写 I/O
+ * 队列满时按 overflowPolicy 处理：drop 丢弃并计数（smart_qa.history.dropped），sync 退化为同步写入。
+ * 写库失败的批次保留重试，超过重试次数后逐条写入，仍失败的记录丢弃并计数（smart_qa.history.failed）。
+ * 停机时由写线程自己写完剩余数据，不与进行中的批量写入并发
+ */
+@Slf4j
+@Service
+public class SearchHistoryWriter {
+
+    private static final String INSERT_HISTORY_SQL =
+            "INSERT INTO smart_qa_search_history (owner_id, query, query_type, doc_id, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    /** 批次写库失败后的重试次数，超过后改为逐条写入 */
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final String INCREASE_VIEW_COUNT_SQL =
+            "UPDATE smart_qa_knowledge SET view_count = IFNULL(view_count, 0) + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private QaHistoryWriterProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<SmartQaSearchHistory> queue;
+
+    /** 文档ID -> 待累加的查看次数 */
+    private final Map<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    private Counter droppedCounter;
+    private Counter failedCounter;
+
+    private Thread writerThread;
+
+    private volatile boolean running = true;
+
+    /** 写库失败待重试的批次及已尝试次数（只由写线程访问） */
+    private List<SmartQaSearchHistory> retryBatch;
+    private int retryAttempts;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        droppedCounter = Counter.builder("smart_qa.history.dropped").register(meterRegistry);
+        failedCounter = Counter.builder("smart_qa.history.failed").register(meterRegistry);
+        Gauge.builder("smart_qa.history.queued", queue, BlockingQueue::size).register(meterRegistry);
+
+        writerThread = new Thread(this::runLoop, "qa-history-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 记录一条搜索历史（不阻塞调用方）
+     */
+    public void enqueue(SmartQaSearchHistory history) {
+        if (history.getCreatedAt() == null) {
+            history.setCreatedAt(LocalDateTime.now());
+        }
+        if (queue.offer(history)) {
+            return;
+        }
+        if ("sync".equalsIgnoreCase(properties.getOverflowPolicy())) {
+            if (!insertHistories(List.of(history))) {
+                failedCounter.increment();
+            }
+        } else {
+            droppedCounter.increment();
+        }
+    }
+
+    /**
+     * 累加文档查看次数（聚合后批量更新）
+     */
+    public void recordView(Long docId) {
+        if (docId != null) {
+            pendingViews.computeIfAbsent(docId, id -> new LongAdder()).increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            // 不中断写线程，避免打断进行中的批量写入；剩余数据由写线程退出循环后写完
+            writerThread.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("搜索历史写线程未在 {} 内结束，未写入: 队列 {} 条", properties.getShutdownTimeout(), queue.size());
+        }
+    }
+
+    private void runLoop() {
+        long intervalMillis = properties.getFlushInterval().toMillis();
+        long lastViewFlush = System.currentTimeMillis();
+        while (running) {
+            try {
+                if (retryBatch != null) {
+                    // 失败的批次等待一个间隔后重试
+                    Thread.sleep(intervalMillis);
+                    write(retryBatch);
+                } else {
+                    SmartQaSearchHistory first = queue.poll(intervalMillis, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        List<SmartQaSearchHistory> batch = new ArrayList<>(properties.getBatchSize());
+                        batch.add(first);
+                        queue.drainTo(batch, properties.getBatchSize() - 1);
+                        write(batch);
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastViewFlush >= intervalMillis) {
+                    flushViews();
+                    lastViewFlush = now;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("搜索历史批量写入异常", e);
+            }
+        }
+        // 停机前写完剩余数据
+        try {
+            if (retryBatch != null) {
+                insertIndividually(retryBatch);
+                retryBatch = null;
+            }
+            flushHistories();
+            flushViews();
+        } catch (Exception e) {
+            log.warn("停机时写入搜索历史异常", e);
+        }
+    }
+
+    /**
+     * 写入一批，失败时保留等待重试；已达到重试次数的逐条写入，隔离出写不进去的记录后丢弃
+     */
+    private void write(List<SmartQaSearchHistory> batch) {
+        if (insertHistories(batch)) {
+            retryBatch = null;
+            retryAttempts = 0;
+            return;
+        }
+        if (++retryAttempts >= MAX_ATTEMPTS) {
+            insertIndividually(batch);
+            retryBatch = null;
+            retryAttempts = 0;
+        } else {
+            retryBatch = batch;
+        }
+    }
+
+    private void flushHistories() {
+        List<SmartQaSearchHistory> batch = new ArrayList<>();
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            if (!insertHistories(batch)) {
+                insertIndividually(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * @return 是否写入成功
+     */
+    private boolean insertHistories(List<SmartQaSearchHistory> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_HISTORY_SQL, batch, batch.size(), (ps, h) -> {
+                ps.setObject(1, h.getOwnerId());
+                ps.setString(2, h.getQuery());
+                ps.setString(3, h.getQueryType());
+                ps.setObject(4, h.getDocId());
+                ps.setTimestamp(5, Timestamp.valueOf(h.getCreatedAt()));
+            });
+            return true;
+        } catch (Exception e) {
+            log.warn("保存搜索历史失败: {} 条", batch.size(), e);
+            return false;
+        }
+    }
+
+    private void insertIndividually(List<SmartQaSearchHistory> batch) {
+        for (SmartQaSearchHistory h : batch) {
+            try {
+                jdbcTemplate.update(INSERT_HISTORY_SQL, h.getOwnerId(), h.getQuery(), h.getQueryType(), h.getDocId(),
+                        Timestamp.valueOf(h.getCreatedAt()));
+            } catch (Exception e) {
+                failedCounter.increment();
+                log.error("搜索历史逐条写库仍失败，已丢弃: ownerId={}, query={}", h.getOwnerId(), h.getQuery(), e);
+            }
+        }
+    }
+
+    private void flushViews() {
+        if (pendingViews.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>();
+        // 计数器保留在 map 中（数量与文档数相当），只清零，避免与并发累加竞争
+        for (Map.Entry<Long, LongAdder> entry : pendingViews.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                args.add(new Object[]{count, entry.getKey()});
+            }
+        }
+        if (args.isEmpty()) {
+            return;
+        }
+        try {
+            // 整批在一个事务中写入，失败时整体回滚，加回计数不会重复累加
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INCREASE_VIEW_COUNT_SQL, args));
+        } catch (Exception e) {
+            // 写库失败时把取出的计数加回去，下一轮与新增计数一起写入
+            for (Object[] arg : args) {
+                pendingViews.computeIfAbsent((Long) arg[1], k -> new LongAdder()).add((Long) arg[0]);
+            }
+            log.warn("更新文档查看次数失败，下次重试: {} 个文档", args.size(), e);
+        }
+    }
+}
@@ -9,12 +9,14 @@ import com.community.owner.dto.NoticeSearchRequest;
 import com.community.owner.entity.CommunityNotice;
 import com.community.owner.mapper.CommunityNoticeMapper;
 import com.community.owner.service.CommunityNoticeService;
+import com.community.owner.service.NoticeAudienceIndex;
+import com.community.owner.service.NoticeWindowScheduler;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -24,6 +26,12 @@ import java.util.stream.Collectors;
 @Service
 public class CommunityNoticeServiceImpl extends ServiceImpl<CommunityNoticeMapper, CommunityNotice> implements CommunityNoticeService {
     
+    @Autowired
+    private NoticeAudienceIndex noticeAudienceIndex;
+    
+    @Autowired
+    private NoticeWindowScheduler noticeWindowScheduler;
+    
     @Value("${aliyun.oss.bucket-name}")
     private String bucketName;
 
@@ -55,59 +63,10 @@ public class CommunityNoticeServiceImpl extends ServiceImpl<CommunityNoticeMappe
         if (page == null || page < 1) page = 1;
         if (size == null || size < 1) size = 10;
         
-        // 构建查询条件
-        QueryWrapper<CommunityNotice> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("community_id", communityId)
-                .eq("status", "已发布")
-                .eq("approval_status", "已审核")
-                .le("start_time", LocalDateTime.now())
-                .ge("end_time", LocalDateTime.now())
-                .eq("target_audience", "全体业主")  // 仅显示全体业主的公告
-                // 按照置顶和发布时间排序：置顶的在前，同级别按发布时间倒序
-                .orderByDesc("is_top")
-                .orderByDesc("publish_time");
-        
-        // 计算分页
+        // 有效期内、面向全体业主的公告由受众索引和有效期调度维护，按置顶、发布时间排好序，只查当前页
         int offset = (page - 1) * size;
-        queryWrapper.last("LIMIT " + size + " OFFSET " + offset);
-        
-        // 查询数据
-        List<CommunityNotice> notices = list(queryWrapper);
-        
-        // 转换为VO对象
-        List<NoticeListVO> noticeListVOs = notices.stream().map(notice -> {
-            NoticeListVO vo = new NoticeListVO();
-            vo.setId(notice.getId());
-            vo.setTitle(notice.getTitle());
-            vo.setContent(notice.getContent());
-            vo.setNoticeImages(getImageUrl(notice.getNoticeImages()));
-            vo.setNoticeType(notice.getNoticeType());
-            vo.setIsUrgent(notice.getIsUrgent());
-            vo.setIsTop(notice.getIsTop());
-            vo.setPublishTime(notice.getPublishTime());
-            vo.setReadCount(notice.getReadCount());
-            return vo;
-        }).collect(Collectors.toList());
-        
-        // 查询总数
-        QueryWrapper<CommunityNotice> countWrapper = new QueryWrapper<>();
-        countWrapper.eq("community_id", communityId)
-                .eq("status", "已发布")
-                .eq("approval_status", "已审核")
-                .le("start_time", LocalDateTime.now())
-                .ge("end_time", LocalDateTime.now())
-                .eq("target_audience", "全体业主");  // 仅计数全体业主的公告
-        long total = count(countWrapper);
-        
-        // 构建分页结果
-        Map<String, Object> pageData = new LinkedHashMap<>();
-        pageData.put("page", page);
-        pageData.put("size", size);
-        pageData.put("total", total);
-        pageData.put("pages", size == 0 ? 0 : ((total + size - 1) / size));
-        pageData.put("items", noticeListVOs);
-        
-        return pageData;
+        NoticeAudienceIndex.IdPage matched = noticeAudienceIndex.filter(communityId, null, null, null, offset, size);
+        return toPageData(matched, page, size);
     }
     
     @Override
@@ -143,13 +102,14 @@ public class CommunityNoticeServiceImpl extends ServiceImpl<CommunityNoticeMappe
         if (page == null || page < 1) page = 1;
         if (size == null || size < 1) size = 10;
         
-        // 构建查询条件
+        // 搜索范围：有效期调度维护的当前有效公告（已发布、已审核、面向全体业主）
+        List<Long> activeIds = noticeWindowScheduler.activeIds(communityId);
+        if (activeIds.isEmpty()) {
+            return toPageData(new ArrayList<>(), 0L, page, size);
+        }
+        
         QueryWrapper<CommunityNotice> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("community_id", communityId)
-                .eq("status", "已发布")
-                .eq("approval_status", "已审核")
-                .le("start_time", LocalDateTime.now())
-                .ge("end_time", LocalDateTime.now());
+        queryWrapper.in("id", activeIds);
         
         // 添加搜索条件（搜索标题、内容、公告类型）
         if (keyword != null && !keyword.trim().isEmpty()) {
@@ -173,27 +133,11 @@ public class CommunityNoticeServiceImpl extends ServiceImpl<CommunityNoticeMappe
         List<CommunityNotice> notices = list(queryWrapper);
         
         // 转换为VO对象
-        List<NoticeListVO> noticeListVOs = notices.stream().map(notice -> {
-            NoticeListVO vo = new NoticeListVO();
-            vo.setId(notice.getId());
-            vo.setTitle(notice.getTitle());
-            vo.setContent(notice.getContent());
-            vo.setNoticeImages(getImageUrl(notice.getNoticeImages()));
-            vo.setNoticeType(notice.getNoticeType());
-            vo.setIsUrgent(notice.getIsUrgent());
-            vo.setIsTop(notice.getIsTop());
-            vo.setPublishTime(notice.getPublishTime());
-            vo.setReadCount(notice.getReadCount());
-            return vo;
-        }).collect(Collectors.toList());
+        List<NoticeListVO> noticeListVOs = notices.stream().map(this::toListVO).collect(Collectors.toList());
         
         // 查询总数
         QueryWrapper<CommunityNotice> countWrapper = new QueryWrapper<>();
-        countWrapper.eq("community_id", communityId)
-                .eq("status", "已发布")
-                .eq("approval_status", "已审核")
-                .le("start_time", LocalDateTime.now())
-                .ge("end_time", LocalDateTime.now());
+        countWrapper.in("id", activeIds);
         
         if (keyword != null && !keyword.trim().isEmpty()) {
             countWrapper.and(wrapper -> wrapper
@@ -206,134 +150,65 @@ public class CommunityNoticeServiceImpl extends ServiceImpl<CommunityNoticeMappe
         
         long total = count(countWrapper);
         
-        // 构建分页结果
-        Map<String, Object> pageData = new LinkedHashMap<>();
-        pageData.put("page", page);
-        pageData.put("size", size);
-        pageData.put("total", total);
-        pageData.put("pages", size == 0 ? 0 : ((total + size - 1) / size));
-        pageData.put("items", noticeListVOs);
-        
-        return pageData;
+        return toPageData(noticeListVOs, total, page, size);
     }
     
     @Override
     public Map<String, Object> filterNoticesByAudience(Long communityId, NoticeFilterRequest request) {
         Integer page = request.getPage();
         Integer size = request.getSize();
-        String noticeType = request.getNoticeType();
-        String targetBuilding = request.getTargetBuilding();
-        String targetOwnerType = request.getTargetOwnerType();
         
         if (page == null || page < 1) page = 1;
         if (size == null || size < 1) size = 10;
         
-        // 构建查询条件
-        QueryWrapper<CommunityNotice> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("community_id", communityId)
-                .eq("status", "已发布")
-                .eq("approval_status", "已审核")
-                .le("start_time", LocalDateTime.now())
-                .ge("end_time", LocalDateTime.now());
-        
-        // 添加公告类型筛选条件（按 notice_type 分类）
-        if (noticeType != null && !noticeType.trim().isEmpty()) {
-            queryWrapper.eq("notice_type", noticeType);
-        }
-        
-        // 添加目标受众筛选条件 - 仅显示全体业主的公告
-        queryWrapper.eq("target_audience", "全体业主");
-        
-        // 添加目标楼栋筛选条件（JSON数组包含查询）
-        if (targetBuilding != null && !targetBuilding.trim().isEmpty()) {
-            queryWrapper.and(wrapper -> wrapper
-                    .like("target_buildings", targetBuilding)
-                    .or()
-                    .isNull("target_buildings")
-                    .or()
-                    .eq("target_buildings", ""));
-        }
-        
-        // 添加目标业主类型筛选条件
-        if (targetOwnerType != null && !targetOwnerType.trim().isEmpty()) {
-            queryWrapper.and(wrapper -> wrapper
-                    .like("target_owner_types", targetOwnerType)
-                    .or()
-                    .isNull("target_owner_types")
-                    .or()
-                    .eq("target_owner_types", ""));
-        }
-        
-        // 排序：按是否置顶和发布时间倒序排列（最新发布的在前）
-        queryWrapper.orderByDesc("is_top")
-                .orderByDesc("publish_time");
-        
-        // 计算分页
+        // 受众索引按公告类型、目标楼栋、目标业主类型位图求交（仅含全体业主的有效公告），只查当前页
         int offset = (page - 1) * size;
-        queryWrapper.last("LIMIT " + size + " OFFSET " + offset);
-        
-        // 查询数据
-        List<CommunityNotice> notices = list(queryWrapper);
-        
-        // 转换为VO对象
-        List<NoticeListVO> noticeListVOs = notices.stream().map(notice -> {
-            NoticeListVO vo = new NoticeListVO();
-            vo.setId(notice.getId());
-            vo.setTitle(notice.getTitle());
-            vo.setContent(notice.getContent());
-            vo.setNoticeImages(getImageUrl(notice.getNoticeImages()));
-            vo.setNoticeType(notice.getNoticeType());
-            vo.setIsUrgent(notice.getIsUrgent());
-            vo.setIsTop(notice.getIsTop());
-            vo.setPublishTime(notice.getPublishTime());
-            vo.setReadCount(notice.getReadCount());
-            return vo;
-        }).collect(Collectors.toList());
-        
-        // 查询总数
-        QueryWrapper<CommunityNotice> countWrapper = new QueryWrapper<>();
-        countWrapper.eq("community_id", communityId)
-                .eq("status", "已发布")
-                .eq("approval_status", "已审核")
-                .le("start_time", LocalDateTime.now())
-                .ge("end_time", LocalDateTime.now());
-        
-        if (noticeType != null && !noticeType.trim().isEmpty()) {
-            countWrapper.eq("notice_type", noticeType);
-        }
-        
-        // 仅计数全体业主的公告
-        countWrapper.eq("target_audience", "全体业主");
-        
-        if (targetBuilding != null && !targetBuilding.trim().isEmpty()) {
-            countWrapper.and(wrapper -> wrapper
-                    .like("target_buildings", targetBuilding)
-                    .or()
-                    .isNull("target_buildings")
-                    .or()
-                    .eq("target_buildings", ""));
+        NoticeAudienceIndex.IdPage matched = noticeAudienceIndex.filter(communityId, request.getNoticeType(),
+                request.getTargetBuilding(), request.getTargetOwnerType(), offset, size);
+        return toPageData(matched, page, size);
+    }
+    
+    /**
+     * 按索引给出的ID顺序批量查询当前页公告
+     */
+    private Map<String, Object> toPageData(NoticeAudienceIndex.IdPage matched, int page, int size) {
+        Map<Long, CommunityNotice> byId = new HashMap<>();
+        if (!matched.getIds().isEmpty()) {
+            for (CommunityNotice notice : listByIds(matched.getIds())) {
+                byId.put(notice.getId(), notice);
+            }
         }
-        
-        if (targetOwnerType != null && !targetOwnerType.trim().isEmpty()) {
-            countWrapper.and(wrapper -> wrapper
-                    .like("target_owner_types", targetOwnerType)
-                    .or()
-                    .isNull("target_owner_types")
-                    .or()
-                    .eq("target_owner_types", ""));
+        List<NoticeListVO> noticeListVOs = new ArrayList<>();
+        for (Long id : matched.getIds()) {
+            CommunityNotice notice = byId.get(id);
+            if (notice != null) {
+                noticeListVOs.add(toListVO(notice));
+            }
         }
-        
-        long total = count(countWrapper);
-        
-        // 构建分页结果
+        return toPageData(noticeListVOs, matched.getTotal(), page, size);
+    }
+    
+    private Map<String, Object> toPageData(List<NoticeListVO> items, long total, int page, int size) {
         Map<String, Object> pageData = new LinkedHashMap<>();
         pageData.put("page", page);
         pageData.put("size", size);
         pageData.put("total", total);
         pageData.put("pages", size == 0 ? 0 : ((total + size - 1) / size));
-        pageData.put("items", noticeListVOs);
-        
+        pageData.put("items", items);
         return pageData;
     }
+    
+    private NoticeListVO toListVO(CommunityNotice notice) {
+        NoticeListVO vo = new NoticeListVO();
+        vo.setId(notice.getId());
+        vo.setTitle(notice.getTitle());
+        vo.setContent(notice.getContent());
+        vo.setNoticeImages(getImageUrl(notice.getNoticeImages()));
+        vo.setNoticeType(notice.getNoticeType());
+        vo.setIsUrgent(notice.getIsUrgent());
+        vo.setIsTop(notice.getIsTop());
+        vo.setPublishTime(notice.getPublishTime());
+        vo.setReadCount(notice.getReadCount());
+        return vo;
+    }
 }
-
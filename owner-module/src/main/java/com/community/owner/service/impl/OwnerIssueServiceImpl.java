@@ -29,16 +29,10 @@ public class OwnerIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, OwnerIs
     private IssueFollowUpMapper issueFollowUpMapper;
 
     @Autowired
-    private HouseService houseService;
+    private IssueDetailLoader issueDetailLoader;
 
     @Autowired
-    private BuildingService buildingService;
-
-    @Autowired
-    private CommunityInfoService communityInfoService;
-
-    @Autowired
-    private StaffService staffService;
+    private OwnerEventBus ownerEventBus;
     
     @Override
     @Transactional
@@ -158,80 +152,8 @@ public class OwnerIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, OwnerIs
     
     @Override
     public IssueDetailVO getIssueDetail(Long issueId, Long ownerId) {
-        // 查询问题
-        OwnerIssue issue = getById(issueId);
-        if (issue == null || !issue.getOwnerId().equals(ownerId)) {
-            return null;
-        }
-        
-        // 转换为详情VO
-        IssueDetailVO detailVO = new IssueDetailVO();
-        BeanUtils.copyProperties(issue, detailVO);
-        
-        // 添加完整的关联信息
-        Map<String, Object> relations = new LinkedHashMap<>();
-        
-        // 关联房屋信息
-        if (issue.getHouseId() != null) {
-            House house = houseService.getById(issue.getHouseId());
-            if (house != null) {
-                Map<String, Object> houseInfo = new LinkedHashMap<>();
-                houseInfo.put("id", house.getId());
-                houseInfo.put("roomNo", house.getRoomNo());
-                houseInfo.put("fullRoomNo", house.getFullRoomNo());
-                houseInfo.put("houseCode", house.getHouseCode());
-                houseInfo.put("houseType", house.getHouseType());
-                houseInfo.put("floorLevel", house.getFloorLevel());
-                relations.put("house", houseInfo);
-                
-                // 关联楼栋信息
-                if (house.getBuildingId() != null) {
-                    Building building = buildingService.getById(house.getBuildingId());
-                    if (building != null) {
-                        Map<String, Object> buildingInfo = new LinkedHashMap<>();
-                        buildingInfo.put("id", building.getId());
-                        buildingInfo.put("buildingNo", building.getBuildingNo());
-                        buildingInfo.put("buildingName", building.getBuildingName());
-                        buildingInfo.put("buildingAlias", building.getBuildingAlias());
-                        buildingInfo.put("unitNo", building.getUnitNo());
-                        relations.put("building", buildingInfo);
-                    }
-                }
-                
-                // 关联社区信息
-                if (house.getCommunityId() != null) {
-                    CommunityInfo community = communityInfoService.getById(house.getCommunityId());
-                    if (community != null) {
-                        Map<String, Object> communityData = new LinkedHashMap<>();
-                        communityData.put("id", community.getId());
-                        communityData.put("communityName", community.getCommunityName());
-                        communityData.put("communityCode", community.getCommunityCode());
-                        communityData.put("detailAddress", community.getDetailAddress());
-                        communityData.put("contactPhone", community.getContactPhone());
-                        relations.put("community", communityData);
-                    }
-                }
-            }
-        }
-        
-        // 关联处理人员信息
-        if (issue.getAssignedStaffId() != null) {
-            Staff assignedStaff = staffService.getById(issue.getAssignedStaffId());
-            if (assignedStaff != null) {
-                Map<String, Object> staffInfo = new LinkedHashMap<>();
-                staffInfo.put("id", assignedStaff.getId());
-                staffInfo.put("name", assignedStaff.getName());
-                staffInfo.put("phone", assignedStaff.getPhone());
-                staffInfo.put("position", assignedStaff.getPosition());
-                relations.put("assignedStaff", staffInfo);
-            }
-        }
-        
-        if (!relations.isEmpty()) {
-            detailVO.setRelations(relations);
-        }
-        
-        return detailVO;
+        // 问题连同房屋、楼栋、社区、处理人员一次查询，已结束的问题按状态指纹缓存
+        return issueDetailLoader.load(issueId, ownerId);
     }
     
     @Override
@@ -261,11 +183,13 @@ public class OwnerIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, OwnerIs
             issue.setWorkStatus("待重新分配"); // 标记为待重新分配，让管理员重新处理
             issue.setIsEvaluated(0); // 重置评价状态
             updateById(issue);
+            publishIssueEvent(issue);
         } else if ("处理中".equals(issue.getIssueStatus()) || "待确认".equals(issue.getIssueStatus())) {
             // 如果正在处理中，也改为待重新分配，让管理员重新评估
             issue.setIssueStatus("待处理");
             issue.setWorkStatus("待重新分配");
             updateById(issue);
+            publishIssueEvent(issue);
         }
         
         return result > 0;
@@ -379,5 +303,16 @@ public class OwnerIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, OwnerIs
         
         return pageData;
     }
-}
 
+    /**
+     * 工单被业主重新打开后通知该业主的其他在线终端
+     */
+    private void publishIssueEvent(OwnerIssue issue) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("issueId", issue.getId());
+        data.put("issueTitle", issue.getIssueTitle());
+        data.put("issueStatus", issue.getIssueStatus());
+        data.put("workStatus", issue.getWorkStatus());
+        ownerEventBus.publishToOwner(issue.getOwnerId(), "issue", data);
+    }
+}
@@ -1,17 +1,18 @@
 package com.community.owner.service.impl;
 
-import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatModel;
-import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.community.owner.mapper.*;
 import com.community.owner.dto.QaRequest;
 import com.community.owner.entity.*;
+import com.community.owner.service.KnowledgeFileCache;
 import com.community.owner.service.OwnerService;
+import com.community.owner.service.QaDictionaryService;
+import com.community.owner.service.QaModelRouter;
 import com.community.owner.service.SmartQaService;
+import com.community.owner.utils.AhoCorasickMatcher;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
@@ -47,7 +48,13 @@ public class SmartQaServiceImpl implements SmartQaService {
     private MeterInfoMapper meterInfoMapper;
     
     @Autowired
-    private DashScopeChatModel chatModel;
+    private QaModelRouter modelRouter;
+    
+    @Autowired
+    private QaDictionaryService dictionaryService;
+    
+    @Autowired
+    private KnowledgeFileCache knowledgeFileCache;
     
     @Override
     public Flux<String> streamChat(QaRequest request, Long ownerId) {
@@ -68,10 +75,13 @@ public class SmartQaServiceImpl implements SmartQaService {
                 ownerInfo = "业主信息：查询异常";
             }
             
+            // 问题只扫描一次：关键词与意图标签同时得到
+            AhoCorasickMatcher.MatchResult match = dictionaryService.match(request.getQuestion());
+            
             // 2. 从知识库检索相关信息（RAG）（确保不返回 null）
             String knowledgeContext = "";
             try {
-                knowledgeContext = retrieveKnowledge(request.getQuestion());
+                knowledgeContext = retrieveKnowledge(request.getQuestion(), match);
                 if (knowledgeContext == null) {
                     knowledgeContext = "";
                 }
@@ -82,7 +92,7 @@ public class SmartQaServiceImpl implements SmartQaService {
             // 3. 从数据库检索相关信息（基于问题关键词）（确保不返回 null）
             String databaseContext = "";
             try {
-                databaseContext = retrieveDatabaseInfo(request.getQuestion(), ownerId);
+                databaseContext = retrieveDatabaseInfo(match, ownerId);
                 if (databaseContext == null) {
                     databaseContext = "";
                 }
@@ -99,24 +109,11 @@ public class SmartQaServiceImpl implements SmartQaService {
             // 6. 构建消息列表（包含历史对话，支持多轮对话）
             List<Message> messages = buildMessages(systemPrompt, request);
             
-            // 7. 调用通义千问模型（流式输出）- 使用 Spring AI Alibaba
-            Prompt prompt = new Prompt(messages, DashScopeChatOptions.builder()
-                    .withModel("qwen-max")
-                    .withTemperature(0.7)
-                    .build());
-            
-            // 8. 返回流式响应（不过滤空内容，让模型决定输出）
-            return chatModel.stream(prompt)
-                    .map(response -> {
-                        if (response != null && response.getResult() != null) {
-                            var output = response.getResult().getOutput();
-                            if (output != null) {
-                                String text = output.getText();
-                                return text != null ? text : "";
-                            }
-                        }
-                        return "";
-                    })
+            // 7. 按问题复杂度路由模型，首字超时对冲到备用模型（流式输出）
+            String model = modelRouter.selectModel(request, match);
+            
+            // 8. 返回流式响应
+            return modelRouter.stream(messages, model)
                     .onErrorResume(e -> {
                         // 如果流式输出出错，返回错误信息
                         return Flux.just("抱歉，智能问答服务暂时不可用，请稍后再试。错误信息：" + e.getMessage());
@@ -191,14 +188,15 @@ public class SmartQaServiceImpl implements SmartQaService {
     /**
      * 从知识库检索相关信息（RAG）
      */
-    private String retrieveKnowledge(String question) {
+    private String retrieveKnowledge(String question, AhoCorasickMatcher.MatchResult match) {
         try {
             // 提取关键词进行匹配
             QueryWrapper<SmartQaKnowledge> queryWrapper = new QueryWrapper<>();
             queryWrapper.eq("status", "启用");
             
-            // 尝试通过标题和描述匹配关键词
-            String[] keywords = extractKeywords(question);
+            // 优先使用词典命中的关键词，未命中时退回分词提取
+            List<String> matched = match.getWords(QaDictionaryService.TAG_KEYWORD);
+            String[] keywords = !matched.isEmpty() ? matched.toArray(new String[0]) : extractKeywords(question);
             
             // 改进：如果有关键词，则使用关键词进行匹配；否则返回所有启用的文档
             if (keywords != null && keywords.length > 0) {
@@ -252,18 +250,14 @@ public class SmartQaServiceImpl implements SmartQaService {
     }
     
     /**
-     * 从数据库检索相关信息
+     * 从数据库检索相关信息（按词典命中的意图标签选择查询）
      */
-    private String retrieveDatabaseInfo(String question, Long ownerId) {
+    private String retrieveDatabaseInfo(AhoCorasickMatcher.MatchResult match, Long ownerId) {
         try {
             StringBuilder context = new StringBuilder();
             
-            // 根据问题关键词判断查询类型
-            String questionLower = question.toLowerCase();
-            
             // 1. 房屋信息相关
-            if (questionLower.contains("房") || questionLower.contains("户型") || 
-                questionLower.contains("面积") || questionLower.contains("地址")) {
+            if (match.hasTag(QaDictionaryService.TAG_HOUSE)) {
                 String houseInfo = queryOwnerHouses(ownerId);
                 if (!houseInfo.isEmpty()) {
                     context.append("【您的房屋信息】\n").append(houseInfo).append("\n");
@@ -271,7 +265,7 @@ public class SmartQaServiceImpl implements SmartQaService {
             }
             
             // 2. 车辆车位相关
-            if (questionLower.contains("车") || questionLower.contains("停车") || questionLower.contains("车位")) {
+            if (match.hasTag(QaDictionaryService.TAG_VEHICLE)) {
                 String vehicleInfo = queryOwnerVehicles(ownerId);
                 if (!vehicleInfo.isEmpty()) {
                     context.append("【您的车辆信息】\n").append(vehicleInfo).append("\n");
@@ -279,8 +273,7 @@ public class SmartQaServiceImpl implements SmartQaService {
             }
             
             // 3. 费用相关
-            if (questionLower.contains("费") || questionLower.contains("缴") || 
-                questionLower.contains("账单") || questionLower.contains("欠")) {
+            if (match.hasTag(QaDictionaryService.TAG_FEE)) {
                 String feeInfo = queryOwnerFees(ownerId);
                 if (!feeInfo.isEmpty()) {
                     context.append("【您的费用信息】\n").append(feeInfo).append("\n");
@@ -288,8 +281,7 @@ public class SmartQaServiceImpl implements SmartQaService {
             }
             
             // 4. 抄表信息相关
-            if (questionLower.contains("水") || questionLower.contains("电") || 
-                questionLower.contains("气") || questionLower.contains("表")) {
+            if (match.hasTag(QaDictionaryService.TAG_METER)) {
                 String meterInfo = queryOwnerMeters(ownerId);
                 if (!meterInfo.isEmpty()) {
                     context.append("【您的抄表信息】\n").append(meterInfo).append("\n");
@@ -600,29 +592,19 @@ public class SmartQaServiceImpl implements SmartQaService {
                 return "";
             }
             
-            java.io.File dir = new java.io.File("./temp/knowledge");
-            if (!dir.exists()) {
-                boolean created = dir.mkdirs();
-                if (created) {
-                    System.out.println("✅ 创建临时目录: " + dir.getAbsolutePath());
-                } else {
-                    System.out.println("❌ 创建临时目录失败");
-                }
-            }
-            
-            System.out.println("⬇️  正在下载文件...");
-            f = downloadFile(knowledge.getFilePath(), knowledge.getId());
+            System.out.println("⬇️  正在获取文件（本地缓存/条件请求）...");
+            f = knowledgeFileCache.fetch(knowledge.getFilePath());
             if (f == null) {
-                System.out.println("❌ 文件下载失败，downloadFile 返回 null");
+                System.out.println("❌ 文件获取失败，且本地无缓存");
                 return "";
             }
             
             if (!f.exists()) {
-                System.out.println("❌ 下载的文件不存在: " + f.getAbsolutePath());
+                System.out.println("❌ 缓存文件不存在: " + f.getAbsolutePath());
                 return "";
             }
             
-            System.out.println("✅ 文件下载成功: " + f.getAbsolutePath());
+            System.out.println("✅ 文件就绪: " + f.getAbsolutePath());
             System.out.println("📊 文件大小: " + f.length() + " 字节");
             
             if (f.length() == 0) {
@@ -666,91 +648,11 @@ public class SmartQaServiceImpl implements SmartQaService {
             e.printStackTrace();
             return "";
         } finally {
-            // 删除临时文件
-            if (f != null && f.exists()) {
-                try {
-                    boolean deleted = f.delete();
-                    if (deleted) {
-                        System.out.println("🗑️  临时文件已删除: " + f.getAbsolutePath());
-                    } else {
-                        System.out.println("⚠️ 删除临时文件失败: " + f.getAbsolutePath());
-                    }
-                } catch (Exception e) {
-                    System.out.println("❌ 删除临时文件时出错: " + e.getMessage());
-                }
-            }
+            // 文件由 KnowledgeFileCache 管理，不再删除
             System.out.println("========== 文档处理完成 ==========\n");
         }
     }
 
-    private java.io.File downloadFile(String url, Long id) {
-        try {
-            // 改进：验证URL
-            if (url == null || url.trim().isEmpty()) {
-                System.out.println("  [下载] URL 为空");
-                return null;
-            }
-            
-            System.out.println("  [下载] URL: " + url);
-            System.out.println("  [下载] 文档ID: " + id);
-            
-            java.net.URL u = new java.net.URL(url);
-            java.net.URLConnection c = u.openConnection();
-            c.setConnectTimeout(30000);
-            c.setReadTimeout(30000);
-            c.setRequestProperty("User-Agent", "Mozilla/5.0");
-            System.out.println("  [下载] 连接建立成功，开始传输...");
-            
-            int contentLength = c.getContentLength();
-            System.out.println("  [下载] 内容大小: " + (contentLength > 0 ? contentLength + " 字节" : "未知"));
-            
-            if (contentLength == 0) {
-                System.out.println("  [下载] ⚠️ 警告：内容大小为 0");
-                return null;
-            }
-            
-            java.io.File f = new java.io.File("./temp/knowledge", "knowledge_" + id + "_" + System.currentTimeMillis() + getFileExt(url));
-            try (java.io.InputStream in = c.getInputStream();
-                 java.io.FileOutputStream out = new java.io.FileOutputStream(f)) {
-                byte[] b = new byte[4096];
-                int n;
-                long totalBytes = 0;
-                while ((n = in.read(b)) > 0) {
-                    out.write(b, 0, n);
-                    totalBytes += n;
-                }
-                System.out.println("  [下载] 传输完成，共 " + totalBytes + " 字节");
-                
-                if (totalBytes == 0) {
-                    System.out.println("  [下载] ❌ 错误：下载的文件为空");
-                    f.delete();
-                    return null;
-                }
-                
-                return f;
-            }
-        } catch (java.net.MalformedURLException e) {
-            System.out.println("  [下载] URL 格式错误: " + e.getMessage());
-            return null;
-        } catch (java.net.ConnectException e) {
-            System.out.println("  [下载] 连接错误: " + e.getMessage());
-            return null;
-        } catch (java.net.SocketTimeoutException e) {
-            System.out.println("  [下载] 超时: " + e.getMessage());
-            return null;
-        } catch (Exception e) { 
-            System.out.println("  [下载] 异常: " + e.getClass().getName() + " - " + e.getMessage());
-            e.printStackTrace();
-            return null; 
-        }
-    }
-
-    private String getFileExt(String url) {
-        if (!url.contains(".")) return "";
-        String e = url.substring(url.lastIndexOf("."));
-        return e.contains("?") ? e.substring(0, e.indexOf("?")) : e;
-    }
-
     private String parsePdfFile(java.io.File f) {
         return "（PDF解析需要PDFBox库）";
     }
@@ -0,0 +1,248 @@
+package com.community.owner.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Aho–Corasick 多模式匹配器
+ * 构建后不可变、线程安全，一次线性扫描返回问题中命中的全部词条及其标签
+ * 匹配不区分大小写
+ */
+public final class AhoCorasickMatcher {
+
+    /** 每个节点的出边字符（升序，二分查找） */
+    private final char[][] edgeChars;
+
+    /** 每个节点的出边目标节点，与 edgeChars 一一对应 */
+    private final int[][] edgeTargets;
+
+    /** 失败指针 */
+    private final int[] fail;
+
+    /** 每个节点可输出的词条下标（已合并失败链上的输出） */
+    private final int[][] outputs;
+
+    /** 词条 */
+    private final String[] words;
+
+    /** 词条对应的标签 */
+    private final String[][] wordTags;
+
+    private AhoCorasickMatcher(char[][] edgeChars, int[][] edgeTargets, int[] fail,
+                               int[][] outputs, String[] words, String[][] wordTags) {
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.words = words;
+        this.wordTags = wordTags;
+    }
+
+    /**
+     * 根据词典构建匹配器
+     * @param dictionary 词条 -> 标签集合
+     * @return 匹配器
+     */
+    public static AhoCorasickMatcher build(Map<String, ? extends Collection<String>> dictionary) {
+        // 1. 规范化词条，合并同一词条的标签
+        Map<String, Set<String>> normalized = new LinkedHashMap<>();
+        for (Map.Entry<String, ? extends Collection<String>> entry : dictionary.entrySet()) {
+            if (entry.getKey() == null || entry.getKey().trim().isEmpty()) {
+                continue;
+            }
+            String word = entry.getKey().trim().toLowerCase();
+            Set<String> tags = normalized.computeIfAbsent(word, k -> new LinkedHashSet<>());
+            if (entry.getValue() != null) {
+                tags.addAll(entry.getValue());
+            }
+        }
+
+        String[] words = normalized.keySet().toArray(new String[0]);
+        String[][] wordTags = new String[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            wordTags[i] = normalized.get(words[i]).toArray(new String[0]);
+        }
+
+        // 2. 构建字典树
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ownOutputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ownOutputs.add(new ArrayList<>());
+        for (int i = 0; i < words.length; i++) {
+            int node = 0;
+            for (char c : words[i].toCharArray()) {
+                Integer next = trie.get(node).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ownOutputs.add(new ArrayList<>());
+                    trie.get(node).put(c, next);
+                }
+                node = next;
+            }
+            ownOutputs.get(node).add(i);
+        }
+
+        int size = trie.size();
+        char[][] edgeChars = new char[size][];
+        int[][] edgeTargets = new int[size][];
+        for (int n = 0; n < size; n++) {
+            TreeMap<Character, Integer> edges = trie.get(n);
+            edgeChars[n] = new char[edges.size()];
+            edgeTargets[n] = new int[edges.size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> e : edges.entrySet()) {
+                edgeChars[n][k] = e.getKey();
+                edgeTargets[n][k] = e.getValue();
+                k++;
+            }
+        }
+
+        // 3. 广度优先计算失败指针，并沿失败链合并输出
+        int[] fail = new int[size];
+        int[][] outputs = new int[size][];
+        outputs[0] = new int[0];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) {
+            fail[child] = 0;
+            outputs[child] = toArray(ownOutputs.get(child));
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int k = 0; k < edgeChars[node].length; k++) {
+                char c = edgeChars[node][k];
+                int child = edgeTargets[node][k];
+                int f = fail[node];
+                int target = goTo(edgeChars, edgeTargets, f, c);
+                while (target < 0 && f != 0) {
+                    f = fail[f];
+                    target = goTo(edgeChars, edgeTargets, f, c);
+                }
+                fail[child] = target < 0 ? 0 : target;
+
+                int[] own = toArray(ownOutputs.get(child));
+                int[] inherited = outputs[fail[child]];
+                int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+                System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+                outputs[child] = merged;
+                queue.add(child);
+            }
+        }
+
+        return new AhoCorasickMatcher(edgeChars, edgeTargets, fail, outputs, words, wordTags);
+    }
+
+    /**
+     * 扫描文本，返回所有命中的词条（按首次出现顺序去重）及其标签
+     */
+    public MatchResult match(String text) {
+        if (text == null || text.isEmpty() || words.length == 0) {
+            return MatchResult.EMPTY;
+        }
+
+        BitSet seen = new BitSet(words.length);
+        List<String> matched = new ArrayList<>();
+        Map<String, List<String>> wordsByTag = new LinkedHashMap<>();
+
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = goTo(edgeChars, edgeTargets, node, c);
+            while (next < 0 && node != 0) {
+                node = fail[node];
+                next = goTo(edgeChars, edgeTargets, node, c);
+            }
+            node = next < 0 ? 0 : next;
+
+            for (int w : outputs[node]) {
+                if (seen.get(w)) {
+                    continue;
+                }
+                seen.set(w);
+                matched.add(words[w]);
+                for (String tag : wordTags[w]) {
+                    wordsByTag.computeIfAbsent(tag, k -> new ArrayList<>()).add(words[w]);
+                }
+            }
+        }
+
+        return matched.isEmpty() ? MatchResult.EMPTY : new MatchResult(matched, wordsByTag);
+    }
+
+    /**
+     * 词条数量
+     */
+    public int size() {
+        return words.length;
+    }
+
+    private static int goTo(char[][] edgeChars, int[][] edgeTargets, int node, char c) {
+        int idx = Arrays.binarySearch(edgeChars[node], c);
+        return idx < 0 ? -1 : edgeTargets[node][idx];
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] arr = new int[list.size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = list.get(i);
+        }
+        return arr;
+    }
+
+    /**
+     * 匹配结果
+     */
+    public static final class MatchResult {
+
+        static final MatchResult EMPTY = new MatchResult(Collections.emptyList(), Collections.emptyMap());
+
+        private final List<String> words;
+        private final Map<String, List<String>> wordsByTag;
+
+        MatchResult(List<String> words, Map<String, List<String>> wordsByTag) {
+            this.words = Collections.unmodifiableList(words);
+            this.wordsByTag = Collections.unmodifiableMap(wordsByTag);
+        }
+
+        /**
+         * 命中的全部词条
+         */
+        public List<String> getWords() {
+            return words;
+        }
+
+        /**
+         * 带有指定标签的命中词条
+         */
+        public List<String> getWords(String tag) {
+            List<String> list = wordsByTag.get(tag);
+            return list != null ? Collections.unmodifiableList(list) : Collections.emptyList();
+        }
+
+        /**
+         * 是否命中带有指定标签的词条
+         */
+        public boolean hasTag(String tag) {
+            return wordsByTag.containsKey(tag);
+        }
+
+        /**
+         * 命中的全部标签
+         */
+        public Set<String> getTags() {
+            return wordsByTag.keySet();
+        }
+    }
+}
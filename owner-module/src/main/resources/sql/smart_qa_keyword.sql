@@ -0,0 +1,25 @@
+-- 智能问答词典表
+-- tag: keyword(知识库检索关键词) / house / vehicle / fee / meter(意图) / complex(复杂问题提示词)
+-- 同一词条可有多个标签（多行）
+CREATE TABLE IF NOT EXISTS smart_qa_keyword (
+    id          BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    word        VARCHAR(50)  NOT NULL COMMENT '词条',
+    tag         VARCHAR(20)  NOT NULL COMMENT '标签',
+    status      VARCHAR(10)  NOT NULL DEFAULT '启用' COMMENT '状态:启用/禁用',
+    created_at  DATETIME     DEFAULT CURRENT_TIMESTAMP,
+    updated_at  DATETIME     DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_word_tag (word, tag)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='智能问答词典';
+
+INSERT IGNORE INTO smart_qa_keyword (word, tag) VALUES
+('停车', 'keyword'), ('费用', 'keyword'), ('物业', 'keyword'), ('报修', 'keyword'), ('投诉', 'keyword'),
+('缴费', 'keyword'), ('车辆', 'keyword'), ('房屋', 'keyword'), ('通知', 'keyword'), ('账户', 'keyword'),
+('打折', 'keyword'), ('优惠', 'keyword'), ('如何', 'keyword'), ('怎么', 'keyword'), ('申请', 'keyword'),
+('办理', 'keyword'), ('流程', 'keyword'), ('规定', 'keyword'), ('政策', 'keyword'), ('制度', 'keyword'),
+('服务', 'keyword'), ('管理', 'keyword'), ('规则', 'keyword'), ('收费', 'keyword'), ('缴纳', 'keyword'),
+('房', 'house'), ('户型', 'house'), ('面积', 'house'), ('地址', 'house'),
+('车', 'vehicle'), ('停车', 'vehicle'), ('车位', 'vehicle'),
+('费', 'fee'), ('缴', 'fee'), ('账单', 'fee'), ('欠', 'fee'),
+('水', 'meter'), ('电', 'meter'), ('气', 'meter'), ('表', 'meter'),
+('为什么', 'complex'), ('原因', 'complex'), ('分析', 'complex'), ('比较', 'complex'),
+('对比', 'complex'), ('区别', 'complex'), ('计算', 'complex');
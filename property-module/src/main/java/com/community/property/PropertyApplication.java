@@ -2,11 +2,13 @@ package com.community.property;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 物业端应用启动类
  */
 @SpringBootApplication
+@EnableScheduling
 //@ComponentScan(basePackages = "com.community")
 public class PropertyApplication {
     
@@ -0,0 +1,32 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 门禁通行判定配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "access.decision")
+public class AccessDecisionProperties {
+
+    /** 是否启用通行判定 */
+    private boolean enabled = true;
+
+    /** 通行名单全量重建的间隔（毫秒），用于同步其他进程的修改 */
+    private long fullRefreshIntervalMs = 300000;
+
+    /** 欠费名单刷新的间隔（毫秒） */
+    private long arrearsRefreshIntervalMs = 60000;
+
+    /** 是否按欠费禁止业主通行（需有缴费入口把账单改为已缴后再开启，否则所有有账单的业主都会被拦） */
+    private boolean arrearsEnforced = false;
+
+    /** 账单超过该天数仍未缴视为欠费 */
+    private int arrearsGraceDays = 30;
+
+    /** 是否记录判定结果到门禁记录 */
+    private boolean auditEnabled = true;
+}
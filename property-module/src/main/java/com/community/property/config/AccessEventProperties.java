@@ -0,0 +1,47 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 门禁记录写入与分区维护配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "access.event")
+public class AccessEventProperties {
+
+    /** 是否接收门禁记录 */
+    private boolean enabled = true;
+
+    /** 单次上报的记录数上限 */
+    private int maxEventsPerRequest = 5000;
+
+    /** 待写库队列容量，队列满时拒绝并由设备重传 */
+    private int queueCapacity = 200000;
+
+    /** 批量写库的间隔（毫秒） */
+    private long flushIntervalMs = 1000;
+
+    /** 每批写库的记录数 */
+    private int batchSize = 2000;
+
+    /** 按时间范围查询的最大跨度（天） */
+    private int maxQueryDays = 93;
+
+    /** 是否自动维护分区 */
+    private boolean partitionMaintenanceEnabled = true;
+
+    /** 分区维护时间 */
+    private String partitionCron = "0 30 3 * * ?";
+
+    /** 预建未来几个月的分区 */
+    private int precreateMonths = 3;
+
+    /** 在线保留的月数（含当月），更早的分区归档或删除 */
+    private int retentionMonths = 12;
+
+    /** 过期分区是否归档到按月的归档表（access_control_record_yyyyMM），否则直接删除 */
+    private boolean archiveEnabled = true;
+}
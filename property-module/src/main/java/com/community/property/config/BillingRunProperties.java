@@ -0,0 +1,26 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 月末账单批量任务配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "billing.run")
+public class BillingRunProperties {
+
+    /** 是否启用定时任务（手动触发不受影响） */
+    private boolean enabled = true;
+
+    /** 执行时间，默认每月1日02:00生成上月账单 */
+    private String cron = "0 0 2 1 * ?";
+
+    /** 并行处理的分区数（每个分区读写各占用一个数据库连接，两倍后需小于连接池大小） */
+    private int parallelism = 4;
+
+    /** 每批写入的账单数 */
+    private int batchSize = 500;
+}
@@ -0,0 +1,24 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设备上报令牌配置（请求头 X-Device-Token）
+ * 按设备类别分别配置，某类设备的令牌泄露不影响其他类别；为空时拒绝该类设备的所有请求
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.auth")
+public class DeviceAuthProperties {
+
+    /** 智能仪表网关：读数上报 */
+    private String meterToken = "";
+
+    /** 门禁设备：心跳、出入记录、通行验证 */
+    private String accessToken = "";
+
+    /** 停车场道闸：出入事件 */
+    private String parkingGateToken = "";
+}
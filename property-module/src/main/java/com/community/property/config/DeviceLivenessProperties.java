@@ -0,0 +1,32 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 设备在线监测配置（智能仪表、门禁设备）
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "device.liveness")
+public class DeviceLivenessProperties {
+
+    /** 是否启用在线监测 */
+    private boolean enabled = true;
+
+    /** 时间轮每格时长（毫秒） */
+    private long tickMs = 1000;
+
+    /** 时间轮格数（2的幂） */
+    private int wheelSize = 512;
+
+    /** 仪表超过该时长（秒）未上报视为离线 */
+    private long meterTimeoutSeconds = 900;
+
+    /** 门禁设备超过该时长（秒）无心跳视为离线 */
+    private long accessTimeoutSeconds = 180;
+
+    /** 在线状态变更批量写库的间隔（毫秒） */
+    private long flushIntervalMs = 5000;
+}
@@ -0,0 +1,39 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 问题工单自动派单配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "issue.dispatch")
+public class IssueDispatchProperties {
+
+    /** 是否自动派单，默认关闭（关闭后仍维护负载计数，统计照常可用） */
+    private boolean enabled = false;
+
+    /** 扫描未分配工单的间隔（毫秒） */
+    private long intervalMs = 10000;
+
+    /** 每次最多派出的工单数 */
+    private int batchSize = 100;
+
+    /** 负载计数与数据库对账的间隔（毫秒），同步业主端等其他进程的修改 */
+    private long reconcileIntervalMs = 600000;
+
+    /** 单个员工的负载上限，达到后不再自动派单 */
+    private int maxLoadPerStaff = 20;
+
+    /** 问题类型 -> 负责部门ID，只自动派发已配置的类型，未配置的类型仍由人工分配 */
+    private Map<String, List<Long>> routes = new HashMap<>();
+
+    /** 紧急程度 -> 负载权重，未配置的按 1 计 */
+    private Map<String, Integer> urgencyWeights = new HashMap<>(Map.of("紧急", 4, "高", 2, "一般", 1, "低", 1));
+}
@@ -0,0 +1,38 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工单 SLA 升级配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "issue.sla")
+public class IssueSlaProperties {
+
+    /** 是否启用 SLA 升级 */
+    private boolean enabled = true;
+
+    /** 检查到期的间隔（毫秒），到期事件在此间隔内批量处理 */
+    private long tickMs = 30000;
+
+    /** 扫描新上报工单的间隔（毫秒） */
+    private long scanIntervalMs = 60000;
+
+    /** 与数据库全量对账的间隔（毫秒），同步业主端关闭、修改的工单 */
+    private long reconcileIntervalMs = 600000;
+
+    /** 距截止时间多少分钟时预警 */
+    private long warnBeforeMinutes = 60;
+
+    /** 未填写预计完成时间的工单：紧急程度 -> 上报后多少小时到期 */
+    private Map<String, Integer> slaHours = new HashMap<>(Map.of("紧急", 4, "高", 24, "一般", 72, "低", 168));
+
+    /** 未配置紧急程度的默认时限（小时） */
+    private int defaultSlaHours = 72;
+}
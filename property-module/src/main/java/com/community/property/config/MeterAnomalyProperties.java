@@ -0,0 +1,35 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 抄表异常检测配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "meter.anomaly")
+public class MeterAnomalyProperties {
+
+    /** 是否启用异常检测 */
+    private boolean enabled = true;
+
+    /** EWMA 平滑系数，越大越偏向最近的用量 */
+    private double alpha = 0.2;
+
+    /** 用量超过 均值 + spikeSigma × 标准差 时判定为突增 */
+    private double spikeSigma = 4.0;
+
+    /** 样本数达到该值后才判定突增 */
+    private int minSamples = 5;
+
+    /** 启动时用最近多少天的日汇总预热统计 */
+    private int warmupDays = 90;
+
+    /** 新出现的仪表在后台补读量程的间隔（毫秒），读取前不判定超量程和翻转 */
+    private long knownRefreshMs = 10000;
+
+    /** 上次读数达到量程的该比例、本次读数回到量程的 (1 - 该比例) 以内时视为表盘翻转 */
+    private double rolloverRatio = 0.9;
+}
@@ -0,0 +1,23 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 抄表批量导入配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "meter.import")
+public class MeterImportProperties {
+
+    /** 每批写入的行数 */
+    private int batchSize = 500;
+
+    /** 最多返回的错误明细条数（超出部分只计数） */
+    private int maxErrors = 1000;
+
+    /** 单个文件最多导入的数据行数 */
+    private int maxRows = 100000;
+}
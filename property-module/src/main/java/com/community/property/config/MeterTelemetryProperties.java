@@ -0,0 +1,29 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 智能仪表数据上报配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "meter.telemetry")
+public class MeterTelemetryProperties {
+
+    /** 是否接收上报 */
+    private boolean enabled = true;
+
+    /** 每个仪表在内存中保留的最近采样数 */
+    private int ringSize = 64;
+
+    /** 读数、通信时间合并写库的间隔（毫秒） */
+    private long flushIntervalMs = 5000;
+
+    /** 单次请求最多上报条数 */
+    private int maxReportsPerRequest = 5000;
+
+    /** 每批更新的仪表数 */
+    private int batchSize = 1000;
+}
@@ -0,0 +1,23 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 业主端事件推送配置（经 Redis 发布，业主端订阅后推送给在线业主）
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "owner.events")
+public class OwnerEventProperties {
+
+    /** 是否发布事件 */
+    private boolean enabled = true;
+
+    /** Redis 发布频道，需与业主端一致 */
+    private String channel = "owner:events";
+
+    /** 待发布事件队列容量，Redis 不可用时超出部分丢弃 */
+    private int queueCapacity = 10000;
+}
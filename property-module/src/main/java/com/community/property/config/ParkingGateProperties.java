@@ -0,0 +1,32 @@
+package com.community.property.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 停车场道闸出入事件配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "parking.gate")
+public class ParkingGateProperties {
+
+    /** 是否接收道闸事件 */
+    private boolean enabled = true;
+
+    /** 单次上报的事件数上限 */
+    private int maxEventsPerRequest = 5000;
+
+    /** 停车记录批量写库的间隔（毫秒） */
+    private long flushIntervalMs = 2000;
+
+    /** 每批写库的记录数 */
+    private int batchSize = 1000;
+
+    /** 车牌表全量重新加载的间隔（毫秒），用于同步业主端的车辆修改 */
+    private long plateReloadIntervalMs = 600000;
+
+    /** 启动时恢复多少天内未出场的停车记录 */
+    private int openRecordRecoveryDays = 30;
+}
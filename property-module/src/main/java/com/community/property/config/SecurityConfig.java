@@ -24,6 +24,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authz -> authz
                         .requestMatchers(
                                 "/api/auth/**",
+                                "/api/device/**", // 设备上报，使用设备令牌校验
                                 "/doc.html",
                                 "/webjars/**",
                                 "/swagger-resources/**",
@@ -0,0 +1,250 @@
+package com.community.property.controller;
+
+import com.community.property.config.AccessDecisionProperties;
+import com.community.property.config.AccessEventProperties;
+import com.community.property.config.DeviceAuthProperties;
+import com.community.property.config.MeterTelemetryProperties;
+import com.community.property.config.ParkingGateProperties;
+import com.community.property.dto.AccessEventReport;
+import com.community.property.dto.AccessVerifyRequest;
+import com.community.property.dto.DeviceHeartbeat;
+import com.community.property.dto.GateEvent;
+import com.community.property.dto.MeterTelemetryReport;
+import com.community.property.service.AccessDecisionService;
+import com.community.property.service.AccessEventService;
+import com.community.property.service.DeviceLivenessMonitor;
+import com.community.property.service.GateEventService;
+import com.community.property.service.MeterTelemetryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备数据上报控制器
+ * 供智能仪表网关、门禁设备、停车场道闸或本地模拟器调用，使用设备令牌（X-Device-Token）而非员工登录令牌；
+ * 令牌按设备类别区分（见 DeviceAuthProperties），仪表令牌不能调用门禁、道闸接口，反之亦然
+ */
+@RestController
+@RequestMapping("/api/device")
+@Tag(name = "设备数据上报", description = "智能仪表读数批量上报、门禁设备心跳与出入记录、道闸出入事件")
+public class DeviceTelemetryController {
+
+    @Autowired
+    private MeterTelemetryService meterTelemetryService;
+
+    @Autowired
+    private DeviceLivenessMonitor deviceLivenessMonitor;
+
+    @Autowired
+    private GateEventService gateEventService;
+
+    @Autowired
+    private AccessEventService accessEventService;
+
+    @Autowired
+    private AccessDecisionService accessDecisionService;
+
+    @Autowired
+    private MeterTelemetryProperties properties;
+
+    @Autowired
+    private ParkingGateProperties gateProperties;
+
+    @Autowired
+    private AccessEventProperties accessEventProperties;
+
+    @Autowired
+    private AccessDecisionProperties accessDecisionProperties;
+
+    @Autowired
+    private DeviceAuthProperties deviceAuthProperties;
+
+    /**
+     * 批量上报仪表读数
+     */
+    @PostMapping("/meter/telemetry")
+    @Operation(summary = "批量上报仪表读数", description = "按仪表ID或通信地址上报读数，服务端合并后定时写库")
+    public Map<String, Object> report(
+            @Parameter(description = "上报数据", required = true)
+            @RequestBody List<MeterTelemetryReport> reports,
+            @Parameter(description = "设备令牌", required = true)
+            @RequestHeader(value = "X-Device-Token", required = false) String deviceToken) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!properties.isEnabled() || !validToken(deviceAuthProperties.getMeterToken(), deviceToken)) {
+            response.put("success", false);
+            response.put("message", "设备令牌无效或上报未启用");
+            return response;
+        }
+        if (reports == null || reports.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "上报数据不能为空");
+            return response;
+        }
+        if (reports.size() > properties.getMaxReportsPerRequest()) {
+            response.put("success", false);
+            response.put("message", "单次最多上报 " + properties.getMaxReportsPerRequest() + " 条");
+            return response;
+        }
+        response.put("success", true);
+        response.put("data", meterTelemetryService.ingest(reports));
+        return response;
+    }
+
+    /**
+     * 门禁设备心跳
+     */
+    @PostMapping("/access/heartbeat")
+    @Operation(summary = "门禁设备心跳", description = "按设备ID或设备编码批量上报心跳，更新在线状态和最近心跳时间")
+    public Map<String, Object> accessHeartbeat(
+            @Parameter(description = "心跳列表", required = true)
+            @RequestBody List<DeviceHeartbeat> heartbeats,
+            @Parameter(description = "设备令牌", required = true)
+            @RequestHeader(value = "X-Device-Token", required = false) String deviceToken) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!validToken(deviceAuthProperties.getAccessToken(), deviceToken)) {
+            response.put("success", false);
+            response.put("message", "设备令牌无效");
+            return response;
+        }
+        if (heartbeats == null || heartbeats.isEmpty() || heartbeats.size() > properties.getMaxReportsPerRequest()) {
+            response.put("success", false);
+            response.put("message", "心跳数量应在1到" + properties.getMaxReportsPerRequest() + "之间");
+            return response;
+        }
+        int accepted = 0;
+        for (DeviceHeartbeat heartbeat : heartbeats) {
+            Long deviceId = heartbeat != null
+                    ? deviceLivenessMonitor.resolveAccessDevice(heartbeat.getDeviceId(), heartbeat.getDeviceCode()) : null;
+            if (deviceId != null) {
+                deviceLivenessMonitor.accessHeartbeat(deviceId);
+                accepted++;
+            }
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("accepted", accepted);
+        data.put("rejected", heartbeats.size() - accepted);
+        response.put("success", true);
+        response.put("data", data);
+        return response;
+    }
+
+    /**
+     * 批量上报门禁出入记录
+     */
+    @PostMapping("/access/events")
+    @Operation(summary = "批量上报门禁出入记录", description = "记录进入写库队列后批量写入按月分区的门禁记录表；overflow 为队列已满未接收的条数，需稍后重传")
+    public Map<String, Object> accessEvents(
+            @Parameter(description = "出入记录列表", required = true)
+            @RequestBody List<AccessEventReport> events,
+            @Parameter(description = "设备令牌", required = true)
+            @RequestHeader(value = "X-Device-Token", required = false) String deviceToken) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!accessEventProperties.isEnabled() || !validToken(deviceAuthProperties.getAccessToken(), deviceToken)) {
+            response.put("success", false);
+            response.put("message", "设备令牌无效或上报未启用");
+            return response;
+        }
+        if (events == null || events.isEmpty() || events.size() > accessEventProperties.getMaxEventsPerRequest()) {
+            response.put("success", false);
+            response.put("message", "记录数量应在1到" + accessEventProperties.getMaxEventsPerRequest() + "之间");
+            return response;
+        }
+        response.put("success", true);
+        response.put("data", accessEventService.ingest(events));
+        return response;
+    }
+
+    /**
+     * 门禁通行验证
+     */
+    @PostMapping("/access/verify")
+    @Operation(summary = "门禁通行验证", description = "按内存通行名单判定是否放行（权限有效期、欠费禁行、访客审批），判定结果批量写入门禁记录")
+    public Map<String, Object> verifyAccess(
+            @Parameter(description = "验证请求", required = true)
+            @RequestBody AccessVerifyRequest request,
+            @Parameter(description = "设备令牌", required = true)
+            @RequestHeader(value = "X-Device-Token", required = false) String deviceToken) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!accessDecisionProperties.isEnabled() || !validToken(deviceAuthProperties.getAccessToken(), deviceToken)) {
+            response.put("success", false);
+            response.put("message", "设备令牌无效或通行验证未启用");
+            return response;
+        }
+        if (request == null || request.getPersonId() == null || request.getPersonType() == null) {
+            response.put("success", false);
+            response.put("message", "人员类型和人员ID不能为空");
+            return response;
+        }
+        Long deviceId = deviceLivenessMonitor.resolveAccessDevice(request.getDeviceId(), request.getDeviceCode());
+        if (deviceId == null) {
+            response.put("success", false);
+            response.put("message", "门禁设备不存在");
+            return response;
+        }
+        deviceLivenessMonitor.accessHeartbeat(deviceId);
+        AccessDecisionService.Decision decision = accessDecisionService.decide(
+                deviceId, request.getPersonType(), request.getPersonId(), System.currentTimeMillis());
+        if (accessDecisionProperties.isAuditEnabled()) {
+            accessEventService.enqueueDecision(deviceId, request.getPersonType(), request.getPersonId(),
+                    request.getAccessType(), request.getAccessMethod(), decision.isAllowed(), decision.getReason());
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("allowed", decision.isAllowed());
+        data.put("reason", decision.getReason());
+        response.put("success", true);
+        response.put("data", data);
+        return response;
+    }
+
+    /**
+     * 批量上报道闸出入事件
+     */
+    @PostMapping("/parking/gate-events")
+    @Operation(summary = "批量上报道闸出入事件", description = "入场事件在内存登记，出场时配对生成停车记录并批量写库")
+    public Map<String, Object> gateEvents(
+            @Parameter(description = "事件列表", required = true)
+            @RequestBody List<GateEvent> events,
+            @Parameter(description = "设备令牌", required = true)
+            @RequestHeader(value = "X-Device-Token", required = false) String deviceToken) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!gateProperties.isEnabled() || !validToken(deviceAuthProperties.getParkingGateToken(), deviceToken)) {
+            response.put("success", false);
+            response.put("message", "设备令牌无效或上报未启用");
+            return response;
+        }
+        if (events == null || events.isEmpty() || events.size() > gateProperties.getMaxEventsPerRequest()) {
+            response.put("success", false);
+            response.put("message", "事件数量应在1到" + gateProperties.getMaxEventsPerRequest() + "之间");
+            return response;
+        }
+        response.put("success", true);
+        response.put("data", gateEventService.ingest(events));
+        return response;
+    }
+
+    /**
+     * 校验设备令牌
+     *
+     * @param expected 该类设备配置的令牌
+     */
+    private static boolean validToken(String expected, String deviceToken) {
+        if (expected == null || expected.isEmpty() || deviceToken == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), deviceToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
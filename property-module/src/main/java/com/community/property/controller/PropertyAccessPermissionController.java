@@ -0,0 +1,120 @@
+package com.community.property.controller;
+
+import com.community.property.service.AccessDecisionService;
+import com.community.property.utils.JwtUtil;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 门禁通行权限控制器
+ * 登记访客授权、查询内存通行名单的判定结果
+ */
+@RestController
+@RequestMapping("/api/property/access-permissions")
+@Tag(name = "门禁通行权限", description = "访客授权登记、通行判定查询")
+public class PropertyAccessPermissionController {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private AccessDecisionService accessDecisionService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    /**
+     * 登记访客授权
+     */
+    @PostMapping("/visitor")
+    @Operation(summary = "登记访客授权", description = "为访客生成指定门禁设备的通行证，立即加入该设备的通行名单；返回的通行证ID即访客验证时的人员ID")
+    public Map<String, Object> grantVisitor(
+            @Parameter(description = "门禁设备ID", required = true)
+            @RequestParam Long deviceId,
+            @Parameter(description = "访客姓名", required = true)
+            @RequestParam String visitorName,
+            @Parameter(description = "访客手机号", required = false)
+            @RequestParam(required = false) String visitorPhone,
+            @Parameter(description = "权限类型", required = false)
+            @RequestParam(defaultValue = "临时") String permissionType,
+            @Parameter(description = "生效时间（yyyy-MM-dd HH:mm:ss）", required = true)
+            @RequestParam String validStartTime,
+            @Parameter(description = "失效时间（yyyy-MM-dd HH:mm:ss）", required = true)
+            @RequestParam String validEndTime,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        LocalDateTime validFrom;
+        LocalDateTime validTo;
+        try {
+            validFrom = LocalDateTime.parse(validStartTime, DATE_TIME);
+            validTo = LocalDateTime.parse(validEndTime, DATE_TIME);
+        } catch (DateTimeParseException e) {
+            response.put("success", false);
+            response.put("message", "时间格式应为 yyyy-MM-dd HH:mm:ss");
+            return response;
+        }
+        if (!validTo.isAfter(validFrom) || !validTo.isAfter(LocalDateTime.now())) {
+            response.put("success", false);
+            response.put("message", "失效时间应晚于生效时间和当前时间");
+            return response;
+        }
+
+        try {
+            Long staffId = jwtUtil.getStaffIdFromToken(token.replace("Bearer ", ""));
+            long passId = accessDecisionService.grantVisitor(deviceId, visitorName, visitorPhone, permissionType,
+                    validFrom, validTo, staffId);
+            Map<String, Object> data = new HashMap<>();
+            data.put("passId", passId);
+            data.put("deviceId", deviceId);
+            data.put("validStartTime", validStartTime);
+            data.put("validEndTime", validEndTime);
+            response.put("success", true);
+            response.put("data", data);
+            response.put("message", "授权成功");
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "授权失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 查询通行判定
+     */
+    @GetMapping("/check")
+    @Operation(summary = "查询通行判定", description = "按内存通行名单判定指定人员当前能否通过指定设备，不记录门禁记录")
+    public Map<String, Object> check(
+            @Parameter(description = "门禁设备ID", required = true)
+            @RequestParam Long deviceId,
+            @Parameter(description = "人员类型：owner/staff/visitor", required = true)
+            @RequestParam String personType,
+            @Parameter(description = "人员ID（访客为通行证ID）", required = true)
+            @RequestParam Long personId,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        AccessDecisionService.Decision decision = accessDecisionService.decide(
+                deviceId, personType, personId, System.currentTimeMillis());
+        Map<String, Object> data = new HashMap<>();
+        data.put("allowed", decision.isAllowed());
+        data.put("reason", decision.getReason());
+        data.put("summary", accessDecisionService.summary());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", data);
+        response.put("message", "查询成功");
+        return response;
+    }
+}
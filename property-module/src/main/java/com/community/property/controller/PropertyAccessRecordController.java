@@ -0,0 +1,109 @@
+package com.community.property.controller;
+
+import com.community.property.config.AccessEventProperties;
+import com.community.property.service.AccessEventPartitionManager;
+import com.community.property.service.AccessEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 门禁出入记录控制器
+ * 门禁记录按月分区存储，查询必须指定日期区间
+ */
+@RestController
+@RequestMapping("/api/property/access-records")
+@Tag(name = "门禁出入记录", description = "按人员、设备、日期区间查询门禁出入记录")
+public class PropertyAccessRecordController {
+
+    @Autowired
+    private AccessEventService accessEventService;
+
+    @Autowired
+    private AccessEventPartitionManager accessEventPartitionManager;
+
+    @Autowired
+    private AccessEventProperties properties;
+
+    /**
+     * 查询出入记录
+     */
+    @GetMapping
+    @Operation(summary = "查询出入记录", description = "按日期区间查询，可再按人员、设备、社区筛选，按出入时间倒序；不返回总数，hasMore 表示是否还有下一页")
+    public Map<String, Object> listRecords(
+            @Parameter(description = "开始日期（yyyy-MM-dd）", required = true)
+            @RequestParam String startDate,
+            @Parameter(description = "结束日期（yyyy-MM-dd，含当天）", required = true)
+            @RequestParam String endDate,
+            @Parameter(description = "人员ID", required = false)
+            @RequestParam(required = false) Long personId,
+            @Parameter(description = "人员类型：owner/staff/visitor", required = false)
+            @RequestParam(required = false) String personType,
+            @Parameter(description = "门禁设备ID", required = false)
+            @RequestParam(required = false) Long deviceId,
+            @Parameter(description = "社区ID", required = false)
+            @RequestParam(required = false) Long communityId,
+            @Parameter(description = "页码", required = true)
+            @RequestParam(defaultValue = "1") Integer page,
+            @Parameter(description = "每页大小", required = true)
+            @RequestParam(defaultValue = "20") Integer size,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = LocalDate.parse(startDate);
+            end = LocalDate.parse(endDate);
+        } catch (DateTimeParseException e) {
+            response.put("success", false);
+            response.put("message", "日期格式应为 yyyy-MM-dd");
+            return response;
+        }
+        long days = ChronoUnit.DAYS.between(start, end) + 1;
+        if (days < 1 || days > properties.getMaxQueryDays()) {
+            response.put("success", false);
+            response.put("message", "日期区间应在1到" + properties.getMaxQueryDays() + "天之间");
+            return response;
+        }
+        if (page == null || page < 1) page = 1;
+        if (size == null || size < 1 || size > 200) size = 20;
+
+        try {
+            response.put("success", true);
+            response.put("data", accessEventService.listEvents(personId, personType, deviceId, communityId,
+                    start.atStartOfDay(), end.plusDays(1).atStartOfDay(), page, size));
+            response.put("message", "查询成功");
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "查询失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 分区概况
+     */
+    @GetMapping("/partitions")
+    @Operation(summary = "分区概况", description = "门禁记录表各月分区的预估行数与数据大小")
+    public Map<String, Object> listPartitions(
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", accessEventPartitionManager.listPartitions());
+        response.put("message", "查询成功");
+        return response;
+    }
+}
@@ -0,0 +1,77 @@
+package com.community.property.controller;
+
+import com.community.property.service.BillingRunService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 物业账单任务控制器
+ * 手动触发月末账单任务、查看任务进度
+ */
+@RestController
+@RequestMapping("/api/property/billing")
+@Tag(name = "物业账单任务", description = "月末账单批量生成（仪表账单、车位月租账单）")
+public class PropertyBillingController {
+
+    @Autowired
+    private BillingRunService billingRunService;
+
+    /**
+     * 触发账单任务
+     */
+    @PostMapping("/run")
+    @Operation(summary = "触发账单任务", description = "按社区/楼栋分区并行生成指定账期的仪表账单和车位月租账单，支持试运行")
+    public Map<String, Object> run(
+            @Parameter(description = "账期（yyyy-MM），默认上月", required = false)
+            @RequestParam(required = false) String period,
+            @Parameter(description = "试运行（只计算不写入）", required = false)
+            @RequestParam(required = false, defaultValue = "false") Boolean dryRun,
+            @Parameter(description = "忽略检查点重新处理所有分区", required = false)
+            @RequestParam(required = false, defaultValue = "false") Boolean force,
+            @Parameter(description = "等待任务完成后返回报告", required = false)
+            @RequestParam(required = false, defaultValue = "false") Boolean wait,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            YearMonth billingPeriod = period != null && !period.trim().isEmpty()
+                    ? YearMonth.parse(period.trim()) : YearMonth.now().minusMonths(1);
+            if (Boolean.TRUE.equals(wait)) {
+                response.put("data", billingRunService.run(billingPeriod, dryRun, force));
+                response.put("message", "账单任务已完成");
+            } else {
+                billingRunService.startAsync(billingPeriod, dryRun, force);
+                response.put("message", "账单任务已启动");
+            }
+            response.put("success", true);
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "启动失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 查询账单任务进度
+     */
+    @GetMapping("/run/status")
+    @Operation(summary = "账单任务进度", description = "当前或最近一次账单任务的分区进度、账单数和吞吐（行/秒）")
+    public Map<String, Object> status(
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", billingRunService.status());
+        return response;
+    }
+}
@@ -5,6 +5,7 @@ import com.community.property.entity.Staff;
 import com.community.property.entity.Department;
 import com.community.property.service.StaffService;
 import com.community.property.service.DepartmentService;
+import com.community.property.service.IssueDispatchService;
 import com.community.property.service.PropertyQueryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -36,6 +37,9 @@ public class PropertyDepartmentController {
     @Autowired
     private PropertyQueryService propertyQueryService;
     
+    @Autowired
+    private IssueDispatchService issueDispatchService;
+    
     @Autowired
     private JwtUtil jwtUtil;
     
@@ -153,10 +157,10 @@ public class PropertyDepartmentController {
     }
 
     /**
-     * 获取部门任务统计（系统不支持任务管理，返回空数据）
+     * 获取部门任务统计（工单计数）
      */
     @GetMapping("/task-statistics")
-    @Operation(summary = "获取部门任务统计", description = "获取部门的任务统计信息（注：当前系统不支持任务管理功能）")
+    @Operation(summary = "获取部门任务统计", description = "当前员工所在部门的工单统计：总数、已完成、待处理、处理中、超期、完成率及成员负载")
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "查询成功"),
         @ApiResponse(responseCode = "401", description = "未授权"),
@@ -179,14 +183,14 @@ public class PropertyDepartmentController {
                 return response;
             }
             
-            // 由于系统不支持任务管理，返回空的任务统计数据
-            Map<String, Object> statistics = new LinkedHashMap<>();
-            statistics.put("totalTasks", 0);
-            statistics.put("completedTasks", 0);
-            statistics.put("pendingTasks", 0);
-            statistics.put("overdueTasks", 0);
-            statistics.put("completionRate", 0);
-            statistics.put("message", "系统不支持任务管理功能");
+            if (staff.getDepartmentId() == null) {
+                response.put("success", false);
+                response.put("message", "员工未分配部门");
+                return response;
+            }
+
+            // 部门工单计数由派单服务在内存中维护
+            Map<String, Object> statistics = issueDispatchService.departmentStatistics(staff.getDepartmentId());
             
             response.put("success", true);
             response.put("data", statistics);
@@ -0,0 +1,71 @@
+package com.community.property.controller;
+
+import com.community.property.service.DeviceLivenessMonitor;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 设备在线监测控制器
+ * 在线状态由内存中的时间轮维护，查询不扫描设备表
+ */
+@RestController
+@RequestMapping("/api/property/device-monitor")
+@Tag(name = "设备在线监测", description = "智能仪表、门禁设备的离线列表与统计")
+public class PropertyDeviceMonitorController {
+
+    @Autowired
+    private DeviceLivenessMonitor deviceLivenessMonitor;
+
+    /**
+     * 在线统计
+     */
+    @GetMapping("/summary")
+    @Operation(summary = "在线统计", description = "仪表、门禁设备总数与离线数")
+    public Map<String, Object> summary(
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", deviceLivenessMonitor.summary());
+        return response;
+    }
+
+    /**
+     * 离线设备列表
+     */
+    @GetMapping("/offline")
+    @Operation(summary = "离线设备列表", description = "当前离线的仪表或门禁设备，按离线时间倒序")
+    public Map<String, Object> listOffline(
+            @Parameter(description = "设备类型：meter/access", required = false)
+            @RequestParam(defaultValue = "meter") String type,
+            @Parameter(description = "页码", required = true)
+            @RequestParam(defaultValue = "1") Integer page,
+            @Parameter(description = "每页大小", required = true)
+            @RequestParam(defaultValue = "20") Integer size,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!DeviceLivenessMonitor.TYPE_METER.equals(type) && !DeviceLivenessMonitor.TYPE_ACCESS.equals(type)) {
+            response.put("success", false);
+            response.put("message", "设备类型只能为 meter 或 access");
+            return response;
+        }
+        try {
+            response.put("success", true);
+            response.put("data", deviceLivenessMonitor.listOffline(type, page, size));
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "查询失败: " + e.getMessage());
+            return response;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.community.property.controller;
+
+import com.community.property.service.ExcelExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * 物业数据导出控制器
+ * 导出结果以 xlsx 文件流直接写入响应
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/property/export")
+@Tag(name = "物业数据导出", description = "业主仪表、抄表记录、车辆、车位的Excel导出接口")
+public class PropertyExportController {
+
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    @Autowired
+    private ExcelExportService excelExportService;
+
+    /**
+     * 导出业主仪表
+     */
+    @GetMapping("/owner-meters")
+    @Operation(summary = "导出业主仪表", description = "导出所有业主及其名下仪表，每个仪表一行")
+    public void exportOwnerMeters(
+            @Parameter(description = "社区ID", required = false)
+            @RequestParam(required = false) Long communityId,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token,
+            HttpServletResponse response) {
+
+        write(response, "业主仪表", out -> excelExportService.exportOwnerMeters(communityId, out));
+    }
+
+    /**
+     * 导出抄表记录
+     */
+    @GetMapping("/meter-readings")
+    @Operation(summary = "导出抄表记录", description = "按抄表日期区间导出抄表记录")
+    public void exportMeterReadings(
+            @Parameter(description = "开始日期（yyyy-MM-dd）", required = true)
+            @RequestParam String startDate,
+            @Parameter(description = "结束日期（yyyy-MM-dd）", required = true)
+            @RequestParam String endDate,
+            @Parameter(description = "社区ID", required = false)
+            @RequestParam(required = false) Long communityId,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token,
+            HttpServletResponse response) {
+
+        write(response, "抄表记录_" + startDate + "_" + endDate, out -> excelExportService.exportMeterReadings(
+                LocalDate.parse(startDate), LocalDate.parse(endDate), communityId, out));
+    }
+
+    /**
+     * 导出车辆
+     */
+    @GetMapping("/vehicles")
+    @Operation(summary = "导出车辆", description = "导出状态正常的车辆，支持按车牌号或品牌筛选")
+    public void exportVehicles(
+            @Parameter(description = "搜索关键词（车牌号或品牌）", required = false)
+            @RequestParam(required = false) String keyword,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token,
+            HttpServletResponse response) {
+
+        write(response, "车辆", out -> excelExportService.exportVehicles(keyword, out));
+    }
+
+    /**
+     * 导出车位
+     */
+    @GetMapping("/parking-spaces")
+    @Operation(summary = "导出车位", description = "导出车位信息，支持按停车场和状态筛选")
+    public void exportParkingSpaces(
+            @Parameter(description = "停车场ID", required = false)
+            @RequestParam(required = false) Long parkingLotId,
+            @Parameter(description = "车位状态", required = false)
+            @RequestParam(required = false) String status,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token,
+            HttpServletResponse response) {
+
+        write(response, "车位", out -> excelExportService.exportParkingSpaces(parkingLotId, status, out));
+    }
+
+    /**
+     * 设置下载响应头并写出；尚未开始写出时出错则返回JSON错误信息
+     */
+    private void write(HttpServletResponse response, String fileName, ExportTask task) {
+        try {
+            String encoded = URLEncoder.encode(fileName + ".xlsx", StandardCharsets.UTF_8).replace("+", "%20");
+            response.setContentType(XLSX_CONTENT_TYPE);
+            response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + encoded);
+            task.run(response.getOutputStream());
+        } catch (Exception e) {
+            log.warn("导出失败: {}", fileName, e);
+            if (!response.isCommitted()) {
+                try {
+                    response.reset();
+                    response.setContentType("application/json;charset=UTF-8");
+                    response.getWriter().write("{\"success\":false,\"message\":\"导出失败\"}");
+                } catch (Exception ignored) {
+                    // 响应已不可用
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExportTask {
+        void run(OutputStream out) throws Exception;
+    }
+}
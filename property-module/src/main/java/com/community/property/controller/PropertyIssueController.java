@@ -2,6 +2,7 @@ package com.community.property.controller;
 
 import com.community.property.dto.IssueDetailVO;
 import com.community.property.dto.IssueFollowUpRequest;
+import com.community.property.service.IssueSlaService;
 import com.community.property.service.PropertyIssueService;
 import com.community.property.service.ImageService;
 import com.community.property.utils.JwtUtil;
@@ -31,6 +32,9 @@ public class PropertyIssueController {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private IssueSlaService issueSlaService;
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -63,6 +67,33 @@ public class PropertyIssueController {
     }
 
 
+    /**
+     * 超期与临近超期的工单
+     */
+    @GetMapping("/sla/overdue")
+    @Operation(summary = "超期工单", description = "当前已超期、临近超期的未完成工单（按截止时间升序），读取内存快照")
+    public Map<String, Object> getOverdueIssues(
+            @Parameter(description = "部门ID", required = false)
+            @RequestParam(required = false) Long departmentId,
+            @Parameter(description = "社区ID", required = false)
+            @RequestParam(required = false) Long communityId,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        List<Map<String, Object>> overdue = issueSlaService.overdue(departmentId, communityId);
+        List<Map<String, Object>> warning = issueSlaService.warning(departmentId, communityId);
+        Map<String, Object> data = new HashMap<>();
+        data.put("overdue", overdue);
+        data.put("overdueCount", overdue.size());
+        data.put("warning", warning);
+        data.put("warningCount", warning.size());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", data);
+        return response;
+    }
+
     /**
      * 获取问题统计数据
      */
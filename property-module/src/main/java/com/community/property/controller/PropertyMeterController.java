@@ -1,5 +1,9 @@
 package com.community.property.controller;
 
+import com.community.property.service.MeterReadingFlagService;
+import com.community.property.service.MeterReadingService;
+import com.community.property.service.MeterTelemetryService;
+import com.community.property.service.MeterUsageRollupService;
 import com.community.property.service.PropertyService;
 import com.community.property.utils.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
@@ -21,9 +25,24 @@ import java.util.Map;
 @Tag(name = "物业仪表管理", description = "物业端的仪表配置、抄表记录等管理接口")
 public class PropertyMeterController {
 
+    /** 趋势查询最多返回的周期数 */
+    private static final int MAX_TREND_PERIODS = 366;
+
     @Autowired
     private PropertyService propertyService;
 
+    @Autowired
+    private MeterReadingService meterReadingService;
+
+    @Autowired
+    private MeterUsageRollupService meterUsageRollupService;
+
+    @Autowired
+    private MeterReadingFlagService meterReadingFlagService;
+
+    @Autowired
+    private MeterTelemetryService meterTelemetryService;
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -221,6 +240,32 @@ public class PropertyMeterController {
                 unit, readingType, readingStatus, abnormalReason, remark, readingImage);
     }
 
+    /**
+     * 批量导入抄表记录（xlsx/csv）
+     */
+    @PostMapping("/reading/import")
+    @Operation(summary = "批量导入抄表记录", description = "上传xlsx或csv文件批量导入抄表记录，首行为表头" +
+            "（仪表ID/仪表编码、本次读数、抄表日期必填；上次读数、用量、抄表时间、抄表人工号、抄表类型、抄表状态、异常原因、备注可选），返回逐行错误报告")
+    public Map<String, Object> importMeterReadings(
+            @Parameter(description = "导入文件", required = true)
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "CSV文件编码", required = false)
+            @RequestParam(required = false, defaultValue = "UTF-8") String charset,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        try {
+            String realToken = token.replace("Bearer ", "");
+            Long staffId = jwtUtil.getStaffIdFromToken(realToken);
+            return meterReadingService.importMeterReadings(file, staffId, charset);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "导入失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     /**
      * 查询抄表记录
      */
@@ -239,6 +284,129 @@ public class PropertyMeterController {
         return propertyService.listMeterReadings(meterId, page, size);
     }
 
+    /**
+     * 查询用量趋势（读取日/月/年汇总）
+     */
+    @GetMapping("/trend")
+    @Operation(summary = "查询用量趋势", description = "按仪表/房屋/楼栋/社区查询最近若干周期的用量，缺失周期补0")
+    public Map<String, Object> getUsageTrend(
+            @Parameter(description = "汇总维度：meter/house/building/community", required = true)
+            @RequestParam String scopeType,
+            @Parameter(description = "维度ID", required = true)
+            @RequestParam Long scopeId,
+            @Parameter(description = "仪表分类（为空时合计所有分类）", required = false)
+            @RequestParam(required = false) String categoryName,
+            @Parameter(description = "时间粒度：day/month/year", required = false)
+            @RequestParam(defaultValue = "month") String granularity,
+            @Parameter(description = "周期数", required = false)
+            @RequestParam(defaultValue = "24") Integer periods,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!MeterUsageRollupService.isValidScope(scopeType) || !MeterUsageRollupService.isValidGranularity(granularity)) {
+            response.put("success", false);
+            response.put("message", "汇总维度或时间粒度无效");
+            return response;
+        }
+        if (periods == null || periods < 1 || periods > MAX_TREND_PERIODS) {
+            response.put("success", false);
+            response.put("message", "周期数应在1到" + MAX_TREND_PERIODS + "之间");
+            return response;
+        }
+        try {
+            response.put("success", true);
+            response.put("data", meterUsageRollupService.getTrend(scopeType, scopeId, categoryName, granularity, periods));
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "查询失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 查询仪表最近上报的采样
+     */
+    @GetMapping("/telemetry/{meterId}")
+    @Operation(summary = "查询仪表上报采样", description = "智能仪表最近上报的读数（内存中保留，按时间倒序）")
+    public Map<String, Object> getTelemetrySamples(
+            @Parameter(description = "仪表ID", required = true)
+            @PathVariable Long meterId,
+            @Parameter(description = "条数", required = false)
+            @RequestParam(defaultValue = "64") Integer limit,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", meterTelemetryService.getRecentSamples(meterId, limit));
+        return response;
+    }
+
+    /**
+     * 查询抄表异常待办
+     */
+    @GetMapping("/anomalies")
+    @Operation(summary = "查询抄表异常待办", description = "异常检测登记的读数（用量突增、读数倒退、表盘翻转、超过量程），按状态分页")
+    public Map<String, Object> listReadingFlags(
+            @Parameter(description = "处理状态：待处理/已处理/已忽略，默认待处理", required = false)
+            @RequestParam(required = false) String status,
+            @Parameter(description = "异常类型：SPIKE/NEGATIVE/ROLLOVER/OVER_MAX", required = false)
+            @RequestParam(required = false) String flagType,
+            @Parameter(description = "页码", required = true)
+            @RequestParam(defaultValue = "1") Integer page,
+            @Parameter(description = "每页大小", required = true)
+            @RequestParam(defaultValue = "20") Integer size,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", meterReadingFlagService.listFlags(status, flagType, page, size));
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "查询失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 处理抄表异常待办
+     */
+    @PutMapping("/anomalies/{flagId}/handle")
+    @Operation(summary = "处理抄表异常待办", description = "将待处理的异常标记为已处理或已忽略")
+    public Map<String, Object> handleReadingFlag(
+            @Parameter(description = "待办ID", required = true)
+            @PathVariable Long flagId,
+            @Parameter(description = "处理结果：已处理/已忽略", required = false)
+            @RequestParam(defaultValue = "已处理") String status,
+            @Parameter(description = "处理说明", required = false)
+            @RequestParam(required = false) String remark,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (!MeterReadingFlagService.STATUS_HANDLED.equals(status) && !MeterReadingFlagService.STATUS_IGNORED.equals(status)) {
+            response.put("success", false);
+            response.put("message", "处理结果只能为已处理或已忽略");
+            return response;
+        }
+        try {
+            Long staffId = jwtUtil.getStaffIdFromToken(token.replace("Bearer ", ""));
+            boolean updated = meterReadingFlagService.handle(flagId, staffId, status, remark);
+            response.put("success", updated);
+            response.put("message", updated ? "处理成功" : "待办不存在或已处理");
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "处理失败: " + e.getMessage());
+            return response;
+        }
+    }
+
     /**
      * 编辑仪表配置
      */
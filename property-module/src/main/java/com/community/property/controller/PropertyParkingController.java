@@ -1,5 +1,8 @@
 package com.community.property.controller;
 
+import com.community.property.dto.ParkingSettlementRequest;
+import com.community.property.service.ParkingAvailabilityIndex;
+import com.community.property.service.ParkingFeeService;
 import com.community.property.service.PropertyService;
 import com.community.property.utils.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,7 +11,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,12 +25,21 @@ import java.util.Map;
 @Tag(name = "物业停车位管理", description = "物业端的停车位信息管理接口")
 public class PropertyParkingController {
 
+    /** 单次批量结算的记录数上限 */
+    private static final int MAX_SETTLE_ITEMS = 5000;
+
     @Autowired
     private PropertyService propertyService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private ParkingAvailabilityIndex parkingAvailabilityIndex;
+
+    @Autowired
+    private ParkingFeeService parkingFeeService;
+
     /**
      * 获取停车场详细信息（包含社区信息）
      */
@@ -204,4 +218,156 @@ public class PropertyParkingController {
 
         return propertyService.listAllParkingSpaces(page, size, status);
     }
+
+    /**
+     * 分配车位
+     */
+    @PutMapping("/space/{spaceId}/assign")
+    @Operation(summary = "分配车位", description = "将车位分配给业主（审核通过业主申请时业主ID可不传），车位状态变为已租")
+    public Map<String, Object> assignParkingSpace(
+            @Parameter(description = "停车位ID", required = true)
+            @PathVariable Long spaceId,
+            @Parameter(description = "业主ID", required = false)
+            @RequestParam(required = false) Long ownerId,
+            @Parameter(description = "车辆ID", required = false)
+            @RequestParam(required = false) Long vehicleId,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        return propertyService.assignParkingSpace(spaceId, ownerId, vehicleId);
+    }
+
+    /**
+     * 释放车位
+     */
+    @PutMapping("/space/{spaceId}/release")
+    @Operation(summary = "释放车位", description = "解除车位与业主、车辆的关联，车位状态恢复为空闲")
+    public Map<String, Object> releaseParkingSpace(
+            @Parameter(description = "停车位ID", required = true)
+            @PathVariable Long spaceId,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        return propertyService.releaseParkingSpace(spaceId);
+    }
+
+    /**
+     * 车位余量
+     */
+    @GetMapping("/availability")
+    @Operation(summary = "车位余量", description = "不传停车场ID时返回各停车场空闲车位数；传入时返回该停车场各状态车位数")
+    public Map<String, Object> getAvailability(
+            @Parameter(description = "停车场ID", required = false)
+            @RequestParam(required = false) Long parkingLotId,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        Map<String, Object> data = new HashMap<>();
+        if (parkingLotId == null) {
+            data.put("freeByLot", parkingAvailabilityIndex.freeCountByLot());
+            data.put("total", parkingAvailabilityIndex.countByStatus(null));
+        } else {
+            data.put("parkingLotId", parkingLotId);
+            data.put("counts", parkingAvailabilityIndex.countByStatus(parkingLotId));
+        }
+        response.put("success", true);
+        response.put("data", data);
+        response.put("message", "查询成功");
+        return response;
+    }
+
+    /**
+     * 停车场空闲车位
+     */
+    @GetMapping("/availability/{parkingLotId}/free")
+    @Operation(summary = "停车场空闲车位", description = "按车位ID顺序返回停车场前 N 个空闲车位ID")
+    public Map<String, Object> listFreeSpaceIds(
+            @Parameter(description = "停车场ID", required = true)
+            @PathVariable Long parkingLotId,
+            @Parameter(description = "返回数量", required = false)
+            @RequestParam(defaultValue = "10") Integer limit,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        int n = limit == null ? 10 : Math.min(Math.max(limit, 1), 200);
+        List<Long> ids = parkingAvailabilityIndex.page(parkingLotId, ParkingAvailabilityIndex.STATUS_FREE, 0, n, false);
+        Map<String, Object> data = new HashMap<>();
+        data.put("parkingLotId", parkingLotId);
+        data.put("freeCount", parkingAvailabilityIndex.count(parkingLotId, ParkingAvailabilityIndex.STATUS_FREE));
+        data.put("spaceIds", ids);
+        response.put("success", true);
+        response.put("data", data);
+        response.put("message", "查询成功");
+        return response;
+    }
+
+    /**
+     * 停车费用试算
+     */
+    @GetMapping("/lot/{lotId}/fee-quote")
+    @Operation(summary = "停车费用试算", description = "按停车场计费规则计算指定停车时长的费用")
+    public Map<String, Object> quoteParkingFee(
+            @Parameter(description = "停车场ID", required = true)
+            @PathVariable Long lotId,
+            @Parameter(description = "停车时长（分钟）", required = true)
+            @RequestParam Long minutes,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (minutes == null || minutes < 0) {
+            response.put("success", false);
+            response.put("message", "停车时长不能为负数");
+            return response;
+        }
+        BigDecimal fee = parkingFeeService.quote(lotId, minutes);
+        if (fee == null) {
+            response.put("success", false);
+            response.put("message", "停车场不存在");
+            return response;
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("parkingLotId", lotId);
+        data.put("durationMinutes", minutes);
+        data.put("parkingFee", fee);
+        response.put("success", true);
+        response.put("data", data);
+        response.put("message", "查询成功");
+        return response;
+    }
+
+    /**
+     * 批量结算停车记录
+     */
+    @PostMapping("/records/settle")
+    @Operation(summary = "批量结算停车记录", description = "按停车场计费规则计算出场记录的停车时长和停车费用并回写，已结算的记录跳过")
+    public Map<String, Object> settleParkingRecords(
+            @RequestBody ParkingSettlementRequest request,
+            @Parameter(description = "Authorization Token", required = true)
+            @RequestHeader("Authorization") String token) {
+
+        Map<String, Object> response = new HashMap<>();
+        if (request == null || request.getItems() == null || request.getItems().isEmpty()) {
+            response.put("success", false);
+            response.put("message", "结算记录不能为空");
+            return response;
+        }
+        if (request.getItems().size() > MAX_SETTLE_ITEMS) {
+            response.put("success", false);
+            response.put("message", "单次最多结算" + MAX_SETTLE_ITEMS + "条记录");
+            return response;
+        }
+        try {
+            response.put("success", true);
+            response.put("data", parkingFeeService.settle(request.getItems()));
+            response.put("message", "结算完成");
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "结算失败: " + e.getMessage());
+            return response;
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.community.property.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 门禁出入记录上报
+ */
+@Data
+@Schema(description = "门禁出入记录上报")
+public class AccessEventReport {
+
+    @Schema(description = "门禁设备ID（与设备编码二选一）")
+    private Long deviceId;
+
+    @Schema(description = "设备编码（access_control_device.device_code）")
+    private String deviceCode;
+
+    @Schema(description = "人员ID")
+    private Long personId;
+
+    @Schema(description = "人员类型：owner/staff/visitor")
+    private String personType;
+
+    @Schema(description = "姓名")
+    private String personName;
+
+    @Schema(description = "手机号")
+    private String personPhone;
+
+    @Schema(description = "出入类型：entry/exit", required = true)
+    private String accessType;
+
+    @Schema(description = "出入方式（刷卡/人脸/密码等）")
+    private String accessMethod;
+
+    @Schema(description = "出入时间（毫秒时间戳），为空时取服务端接收时间")
+    private Long timestamp;
+
+    @Schema(description = "出入闸机名称")
+    private String gateName;
+
+    @Schema(description = "验证结果", required = true)
+    private String verifyResult;
+
+    @Schema(description = "失败原因")
+    private String failReason;
+
+    @Schema(description = "抓拍图片路径")
+    private String captureImage;
+}
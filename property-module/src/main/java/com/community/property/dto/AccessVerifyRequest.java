@@ -0,0 +1,30 @@
+package com.community.property.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 门禁通行验证请求
+ */
+@Data
+@Schema(description = "门禁通行验证请求")
+public class AccessVerifyRequest {
+
+    @Schema(description = "门禁设备ID（与设备编码二选一）")
+    private Long deviceId;
+
+    @Schema(description = "设备编码（access_control_device.device_code）")
+    private String deviceCode;
+
+    @Schema(description = "人员类型：owner/staff/visitor", required = true)
+    private String personType;
+
+    @Schema(description = "人员ID（访客为通行证ID）", required = true)
+    private Long personId;
+
+    @Schema(description = "出入类型：entry/exit")
+    private String accessType;
+
+    @Schema(description = "出入方式（刷卡/人脸/密码/二维码等）")
+    private String accessMethod;
+}
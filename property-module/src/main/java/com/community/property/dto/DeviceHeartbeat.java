@@ -0,0 +1,18 @@
+package com.community.property.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 门禁设备心跳
+ */
+@Data
+@Schema(description = "门禁设备心跳")
+public class DeviceHeartbeat {
+
+    @Schema(description = "设备ID（与设备编码二选一）")
+    private Long deviceId;
+
+    @Schema(description = "设备编码（access_control_device.device_code）")
+    private String deviceCode;
+}
@@ -0,0 +1,30 @@
+package com.community.property.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 道闸出入事件
+ */
+@Data
+@Schema(description = "道闸出入事件")
+public class GateEvent {
+
+    @Schema(description = "停车场ID", required = true)
+    private Long parkingLotId;
+
+    @Schema(description = "道闸编号")
+    private String gateNo;
+
+    @Schema(description = "车牌号", required = true)
+    private String plateNumber;
+
+    @Schema(description = "事件类型：入场/出场", required = true)
+    private String eventType;
+
+    @Schema(description = "识别时间（毫秒时间戳），为空时取服务端接收时间")
+    private Long timestamp;
+
+    @Schema(description = "识别到的车辆类型（登记车辆以车辆信息为准）")
+    private String vehicleType;
+}
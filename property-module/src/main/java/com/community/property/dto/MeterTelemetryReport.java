@@ -0,0 +1,27 @@
+package com.community.property.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 智能仪表上报数据
+ */
+@Data
+@Schema(description = "智能仪表上报数据")
+public class MeterTelemetryReport {
+
+    @Schema(description = "仪表ID（与通信地址二选一）")
+    private Long meterId;
+
+    @Schema(description = "通信地址（meter_info.comm_address）")
+    private String commAddress;
+
+    @Schema(description = "当前读数", required = true)
+    private Double reading;
+
+    @Schema(description = "采集时间（毫秒时间戳），为空时取服务端接收时间")
+    private Long timestamp;
+
+    @Schema(description = "供电状态")
+    private Integer powerStatus;
+}
@@ -0,0 +1,29 @@
+package com.community.property.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 停车记录批量结算请求
+ */
+@Data
+@Schema(description = "停车记录批量结算请求")
+public class ParkingSettlementRequest {
+
+    @Schema(description = "待结算的出场记录", required = true)
+    private List<Item> items;
+
+    @Data
+    @Schema(description = "出场记录")
+    public static class Item {
+
+        @Schema(description = "停车记录ID", required = true)
+        private Long recordId;
+
+        @Schema(description = "出场时间，为空时取记录中的出场时间，记录中也没有时视为车辆仍在场内，不结算")
+        private LocalDateTime exitTime;
+    }
+}
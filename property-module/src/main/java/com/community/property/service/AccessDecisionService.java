@@ -0,0 +1,529 @@
+package com.community.property.service;
+
+import com.community.property.config.AccessDecisionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 门禁通行判定服务
+ * 每台门禁设备在内存中保存一份按人员键排序的通行名单（人员键 -> 有效期、是否已审批），
+ * 业主按房屋所在楼栋/小区授权，访客按授权记录授权，员工全局授权；欠费业主另存一份有序名单。
+ * 同一人员有多段不重叠的有效期时（如先后入住、中间有空档）各占一条，只合并重叠或相接的有效期。
+ * 刷卡时只做两次二分查找，不查库；判定结果进入门禁记录的批量写库队列。
+ * 本进程的房屋关联（事务提交后）、访客授权即时增量更新，其他修改由定时全量重建同步
+ */
+@Slf4j
+@Service
+public class AccessDecisionService {
+
+    public static final String PERSON_OWNER = "owner";
+    public static final String PERSON_STAFF = "staff";
+    public static final String PERSON_VISITOR = "visitor";
+
+    private static final String DEVICE_ENABLED = "启用";
+
+    private static final long TYPE_OWNER = 1L << 48;
+    private static final long TYPE_VISITOR = 3L << 48;
+
+    private static final byte FLAG_APPROVED = 1;
+
+    private static final String SELECT_RESIDENCY_SQL =
+            "SELECT ho.owner_id, h.community_id, h.building_id, ho.start_date, ho.end_date " +
+            "FROM house_owner ho INNER JOIN house h ON h.id = ho.house_id " +
+            "WHERE ho.status = '正常' AND (ho.end_date IS NULL OR ho.end_date >= CURDATE())";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccessDecisionProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 设备ID -> 设备规则（含通行名单） */
+    private volatile Map<Long, DeviceRule> devices = Collections.emptyMap();
+
+    /** 在职员工ID（有序） */
+    private volatile long[] staffIds = new long[0];
+
+    /** 欠费业主ID（有序） */
+    private volatile long[] arrearsOwners = new long[0];
+
+    private Timer decisionTimer;
+
+    /**
+     * 判定结果
+     */
+    public enum Decision {
+        ALLOW(true, null),
+        DEVICE_DISABLED(false, "设备不存在或未启用"),
+        NO_PERMISSION(false, "无通行权限"),
+        OUT_OF_WINDOW(false, "权限未生效或已过期"),
+        ARREARS(false, "欠费禁止通行"),
+        NOT_APPROVED(false, "访客未审批");
+
+        private final boolean allowed;
+        private final String reason;
+
+        Decision(boolean allowed, String reason) {
+            this.allowed = allowed;
+            this.reason = reason;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        decisionTimer = meterRegistry.timer("access.decision");
+        rebuild();
+    }
+
+    /**
+     * 通行判定
+     */
+    public Decision decide(long deviceId, String personType, long personId, long nowMillis) {
+        long start = System.nanoTime();
+        try {
+            DeviceRule rule = devices.get(deviceId);
+            if (rule == null || !rule.enabled) {
+                return Decision.DEVICE_DISABLED;
+            }
+            if (PERSON_STAFF.equals(personType)) {
+                return Arrays.binarySearch(staffIds, personId) >= 0 ? Decision.ALLOW : Decision.NO_PERMISSION;
+            }
+            boolean owner = PERSON_OWNER.equals(personType);
+            if (!owner && !PERSON_VISITOR.equals(personType)) {
+                return Decision.NO_PERMISSION;
+            }
+            long key = (owner ? TYPE_OWNER : TYPE_VISITOR) | personId;
+            PermissionTable table = rule.table;
+            int i = PermissionTable.lowerBound(table.keys, key);
+            if (i == table.keys.length || table.keys[i] != key) {
+                return Decision.NO_PERMISSION;
+            }
+            while (nowMillis < table.validFrom[i] || nowMillis >= table.validTo[i]) {
+                if (++i == table.keys.length || table.keys[i] != key) {
+                    return Decision.OUT_OF_WINDOW;
+                }
+            }
+            if (owner) {
+                if (rule.arrearsBan && Arrays.binarySearch(arrearsOwners, personId) >= 0) {
+                    return Decision.ARREARS;
+                }
+            } else if (rule.visitorApproval && (table.flags[i] & FLAG_APPROVED) == 0) {
+                return Decision.NOT_APPROVED;
+            }
+            return Decision.ALLOW;
+        } finally {
+            decisionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 全量重建：设备、业主房屋授权、访客授权、员工、欠费名单
+     */
+    @Scheduled(fixedDelayString = "${access.decision.full-refresh-interval-ms:300000}",
+            initialDelayString = "${access.decision.full-refresh-interval-ms:300000}")
+    public synchronized void rebuild() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<Long, DeviceRule> nextDevices = new HashMap<>();
+        Map<Long, List<DeviceRule>> byBuilding = new HashMap<>();
+        Map<Long, List<DeviceRule>> byCommunityGate = new HashMap<>();
+        jdbcTemplate.query("SELECT id, community_id, building_id, device_status, arrears_ban_enabled, visitor_approval_enabled " +
+                "FROM access_control_device", rs -> {
+            DeviceRule rule = new DeviceRule(rs.getLong("id"), rs.getObject("community_id", Long.class),
+                    rs.getObject("building_id", Long.class), DEVICE_ENABLED.equals(rs.getString("device_status")),
+                    rs.getInt("arrears_ban_enabled") == 1, rs.getInt("visitor_approval_enabled") == 1);
+            nextDevices.put(rule.deviceId, rule);
+            if (rule.buildingId != null) {
+                byBuilding.computeIfAbsent(rule.buildingId, k -> new ArrayList<>()).add(rule);
+            } else if (rule.communityId != null) {
+                byCommunityGate.computeIfAbsent(rule.communityId, k -> new ArrayList<>()).add(rule);
+            }
+        });
+
+        Map<Long, TableBuilder> builders = new HashMap<>();
+        jdbcTemplate.query(SELECT_RESIDENCY_SQL, rs -> {
+            long key = TYPE_OWNER | rs.getLong("owner_id");
+            long from = startOfDay(rs.getDate("start_date"), Long.MIN_VALUE);
+            long to = startOfDay(rs.getDate("end_date") != null ? Date.valueOf(rs.getDate("end_date").toLocalDate().plusDays(1)) : null, Long.MAX_VALUE);
+            for (DeviceRule rule : devicesFor(byBuilding, byCommunityGate, rs.getObject("community_id", Long.class),
+                    rs.getObject("building_id", Long.class))) {
+                builders.computeIfAbsent(rule.deviceId, k -> new TableBuilder()).merge(key, from, to, FLAG_APPROVED);
+            }
+        });
+        jdbcTemplate.query("SELECT id, device_id, valid_start_time, valid_end_time, approved_by FROM access_visitor_grant " +
+                "WHERE valid_end_time > NOW()", rs -> {
+            long deviceId = rs.getLong("device_id");
+            if (nextDevices.containsKey(deviceId)) {
+                builders.computeIfAbsent(deviceId, k -> new TableBuilder()).merge(TYPE_VISITOR | rs.getLong("id"),
+                        toMillis(rs.getTimestamp("valid_start_time"), Long.MIN_VALUE), toMillis(rs.getTimestamp("valid_end_time"), Long.MAX_VALUE),
+                        rs.getObject("approved_by") != null ? FLAG_APPROVED : 0);
+            }
+        });
+
+        int entries = 0;
+        for (DeviceRule rule : nextDevices.values()) {
+            TableBuilder builder = builders.get(rule.deviceId);
+            rule.table = builder != null ? builder.build() : PermissionTable.EMPTY;
+            entries += rule.table.keys.length;
+        }
+        staffIds = toSortedArray(jdbcTemplate.queryForList("SELECT id FROM staff WHERE account_status = '正常'", Long.class));
+        devices = nextDevices;
+        refreshArrears();
+        log.info("门禁通行名单已重建: {} 台设备, {} 条授权, {} 名员工, {} ms",
+                nextDevices.size(), entries, staffIds.length, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 刷新欠费业主名单（仪表账单、车位月租账单金额大于 0 且超过宽限期未缴）
+     * 目前两端都没有把账单改为已缴的缴费入口，默认不启用（arrears-enforced=false），名单保持为空
+     */
+    @Scheduled(fixedDelayString = "${access.decision.arrears-refresh-interval-ms:60000}",
+            initialDelayString = "${access.decision.arrears-refresh-interval-ms:60000}")
+    public void refreshArrears() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!properties.isArrearsEnforced()) {
+            arrearsOwners = new long[0];
+            return;
+        }
+        LocalDate due = LocalDate.now().minusDays(properties.getArrearsGraceDays());
+        List<Long> owners = jdbcTemplate.queryForList(
+                "SELECT DISTINCT ho.owner_id FROM meter_bill mb " +
+                "INNER JOIN house_owner ho ON ho.house_id = mb.house_id AND ho.status = '正常' " +
+                "WHERE mb.pay_status = '未缴' AND mb.amount > 0 AND mb.reading_date < ? " +
+                "UNION SELECT owner_id FROM parking_bill WHERE pay_status = '未缴' AND amount > 0 AND created_at < ?",
+                Long.class, Date.valueOf(due), Timestamp.valueOf(due.atStartOfDay()));
+        arrearsOwners = toSortedArray(owners);
+    }
+
+    /**
+     * 业主房屋关联变更后刷新该业主在各设备上的授权，处于事务中时在提交后刷新
+     */
+    public void refreshOwner(Long ownerId) {
+        if (ownerId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadOwner(ownerId);
+                }
+            });
+        } else {
+            reloadOwner(ownerId);
+        }
+    }
+
+    private synchronized void reloadOwner(long ownerId) {
+        Map<Long, List<DeviceRule>> byBuilding = new HashMap<>();
+        Map<Long, List<DeviceRule>> byCommunityGate = new HashMap<>();
+        for (DeviceRule rule : devices.values()) {
+            if (rule.buildingId != null) {
+                byBuilding.computeIfAbsent(rule.buildingId, k -> new ArrayList<>()).add(rule);
+            } else if (rule.communityId != null) {
+                byCommunityGate.computeIfAbsent(rule.communityId, k -> new ArrayList<>()).add(rule);
+            }
+        }
+        long key = TYPE_OWNER | ownerId;
+        Map<Long, List<long[]>> windows = new HashMap<>();
+        jdbcTemplate.query(SELECT_RESIDENCY_SQL + " AND ho.owner_id = ?", rs -> {
+            long from = startOfDay(rs.getDate("start_date"), Long.MIN_VALUE);
+            long to = startOfDay(rs.getDate("end_date") != null ? Date.valueOf(rs.getDate("end_date").toLocalDate().plusDays(1)) : null, Long.MAX_VALUE);
+            for (DeviceRule rule : devicesFor(byBuilding, byCommunityGate, rs.getObject("community_id", Long.class),
+                    rs.getObject("building_id", Long.class))) {
+                windows.computeIfAbsent(rule.deviceId, k -> new ArrayList<>()).add(new long[]{from, to, FLAG_APPROVED});
+            }
+        }, ownerId);
+
+        for (DeviceRule rule : devices.values()) {
+            List<long[]> window = windows.get(rule.deviceId);
+            rule.table = rule.table.with(key, window != null ? coalesce(window) : Collections.emptyList());
+        }
+    }
+
+    /**
+     * 登记访客授权（物业登记即视为已审批），返回通行证ID
+     */
+    public long grantVisitor(long deviceId, String visitorName, String visitorPhone, String permissionType,
+                             LocalDateTime validFrom, LocalDateTime validTo, Long approvedBy) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO access_visitor_grant (device_id, community_id, visitor_name, visitor_phone, " +
+                    "permission_type, valid_start_time, valid_end_time, approved_by) " +
+                    "SELECT d.id, d.community_id, ?, ?, ?, ?, ?, ? FROM access_control_device d WHERE d.id = ?",
+                    new String[]{"id"});
+            ps.setString(1, visitorName);
+            ps.setString(2, visitorPhone);
+            ps.setString(3, permissionType);
+            ps.setTimestamp(4, Timestamp.valueOf(validFrom));
+            ps.setTimestamp(5, Timestamp.valueOf(validTo));
+            ps.setObject(6, approvedBy);
+            ps.setLong(7, deviceId);
+            return ps;
+        }, keyHolder);
+        Number key = keyHolder.getKey();
+        if (key == null) {
+            throw new IllegalArgumentException("门禁设备不存在");
+        }
+        long passId = key.longValue();
+        addVisitorGrant(passId, deviceId, validFrom, validTo, approvedBy != null);
+        return passId;
+    }
+
+    /**
+     * 新增访客授权后加入设备通行名单
+     *
+     * @param passId 通行证ID（access_visitor_grant 的ID）
+     */
+    public synchronized void addVisitorGrant(long passId, long deviceId, LocalDateTime validFrom, LocalDateTime validTo, boolean approved) {
+        DeviceRule rule = devices.get(deviceId);
+        if (rule != null) {
+            rule.table = rule.table.with(TYPE_VISITOR | passId,
+                    List.of(new long[]{toMillis(validFrom), toMillis(validTo), approved ? FLAG_APPROVED : 0}));
+        }
+    }
+
+    /**
+     * 名单概况
+     */
+    public Map<String, Object> summary() {
+        int entries = 0;
+        for (DeviceRule rule : devices.values()) {
+            entries += rule.table.keys.length;
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("devices", devices.size());
+        summary.put("entries", entries);
+        summary.put("staff", staffIds.length);
+        summary.put("arrearsOwners", arrearsOwners.length);
+        return summary;
+    }
+
+    private static List<DeviceRule> devicesFor(Map<Long, List<DeviceRule>> byBuilding, Map<Long, List<DeviceRule>> byCommunityGate,
+                                               Long communityId, Long buildingId) {
+        List<DeviceRule> building = buildingId != null ? byBuilding.get(buildingId) : null;
+        List<DeviceRule> gates = communityId != null ? byCommunityGate.get(communityId) : null;
+        if (building == null) {
+            return gates != null ? gates : Collections.emptyList();
+        }
+        if (gates == null) {
+            return building;
+        }
+        List<DeviceRule> all = new ArrayList<>(building.size() + gates.size());
+        all.addAll(building);
+        all.addAll(gates);
+        return all;
+    }
+
+    /**
+     * 合并重叠或相接的有效期（{from, to, flag}），不重叠的保持分开，按开始时间升序返回
+     */
+    private static List<long[]> coalesce(List<long[]> windows) {
+        List<long[]> sorted = new ArrayList<>(windows);
+        sorted.sort(Comparator.comparingLong(w -> w[0]));
+        List<long[]> merged = new ArrayList<>(sorted.size());
+        long[] current = null;
+        for (long[] w : sorted) {
+            if (current != null && w[0] <= current[1]) {
+                current[1] = Math.max(current[1], w[1]);
+                current[2] |= w[2];
+            } else {
+                current = w.clone();
+                merged.add(current);
+            }
+        }
+        return merged;
+    }
+
+    private static long[] toSortedArray(Collection<Long> ids) {
+        long[] array = new long[ids.size()];
+        int n = 0;
+        for (Long id : ids) {
+            if (id != null) {
+                array[n++] = id;
+            }
+        }
+        array = Arrays.copyOf(array, n);
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static long startOfDay(Date date, long defaultValue) {
+        return date != null ? toMillis(date.toLocalDate().atStartOfDay()) : defaultValue;
+    }
+
+    private static long toMillis(Timestamp timestamp, long defaultValue) {
+        return timestamp != null ? timestamp.getTime() : defaultValue;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class DeviceRule {
+        final long deviceId;
+        final Long communityId;
+        final Long buildingId;
+        final boolean enabled;
+        final boolean arrearsBan;
+        final boolean visitorApproval;
+        volatile PermissionTable table = PermissionTable.EMPTY;
+
+        DeviceRule(long deviceId, Long communityId, Long buildingId, boolean enabled, boolean arrearsBan, boolean visitorApproval) {
+            this.deviceId = deviceId;
+            this.communityId = communityId;
+            this.buildingId = buildingId;
+            this.enabled = enabled;
+            this.arrearsBan = arrearsBan;
+            this.visitorApproval = visitorApproval;
+        }
+    }
+
+    /**
+     * 不可变的通行名单：按人员键有序的并列数组（同一人员的多条有效期按开始时间相邻存放），修改时复制出新名单
+     */
+    private static final class PermissionTable {
+        static final PermissionTable EMPTY = new PermissionTable(new long[0], new long[0], new long[0], new byte[0]);
+
+        final long[] keys;
+        final long[] validFrom;
+        final long[] validTo;
+        final byte[] flags;
+
+        PermissionTable(long[] keys, long[] validFrom, long[] validTo, byte[] flags) {
+            this.keys = keys;
+            this.validFrom = validFrom;
+            this.validTo = validTo;
+            this.flags = flags;
+        }
+
+        /**
+         * 第一个不小于 key 的下标（同一人员的多条有效期相邻存放）
+         */
+        static int lowerBound(long[] keys, long key) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * 用给定有效期（{from, to, flag}，按开始时间升序）替换该人员的全部条目，为空时移除
+         */
+        PermissionTable with(long key, List<long[]> windows) {
+            int at = lowerBound(keys, key);
+            int end = at;
+            while (end < keys.length && keys[end] == key) {
+                end++;
+            }
+            if (at == end && windows.isEmpty()) {
+                return this;
+            }
+            int n = keys.length - (end - at) + windows.size();
+            long[] k = new long[n];
+            long[] f = new long[n];
+            long[] t = new long[n];
+            byte[] g = new byte[n];
+            System.arraycopy(keys, 0, k, 0, at);
+            System.arraycopy(validFrom, 0, f, 0, at);
+            System.arraycopy(validTo, 0, t, 0, at);
+            System.arraycopy(flags, 0, g, 0, at);
+            int i = at;
+            for (long[] w : windows) {
+                k[i] = key;
+                f[i] = w[0];
+                t[i] = w[1];
+                g[i] = (byte) w[2];
+                i++;
+            }
+            int tail = keys.length - end;
+            System.arraycopy(keys, end, k, i, tail);
+            System.arraycopy(validFrom, end, f, i, tail);
+            System.arraycopy(validTo, end, t, i, tail);
+            System.arraycopy(flags, end, g, i, tail);
+            return new PermissionTable(k, f, t, g);
+        }
+    }
+
+    /**
+     * 全量重建时收集一台设备的授权；同一人员的多条授权只合并重叠或相接的有效期
+     */
+    private static final class TableBuilder {
+        final Map<Long, List<long[]>> entries = new HashMap<>();
+
+        void merge(long key, long from, long to, byte flag) {
+            entries.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new long[]{from, to, flag});
+        }
+
+        PermissionTable build() {
+            long[] sortedKeys = new long[entries.size()];
+            int n = 0;
+            int total = 0;
+            for (Map.Entry<Long, List<long[]>> entry : entries.entrySet()) {
+                sortedKeys[n++] = entry.getKey();
+                if (entry.getValue().size() > 1) {
+                    entry.setValue(coalesce(entry.getValue()));
+                }
+                total += entry.getValue().size();
+            }
+            Arrays.sort(sortedKeys);
+            long[] keys = new long[total];
+            long[] from = new long[total];
+            long[] to = new long[total];
+            byte[] flags = new byte[total];
+            int i = 0;
+            for (long key : sortedKeys) {
+                for (long[] window : entries.get(key)) {
+                    keys[i] = key;
+                    from[i] = window[0];
+                    to[i] = window[1];
+                    flags[i] = (byte) window[2];
+                    i++;
+                }
+            }
+            return new PermissionTable(keys, from, to, flags);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.community.property.service;
+
+import com.community.property.config.AccessEventProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 门禁记录分区维护
+ * access_control_record 按月 RANGE 分区（p_history / pyyyyMM / p_future），每天：
+ * 从 p_future 中拆出未来几个月的分区；超过保留期的月分区交换到归档表 access_control_record_yyyyMM 后删除（或直接删除）。
+ * 交换分区、删除分区都只改元数据，不逐行搬迁或删除数据
+ */
+@Slf4j
+@Service
+public class AccessEventPartitionManager {
+
+    private static final String TABLE = "access_control_record";
+
+    private static final String FUTURE_PARTITION = "p_future";
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccessEventProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${access.event.partition-cron:0 30 3 * * ?}")
+    public void maintain() {
+        if (!properties.isPartitionMaintenanceEnabled()) {
+            return;
+        }
+        try {
+            List<Map<String, Object>> partitions = listPartitions();
+            if (partitions.isEmpty() || partitions.get(0).get("name") == null) {
+                log.warn("{} 未分区，请先执行 sql/access_control_record_partition.sql", TABLE);
+                return;
+            }
+            TreeSet<YearMonth> months = new TreeSet<>();
+            boolean hasFuture = false;
+            for (Map<String, Object> partition : partitions) {
+                String name = (String) partition.get("name");
+                YearMonth month = parseMonth(name);
+                if (month != null) {
+                    months.add(month);
+                } else if (FUTURE_PARTITION.equals(name)) {
+                    hasFuture = true;
+                }
+            }
+            if (!hasFuture) {
+                log.warn("{} 缺少 {} 分区，跳过预建分区", TABLE, FUTURE_PARTITION);
+            } else {
+                createFuturePartitions(months);
+            }
+            expireOldPartitions(months);
+        } catch (Exception e) {
+            log.error("门禁记录分区维护失败", e);
+        }
+    }
+
+    /**
+     * 分区列表（名称、预估行数、数据大小）
+     */
+    public List<Map<String, Object>> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS description, TABLE_ROWS AS estimatedRows, " +
+                "DATA_LENGTH AS dataLength, INDEX_LENGTH AS indexLength " +
+                "FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? " +
+                "ORDER BY PARTITION_ORDINAL_POSITION", TABLE);
+    }
+
+    /**
+     * 从 p_future 中依次拆出到 当月 + precreateMonths 为止的月分区
+     */
+    private void createFuturePartitions(TreeSet<YearMonth> months) {
+        YearMonth target = YearMonth.now().plusMonths(Math.max(0, properties.getPrecreateMonths()));
+        YearMonth last = months.isEmpty() ? YearMonth.now().minusMonths(1) : months.last();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (" +
+                    "PARTITION " + partitionName(month) + " VALUES LESS THAN (TO_DAYS('" + month.plusMonths(1).atDay(1) + "')), " +
+                    "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+            months.add(month);
+            log.info("已创建门禁记录分区 {}", partitionName(month));
+        }
+    }
+
+    /**
+     * 超过保留期的月分区：归档后删除
+     */
+    private void expireOldPartitions(TreeSet<YearMonth> months) {
+        YearMonth oldestKept = YearMonth.now().minusMonths(Math.max(1, properties.getRetentionMonths()) - 1L);
+        for (YearMonth month : new ArrayList<>(months)) {
+            if (!month.isBefore(oldestKept)) {
+                break;
+            }
+            String partition = partitionName(month);
+            if (properties.isArchiveEnabled()) {
+                String archiveTable = TABLE + "_" + month.format(PARTITION_MONTH);
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + archiveTable + " LIKE " + TABLE);
+                if (isPartitioned(archiveTable)) {
+                    jdbcTemplate.execute("ALTER TABLE " + archiveTable + " REMOVE PARTITIONING");
+                }
+                if (!hasRows(archiveTable, null)) {
+                    jdbcTemplate.execute("ALTER TABLE " + TABLE + " EXCHANGE PARTITION " + partition + " WITH TABLE " + archiveTable);
+                    log.info("门禁记录分区 {} 已归档到 {}", partition, archiveTable);
+                } else if (hasRows(TABLE, partition)) {
+                    log.warn("归档表 {} 与分区 {} 都有数据，跳过该分区", archiveTable, partition);
+                    continue;
+                } else {
+                    // 上次已交换但未删除分区（交换后分区为空），继续删除
+                    log.info("门禁记录分区 {} 已归档到 {}，继续删除分区", partition, archiveTable);
+                }
+            }
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition);
+            months.remove(month);
+            log.info("已删除门禁记录分区 {}", partition);
+        }
+    }
+
+    private boolean hasRows(String table, String partition) {
+        String from = partition != null ? table + " PARTITION (" + partition + ")" : table;
+        return !jdbcTemplate.queryForList("SELECT 1 FROM " + from + " LIMIT 1").isEmpty();
+    }
+
+    private boolean isPartitioned(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? " +
+                "AND PARTITION_NAME IS NOT NULL", Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "p" + month.format(PARTITION_MONTH);
+    }
+
+    /**
+     * pyyyyMM -> 年月，其他分区（p_history / p_future）返回 null
+     */
+    private static YearMonth parseMonth(String partitionName) {
+        if (partitionName == null || partitionName.length() != 7 || partitionName.charAt(0) != 'p') {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partitionName.substring(1), PARTITION_MONTH);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.community.property.service;
+
+import com.community.property.config.AccessEventProperties;
+import com.community.property.dto.AccessEventReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 门禁记录服务
+ * 上报的出入记录进入有界队列，定时批量写入按月分区的 access_control_record（见 sql/access_control_record_partition.sql），
+ * 队列满时拒绝并由设备重传，不丢记录也不阻塞上报；写库失败的批次保留到下一轮重试，重试期间新记录继续在队列中排队。
+ * 查询必须带时间范围，只扫描范围内的分区
+ */
+@Slf4j
+@Service
+public class AccessEventService {
+
+    private static final long NO_COMMUNITY = 0L;
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO access_control_record (person_id, person_type, person_name, person_phone, device_id, community_id, " +
+            "access_type, access_method, access_time, gate_name, verify_result, fail_reason, capture_image) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** 批次写库失败后的重试次数，超过后改为逐条写入，仍失败的记录丢弃 */
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccessEventProperties properties;
+
+    @Autowired
+    private DeviceLivenessMonitor deviceLivenessMonitor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<Object[]> queue;
+
+    /** 写库失败待重试的批次（只在 flush 中访问，写入成功后才清空） */
+    private final List<Object[]> failedBatch = new ArrayList<>();
+
+    private int failedAttempts;
+
+    /** 门禁设备ID -> 所属小区ID（未设置小区的设备记为 NO_COMMUNITY） */
+    private final ConcurrentHashMap<Long, Long> deviceCommunity = new ConcurrentHashMap<>();
+
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private Counter overflowCounter;
+    private Counter droppedCounter;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        acceptedCounter = meterRegistry.counter("access.events", "result", "accepted");
+        rejectedCounter = meterRegistry.counter("access.events", "result", "rejected");
+        overflowCounter = meterRegistry.counter("access.events", "result", "overflow");
+        droppedCounter = meterRegistry.counter("access.events", "result", "dropped");
+        flushTimer = meterRegistry.timer("access.events.flush");
+        Gauge.builder("access.events.queued", queue, BlockingQueue::size).register(meterRegistry);
+
+        jdbcTemplate.query("SELECT id, community_id FROM access_control_device", rs -> {
+            Long communityId = rs.getObject("community_id", Long.class);
+            deviceCommunity.put(rs.getLong("id"), communityId != null ? communityId : NO_COMMUNITY);
+        });
+    }
+
+    /**
+     * 接收一批出入记录
+     *
+     * @return {accepted, rejected, overflow}，overflow 为队列已满未接收的条数，设备应稍后重传
+     */
+    public Map<String, Object> ingest(List<AccessEventReport> reports) {
+        LocalDateTime now = LocalDateTime.now();
+        int accepted = 0;
+        int rejected = 0;
+        int overflow = 0;
+        for (AccessEventReport report : reports) {
+            Long deviceId = report != null
+                    ? deviceLivenessMonitor.resolveAccessDevice(report.getDeviceId(), report.getDeviceCode()) : null;
+            if (deviceId == null || isBlank(report.getAccessType()) || isBlank(report.getVerifyResult())) {
+                rejected++;
+                continue;
+            }
+            LocalDateTime accessTime = report.getTimestamp() != null
+                    ? new Timestamp(report.getTimestamp()).toLocalDateTime() : now;
+            Object[] args = new Object[]{
+                    report.getPersonId(), report.getPersonType(), report.getPersonName(), report.getPersonPhone(),
+                    deviceId, communityOf(deviceId), report.getAccessType(), report.getAccessMethod(),
+                    Timestamp.valueOf(accessTime), report.getGateName(), report.getVerifyResult(),
+                    report.getFailReason(), report.getCaptureImage()};
+            if (!queue.offer(args)) {
+                overflow++;
+                continue;
+            }
+            // 有出入记录说明设备在线
+            deviceLivenessMonitor.accessHeartbeat(deviceId);
+            accepted++;
+        }
+        acceptedCounter.increment(accepted);
+        rejectedCounter.increment(rejected);
+        overflowCounter.increment(overflow);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accepted", accepted);
+        result.put("rejected", rejected);
+        result.put("overflow", overflow);
+        return result;
+    }
+
+    /**
+     * 记录一次通行判定（与上报记录走同一写库队列，队列满时丢弃判定记录，不影响放行）
+     */
+    public void enqueueDecision(long deviceId, String personType, Long personId, String accessType, String accessMethod,
+                                boolean allowed, String failReason) {
+        Object[] args = new Object[]{
+                personId, personType, null, null, deviceId, communityOf(deviceId), accessType, accessMethod,
+                new Timestamp(System.currentTimeMillis()), null, allowed ? "通过" : "拒绝", failReason, null};
+        if (queue.offer(args)) {
+            acceptedCounter.increment();
+        } else {
+            overflowCounter.increment();
+        }
+    }
+
+    /**
+     * 批量写库
+     */
+    @Scheduled(fixedDelayString = "${access.event.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (queue.isEmpty() && failedBatch.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> {
+            // 先重试上一轮失败的批次，仍失败则本轮不再取新记录
+            if (!failedBatch.isEmpty() && !retryFailedBatch()) {
+                return;
+            }
+            int batchSize = Math.max(1, properties.getBatchSize());
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                try {
+                    jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, batch);
+                    batch.clear();
+                } catch (Exception e) {
+                    log.warn("门禁记录写库失败，稍后重试: {} 条", batch.size(), e);
+                    failedBatch.addAll(batch);
+                    failedAttempts = 1;
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * 重试失败的批次；达到重试次数后逐条写入，隔离出写不进去的记录后丢弃
+     *
+     * @return 批次是否已处理完
+     */
+    private boolean retryFailedBatch() {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, failedBatch);
+            failedBatch.clear();
+            return true;
+        } catch (Exception e) {
+            if (++failedAttempts < MAX_ATTEMPTS) {
+                log.warn("门禁记录第 {} 次重试写库失败: {} 条", failedAttempts, failedBatch.size(), e);
+                return false;
+            }
+        }
+        for (Object[] args : failedBatch) {
+            try {
+                jdbcTemplate.update(INSERT_EVENT_SQL, args);
+            } catch (Exception e) {
+                droppedCounter.increment();
+                log.error("门禁记录重试 {} 次仍写库失败，已丢弃: {}", failedAttempts, Arrays.toString(args), e);
+            }
+        }
+        failedBatch.clear();
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 按时间范围查询出入记录（按出入时间倒序）
+     * 不统计总数，多取一条判断是否还有下一页，避免在大表上 COUNT
+     *
+     * @param from 开始时间（含）
+     * @param to   结束时间（不含）
+     */
+    public Map<String, Object> listEvents(Long personId, String personType, Long deviceId, Long communityId,
+                                          LocalDateTime from, LocalDateTime to, int page, int size) {
+        StringBuilder where = new StringBuilder("WHERE r.access_time >= ? AND r.access_time < ? ");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(from));
+        args.add(Timestamp.valueOf(to));
+        if (personId != null) {
+            where.append("AND r.person_id = ? ");
+            args.add(personId);
+        }
+        if (!isBlank(personType)) {
+            where.append("AND r.person_type = ? ");
+            args.add(personType.trim());
+        }
+        if (deviceId != null) {
+            where.append("AND r.device_id = ? ");
+            args.add(deviceId);
+        }
+        if (communityId != null) {
+            where.append("AND r.community_id = ? ");
+            args.add(communityId);
+        }
+        args.add(size + 1);
+        args.add((page - 1) * size);
+
+        List<Map<String, Object>> records = jdbcTemplate.queryForList(
+                "SELECT r.id, r.person_id, r.person_type, r.person_name, r.person_phone, r.device_id, r.community_id, " +
+                "r.access_type, r.access_method, r.access_time, r.gate_name, r.verify_result, r.fail_reason, r.capture_image " +
+                "FROM access_control_record r " + where +
+                "ORDER BY r.access_time DESC LIMIT ? OFFSET ?", args.toArray());
+
+        boolean hasMore = records.size() > size;
+        if (hasMore) {
+            records = records.subList(0, size);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("records", records);
+        data.put("page", page);
+        data.put("size", size);
+        data.put("hasMore", hasMore);
+        return data;
+    }
+
+    private Long communityOf(Long deviceId) {
+        Long communityId = deviceCommunity.computeIfAbsent(deviceId, id -> {
+            // 新增的设备：首次出现时查一次
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT community_id FROM access_control_device WHERE id = ? AND community_id IS NOT NULL", Long.class, id);
+            return ids.isEmpty() ? NO_COMMUNITY : ids.get(0);
+        });
+        return communityId != NO_COMMUNITY ? communityId : null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
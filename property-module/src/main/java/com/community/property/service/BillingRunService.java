@@ -0,0 +1,484 @@
+package com.community.property.service;
+
+import com.community.property.config.BillingRunProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 月末账单批量任务
+ * 1. 按 社区+楼栋 划分仪表账单分区、按社区划分车位账单分区，在 ForkJoinPool 上并行处理
+ * 2. 每个分区流式读取待出账数据（MySQL 逐行流式结果集，不缓存整个分区），在内存中计算金额，
+ *    按 batchSize 分批写入（多行 INSERT IGNORE，可重复执行；账单数、金额只统计实际插入的行）
+ * 3. 分区完成后写检查点（billing_run_checkpoint），任务中断后重跑时跳过已完成分区
+ * 4. 试运行（dryRun）只读取和计算，不写账单和检查点，用于评估吞吐
+ * 5. 指标：billing.run.bills（按类型计数）、billing.run.partition（分区耗时）、billing.run.rows_per_second（最近一次吞吐）
+ */
+@Slf4j
+@Service
+public class BillingRunService {
+
+    private static final String TYPE_METER = "meter";
+    private static final String TYPE_PARKING = "parking";
+
+    /** 待出账抄表记录，列顺序与 MeterBillService.BILL_COLUMNS 一致（不含 amount） */
+    private static final String PENDING_READINGS_SQL =
+            "SELECT r.id, m.id, mc.id, m.community_id, h.building_id, m.house_id, " +
+            "m.meter_name, m.meter_code, m.category_name, m.meter_type, COALESCE(r.unit, mc.unit, m.unit), " +
+            "h.room_no, h.full_room_no, b.building_no, b.building_name, " +
+            "c.community_name, DATE_FORMAT(r.reading_date, '%Y-%m'), r.reading_date, r.reading_time, r.reading_status, " +
+            "r.previous_reading, r.current_reading, IFNULL(r.usage_amount, 0), IFNULL(mc.unit_price, 0), mc.calculation_method " +
+            "FROM meter_reading r " +
+            "INNER JOIN meter_info m ON m.id = r.meter_id " +
+            "INNER JOIN meter_config mc ON mc.id = m.config_id " +
+            "INNER JOIN house h ON h.id = m.house_id " +
+            "LEFT JOIN building b ON b.id = h.building_id " +
+            "LEFT JOIN community_info c ON c.id = h.community_id " +
+            "LEFT JOIN meter_bill mb ON mb.reading_id = r.id " +
+            "WHERE h.community_id = ? AND h.building_id <=> ? " +
+            "AND r.reading_date BETWEEN ? AND ? " +
+            "AND mb.id IS NULL " +
+            "AND m.meter_status = '正常' AND mc.status = '启用' AND IFNULL(r.processed, 0) = 0";
+
+    /** 用量、单价在查询结果中的位置（从0开始） */
+    private static final int USAGE_INDEX = 22;
+    private static final int UNIT_PRICE_INDEX = 23;
+    private static final int METER_SELECT_COLUMNS = 25;
+
+    private static final String INSERT_METER_BILL_SQL =
+            "INSERT IGNORE INTO meter_bill (" + MeterBillService.BILL_COLUMNS + ") VALUES ";
+
+    /** 待出账车位（与业主端停车位待缴费条件一致），列顺序与 INSERT_PARKING_BILL_SQL 一致（不含账期和金额） */
+    private static final String PENDING_PARKING_SQL =
+            "SELECT ps.id, ps.parking_lot_id, pl.community_id, ps.owner_id, ps.vehicle_id, " +
+            "ps.space_no, ps.full_space_no, pl.lot_name, v.plate_number, ps.monthly_fee " +
+            "FROM parking_space ps " +
+            "INNER JOIN parking_lot pl ON pl.id = ps.parking_lot_id " +
+            "LEFT JOIN vehicle v ON v.id = ps.vehicle_id " +
+            "LEFT JOIN parking_bill pb ON pb.parking_space_id = ps.id AND pb.billing_period = ? " +
+            "WHERE pl.community_id = ? " +
+            "AND ps.owner_id IS NOT NULL " +
+            "AND ps.space_status IN ('已租', '占用') " +
+            "AND ps.monthly_fee > 0 " +
+            "AND pb.id IS NULL";
+
+    private static final String INSERT_PARKING_BILL_SQL =
+            "INSERT IGNORE INTO parking_bill (parking_space_id, parking_lot_id, community_id, owner_id, vehicle_id, " +
+            "space_no, full_space_no, lot_name, plate_number, billing_period, amount) VALUES ";
+
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO billing_run_checkpoint (billing_period, partition_key, bill_type, community_id, building_id, " +
+            "bill_count, amount, finished_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE bill_count = VALUES(bill_count), amount = VALUES(amount), finished_at = VALUES(finished_at)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BillingRunProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 读取待出账数据用：fetchSize = Integer.MIN_VALUE 时 MySQL 驱动逐行流式返回 */
+    private JdbcTemplate streamingTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /** 当前或最近一次任务 */
+    private volatile RunState lastRun;
+
+    /** 最近一次任务的吞吐（行/秒） */
+    private final AtomicLong lastRowsPerSecond = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("billing.run.rows_per_second", lastRowsPerSecond, AtomicLong::get).register(meterRegistry);
+        streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * 定时生成上月账单
+     */
+    @Scheduled(cron = "${billing.run.cron:0 0 2 1 * ?}")
+    public void scheduledRun() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            run(YearMonth.now().minusMonths(1), false, false);
+        } catch (IllegalStateException e) {
+            log.warn("月末账单任务未执行: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 后台启动一次账单任务
+     *
+     * @param period 账期
+     * @param dryRun 试运行，只计算不写入
+     * @param force  忽略检查点，重新处理所有分区（已生成的账单不会重复）
+     */
+    public void startAsync(YearMonth period, boolean dryRun, boolean force) {
+        // 先占用再启动线程，并发调用时只有一个能返回成功
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有账单任务在执行");
+        }
+        try {
+            Thread thread = new Thread(() -> {
+                try {
+                    execute(period, dryRun, force);
+                } catch (Exception e) {
+                    log.error("账单任务执行失败: {}", period, e);
+                } finally {
+                    running.set(false);
+                }
+            }, "billing-run-" + period);
+            thread.setDaemon(true);
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 同步执行一次账单任务
+     *
+     * @return 任务报告
+     */
+    public Map<String, Object> run(YearMonth period, boolean dryRun, boolean force) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("已有账单任务在执行");
+        }
+        try {
+            return execute(period, dryRun, force);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 执行账单任务，调用方已占用 running
+     */
+    private Map<String, Object> execute(YearMonth period, boolean dryRun, boolean force) {
+        RunState state = new RunState(period, dryRun);
+        lastRun = state;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, properties.getParallelism()));
+        try {
+            List<Partition> partitions = loadPartitions();
+            Set<String> finished = dryRun || force ? Set.of() : loadCheckpoints(period);
+            state.totalPartitions = partitions.size();
+            log.info("账单任务开始: 账期={}, 试运行={}, 分区={}, 已完成={}", period, dryRun, partitions.size(), finished.size());
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Partition partition : partitions) {
+                if (finished.contains(partition.key())) {
+                    state.skippedPartitions.incrementAndGet();
+                    continue;
+                }
+                tasks.add(() -> {
+                    processPartition(partition, state);
+                    return null;
+                });
+            }
+            pool.invokeAll(tasks);
+            if (Thread.currentThread().isInterrupted()) {
+                state.error = "任务被中断";
+            }
+
+            state.finish();
+            lastRowsPerSecond.set(state.rowsPerSecond());
+            log.info("账单任务完成: {}", state.toReport());
+            return state.toReport();
+        } catch (Exception e) {
+            state.error = e.getMessage();
+            state.finish();
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 当前或最近一次任务的进度
+     */
+    public Map<String, Object> status() {
+        RunState state = lastRun;
+        if (state == null) {
+            Map<String, Object> empty = new LinkedHashMap<>();
+            empty.put("running", false);
+            return empty;
+        }
+        Map<String, Object> report = state.toReport();
+        report.put("running", running.get());
+        return report;
+    }
+
+    private void processPartition(Partition partition, RunState state) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            PartitionResult result = TYPE_METER.equals(partition.type)
+                    ? processMeterPartition(partition, state)
+                    : processParkingPartition(partition, state);
+
+            if (!state.dryRun) {
+                jdbcTemplate.update(INSERT_CHECKPOINT_SQL, state.period.toString(), partition.key(), partition.type,
+                        partition.communityId, partition.buildingId, result.count, result.amount,
+                        Timestamp.valueOf(LocalDateTime.now()));
+            }
+            state.completedPartitions.incrementAndGet();
+        } catch (Exception e) {
+            state.failedPartitions.incrementAndGet();
+            log.error("账单分区处理失败: 账期={}, 分区={}", state.period, partition.key(), e);
+        } finally {
+            sample.stop(Timer.builder("billing.run.partition").tag("type", partition.type).register(meterRegistry));
+        }
+    }
+
+    private PartitionResult processMeterPartition(Partition partition, RunState state) {
+        PartitionResult result = new PartitionResult();
+        List<Object[]> batch = new ArrayList<>(properties.getBatchSize());
+        streamingTemplate.query(PENDING_READINGS_SQL, rs -> {
+            Object[] row = readRow(rs, METER_SELECT_COLUMNS, 1);
+            BigDecimal usage = (BigDecimal) row[USAGE_INDEX];
+            BigDecimal unitPrice = (BigDecimal) row[UNIT_PRICE_INDEX];
+            row[METER_SELECT_COLUMNS] = usage.multiply(unitPrice).setScale(2, RoundingMode.HALF_UP);
+            batch.add(row);
+            if (batch.size() >= properties.getBatchSize()) {
+                writeBatch(INSERT_METER_BILL_SQL, batch, TYPE_METER, state, result);
+            }
+        }, partition.communityId, partition.buildingId,
+                Date.valueOf(state.period.atDay(1)), Date.valueOf(state.period.atEndOfMonth()));
+        writeBatch(INSERT_METER_BILL_SQL, batch, TYPE_METER, state, result);
+        return result;
+    }
+
+    private PartitionResult processParkingPartition(Partition partition, RunState state) {
+        PartitionResult result = new PartitionResult();
+        List<Object[]> batch = new ArrayList<>(properties.getBatchSize());
+        String period = state.period.toString();
+        streamingTemplate.query(PENDING_PARKING_SQL, rs -> {
+            Object[] row = readRow(rs, 9, 2);
+            row[9] = period;
+            row[10] = rs.getBigDecimal(10).setScale(2, RoundingMode.HALF_UP);
+            batch.add(row);
+            if (batch.size() >= properties.getBatchSize()) {
+                writeBatch(INSERT_PARKING_BILL_SQL, batch, TYPE_PARKING, state, result);
+            }
+        }, period, partition.communityId);
+        writeBatch(INSERT_PARKING_BILL_SQL, batch, TYPE_PARKING, state, result);
+        return result;
+    }
+
+    /**
+     * 写入一批账单（每行最后一列为金额），账单数、金额只计实际插入的行
+     */
+    private void writeBatch(String sqlPrefix, List<Object[]> batch, String type, RunState state, PartitionResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Object[]> inserted = state.dryRun ? batch : insertIgnore(sqlPrefix, batch);
+        for (Object[] row : inserted) {
+            result.add((BigDecimal) row[row.length - 1]);
+        }
+        state.rows.add(batch.size());
+        (TYPE_METER.equals(type) ? state.meterBills : state.parkingBills).add(inserted.size());
+        Counter.builder("billing.run.bills")
+                .tag("type", type)
+                .tag("dry_run", String.valueOf(state.dryRun))
+                .register(meterRegistry)
+                .increment(inserted.size());
+        batch.clear();
+    }
+
+    /**
+     * 一条多行 INSERT IGNORE 写入整批（影响行数即插入数）；有行被忽略时回滚，逐行写入找出实际插入的行
+     *
+     * @return 实际插入的行
+     */
+    private List<Object[]> insertIgnore(String sqlPrefix, List<Object[]> batch) {
+        String placeholders = "(" + String.join(", ", Collections.nCopies(batch.get(0).length, "?")) + ")";
+        String sql = sqlPrefix + String.join(", ", Collections.nCopies(batch.size(), placeholders));
+        Object[] args = batch.stream().flatMap(Arrays::stream).toArray();
+        Boolean complete = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(sql, args) == batch.size()) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        });
+        if (Boolean.TRUE.equals(complete)) {
+            return new ArrayList<>(batch);
+        }
+        String single = sqlPrefix + placeholders;
+        List<Object[]> inserted = new ArrayList<>();
+        for (Object[] row : batch) {
+            if (jdbcTemplate.update(single, row) > 0) {
+                inserted.add(row);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * 读取当前行的前 columns 列，并预留 extra 个位置
+     */
+    private static Object[] readRow(ResultSet rs, int columns, int extra) throws SQLException {
+        Object[] row = new Object[columns + extra];
+        for (int i = 0; i < columns; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return row;
+    }
+
+    private List<Partition> loadPartitions() {
+        List<Partition> partitions = new ArrayList<>();
+        jdbcTemplate.query("SELECT DISTINCT h.community_id, h.building_id FROM meter_info m " +
+                "INNER JOIN house h ON h.id = m.house_id ORDER BY h.community_id, h.building_id", rs -> {
+            partitions.add(new Partition(TYPE_METER, rs.getLong(1), rs.getObject(2, Long.class)));
+        });
+        jdbcTemplate.query("SELECT DISTINCT community_id FROM parking_lot WHERE community_id IS NOT NULL " +
+                "ORDER BY community_id", rs -> {
+            partitions.add(new Partition(TYPE_PARKING, rs.getLong(1), null));
+        });
+        return partitions;
+    }
+
+    private Set<String> loadCheckpoints(YearMonth period) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT partition_key FROM billing_run_checkpoint WHERE billing_period = ?", String.class, period.toString()));
+    }
+
+    /**
+     * 分区：仪表账单按 社区+楼栋，车位账单按社区
+     */
+    private static final class Partition {
+        final String type;
+        final long communityId;
+        final Long buildingId;
+
+        Partition(String type, long communityId, Long buildingId) {
+            this.type = type;
+            this.communityId = communityId;
+            this.buildingId = buildingId;
+        }
+
+        String key() {
+            return TYPE_METER.equals(type)
+                    ? "meter:" + communityId + ":" + (buildingId != null ? buildingId : "-")
+                    : "parking:" + communityId;
+        }
+    }
+
+    /**
+     * 单个分区的账单数和金额
+     */
+    private static final class PartitionResult {
+        int count;
+        BigDecimal amount = BigDecimal.ZERO;
+
+        void add(BigDecimal value) {
+            count++;
+            amount = amount.add(value);
+        }
+    }
+
+    /**
+     * 一次任务的进度
+     */
+    private static final class RunState {
+        final YearMonth period;
+        final boolean dryRun;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final long startNanos = System.nanoTime();
+        final AtomicInteger completedPartitions = new AtomicInteger();
+        final AtomicInteger skippedPartitions = new AtomicInteger();
+        final AtomicInteger failedPartitions = new AtomicInteger();
+        final LongAdder rows = new LongAdder();
+        final LongAdder meterBills = new LongAdder();
+        final LongAdder parkingBills = new LongAdder();
+        volatile int totalPartitions;
+        volatile long elapsedNanos = -1;
+        volatile String error;
+
+        RunState(YearMonth period, boolean dryRun) {
+            this.period = period;
+            this.dryRun = dryRun;
+        }
+
+        void finish() {
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        long elapsedMillis() {
+            long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        long rowsPerSecond() {
+            long millis = Math.max(1, elapsedMillis());
+            return rows.sum() * 1000 / millis;
+        }
+
+        Map<String, Object> toReport() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("billingPeriod", period.toString());
+            report.put("dryRun", dryRun);
+            report.put("startedAt", startedAt);
+            report.put("finished", elapsedNanos >= 0);
+            report.put("totalPartitions", totalPartitions);
+            report.put("completedPartitions", completedPartitions.get());
+            report.put("skippedPartitions", skippedPartitions.get());
+            report.put("failedPartitions", failedPartitions.get());
+            report.put("meterBills", meterBills.sum());
+            report.put("parkingBills", parkingBills.sum());
+            report.put("elapsedMs", elapsedMillis());
+            report.put("rowsPerSecond", rowsPerSecond());
+            if (error != null) {
+                report.put("error", error);
+            }
+            return report;
+        }
+    }
+}
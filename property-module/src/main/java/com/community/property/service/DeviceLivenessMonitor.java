@@ -0,0 +1,376 @@
+package com.community.property.service;
+
+import com.community.property.config.DeviceLivenessProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 设备在线监测（智能仪表、门禁设备）
+ * 每个设备按"预计下次心跳截止时间"挂在哈希时间轮上：心跳只更新截止时间（O(1)），
+ * 时间轮转到该格时才检查——已过期则置为离线，心跳延后了则挂到新的格子。
+ * 在线状态只在变化时记录，定时批量写回 meter_info / access_control_device
+ */
+@Slf4j
+@Service
+public class DeviceLivenessMonitor {
+
+    public static final String TYPE_METER = "meter";
+    public static final String TYPE_ACCESS = "access";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DeviceLivenessProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Long, Entry> meters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Entry> accessDevices = new ConcurrentHashMap<>();
+
+    /** 门禁设备编码 -> 设备ID */
+    private final ConcurrentHashMap<String, Long> accessCodes = new ConcurrentHashMap<>();
+
+    /** 本轮写库前查无此设备的设备ID/编码，避免未知设备每次心跳都查库（每次 flush 清空） */
+    private final Set<Object> unknownAccess = ConcurrentHashMap.newKeySet();
+
+    /** 待写库的在线状态变更 */
+    private final ConcurrentHashMap<Long, Integer> pendingMeterStatus = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> pendingAccessStatus = new ConcurrentHashMap<>();
+
+    /** 门禁设备最近心跳时间（合并写 last_heartbeat） */
+    private final ConcurrentHashMap<Long, Long> pendingAccessHeartbeat = new ConcurrentHashMap<>();
+
+    private Entry[] wheel;
+    private int mask;
+    private long tickMs;
+    private long currentTick;
+
+    @PostConstruct
+    public void init() {
+        tickMs = Math.max(10, properties.getTickMs());
+        wheel = new Entry[Integer.highestOneBit(Math.max(16, properties.getWheelSize() - 1)) << 1];
+        mask = wheel.length - 1;
+        currentTick = System.currentTimeMillis() / tickMs;
+
+        Gauge.builder("device.liveness.offline", meters, m -> countOffline(m)).tag("type", TYPE_METER).register(meterRegistry);
+        Gauge.builder("device.liveness.offline", accessDevices, m -> countOffline(m)).tag("type", TYPE_ACCESS).register(meterRegistry);
+
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        jdbcTemplate.query("SELECT id, online_status, last_comm_time FROM meter_info", rs -> {
+            load(meters, TYPE_METER, rs.getLong("id"), rs.getInt("online_status") == 1,
+                    rs.getTimestamp("last_comm_time"), properties.getMeterTimeoutSeconds() * 1000, now);
+        });
+        jdbcTemplate.query("SELECT id, device_code, online_status, last_heartbeat FROM access_control_device", rs -> {
+            String code = rs.getString("device_code");
+            if (code != null && !code.trim().isEmpty()) {
+                accessCodes.put(code.trim(), rs.getLong("id"));
+            }
+            load(accessDevices, TYPE_ACCESS, rs.getLong("id"), rs.getInt("online_status") == 1,
+                    rs.getTimestamp("last_heartbeat"), properties.getAccessTimeoutSeconds() * 1000, now);
+        });
+        log.info("设备在线监测已加载: 仪表 {} 个, 门禁设备 {} 个", meters.size(), accessDevices.size());
+    }
+
+    /**
+     * 仪表上报（由数据上报服务调用）
+     */
+    public void meterHeartbeat(long meterId) {
+        heartbeat(meters, TYPE_METER, meterId, properties.getMeterTimeoutSeconds() * 1000);
+    }
+
+    /**
+     * 门禁设备心跳
+     */
+    public void accessHeartbeat(long deviceId) {
+        heartbeat(accessDevices, TYPE_ACCESS, deviceId, properties.getAccessTimeoutSeconds() * 1000);
+        pendingAccessHeartbeat.put(deviceId, System.currentTimeMillis());
+    }
+
+    /**
+     * 按设备ID或设备编码找到门禁设备，加载后新增的设备查库一次
+     *
+     * @return 设备ID，不存在时为 null
+     */
+    public Long resolveAccessDevice(Long deviceId, String deviceCode) {
+        if (deviceId != null) {
+            if (accessDevices.containsKey(deviceId)) {
+                return deviceId;
+            }
+            if (unknownAccess.contains(deviceId)) {
+                return null;
+            }
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM access_control_device WHERE id = ?", Integer.class, deviceId);
+            if (count == null || count == 0) {
+                unknownAccess.add(deviceId);
+                return null;
+            }
+            return deviceId;
+        }
+        String code = deviceCode != null ? deviceCode.trim() : "";
+        if (code.isEmpty()) {
+            return null;
+        }
+        Long id = accessCodes.get(code);
+        if (id != null || unknownAccess.contains(code)) {
+            return id;
+        }
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM access_control_device WHERE device_code = ? LIMIT 1", Long.class, code);
+        if (ids.isEmpty()) {
+            unknownAccess.add(code);
+            return null;
+        }
+        accessCodes.put(code, ids.get(0));
+        return ids.get(0);
+    }
+
+    /**
+     * 当前离线的设备（分页，按离线时间倒序），附带名称和位置
+     */
+    public Map<String, Object> listOffline(String type, int page, int size) {
+        boolean access = TYPE_ACCESS.equals(type);
+        List<Entry> offline = (access ? accessDevices : meters).values().stream()
+                .filter(e -> !e.online)
+                .sorted(Comparator.comparingLong((Entry e) -> e.offlineSince).reversed())
+                .collect(Collectors.toList());
+        int from = Math.min(offline.size(), Math.max(0, (page - 1) * size));
+        List<Entry> pageEntries = offline.subList(from, Math.min(offline.size(), from + size));
+
+        Map<Long, Map<String, Object>> details = new HashMap<>();
+        if (!pageEntries.isEmpty()) {
+            String placeholders = pageEntries.stream().map(e -> "?").collect(Collectors.joining(","));
+            String sql = access
+                    ? "SELECT id, device_name AS name, device_code AS code, install_location, community_id, building_id " +
+                      "FROM access_control_device WHERE id IN (" + placeholders + ")"
+                    : "SELECT id, meter_name AS name, meter_code AS code, install_location, community_id, building_id, house_id " +
+                      "FROM meter_info WHERE id IN (" + placeholders + ")";
+            for (Map<String, Object> row : jdbcTemplate.queryForList(sql, pageEntries.stream().map(e -> e.id).toArray())) {
+                details.put(((Number) row.get("id")).longValue(), row);
+            }
+        }
+
+        List<Map<String, Object>> records = new ArrayList<>(pageEntries.size());
+        for (Entry e : pageEntries) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("deviceId", e.id);
+            Map<String, Object> row = details.get(e.id);
+            if (row != null) {
+                item.put("name", row.get("name"));
+                item.put("code", row.get("code"));
+                item.put("installLocation", row.get("install_location"));
+                item.put("communityId", row.get("community_id"));
+                item.put("buildingId", row.get("building_id"));
+                if (!access) {
+                    item.put("houseId", row.get("house_id"));
+                }
+            }
+            item.put("offlineSince", e.offlineSince > 0 ? toDateTime(e.offlineSince) : null);
+            records.add(item);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("records", records);
+        data.put("total", offline.size());
+        data.put("page", page);
+        data.put("size", size);
+        return data;
+    }
+
+    public Map<String, Object> summary() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("meterTotal", meters.size());
+        data.put("meterOffline", countOffline(meters));
+        data.put("accessTotal", accessDevices.size());
+        data.put("accessOffline", countOffline(accessDevices));
+        return data;
+    }
+
+    /**
+     * 时间轮推进：处理从上次推进到当前时刻之间的所有格子
+     */
+    @Scheduled(fixedRateString = "${device.liveness.tick-ms:1000}")
+    public void tick() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long nowTick = now / tickMs;
+        synchronized (this) {
+            // 停顿过久时最多转一整圈，其余过期项在这一圈内一并处理
+            long from = Math.max(currentTick, nowTick - mask);
+            for (long t = from; t <= nowTick; t++) {
+                // 先推进游标，本格中截止时间未到的项会挂到后面的格子而不是当前格
+                currentTick = t + 1;
+                int bucket = (int) (t & mask);
+                Entry e = wheel[bucket];
+                wheel[bucket] = null;
+                while (e != null) {
+                    Entry next = e.next;
+                    e.next = null;
+                    e.scheduled = false;
+                    if (e.deadline <= now) {
+                        markOffline(e, now);
+                    } else {
+                        link(e);
+                    }
+                    e = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量写回在线状态和门禁心跳时间
+     */
+    @Scheduled(fixedDelayString = "${device.liveness.flush-interval-ms:5000}")
+    public void flush() {
+        unknownAccess.clear();
+        writeStatus("UPDATE meter_info SET online_status = ? WHERE id = ?", pendingMeterStatus);
+        writeStatus("UPDATE access_control_device SET online_status = ? WHERE id = ?", pendingAccessStatus);
+
+        if (!pendingAccessHeartbeat.isEmpty()) {
+            List<Object[]> args = new ArrayList<>();
+            for (Long id : pendingAccessHeartbeat.keySet()) {
+                Long time = pendingAccessHeartbeat.remove(id);
+                if (time != null) {
+                    args.add(new Object[]{Timestamp.valueOf(toDateTime(time)), id});
+                }
+            }
+            try {
+                jdbcTemplate.batchUpdate("UPDATE access_control_device SET last_heartbeat = ? WHERE id = ?", args);
+            } catch (Exception e) {
+                log.warn("门禁心跳时间写库失败: {} 台", args.size(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void writeStatus(String sql, ConcurrentHashMap<Long, Integer> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>();
+        for (Long id : pending.keySet()) {
+            Integer status = pending.remove(id);
+            if (status != null) {
+                args.add(new Object[]{status, id});
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(sql, args);
+        } catch (Exception e) {
+            log.warn("设备在线状态写库失败: {} 条", args.size(), e);
+        }
+    }
+
+    private void load(Map<Long, Entry> entries, String type, long id, boolean online, Timestamp last, long timeoutMs, long now) {
+        Entry e = new Entry(type, id);
+        entries.put(id, e);
+        if (!online) {
+            e.offlineSince = last != null ? last.getTime() : 0;
+            return;
+        }
+        e.online = true;
+        // 在线但从未上报的设备给一个完整的超时周期
+        e.deadline = last != null ? last.getTime() + timeoutMs : now + timeoutMs;
+        synchronized (this) {
+            link(e);
+        }
+    }
+
+    private void heartbeat(Map<Long, Entry> entries, String type, long id, long timeoutMs) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        // 加载后新增的设备首次心跳时按离线->在线处理，写回在线状态
+        Entry e = entries.computeIfAbsent(id, key -> new Entry(type, key));
+        e.deadline = System.currentTimeMillis() + timeoutMs;
+        if (e.online && e.scheduled) {
+            return;
+        }
+        synchronized (this) {
+            if (!e.online) {
+                e.online = true;
+                e.offlineSince = 0;
+                pendingStatus(type).put(id, 1);
+            }
+            if (!e.scheduled) {
+                link(e);
+            }
+        }
+    }
+
+    private void markOffline(Entry e, long now) {
+        if (!e.online) {
+            return;
+        }
+        e.online = false;
+        e.offlineSince = now;
+        pendingStatus(e.type).put(e.id, 0);
+    }
+
+    /**
+     * 挂到截止时间所在的格子（调用方持有锁）；已过期的挂到下一格
+     */
+    private void link(Entry e) {
+        long tick = Math.max(e.deadline / tickMs, currentTick);
+        int bucket = (int) (tick & mask);
+        e.next = wheel[bucket];
+        wheel[bucket] = e;
+        e.scheduled = true;
+    }
+
+    private ConcurrentHashMap<Long, Integer> pendingStatus(String type) {
+        return TYPE_ACCESS.equals(type) ? pendingAccessStatus : pendingMeterStatus;
+    }
+
+    private static long countOffline(Map<Long, Entry> entries) {
+        return entries.values().stream().filter(e -> !e.online).count();
+    }
+
+    private static LocalDateTime toDateTime(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+
+    private static final class Entry {
+        final String type;
+        final long id;
+        /** 截止时间（毫秒），心跳时直接覆盖 */
+        volatile long deadline;
+        volatile boolean online;
+        volatile long offlineSince;
+        /** 以下由时间轮锁保护 */
+        volatile boolean scheduled;
+        Entry next;
+
+        Entry(String type, long id) {
+            this.type = type;
+            this.id = id;
+        }
+    }
+}
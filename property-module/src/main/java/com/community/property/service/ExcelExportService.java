@@ -0,0 +1,249 @@
+package com.community.property.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.OutputStream;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Excel 流式导出服务
+ * 查询使用 MySQL 服务端游标（fetchSize = Integer.MIN_VALUE）逐行读取，
+ * 每行直接写入 SXSSFWorkbook（内存中只保留最近 WINDOW_SIZE 行，其余落临时文件），
+ * 导出行数再多内存占用也基本不变
+ */
+@Slf4j
+@Service
+public class ExcelExportService {
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** SXSSF 内存窗口行数 */
+    private static final int WINDOW_SIZE = 200;
+
+    /** 单个工作表最大数据行数（xlsx 上限减去表头） */
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /** 流式读取专用（与默认 JdbcTemplate 分开，避免影响普通查询） */
+    private JdbcTemplate streamingJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * 导出所有业主及其仪表（每个仪表一行）
+     */
+    public long exportOwnerMeters(Long communityId, OutputStream out) throws Exception {
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.id, o.name, o.phone, c.community_name, h.full_room_no, " +
+                "m.meter_code, m.meter_name, m.category_name, m.meter_type, m.initial_reading, m.current_reading, " +
+                "m.unit, m.meter_status, m.last_comm_time " +
+                "FROM owner o " +
+                "JOIN house_owner ho ON ho.owner_id = o.id " +
+                "JOIN house h ON h.id = ho.house_id " +
+                "JOIN meter_info m ON m.house_id = h.id " +
+                "LEFT JOIN community_info c ON c.id = m.community_id ");
+        List<Object> args = new ArrayList<>();
+        if (communityId != null) {
+            sql.append("WHERE m.community_id = ? ");
+            args.add(communityId);
+        }
+        sql.append("ORDER BY o.id, m.id");
+
+        String[] headers = {"业主ID", "业主姓名", "联系电话", "社区", "房号",
+                "仪表编码", "仪表名称", "分类", "仪表种类", "起始读数", "当前读数",
+                "计量单位", "仪表状态", "最后通信时间"};
+        return export(out, "业主仪表", headers, sql.toString(), args.toArray());
+    }
+
+    /**
+     * 导出指定期间的抄表记录
+     */
+    public long exportMeterReadings(LocalDate startDate, LocalDate endDate, Long communityId, OutputStream out) throws Exception {
+        StringBuilder sql = new StringBuilder(
+                "SELECT r.reading_date, r.reading_time, c.community_name, h.full_room_no, " +
+                "m.meter_code, m.meter_name, r.category_name, r.previous_reading, r.current_reading, r.usage_amount, " +
+                "r.unit, r.reader_name, r.reading_type, r.reading_status, r.abnormal_reason, r.remark " +
+                "FROM meter_reading r " +
+                "JOIN meter_info m ON m.id = r.meter_id " +
+                "LEFT JOIN house h ON h.id = m.house_id " +
+                "LEFT JOIN community_info c ON c.id = m.community_id " +
+                "WHERE r.reading_date BETWEEN ? AND ? ");
+        List<Object> args = new ArrayList<>();
+        args.add(Date.valueOf(startDate));
+        args.add(Date.valueOf(endDate));
+        if (communityId != null) {
+            sql.append("AND m.community_id = ? ");
+            args.add(communityId);
+        }
+        sql.append("ORDER BY r.reading_date, r.meter_id");
+
+        String[] headers = {"抄表日期", "抄表时间", "社区", "房号",
+                "仪表编码", "仪表名称", "分类", "上次读数", "本次读数", "用量",
+                "计量单位", "抄表人", "抄表类型", "抄表状态", "异常原因", "备注"};
+        return export(out, "抄表记录", headers, sql.toString(), args.toArray());
+    }
+
+    /**
+     * 导出车辆（与车辆列表一致，只导出状态正常的车辆）
+     */
+    public long exportVehicles(String keyword, OutputStream out) throws Exception {
+        StringBuilder sql = new StringBuilder(
+                "SELECT v.plate_number, v.vehicle_type, v.brand, v.model, v.color, " +
+                "o.name, o.phone, ps.full_space_no, v.vehicle_license_no, v.register_date, v.status, v.remark " +
+                "FROM vehicle v " +
+                "LEFT JOIN owner o ON o.id = v.owner_id " +
+                "LEFT JOIN parking_space ps ON ps.id = v.fixed_space_id " +
+                "WHERE v.status = '正常' ");
+        List<Object> args = new ArrayList<>();
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            sql.append("AND (v.plate_number LIKE ? OR v.brand LIKE ?) ");
+            args.add("%" + keyword.trim() + "%");
+            args.add("%" + keyword.trim() + "%");
+        }
+        sql.append("ORDER BY v.id");
+
+        String[] headers = {"车牌号", "车辆类型", "品牌", "型号", "颜色",
+                "业主姓名", "联系电话", "固定车位", "行驶证号", "登记日期", "状态", "备注"};
+        return export(out, "车辆", headers, sql.toString(), args.toArray());
+    }
+
+    /**
+     * 导出车位
+     */
+    public long exportParkingSpaces(Long parkingLotId, String status, OutputStream out) throws Exception {
+        StringBuilder sql = new StringBuilder(
+                "SELECT pl.lot_name, ps.space_no, ps.full_space_no, ps.space_type, ps.space_area, ps.space_status, " +
+                "ps.monthly_fee, o.name, v.plate_number, ps.remark " +
+                "FROM parking_space ps " +
+                "LEFT JOIN parking_lot pl ON pl.id = ps.parking_lot_id " +
+                "LEFT JOIN owner o ON o.id = ps.owner_id " +
+                "LEFT JOIN vehicle v ON v.id = ps.vehicle_id " +
+                "WHERE 1 = 1 ");
+        List<Object> args = new ArrayList<>();
+        if (parkingLotId != null) {
+            sql.append("AND ps.parking_lot_id = ? ");
+            args.add(parkingLotId);
+        }
+        if (status != null && !status.trim().isEmpty()) {
+            sql.append("AND ps.space_status = ? ");
+            args.add(status.trim());
+        }
+        sql.append("ORDER BY ps.parking_lot_id, ps.space_no");
+
+        String[] headers = {"停车场", "车位号", "完整车位号", "车位类型", "面积",
+                "状态", "月租费", "业主姓名", "车牌号", "备注"};
+        return export(out, "车位", headers, sql.toString(), args.toArray());
+    }
+
+    /**
+     * 流式执行查询并写入工作簿，列顺序与 headers 一致
+     *
+     * @return 导出的数据行数
+     */
+    private long export(OutputStream out, String sheetName, String[] headers, String sql, Object[] args) throws Exception {
+        long start = System.currentTimeMillis();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW_SIZE);
+        // 临时文件压缩，减少大导出时的磁盘占用
+        workbook.setCompressTempFiles(true);
+        try {
+            SheetWriter writer = new SheetWriter(workbook, sheetName, headers);
+            streamingJdbcTemplate.query(sql, writer::writeRow, args);
+            workbook.write(out);
+            out.flush();
+            log.info("导出 {} 完成: {} 行, 耗时 {}ms", sheetName, writer.total, System.currentTimeMillis() - start);
+            return writer.total;
+        } finally {
+            workbook.close();
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * 逐行写入工作表，超过单表行数上限时自动新建工作表
+     */
+    private static final class SheetWriter {
+
+        private final SXSSFWorkbook workbook;
+        private final String sheetName;
+        private final String[] headers;
+        private final CellStyle headerStyle;
+        private Sheet sheet;
+        private int sheetIndex;
+        private int rowIndex;
+        private long total;
+
+        SheetWriter(SXSSFWorkbook workbook, String sheetName, String[] headers) {
+            this.workbook = workbook;
+            this.sheetName = sheetName;
+            this.headers = headers;
+            this.headerStyle = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setBold(true);
+            headerStyle.setFont(font);
+            newSheet();
+        }
+
+        void writeRow(ResultSet rs) throws java.sql.SQLException {
+            if (rowIndex > MAX_ROWS_PER_SHEET) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < headers.length; i++) {
+                Object value = rs.getObject(i + 1);
+                if (value == null) {
+                    continue;
+                }
+                Cell cell = row.createCell(i);
+                if (value instanceof Number number) {
+                    cell.setCellValue(number.doubleValue());
+                } else if (value instanceof Timestamp timestamp) {
+                    cell.setCellValue(timestamp.toLocalDateTime().format(DATE_TIME_FORMAT));
+                } else if (value instanceof LocalDateTime dateTime) {
+                    cell.setCellValue(dateTime.format(DATE_TIME_FORMAT));
+                } else {
+                    cell.setCellValue(value.toString());
+                }
+            }
+            total++;
+        }
+
+        private void newSheet() {
+            sheetIndex++;
+            sheet = workbook.createSheet(sheetIndex == 1 ? sheetName : sheetName + sheetIndex);
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = header.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+                sheet.setColumnWidth(i, Math.max(10, headers[i].length() * 2 + 4) * 256);
+            }
+            sheet.createFreezePane(0, 1);
+            rowIndex = 1;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.community.property.service;
+
+import com.community.property.config.ParkingGateProperties;
+import com.community.property.dto.GateEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 道闸出入事件服务
+ * 车牌按 PlateDirectory 在内存中识别，入场时登记场内车辆并排队写入未出场记录，出场时与入场配对，
+ * 按 停车场 + 车牌 + 入场时间 回写出场信息；写库请求进入队列后定时批量执行，事件处理路径上没有数据库 I/O。
+ * 写库失败的批次放回队列重试，超过重试次数后逐条写入、仍失败的记录才丢弃；出场回写未匹配到未出场记录（入场记录丢失）时改为插入完整记录。
+ * 进程异常退出时最多丢失一个写库间隔内的事件，
+ * 启动时从未出场记录恢复场内车辆。停车费用由批量结算（ParkingFeeService）计算，固定车位车辆在本停车场免费
+ */
+@Slf4j
+@Service
+public class GateEventService {
+
+    public static final String EVENT_ENTRY = "入场";
+    public static final String EVENT_EXIT = "出场";
+
+    private static final String INSERT_RECORD_SQL =
+            "INSERT INTO parking_record (vehicle_id, plate_number, vehicle_type, owner_id, owner_name, owner_phone, " +
+            "parking_lot_id, parking_space_id, gate_no, entry_time, exit_time, duration_minutes, parking_fee, actual_fee, remark) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** 回写出场信息；出场时间为空时只更新备注（重复入场） */
+    private static final String UPDATE_EXIT_SQL =
+            "UPDATE parking_record SET exit_time = ?, duration_minutes = ?, parking_fee = ?, actual_fee = ?, " +
+            "remark = COALESCE(?, remark) " +
+            "WHERE parking_lot_id = ? AND plate_number = ? AND entry_time = ? AND exit_time IS NULL";
+
+    /** 批次写库失败后的重试次数，超过后改为逐条写入 */
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlateDirectory plateDirectory;
+
+    @Autowired
+    private ParkingGateProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 停车场ID:车牌 -> 场内车辆 */
+    private final ConcurrentHashMap<String, OpenVisit> openVisits = new ConcurrentHashMap<>();
+
+    /** 待插入的停车记录（入场的未出场记录、无入场记录的出场） */
+    private final ConcurrentLinkedQueue<PendingWrite> pendingInserts = new ConcurrentLinkedQueue<>();
+
+    /** 待回写出场信息的未出场记录 */
+    private final ConcurrentLinkedQueue<PendingWrite> pendingExits = new ConcurrentLinkedQueue<>();
+
+    private Counter entryCounter;
+    private Counter exitCounter;
+    private Counter unmatchedCounter;
+    private Counter rejectedCounter;
+    private Counter droppedCounter;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() {
+        entryCounter = meterRegistry.counter("parking.gate.events", "result", "entry");
+        exitCounter = meterRegistry.counter("parking.gate.events", "result", "exit");
+        unmatchedCounter = meterRegistry.counter("parking.gate.events", "result", "unmatched");
+        rejectedCounter = meterRegistry.counter("parking.gate.events", "result", "rejected");
+        droppedCounter = meterRegistry.counter("parking.gate.dropped");
+        flushTimer = meterRegistry.timer("parking.gate.flush");
+        Gauge.builder("parking.gate.open", openVisits, Map::size).register(meterRegistry);
+        Gauge.builder("parking.gate.pending", this, s -> s.pendingInserts.size() + s.pendingExits.size()).register(meterRegistry);
+        Gauge.builder("parking.gate.plates", plateDirectory, PlateDirectory::size).register(meterRegistry);
+
+        recoverOpenVisits();
+    }
+
+    /**
+     * 处理一批道闸事件（按识别时间排序后依次处理）
+     *
+     * @return {entries, exits, unmatched, rejected}
+     */
+    public Map<String, Object> ingest(List<GateEvent> events) {
+        long now = System.currentTimeMillis();
+        List<GateEvent> valid = new ArrayList<>(events.size());
+        int rejected = 0;
+        for (GateEvent event : events) {
+            if (event == null || event.getParkingLotId() == null || PlateDirectory.normalize(event.getPlateNumber()) == null
+                    || !(EVENT_ENTRY.equals(event.getEventType()) || EVENT_EXIT.equals(event.getEventType()))) {
+                rejected++;
+                continue;
+            }
+            if (event.getTimestamp() == null) {
+                event.setTimestamp(now);
+            }
+            valid.add(event);
+        }
+        valid.sort(Comparator.comparingLong(GateEvent::getTimestamp));
+
+        int entries = 0;
+        int exits = 0;
+        int unmatched = 0;
+        for (GateEvent event : valid) {
+            String key = event.getParkingLotId() + ":" + PlateDirectory.normalize(event.getPlateNumber());
+            LocalDateTime time = toLocalDateTime(event.getTimestamp());
+            if (EVENT_ENTRY.equals(event.getEventType())) {
+                onEntry(key, event, time);
+                entries++;
+            } else {
+                int result = onExit(key, event, time);
+                if (result > 0) {
+                    exits++;
+                } else if (result == 0) {
+                    unmatched++;
+                } else {
+                    rejected++;
+                }
+            }
+        }
+        entryCounter.increment(entries);
+        exitCounter.increment(exits);
+        unmatchedCounter.increment(unmatched);
+        rejectedCounter.increment(rejected);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", entries);
+        result.put("exits", exits);
+        result.put("unmatched", unmatched);
+        result.put("rejected", rejected);
+        return result;
+    }
+
+    private void onEntry(String key, GateEvent event, LocalDateTime time) {
+        PlateDirectory.PlateInfo info = plateDirectory.lookup(event.getPlateNumber());
+        // entry_time 按秒存储，出场回写按入场时间匹配，内存中保持一致
+        OpenVisit visit = new OpenVisit(event.getParkingLotId(), event.getPlateNumber(),
+                info != null ? info.vehicleType : event.getVehicleType(), event.getGateNo(),
+                time.truncatedTo(ChronoUnit.SECONDS), info);
+        OpenVisit current = openVisits.get(key);
+        if (current != null && current.entryTime.equals(visit.entryTime)) {
+            // 同一入场被重复上报
+            return;
+        }
+        // 先排队写入再登记，出场能看到该车辆时其入场记录一定已在队列中
+        pendingInserts.add(new PendingWrite(insertArgs(visit, null, null, null, null)));
+        OpenVisit previous = openVisits.put(key, visit);
+        // 重复入场（漏识别了出场）：上一次入场保持未出场并备注
+        if (previous != null) {
+            pendingExits.add(new PendingWrite(exitArgs(previous, null, null, null, "重复入场，无出场记录")));
+        }
+    }
+
+    /**
+     * @return 1 配对成功，0 无入场记录，-1 出场时间早于入场时间
+     */
+    private int onExit(String key, GateEvent event, LocalDateTime time) {
+        OpenVisit visit = openVisits.get(key);
+        if (visit != null && time.isBefore(visit.entryTime)) {
+            return -1;
+        }
+        if (visit == null || !openVisits.remove(key, visit)) {
+            PlateDirectory.PlateInfo info = plateDirectory.lookup(event.getPlateNumber());
+            OpenVisit orphan = new OpenVisit(event.getParkingLotId(), event.getPlateNumber(),
+                    info != null ? info.vehicleType : event.getVehicleType(), event.getGateNo(), null, info);
+            pendingInserts.add(new PendingWrite(insertArgs(orphan, time, null, null, "无入场记录")));
+            return 0;
+        }
+
+        long minutes = Duration.between(visit.entryTime, time).toMinutes();
+        // 固定车位车辆在本停车场不收费，其余车辆留待批量结算计费
+        BigDecimal fee = visit.info != null && Objects.equals(visit.info.fixedLotId, visit.parkingLotId) ? BigDecimal.ZERO : null;
+        String remark = fee != null ? "固定车位" : null;
+        pendingExits.add(new PendingWrite(exitArgs(visit, time, minutes, fee, remark),
+                insertArgs(visit, time, minutes, fee, remark)));
+        return 1;
+    }
+
+    /**
+     * 批量写库
+     * 先取出本轮要回写的出场，再写入全部待插入记录：出场对应的入场记录先于出场入队，回写时一定已写入
+     */
+    @Scheduled(fixedDelayString = "${parking.gate.flush-interval-ms:2000}")
+    public synchronized void flush() {
+        if (pendingInserts.isEmpty() && pendingExits.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> {
+            List<PendingWrite> exits = drain(pendingExits);
+            List<PendingWrite> inserts = drain(pendingInserts);
+            // 入场记录写库失败时，依赖它的出场回写也推迟到下一轮
+            if (writeBatches(INSERT_RECORD_SQL, inserts, pendingInserts)) {
+                writeBatches(UPDATE_EXIT_SQL, exits, pendingExits);
+            } else {
+                requeue(exits, pendingExits, false);
+            }
+        });
+    }
+
+    /**
+     * 停机时写完队列，场内车辆的未出场记录已在入场时写入，下次启动时恢复
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        openVisits.clear();
+    }
+
+    private static List<PendingWrite> drain(Queue<PendingWrite> queue) {
+        List<PendingWrite> drained = new ArrayList<>();
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            drained.add(write);
+        }
+        return drained;
+    }
+
+    /**
+     * 分批写库，失败的批次放回队列
+     *
+     * @return 是否全部写入成功
+     */
+    private boolean writeBatches(String sql, List<PendingWrite> writes, Queue<PendingWrite> queue) {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        boolean allWritten = true;
+        for (int from = 0; from < writes.size(); from += batchSize) {
+            List<PendingWrite> batch = writes.subList(from, Math.min(writes.size(), from + batchSize));
+            if (!writeBatch(sql, batch)) {
+                allWritten = false;
+                requeue(batch, queue, true);
+            }
+        }
+        return allWritten;
+    }
+
+    private boolean writeBatch(String sql, List<PendingWrite> batch) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            args.add(write.args);
+        }
+        try {
+            int[] counts = jdbcTemplate.batchUpdate(sql, args);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    insertUnmatched(batch.get(i));
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("停车记录写库失败，稍后重试: {} 条", batch.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 出场回写没有匹配到未出场记录时，改为插入包含入场、出场的完整记录（下一轮写入）
+     */
+    private void insertUnmatched(PendingWrite write) {
+        if (write.fallback == null) {
+            return;
+        }
+        log.warn("出场回写未找到未出场记录，改为插入完整记录: {}", Arrays.toString(write.fallback));
+        pendingInserts.add(new PendingWrite(write.fallback));
+    }
+
+    /**
+     * 放回队列等待下一轮；已达到重试次数的逐条写入，隔离出写不进去的记录后丢弃
+     */
+    private void requeue(List<PendingWrite> writes, Queue<PendingWrite> queue, boolean failed) {
+        for (PendingWrite write : writes) {
+            if (failed && ++write.attempts >= MAX_ATTEMPTS) {
+                String sql = queue == pendingInserts ? INSERT_RECORD_SQL : UPDATE_EXIT_SQL;
+                try {
+                    if (jdbcTemplate.update(sql, write.args) == 0) {
+                        insertUnmatched(write);
+                    }
+                } catch (Exception e) {
+                    droppedCounter.increment();
+                    log.error("停车记录重试 {} 次仍写库失败，已丢弃: {}", write.attempts, Arrays.toString(write.args), e);
+                }
+                continue;
+            }
+            queue.add(write);
+        }
+    }
+
+    /**
+     * 恢复未出场的停车记录
+     */
+    private void recoverOpenVisits() {
+        LocalDateTime since = LocalDateTime.now().minusDays(properties.getOpenRecordRecoveryDays());
+        jdbcTemplate.query(
+                "SELECT parking_lot_id, plate_number, vehicle_type, gate_no, entry_time FROM parking_record " +
+                "WHERE exit_time IS NULL AND entry_time >= ? AND parking_lot_id IS NOT NULL ORDER BY entry_time",
+                rs -> {
+                    String plate = rs.getString("plate_number");
+                    String plateKey = PlateDirectory.normalize(plate);
+                    if (plateKey == null) {
+                        return;
+                    }
+                    long lotId = rs.getLong("parking_lot_id");
+                    OpenVisit visit = new OpenVisit(lotId, plate, rs.getString("vehicle_type"),
+                            rs.getString("gate_no"), rs.getTimestamp("entry_time").toLocalDateTime(), plateDirectory.lookup(plate));
+                    openVisits.put(lotId + ":" + plateKey, visit);
+                },
+                Timestamp.valueOf(since));
+        log.info("已恢复场内车辆: {} 辆", openVisits.size());
+    }
+
+    private static Object[] exitArgs(OpenVisit visit, LocalDateTime exitTime, Long minutes, BigDecimal fee, String remark) {
+        return new Object[]{
+                exitTime != null ? Timestamp.valueOf(exitTime) : null,
+                minutes != null ? (int) Math.min(minutes, Integer.MAX_VALUE) : null,
+                fee,
+                fee,
+                remark,
+                visit.parkingLotId,
+                visit.plateNumber,
+                Timestamp.valueOf(visit.entryTime)};
+    }
+
+    private static Object[] insertArgs(OpenVisit visit, LocalDateTime exitTime, Long minutes, BigDecimal fee, String remark) {
+        PlateDirectory.PlateInfo info = visit.info;
+        return new Object[]{
+                info != null ? info.vehicleId : null,
+                visit.plateNumber,
+                visit.vehicleType,
+                info != null ? info.ownerId : null,
+                info != null ? info.ownerName : null,
+                info != null ? info.ownerPhone : null,
+                visit.parkingLotId,
+                info != null && Objects.equals(info.fixedLotId, visit.parkingLotId) ? info.fixedSpaceId : null,
+                visit.gateNo,
+                visit.entryTime != null ? Timestamp.valueOf(visit.entryTime) : null,
+                exitTime != null ? Timestamp.valueOf(exitTime) : null,
+                minutes != null ? (int) Math.min(minutes, Integer.MAX_VALUE) : null,
+                fee,
+                fee,
+                remark};
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+
+    /**
+     * 一条待执行的写库请求
+     */
+    private static final class PendingWrite {
+        final Object[] args;
+        /** 出场回写未匹配到记录时改为插入的参数，插入和备注回写为 null */
+        final Object[] fallback;
+        int attempts;
+
+        PendingWrite(Object[] args) {
+            this(args, null);
+        }
+
+        PendingWrite(Object[] args, Object[] fallback) {
+            this.args = args;
+            this.fallback = fallback;
+        }
+    }
+
+    /**
+     * 场内车辆（未出场记录已写入或已在写入队列中）
+     */
+    private static final class OpenVisit {
+        final Long parkingLotId;
+        final String plateNumber;
+        final String vehicleType;
+        final String gateNo;
+        final LocalDateTime entryTime;
+        final PlateDirectory.PlateInfo info;
+
+        OpenVisit(Long parkingLotId, String plateNumber, String vehicleType, String gateNo,
+                  LocalDateTime entryTime, PlateDirectory.PlateInfo info) {
+            this.parkingLotId = parkingLotId;
+            this.plateNumber = plateNumber;
+            this.vehicleType = vehicleType;
+            this.gateNo = gateNo;
+            this.entryTime = entryTime;
+            this.info = info;
+        }
+    }
+}
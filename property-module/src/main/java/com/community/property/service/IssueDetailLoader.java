@@ -0,0 +1,146 @@
+package com.community.property.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.community.property.dto.IssueDetailVO;
+import com.community.property.entity.IssueFollowUp;
+import com.community.property.mapper.IssueFollowUpMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 工单详情加载
+ * 工单连同业主、处理人员一次关联查询，跟进记录按工单ID一次查询。
+ * 已结束的工单（已解决/已完成/已关闭）组装结果放入 LRU 缓存，命中时只按主键查一次状态指纹
+ * （修改时间、状态、工单进度、评价、业主与处理人员、最新跟进记录ID），指纹不变即直接返回；业主端、物业端的修改都会改变指纹。
+ * 业主、处理人员的姓名电话等不在指纹内，缓存最多保留 ttl-ms（与业主端 IssueDetailLoader 相同的策略）
+ */
+@Service
+public class IssueDetailLoader {
+
+    private static final Set<String> FINISHED_STATUSES = Set.of("已解决", "已完成", "已关闭");
+
+    private static final int MAX_CACHED = 5000;
+
+    private static final String DETAIL_SQL =
+            "SELECT oi.id, oi.issue_title, oi.issue_content, oi.issue_type, oi.sub_type, oi.specific_location, " +
+            "oi.contact_name, oi.contact_phone, oi.urgency_level, oi.issue_status, oi.work_status, oi.issue_images, " +
+            "oi.process_plan, oi.process_result, oi.result_images, oi.processor_staff_id, oi.has_cost, oi.total_cost, " +
+            "oi.cost_payment_status, oi.satisfaction_level, oi.satisfaction_feedback, oi.reported_time, " +
+            "oi.estimated_complete_time, oi.actual_complete_time, oi.is_evaluated, " +
+            "o.name AS owner_name, o.phone AS owner_phone, s.name AS processor_name, s.phone AS processor_phone " +
+            "FROM owner_issue oi LEFT JOIN owner o ON o.id = oi.owner_id LEFT JOIN staff s ON s.id = oi.processor_staff_id " +
+            "WHERE oi.id = ?";
+
+    private static final String FINGERPRINT_SQL =
+            "SELECT oi.updated_at, oi.issue_status, oi.work_status, oi.is_evaluated, oi.satisfaction_level, " +
+            "oi.satisfaction_feedback, oi.owner_id, oi.processor_staff_id, " +
+            "(SELECT MAX(f.id) FROM issue_follow_up f WHERE f.issue_id = oi.id) AS last_follow_up_id " +
+            "FROM owner_issue oi WHERE oi.id = ?";
+
+    private static final BeanPropertyRowMapper<IssueDetailVO> DETAIL_MAPPER = new BeanPropertyRowMapper<>(IssueDetailVO.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IssueFollowUpMapper issueFollowUpMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${issue.detail.cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    /** 工单ID -> 已结束工单的详情 */
+    private final Map<Long, CachedDetail> cache = Collections.synchronizedMap(
+            new LinkedHashMap<Long, CachedDetail>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedDetail> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = meterRegistry.counter("issue.detail.cache", "result", "hit");
+        missCounter = meterRegistry.counter("issue.detail.cache", "result", "miss");
+    }
+
+    /**
+     * 加载工单详情
+     *
+     * @return 工单不存在时返回 null；返回的对象可能被缓存共享，调用方不要修改
+     */
+    public IssueDetailVO load(Long issueId) {
+        CachedDetail cached = cache.get(issueId);
+        if (cached != null) {
+            if (System.currentTimeMillis() - cached.loadedAt < ttlMs) {
+                String fingerprint = fingerprint(issueId);
+                if (fingerprint == null) {
+                    cache.remove(issueId);
+                    return null;
+                }
+                if (fingerprint.equals(cached.fingerprint)) {
+                    hitCounter.increment();
+                    return cached.detail;
+                }
+            }
+            cache.remove(issueId);
+        }
+        missCounter.increment();
+
+        // 先取指纹再查详情：两次查询之间工单若被修改，缓存的指纹较旧，下次访问即重新加载
+        String fingerprint = fingerprint(issueId);
+        if (fingerprint == null) {
+            return null;
+        }
+        List<IssueDetailVO> rows = jdbcTemplate.query(DETAIL_SQL, DETAIL_MAPPER, issueId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        IssueDetailVO detail = rows.get(0);
+        List<IssueFollowUp> followUps = issueFollowUpMapper.selectList(
+                new QueryWrapper<IssueFollowUp>().eq("issue_id", issueId).orderByAsc("created_at"));
+        detail.setFollowUps(Collections.unmodifiableList(followUps));
+
+        if (FINISHED_STATUSES.contains(detail.getIssueStatus())) {
+            cache.put(issueId, new CachedDetail(fingerprint, detail, System.currentTimeMillis()));
+        }
+        return detail;
+    }
+
+    /**
+     * 工单状态指纹，工单不存在时返回 null
+     */
+    private String fingerprint(Long issueId) {
+        List<String> rows = jdbcTemplate.query(FINGERPRINT_SQL, (rs, i) -> rs.getTimestamp("updated_at") + "|" +
+                rs.getString("issue_status") + '|' + rs.getString("work_status") + '|' +
+                rs.getObject("is_evaluated") + '|' + rs.getObject("satisfaction_level") + '|' +
+                rs.getString("satisfaction_feedback") + '|' + rs.getObject("owner_id") + '|' +
+                rs.getObject("processor_staff_id") + '|' + rs.getObject("last_follow_up_id"), issueId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static final class CachedDetail {
+        final String fingerprint;
+        final IssueDetailVO detail;
+        final long loadedAt;
+
+        CachedDetail(String fingerprint, IssueDetailVO detail, long loadedAt) {
+            this.fingerprint = fingerprint;
+            this.detail = detail;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
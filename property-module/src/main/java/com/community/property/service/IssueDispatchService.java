@@ -0,0 +1,459 @@
+package com.community.property.service;
+
+import com.community.property.config.IssueDispatchProperties;
+import com.community.property.entity.IssueFollowUp;
+import com.community.property.mapper.IssueFollowUpMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 问题工单派单服务
+ * 内存中维护每个员工、每个部门的未完成工单计数（按紧急程度加权的负载），启动时与定时对账时从 owner_issue 重建，
+ * 本进程的分配、开始处理、完成等操作在事务提交后更新。在职员工按（负载, 员工ID）放在有序集合中，
+ * 派单时取问题类型对应部门中负载最低的员工，O(log n)；部门任务统计直接读计数，不查库。
+ * 只自动派发配置了负责部门（routes）的问题类型，其余仍由人工分配
+ */
+@Slf4j
+@Service
+public class IssueDispatchService {
+
+    public static final String WORK_UNASSIGNED = "未分配";
+    public static final String WORK_ASSIGNED = "已分配";
+    public static final String WORK_PROCESSING = "处理中";
+    public static final String WORK_COMPLETED = "已完成";
+
+    private static final String STAFF_ON_DUTY = "在职";
+    private static final String ACCOUNT_NORMAL = "正常";
+
+    private static final Comparator<StaffLoad> LOAD_ORDER =
+            Comparator.<StaffLoad>comparingInt(s -> s.load).thenComparingLong(s -> s.staffId);
+
+    private static final String DEPARTMENT_OF_ISSUE = "COALESCE(oi.assigned_department_id, s.department_id)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IssueFollowUpMapper issueFollowUpMapper;
+
+    @Autowired
+    private IssueDispatchProperties properties;
+
+    @Autowired
+    private OwnerEventPublisher ownerEventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 员工ID -> 负载 */
+    private Map<Long, StaffLoad> staff = new HashMap<>();
+
+    /** 部门ID -> 该部门可派单员工（在职且账号正常），按负载排序 */
+    private Map<Long, TreeSet<StaffLoad>> dispatchableByDepartment = new HashMap<>();
+
+    /** 未完成工单ID -> 工单 */
+    private Map<Long, OpenIssue> openIssues = new HashMap<>();
+
+    /** 部门ID -> 计数 */
+    private Map<Long, DepartmentCounter> departments = new HashMap<>();
+
+    private Counter dispatchedCounter;
+
+    @PostConstruct
+    public void init() {
+        dispatchedCounter = meterRegistry.counter("issue.dispatch.assigned");
+        Gauge.builder("issue.dispatch.open", this, s -> s.openCount()).register(meterRegistry);
+        reconcile();
+    }
+
+    /**
+     * 从数据库重建员工、部门计数
+     */
+    @Scheduled(fixedDelayString = "${issue.dispatch.reconcile-interval-ms:600000}",
+            initialDelayString = "${issue.dispatch.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        Map<Long, StaffLoad> nextStaff = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, department_id, work_status, account_status FROM staff", rs -> {
+            StaffLoad load = new StaffLoad(rs.getLong("id"), rs.getString("name"), rs.getObject("department_id", Long.class),
+                    STAFF_ON_DUTY.equals(rs.getString("work_status")) && ACCOUNT_NORMAL.equals(rs.getString("account_status")));
+            nextStaff.put(load.staffId, load);
+        });
+
+        Map<Long, OpenIssue> nextOpen = new HashMap<>();
+        Map<Long, DepartmentCounter> nextDepartments = new HashMap<>();
+        jdbcTemplate.query("SELECT oi.id, oi.assigned_staff_id, " + DEPARTMENT_OF_ISSUE + " AS department_id, " +
+                "oi.urgency_level, oi.work_status, oi.expected_resolve_time " +
+                "FROM owner_issue oi LEFT JOIN staff s ON s.id = oi.assigned_staff_id " +
+                "WHERE oi.assigned_staff_id IS NOT NULL AND oi.work_status IN (?, ?)", rs -> {
+            Timestamp expected = rs.getTimestamp("expected_resolve_time");
+            OpenIssue issue = new OpenIssue(rs.getLong("assigned_staff_id"), rs.getObject("department_id", Long.class),
+                    weightOf(rs.getString("urgency_level")), WORK_PROCESSING.equals(rs.getString("work_status")),
+                    expected != null ? expected.toLocalDateTime() : null);
+            nextOpen.put(rs.getLong("id"), issue);
+            StaffLoad load = nextStaff.computeIfAbsent(issue.staffId, id -> new StaffLoad(id, null, issue.departmentId, false));
+            load.add(issue, 1);
+            counterOf(nextDepartments, issue.departmentId).add(issue, 1);
+        }, WORK_ASSIGNED, WORK_PROCESSING);
+        jdbcTemplate.query("SELECT " + DEPARTMENT_OF_ISSUE + " AS department_id, COUNT(*) AS completed " +
+                "FROM owner_issue oi LEFT JOIN staff s ON s.id = oi.assigned_staff_id " +
+                "WHERE oi.assigned_staff_id IS NOT NULL AND oi.work_status = ? GROUP BY " + DEPARTMENT_OF_ISSUE, rs -> {
+            counterOf(nextDepartments, rs.getObject("department_id", Long.class)).completed = rs.getLong("completed");
+        }, WORK_COMPLETED);
+
+        Map<Long, TreeSet<StaffLoad>> nextByDepartment = new HashMap<>();
+        for (StaffLoad load : nextStaff.values()) {
+            if (load.eligible && load.departmentId != null) {
+                nextByDepartment.computeIfAbsent(load.departmentId, k -> new TreeSet<>(LOAD_ORDER)).add(load);
+            }
+        }
+        synchronized (this) {
+            staff = nextStaff;
+            dispatchableByDepartment = nextByDepartment;
+            openIssues = nextOpen;
+            departments = nextDepartments;
+        }
+        log.info("工单负载已对账: {} 名员工, {} 个未完成工单, {} ms",
+                nextStaff.size(), nextOpen.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 自动派单：按紧急程度、上报时间依次为配置了负责部门的未分配工单选择负载最低的员工
+     */
+    @Scheduled(fixedDelayString = "${issue.dispatch.interval-ms:10000}")
+    public void dispatchPending() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<String> routedTypes = new ArrayList<>();
+        properties.getRoutes().forEach((type, departmentIds) -> {
+            if (departmentIds != null && !departmentIds.isEmpty()) {
+                routedTypes.add(type);
+            }
+        });
+        if (routedTypes.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(WORK_UNASSIGNED);
+        args.addAll(routedTypes);
+        args.add(Math.max(1, properties.getBatchSize()));
+        List<Map<String, Object>> pending = jdbcTemplate.queryForList(
+                "SELECT id, owner_id, issue_title, issue_status, issue_type, urgency_level, expected_resolve_time FROM owner_issue " +
+                "WHERE assigned_staff_id IS NULL AND work_status = ? " +
+                "AND issue_type IN (" + String.join(",", Collections.nCopies(routedTypes.size(), "?")) + ") " +
+                "ORDER BY FIELD(urgency_level, '紧急', '高', '一般', '低') = 0, FIELD(urgency_level, '紧急', '高', '一般', '低'), " +
+                "reported_time LIMIT ?", args.toArray());
+        for (Map<String, Object> row : pending) {
+            try {
+                if (dispatch(((Number) row.get("id")).longValue(), (String) row.get("issue_type"),
+                        (String) row.get("urgency_level"), toLocalDateTime(row.get("expected_resolve_time")))) {
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("issueId", row.get("id"));
+                    data.put("issueTitle", row.get("issue_title"));
+                    data.put("issueStatus", row.get("issue_status"));
+                    data.put("workStatus", WORK_ASSIGNED);
+                    Object ownerId = row.get("owner_id");
+                    ownerEventPublisher.publishToOwner(ownerId instanceof Number ? ((Number) ownerId).longValue() : null,
+                            OwnerEventPublisher.TYPE_ISSUE, data);
+                }
+            } catch (Exception e) {
+                log.warn("工单 {} 自动派单失败", row.get("id"), e);
+            }
+        }
+    }
+
+    /**
+     * 分配与跟进记录在同一事务中写入，负载计数在提交后登记
+     *
+     * @return 是否已派出
+     */
+    private boolean dispatch(long issueId, String issueType, String urgencyLevel, LocalDateTime expectedResolveTime) {
+        StaffLoad target;
+        synchronized (this) {
+            target = pickStaff(issueType, weightOf(urgencyLevel));
+        }
+        if (target == null) {
+            return false;
+        }
+        Boolean dispatched = transactionTemplate.execute(status ->
+                assign(issueId, target, urgencyLevel, expectedResolveTime));
+        if (Boolean.TRUE.equals(dispatched)) {
+            dispatchedCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean assign(long issueId, StaffLoad target, String urgencyLevel, LocalDateTime expectedResolveTime) {
+        int updated = jdbcTemplate.update("UPDATE owner_issue SET assigned_staff_id = ?, assigned_department_id = ?, " +
+                        "assigned_time = NOW(), assigned_remark = ?, work_status = ? " +
+                        "WHERE id = ? AND assigned_staff_id IS NULL AND work_status = ?",
+                target.staffId, target.departmentId, "自动派单", WORK_ASSIGNED, issueId, WORK_UNASSIGNED);
+        if (updated == 0) {
+            // 已被人工分配
+            return false;
+        }
+        onAssigned(issueId, target.staffId, target.departmentId, urgencyLevel, WORK_ASSIGNED, expectedResolveTime);
+
+        IssueFollowUp followUp = new IssueFollowUp();
+        followUp.setIssueId(issueId);
+        followUp.setFollowUpType("状态变更");
+        followUp.setFollowUpContent("问题已自动分配给员工：" + (target.name != null ? target.name : target.staffId));
+        followUp.setOperatorType("system");
+        followUp.setOperatorName("系统");
+        followUp.setCreatedAt(LocalDateTime.now());
+        issueFollowUpMapper.insert(followUp);
+        return true;
+    }
+
+    /**
+     * 在问题类型的负责部门中选择负载最低且未超上限的员工，未配置负责部门的类型不自动派单
+     */
+    private StaffLoad pickStaff(String issueType, int weight) {
+        List<Long> routed = issueType != null ? properties.getRoutes().get(issueType) : null;
+        if (routed == null || routed.isEmpty()) {
+            return null;
+        }
+        StaffLoad best = null;
+        for (Long departmentId : routed) {
+            TreeSet<StaffLoad> members = dispatchableByDepartment.get(departmentId);
+            if (members != null && !members.isEmpty()
+                    && (best == null || LOAD_ORDER.compare(members.first(), best) < 0)) {
+                best = members.first();
+            }
+        }
+        return best != null && best.load + weight <= properties.getMaxLoadPerStaff() ? best : null;
+    }
+
+    /**
+     * 工单分配（含重新分配）后登记到新员工名下，处于事务中时在提交后登记
+     *
+     * @param workStatus 分配后的工单状态，重新分配处理中的工单时仍为处理中
+     */
+    public void onAssigned(long issueId, long staffId, Long departmentId, String urgencyLevel,
+                           String workStatus, LocalDateTime expectedResolveTime) {
+        afterCommit(() -> assigned(issueId, staffId, departmentId, urgencyLevel, workStatus, expectedResolveTime));
+    }
+
+    /**
+     * 工单开始处理，处于事务中时在提交后登记
+     */
+    public void onProcessing(long issueId) {
+        afterCommit(() -> processing(issueId));
+    }
+
+    /**
+     * 工单处理完成，处于事务中时在提交后登记
+     */
+    public void onCompleted(long issueId) {
+        afterCommit(() -> completed(issueId));
+    }
+
+    private synchronized void assigned(long issueId, long staffId, Long departmentId, String urgencyLevel,
+                                       String workStatus, LocalDateTime expectedResolveTime) {
+        removeOpen(issueId);
+        OpenIssue issue = new OpenIssue(staffId, departmentId, weightOf(urgencyLevel),
+                WORK_PROCESSING.equals(workStatus), expectedResolveTime);
+        openIssues.put(issueId, issue);
+        StaffLoad load = staff.computeIfAbsent(staffId, id -> new StaffLoad(id, null, departmentId, false));
+        updateLoad(load, issue, 1);
+        counterOf(departments, departmentId).add(issue, 1);
+    }
+
+    private synchronized void processing(long issueId) {
+        OpenIssue issue = openIssues.get(issueId);
+        if (issue == null || issue.processing) {
+            return;
+        }
+        StaffLoad load = staff.get(issue.staffId);
+        if (load != null) {
+            load.processing++;
+        }
+        counterOf(departments, issue.departmentId).processing++;
+        issue.processing = true;
+    }
+
+    private synchronized void completed(long issueId) {
+        OpenIssue issue = removeOpen(issueId);
+        if (issue != null) {
+            counterOf(departments, issue.departmentId).completed++;
+        }
+    }
+
+    /**
+     * 回滚的修改不计入负载
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private OpenIssue removeOpen(long issueId) {
+        OpenIssue issue = openIssues.remove(issueId);
+        if (issue != null) {
+            StaffLoad load = staff.get(issue.staffId);
+            if (load != null) {
+                updateLoad(load, issue, -1);
+            }
+            counterOf(departments, issue.departmentId).add(issue, -1);
+        }
+        return issue;
+    }
+
+    /**
+     * 修改负载前先移出有序集合，修改后放回
+     */
+    private void updateLoad(StaffLoad load, OpenIssue issue, int sign) {
+        TreeSet<StaffLoad> members = load.eligible && load.departmentId != null
+                ? dispatchableByDepartment.get(load.departmentId) : null;
+        boolean indexed = members != null && members.remove(load);
+        load.add(issue, sign);
+        if (indexed) {
+            members.add(load);
+        }
+    }
+
+    /**
+     * 部门任务统计
+     */
+    public synchronized Map<String, Object> departmentStatistics(Long departmentId) {
+        DepartmentCounter counter = departments.getOrDefault(departmentId, new DepartmentCounter());
+        LocalDateTime now = LocalDateTime.now();
+        int overdue = 0;
+        for (OpenIssue issue : openIssues.values()) {
+            if (Objects.equals(issue.departmentId, departmentId)
+                    && issue.expectedResolveTime != null && issue.expectedResolveTime.isBefore(now)) {
+                overdue++;
+            }
+        }
+        long total = counter.open + counter.completed;
+
+        List<Map<String, Object>> members = new ArrayList<>();
+        for (StaffLoad load : staff.values()) {
+            if (Objects.equals(load.departmentId, departmentId) && (load.eligible || load.open > 0)) {
+                Map<String, Object> member = new LinkedHashMap<>();
+                member.put("staffId", load.staffId);
+                member.put("name", load.name);
+                member.put("openTasks", load.open);
+                member.put("processingTasks", load.processing);
+                member.put("load", load.load);
+                members.add(member);
+            }
+        }
+        members.sort(Comparator.comparingInt(m -> -((Integer) m.get("load"))));
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("totalTasks", total);
+        statistics.put("completedTasks", counter.completed);
+        statistics.put("pendingTasks", counter.open - counter.processing);
+        statistics.put("processingTasks", counter.processing);
+        statistics.put("overdueTasks", overdue);
+        statistics.put("completionRate", total == 0 ? 0 : BigDecimal.valueOf(counter.completed * 100)
+                .divide(BigDecimal.valueOf(total), 2, RoundingMode.HALF_UP));
+        statistics.put("members", members);
+        return statistics;
+    }
+
+    private synchronized int openCount() {
+        return openIssues.size();
+    }
+
+    private int weightOf(String urgencyLevel) {
+        Integer weight = urgencyLevel != null ? properties.getUrgencyWeights().get(urgencyLevel) : null;
+        return weight != null && weight > 0 ? weight : 1;
+    }
+
+    private static DepartmentCounter counterOf(Map<Long, DepartmentCounter> departments, Long departmentId) {
+        return departments.computeIfAbsent(departmentId, k -> new DepartmentCounter());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return value instanceof LocalDateTime ? (LocalDateTime) value : null;
+    }
+
+    private static final class StaffLoad {
+        final long staffId;
+        final String name;
+        final Long departmentId;
+        final boolean eligible;
+        /** 加权负载 */
+        int load;
+        int open;
+        int processing;
+
+        StaffLoad(long staffId, String name, Long departmentId, boolean eligible) {
+            this.staffId = staffId;
+            this.name = name;
+            this.departmentId = departmentId;
+            this.eligible = eligible;
+        }
+
+        void add(OpenIssue issue, int sign) {
+            load += sign * issue.weight;
+            open += sign;
+            if (issue.processing) {
+                processing += sign;
+            }
+        }
+    }
+
+    private static final class OpenIssue {
+        final long staffId;
+        final Long departmentId;
+        final int weight;
+        boolean processing;
+        final LocalDateTime expectedResolveTime;
+
+        OpenIssue(long staffId, Long departmentId, int weight, boolean processing, LocalDateTime expectedResolveTime) {
+            this.staffId = staffId;
+            this.departmentId = departmentId;
+            this.weight = weight;
+            this.processing = processing;
+            this.expectedResolveTime = expectedResolveTime;
+        }
+    }
+
+    private static final class DepartmentCounter {
+        int open;
+        int processing;
+        long completed;
+
+        void add(OpenIssue issue, int sign) {
+            open += sign;
+            if (issue.processing) {
+                processing += sign;
+            }
+        }
+    }
+}
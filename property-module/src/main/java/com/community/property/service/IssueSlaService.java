@@ -0,0 +1,373 @@
+package com.community.property.service;
+
+import com.community.property.config.IssueSlaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 工单 SLA 升级
+ * 未完成工单的预警时刻（截止前 warnBeforeMinutes）和截止时刻放在按时间排序的优先队列中，定时取出到期项：
+ * 在同一事务中批量写回 owner_issue.sla_level（见 sql/owner_issue_sla.sql）并为实际升级的工单批量写入跟进记录，
+ * 提交后才更新内存中的级别，写库失败时定时项放回队列下次重试。
+ * 截止时间取预计完成时间，未填写时按紧急程度从上报时间推算。
+ * 启动时从数据库重建，定时扫描新上报的工单、定时全量对账；当前超期/临近超期列表为不可变快照，读取不做任何计算
+ */
+@Slf4j
+@Service
+public class IssueSlaService {
+
+    public static final int LEVEL_NORMAL = 0;
+    public static final int LEVEL_WARNING = 1;
+    public static final int LEVEL_OVERDUE = 2;
+
+    private static final String SELECT_OPEN_SQL =
+            "SELECT oi.id, oi.issue_title, oi.issue_type, oi.urgency_level, oi.community_id, oi.assigned_staff_id, " +
+            "COALESCE(oi.assigned_department_id, s.department_id) AS department_id, oi.expected_resolve_time, " +
+            "COALESCE(oi.reported_time, oi.created_at) AS reported_time, oi.sla_level " +
+            "FROM owner_issue oi LEFT JOIN staff s ON s.id = oi.assigned_staff_id " +
+            "WHERE oi.work_status <> '已完成' AND oi.issue_status NOT IN ('已解决', '已关闭', '已完成') ";
+
+    private static final String INSERT_FOLLOW_UP_SQL =
+            "INSERT INTO issue_follow_up (issue_id, follow_up_type, follow_up_content, operator_type, operator_name, created_at) " +
+            "VALUES (?, ?, ?, 'system', '系统', NOW())";
+
+    private static final String UPDATE_LEVEL_SQL =
+            "UPDATE owner_issue SET sla_level = ?, sla_escalated_time = NOW() WHERE id = ? AND sla_level < ?";
+
+    private static final DateTimeFormatter DEADLINE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IssueSlaProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 工单ID -> 跟踪状态（由锁保护） */
+    private Map<Long, Tracked> tracked = new HashMap<>();
+
+    /** 按触发时间排序的定时项；工单变更时不删除旧项，触发时按版本号丢弃过期项 */
+    private PriorityQueue<Timer> timers = new PriorityQueue<>(Comparator.comparingLong(t -> t.fireAt));
+
+    /** 已加载的最大工单ID，扫描新工单用 */
+    private long maxSeenId;
+
+    private long nextVersion;
+
+    /** 临近超期、已超期工单快照（按截止时间升序） */
+    private volatile List<Map<String, Object>> warningSnapshot = Collections.emptyList();
+    private volatile List<Map<String, Object>> overdueSnapshot = Collections.emptyList();
+
+    private Counter warnedCounter;
+    private Counter overdueCounter;
+
+    @PostConstruct
+    public void init() {
+        warnedCounter = meterRegistry.counter("issue.sla.escalations", "level", "warning");
+        overdueCounter = meterRegistry.counter("issue.sla.escalations", "level", "overdue");
+        Gauge.builder("issue.sla.overdue", this, s -> s.overdueSnapshot.size()).register(meterRegistry);
+        if (properties.isEnabled()) {
+            reconcile();
+        }
+    }
+
+    /**
+     * 全量重建
+     */
+    @Scheduled(fixedDelayString = "${issue.sla.reconcile-interval-ms:600000}",
+            initialDelayString = "${issue.sla.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<Tracked> loaded = jdbcTemplate.query(SELECT_OPEN_SQL, (rs, i) -> toTracked(rs));
+        synchronized (this) {
+            tracked = new HashMap<>();
+            timers = new PriorityQueue<>(Comparator.comparingLong(t -> t.fireAt));
+            for (Tracked t : loaded) {
+                schedule(t);
+                maxSeenId = Math.max(maxSeenId, t.issueId);
+            }
+            publishSnapshots();
+        }
+        log.info("工单 SLA 已加载: {} 个未完成工单, 超期 {} 个", loaded.size(), overdueSnapshot.size());
+    }
+
+    /**
+     * 加载新上报的工单（按主键增量扫描）
+     */
+    @Scheduled(fixedDelayString = "${issue.sla.scan-interval-ms:60000}")
+    public void scanNew() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long after;
+        synchronized (this) {
+            after = maxSeenId;
+        }
+        List<Tracked> loaded = jdbcTemplate.query(SELECT_OPEN_SQL + "AND oi.id > ? ORDER BY oi.id",
+                (rs, i) -> toTracked(rs), after);
+        if (loaded.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (Tracked t : loaded) {
+                if (!tracked.containsKey(t.issueId)) {
+                    schedule(t);
+                }
+                maxSeenId = Math.max(maxSeenId, t.issueId);
+            }
+        }
+    }
+
+    /**
+     * 取出到期的定时项，批量写回 SLA 级别和跟进记录
+     */
+    @Scheduled(fixedDelayString = "${issue.sla.tick-ms:30000}")
+    public void tick() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Timer> due = new ArrayList<>();
+        List<Object[]> levelUpdates = new ArrayList<>();
+        List<Object[]> followUps = new ArrayList<>();
+        synchronized (this) {
+            while (!timers.isEmpty() && timers.peek().fireAt <= now) {
+                Timer timer = timers.poll();
+                Tracked t = tracked.get(timer.issueId);
+                if (t == null || t.version != timer.version || t.level >= timer.level) {
+                    continue;
+                }
+                if (timer.level == LEVEL_WARNING && t.deadline <= now) {
+                    // 已过截止时间的直接按超期处理，不再预警
+                    continue;
+                }
+                // 级别在提交后才更新
+                due.add(timer);
+                levelUpdates.add(new Object[]{timer.level, t.issueId, timer.level});
+                if (timer.level == LEVEL_OVERDUE) {
+                    followUps.add(new Object[]{t.issueId, "超期升级",
+                            "已超过截止时间 " + format(t.deadline) + " 仍未完成，已升级为超期工单"});
+                } else {
+                    followUps.add(new Object[]{t.issueId, "SLA预警",
+                            "距截止时间 " + format(t.deadline) + " 不足 " + properties.getWarnBeforeMinutes() + " 分钟"});
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        int[] counts;
+        try {
+            counts = transactionTemplate.execute(status -> {
+                int[] updated = jdbcTemplate.batchUpdate(UPDATE_LEVEL_SQL, levelUpdates);
+                // 级别已被其他实例或人工改过的工单（影响行数为 0）不再写跟进记录
+                List<Object[]> escalated = new ArrayList<>();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 1) {
+                        escalated.add(followUps.get(i));
+                    }
+                }
+                if (!escalated.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_FOLLOW_UP_SQL, escalated);
+                }
+                return updated;
+            });
+        } catch (Exception e) {
+            log.warn("工单 SLA 升级写库失败，下次重试: {} 条", due.size(), e);
+            synchronized (this) {
+                timers.addAll(due);
+            }
+            return;
+        }
+        int overdue = 0;
+        int warned = 0;
+        synchronized (this) {
+            for (int i = 0; i < due.size(); i++) {
+                Timer timer = due.get(i);
+                Tracked t = tracked.get(timer.issueId);
+                // 库中级别已不低于目标级别，内存同步到该级别
+                if (t != null && t.version == timer.version && t.level < timer.level) {
+                    t.level = timer.level;
+                }
+                if (counts[i] == 1) {
+                    if (timer.level == LEVEL_OVERDUE) {
+                        overdue++;
+                    } else {
+                        warned++;
+                    }
+                }
+            }
+            publishSnapshots();
+        }
+        overdueCounter.increment(overdue);
+        warnedCounter.increment(warned);
+    }
+
+    /**
+     * 工单完成后停止跟踪
+     */
+    public synchronized void untrack(long issueId) {
+        Tracked t = tracked.remove(issueId);
+        if (t != null && t.level > LEVEL_NORMAL) {
+            publishSnapshots();
+        }
+    }
+
+    /**
+     * 当前超期工单（可按部门、社区筛选）
+     */
+    public List<Map<String, Object>> overdue(Long departmentId, Long communityId) {
+        return filter(overdueSnapshot, departmentId, communityId);
+    }
+
+    /**
+     * 临近超期工单（可按部门、社区筛选）
+     */
+    public List<Map<String, Object>> warning(Long departmentId, Long communityId) {
+        return filter(warningSnapshot, departmentId, communityId);
+    }
+
+    private static List<Map<String, Object>> filter(List<Map<String, Object>> snapshot, Long departmentId, Long communityId) {
+        if (departmentId == null && communityId == null) {
+            return snapshot;
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> item : snapshot) {
+            if ((departmentId == null || departmentId.equals(item.get("departmentId")))
+                    && (communityId == null || communityId.equals(item.get("communityId")))) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 登记工单并挂上尚未触发的定时项（调用方持有锁）
+     */
+    private void schedule(Tracked t) {
+        t.version = ++nextVersion;
+        tracked.put(t.issueId, t);
+        if (t.level < LEVEL_WARNING) {
+            timers.add(new Timer(t.deadline - properties.getWarnBeforeMinutes() * 60_000L, t.issueId, t.version, LEVEL_WARNING));
+        }
+        if (t.level < LEVEL_OVERDUE) {
+            timers.add(new Timer(t.deadline, t.issueId, t.version, LEVEL_OVERDUE));
+        }
+    }
+
+    /**
+     * 重新生成快照（调用方持有锁）
+     */
+    private void publishSnapshots() {
+        List<Tracked> warning = new ArrayList<>();
+        List<Tracked> overdue = new ArrayList<>();
+        for (Tracked t : tracked.values()) {
+            if (t.level == LEVEL_OVERDUE) {
+                overdue.add(t);
+            } else if (t.level == LEVEL_WARNING) {
+                warning.add(t);
+            }
+        }
+        warningSnapshot = toView(warning);
+        overdueSnapshot = toView(overdue);
+    }
+
+    private static List<Map<String, Object>> toView(List<Tracked> items) {
+        items.sort(Comparator.comparingLong(t -> t.deadline));
+        List<Map<String, Object>> view = new ArrayList<>(items.size());
+        for (Tracked t : items) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("issueId", t.issueId);
+            item.put("issueTitle", t.issueTitle);
+            item.put("issueType", t.issueType);
+            item.put("urgencyLevel", t.urgencyLevel);
+            item.put("communityId", t.communityId);
+            item.put("departmentId", t.departmentId);
+            item.put("assignedStaffId", t.assignedStaffId);
+            item.put("deadline", toDateTime(t.deadline));
+            view.add(Collections.unmodifiableMap(item));
+        }
+        return Collections.unmodifiableList(view);
+    }
+
+    private Tracked toTracked(ResultSet rs) throws SQLException {
+        Tracked t = new Tracked();
+        t.issueId = rs.getLong("id");
+        t.issueTitle = rs.getString("issue_title");
+        t.issueType = rs.getString("issue_type");
+        t.urgencyLevel = rs.getString("urgency_level");
+        t.communityId = rs.getObject("community_id", Long.class);
+        t.assignedStaffId = rs.getObject("assigned_staff_id", Long.class);
+        t.departmentId = rs.getObject("department_id", Long.class);
+        t.level = rs.getInt("sla_level");
+        Timestamp expected = rs.getTimestamp("expected_resolve_time");
+        Timestamp reported = rs.getTimestamp("reported_time");
+        if (expected != null) {
+            t.deadline = expected.getTime();
+        } else {
+            Integer hours = t.urgencyLevel != null ? properties.getSlaHours().get(t.urgencyLevel) : null;
+            long base = reported != null ? reported.getTime() : System.currentTimeMillis();
+            t.deadline = base + (hours != null ? hours : properties.getDefaultSlaHours()) * 3_600_000L;
+        }
+        return t;
+    }
+
+    private static String format(long epochMs) {
+        return toDateTime(epochMs).format(DEADLINE_FORMAT);
+    }
+
+    private static LocalDateTime toDateTime(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+
+    private static final class Tracked {
+        long issueId;
+        String issueTitle;
+        String issueType;
+        String urgencyLevel;
+        Long communityId;
+        Long departmentId;
+        Long assignedStaffId;
+        long deadline;
+        int level;
+        long version;
+    }
+
+    private static final class Timer {
+        final long fireAt;
+        final long issueId;
+        final long version;
+        final int level;
+
+        Timer(long fireAt, long issueId, long version, int level) {
+            this.fireAt = fireAt;
+            this.issueId = issueId;
+            this.version = version;
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.community.property.service;
+
+import com.community.property.config.MeterAnomalyProperties;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 抄表异常检测
+ * 每个仪表在内存中保留用量的 EWMA 均值/方差和最近一次读数，每条读数 O(1) 判定：
+ * 用量突增（SPIKE）、读数倒退（NEGATIVE）、表盘翻转（ROLLOVER，按 meter_info.max_reading）、超过量程（OVER_MAX）
+ * 启动时在后台用最近的日用量汇总（meter_usage_rollup）预热，每个仪表的预热结果在锁内一次装入，已有实时读数的仪表不被覆盖；
+ * 样本数不足 minSamples 的仪表不判定突增。读数在写入提交后才计入统计；判定路径上不查库，新出现的仪表由后台补读量程
+ */
+@Slf4j
+@Service
+public class MeterAnomalyDetector {
+
+    public static final String SPIKE = "SPIKE";
+    public static final String NEGATIVE = "NEGATIVE";
+    public static final String ROLLOVER = "ROLLOVER";
+    public static final String OVER_MAX = "OVER_MAX";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterAnomalyProperties properties;
+
+    private final MeterStatsTable stats = new MeterStatsTable(1024);
+
+    /** 待补读量程的新仪表 */
+    private final Set<Long> pendingMeters = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "meter-anomaly-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 判定一条读数，不修改统计
+     *
+     * @param previous 上次读数，为空时使用内存中的最近读数
+     * @param usage    用量，为空时按 本次 - 上次 计算
+     * @return 异常，正常时为 null
+     */
+    public Anomaly check(Long meterId, BigDecimal previous, BigDecimal current, BigDecimal usage) {
+        if (!properties.isEnabled() || meterId == null || current == null) {
+            return null;
+        }
+        ensureKnown(meterId);
+        double cur = current.doubleValue();
+        double prev;
+        double mean;
+        double variance;
+        int samples;
+        double max;
+        synchronized (stats) {
+            int slot = slotFor(meterId);
+            prev = previous != null ? previous.doubleValue() : stats.last[slot];
+            mean = stats.mean[slot];
+            variance = stats.variance[slot];
+            samples = stats.samples[slot];
+            max = stats.max[slot];
+        }
+
+        if (max > 0 && cur > max) {
+            return new Anomaly(OVER_MAX, usage, null, null,
+                    "本次读数 " + current.toPlainString() + " 超过量程 " + decimal(max).toPlainString());
+        }
+        if (!Double.isNaN(prev) && cur < prev) {
+            double ratio = properties.getRolloverRatio();
+            if (max > 0 && prev >= max * ratio && cur <= max * (1 - ratio)) {
+                BigDecimal wrapped = decimal(max - prev + cur);
+                return new Anomaly(ROLLOVER, wrapped, samples > 0 ? decimal(mean) : null, null,
+                        "表盘翻转：上次读数 " + decimal(prev).toPlainString() + "，本次读数 " + current.toPlainString());
+            }
+            return new Anomaly(NEGATIVE, usage, null, null,
+                    "读数倒退：上次读数 " + decimal(prev).toPlainString() + "，本次读数 " + current.toPlainString());
+        }
+
+        double used = usage != null ? usage.doubleValue() : (Double.isNaN(prev) ? Double.NaN : cur - prev);
+        if (samples < properties.getMinSamples() || Double.isNaN(used)) {
+            return null;
+        }
+        // 用量长期稳定时方差趋近0，设置下限避免微小波动被判为突增
+        double std = Math.max(Math.sqrt(variance), Math.max(Math.abs(mean) * 0.1, 0.01));
+        double deviation = (used - mean) / std;
+        if (deviation > properties.getSpikeSigma()) {
+            return new Anomaly(SPIKE, decimal(used), decimal(mean), decimal(deviation),
+                    "用量突增：本次 " + decimal(used).toPlainString() + "，近期均值 " + decimal(mean).toPlainString());
+        }
+        return null;
+    }
+
+    /**
+     * 读数写入后更新统计；突增、倒退的用量不计入均值，避免拉偏基线
+     * 处于事务中时在提交后更新，回滚的读数不计入
+     */
+    public void record(Long meterId, BigDecimal current, BigDecimal usage, Anomaly anomaly) {
+        if (!properties.isEnabled() || meterId == null || current == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(meterId, current, usage, anomaly);
+                }
+            });
+        } else {
+            apply(meterId, current, usage, anomaly);
+        }
+    }
+
+    private void apply(Long meterId, BigDecimal current, BigDecimal usage, Anomaly anomaly) {
+        ensureKnown(meterId);
+        String type = anomaly != null ? anomaly.getType() : null;
+        BigDecimal sample = ROLLOVER.equals(type) ? anomaly.getUsage() : (type == null ? usage : null);
+        synchronized (stats) {
+            int slot = slotFor(meterId);
+            stats.last[slot] = current.doubleValue();
+            if (sample != null) {
+                stats.observe(slot, sample.doubleValue(), properties.getAlpha());
+            }
+        }
+    }
+
+    /**
+     * 首次出现的仪表（预热后新增）先登记空槽位，量程由后台补读
+     */
+    private void ensureKnown(long meterId) {
+        synchronized (stats) {
+            if (stats.find(meterId) >= 0) {
+                return;
+            }
+            stats.insert(meterId);
+        }
+        pendingMeters.add(meterId);
+    }
+
+    /**
+     * 补读新仪表的量程
+     */
+    @Scheduled(fixedDelayString = "${meter.anomaly.known-refresh-ms:10000}")
+    public void loadPendingMeters() {
+        if (pendingMeters.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(pendingMeters);
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(","));
+        try {
+            jdbcTemplate.query("SELECT id, max_reading FROM meter_info WHERE id IN (" + placeholders + ")", rs -> {
+                BigDecimal max = rs.getBigDecimal("max_reading");
+                synchronized (stats) {
+                    int slot = stats.find(rs.getLong("id"));
+                    if (slot >= 0) {
+                        stats.max[slot] = max != null ? max.doubleValue() : 0;
+                    }
+                }
+            }, ids.toArray());
+            pendingMeters.removeAll(ids);
+        } catch (Exception e) {
+            log.warn("读取新仪表量程失败: {} 个仪表", ids.size(), e);
+        }
+    }
+
+    /**
+     * 取仪表所在槽位（调用方持有 stats 锁，且已调用 ensureKnown）
+     */
+    private int slotFor(long meterId) {
+        int slot = stats.find(meterId);
+        return slot >= 0 ? slot : stats.insert(meterId);
+    }
+
+    /**
+     * 预热：量程、最近读数、最近 warmupDays 天的日用量
+     * 先在锁外为每个仪表算好统计，再逐个仪表在锁内一次装入：
+     * 预热期间已有实时读数的仪表保留实时的最近读数，已有用量样本的不再叠加历史样本
+     */
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+        try {
+            Map<Long, WarmStats> warm = new HashMap<>();
+            jdbcTemplate.query("SELECT id, max_reading FROM meter_info", rs -> {
+                BigDecimal max = rs.getBigDecimal("max_reading");
+                warm.put(rs.getLong("id"), new WarmStats(max != null ? max.doubleValue() : 0));
+            });
+            jdbcTemplate.query("SELECT r.meter_id, r.current_reading FROM meter_reading r " +
+                    "JOIN (SELECT meter_id, MAX(id) AS max_id FROM meter_reading GROUP BY meter_id) t ON r.id = t.max_id", rs -> {
+                BigDecimal current = rs.getBigDecimal("current_reading");
+                WarmStats w = warm.get(rs.getLong("meter_id"));
+                if (current != null && w != null) {
+                    w.last = current.doubleValue();
+                }
+            });
+            double alpha = properties.getAlpha();
+            jdbcTemplate.query("SELECT scope_id, usage_amount, reading_count FROM meter_usage_rollup " +
+                    "WHERE scope_type = 'meter' AND granularity = 'day' AND period_start >= ? " +
+                    "ORDER BY scope_id, period_start", rs -> {
+                int count = rs.getInt("reading_count");
+                WarmStats w = warm.get(rs.getLong("scope_id"));
+                if (count <= 0 || w == null) {
+                    return;
+                }
+                // 日汇总只有合计，按当天平均每次用量计入
+                w.observe(rs.getBigDecimal("usage_amount").doubleValue() / count, alpha);
+            }, Date.valueOf(LocalDate.now().minusDays(properties.getWarmupDays())));
+
+            for (Map.Entry<Long, WarmStats> entry : warm.entrySet()) {
+                WarmStats w = entry.getValue();
+                synchronized (stats) {
+                    int slot = stats.find(entry.getKey());
+                    if (slot < 0) {
+                        slot = stats.insert(entry.getKey());
+                    }
+                    stats.max[slot] = w.max;
+                    if (Double.isNaN(stats.last[slot])) {
+                        stats.last[slot] = w.last;
+                    }
+                    if (stats.samples[slot] == 0) {
+                        stats.mean[slot] = w.mean;
+                        stats.variance[slot] = w.variance;
+                        stats.samples[slot] = w.samples;
+                    }
+                }
+                pendingMeters.remove(entry.getKey());
+            }
+            log.info("抄表异常检测预热完成: {} 个仪表, {} ms", warm.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("抄表异常检测预热失败，仅按新写入的读数累积统计", e);
+        }
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 检测结果
+     */
+    @Getter
+    public static class Anomaly {
+        private final String type;
+        /** 用量（翻转时为按量程折算后的用量） */
+        private final BigDecimal usage;
+        private final BigDecimal expectedUsage;
+        private final BigDecimal deviation;
+        private final String message;
+
+        Anomaly(String type, BigDecimal usage, BigDecimal expectedUsage, BigDecimal deviation, String message) {
+            this.type = type;
+            this.usage = usage;
+            this.expectedUsage = expectedUsage;
+            this.deviation = deviation;
+            this.message = message;
+        }
+
+        /**
+         * 是否将读数标记为异常；表盘翻转属于正常计量，只登记待办供人工确认
+         */
+        public boolean isAbnormal() {
+            return !ROLLOVER.equals(type);
+        }
+    }
+
+    /**
+     * 预热中的单个仪表统计（只在预热线程内使用）
+     */
+    private static final class WarmStats {
+        final double max;
+        double last = Double.NaN;
+        double mean;
+        double variance;
+        int samples;
+
+        WarmStats(double max) {
+            this.max = max;
+        }
+
+        void observe(double x, double alpha) {
+            if (samples == 0) {
+                mean = x;
+                variance = 0;
+            } else {
+                double diff = x - mean;
+                double incr = alpha * diff;
+                mean += incr;
+                variance = (1 - alpha) * (variance + diff * incr);
+            }
+            samples++;
+        }
+    }
+
+    /**
+     * 以仪表ID为键的开放寻址表，统计量存放在并行的基本类型数组中，避免每个仪表一个对象和装箱
+     * 非线程安全，由外部加锁
+     */
+    private static final class MeterStatsTable {
+        private long[] keys;
+        private boolean[] used;
+        private double[] mean;
+        private double[] variance;
+        private double[] last;
+        private double[] max;
+        private int[] samples;
+        private int size;
+
+        MeterStatsTable(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            mean = new double[capacity];
+            variance = new double[capacity];
+            last = new double[capacity];
+            max = new double[capacity];
+            samples = new int[capacity];
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int insert(long key) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (used[i]) {
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            last[i] = Double.NaN;
+            size++;
+            return i;
+        }
+
+        /**
+         * EWMA 均值/方差增量更新
+         */
+        void observe(int slot, double x, double alpha) {
+            if (samples[slot] == 0) {
+                mean[slot] = x;
+                variance[slot] = 0;
+            } else {
+                double diff = x - mean[slot];
+                double incr = alpha * diff;
+                mean[slot] += incr;
+                variance[slot] = (1 - alpha) * (variance[slot] + diff * incr);
+            }
+            samples[slot]++;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            double[] oldMean = mean;
+            double[] oldVariance = variance;
+            double[] oldLast = last;
+            double[] oldMax = max;
+            int[] oldSamples = samples;
+            allocate(oldKeys.length * 2);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (!oldUsed[j]) {
+                    continue;
+                }
+                int i = hash(oldKeys[j]) & mask;
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                used[i] = true;
+                keys[i] = oldKeys[j];
+                mean[i] = oldMean[j];
+                variance[i] = oldVariance[j];
+                last[i] = oldLast[j];
+                max[i] = oldMax[j];
+                samples[i] = oldSamples[j];
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
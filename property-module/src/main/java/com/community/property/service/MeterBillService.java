@@ -0,0 +1,75 @@
+package com.community.property.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * 仪表账单台账服务
+ * 抄表记录写入时按仪表配置（meter_info.config_id）计算一次费用，写入 meter_bill，
+ * 业主端缴费卡片直接读取台账（见 sql/meter_bill.sql）
+ * 与抄表写入在同一事务中执行；reading_id 唯一，重复生成时忽略
+ */
+@Service
+public class MeterBillService {
+
+    /** meter_bill 写入列（月末账单任务批量写入时使用相同的列顺序） */
+    static final String BILL_COLUMNS =
+            "reading_id, meter_id, config_id, community_id, building_id, house_id, " +
+            "meter_name, meter_code, category_name, meter_type, unit, room_no, full_room_no, building_no, building_name, " +
+            "community_name, billing_period, reading_date, reading_time, reading_status, previous_reading, current_reading, " +
+            "usage_amount, unit_price, calculation_method, amount";
+
+    private static final String INSERT_BILL_SQL =
+            "INSERT IGNORE INTO meter_bill (" + BILL_COLUMNS + ") " +
+            "SELECT r.id, m.id, mc.id, m.community_id, h.building_id, m.house_id, " +
+            "m.meter_name, m.meter_code, m.category_name, m.meter_type, COALESCE(r.unit, mc.unit, m.unit), " +
+            "h.room_no, h.full_room_no, b.building_no, b.building_name, " +
+            "c.community_name, DATE_FORMAT(r.reading_date, '%Y-%m'), r.reading_date, r.reading_time, r.reading_status, " +
+            "r.previous_reading, r.current_reading, " +
+            "IFNULL(r.usage_amount, 0), IFNULL(mc.unit_price, 0), mc.calculation_method, " +
+            "ROUND(IFNULL(r.usage_amount, 0) * IFNULL(mc.unit_price, 0), 2) " +
+            "FROM meter_reading r " +
+            "INNER JOIN meter_info m ON m.id = r.meter_id " +
+            "INNER JOIN meter_config mc ON mc.id = m.config_id " +
+            "INNER JOIN house h ON h.id = m.house_id " +
+            "LEFT JOIN building b ON b.id = h.building_id " +
+            "LEFT JOIN community_info c ON c.id = h.community_id " +
+            "WHERE m.meter_status = '正常' AND mc.status = '启用' AND IFNULL(r.processed, 0) = 0 ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 为单条抄表记录生成账单
+     *
+     * @return 生成的账单数（仪表停用、配置未启用等情况下为0）
+     */
+    public int createForReading(Long readingId) {
+        if (readingId == null) {
+            return 0;
+        }
+        return jdbcTemplate.update(INSERT_BILL_SQL + "AND r.id = ?", readingId);
+    }
+
+    /**
+     * 为一批刚写入的抄表记录生成账单（批量导入后调用，一条语句完成）
+     */
+    public int createForReadings(Collection<Long> readingIds) {
+        if (readingIds == null || readingIds.isEmpty()) {
+            return 0;
+        }
+        String placeholders = readingIds.stream().map(id -> "?").collect(Collectors.joining(","));
+        return jdbcTemplate.update(INSERT_BILL_SQL + "AND r.id IN (" + placeholders + ")", readingIds.toArray());
+    }
+
+    /**
+     * 删除仪表时删除其未缴账单（已缴账单保留作缴费记录）
+     */
+    public int deleteUnpaidForMeter(Long meterId) {
+        return jdbcTemplate.update("DELETE FROM meter_bill WHERE meter_id = ? AND pay_status = '未缴'", meterId);
+    }
+}
@@ -0,0 +1,129 @@
+package com.community.property.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 抄表异常待办服务
+ * 异常检测（MeterAnomalyDetector）判定的读数写入 meter_reading_flag（见 sql/meter_reading_flag.sql），
+ * 物业人员按状态分页处理，查询走 (status, id) 索引
+ */
+@Service
+public class MeterReadingFlagService {
+
+    public static final String STATUS_PENDING = "待处理";
+    public static final String STATUS_HANDLED = "已处理";
+    public static final String STATUS_IGNORED = "已忽略";
+
+    private static final String INSERT_FLAG_SQL =
+            "INSERT IGNORE INTO meter_reading_flag (reading_id, meter_id, flag_type, usage_amount, expected_usage, deviation, message) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 登记单条读数的异常
+     */
+    public void enqueue(Long readingId, Long meterId, MeterAnomalyDetector.Anomaly anomaly) {
+        if (readingId == null || anomaly == null) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_FLAG_SQL, readingId, meterId, anomaly.getType(), anomaly.getUsage(),
+                anomaly.getExpectedUsage(), anomaly.getDeviation(), truncate(anomaly.getMessage()));
+    }
+
+    /**
+     * 批量登记导入读数的异常（读数ID取自批量写入回填的主键）
+     */
+    public void enqueueAll(List<FlaggedReading> readings) {
+        if (readings == null || readings.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_FLAG_SQL, readings, readings.size(), (ps, f) -> {
+            ps.setLong(1, f.readingId);
+            ps.setLong(2, f.meterId);
+            ps.setString(3, f.anomaly.getType());
+            ps.setBigDecimal(4, f.anomaly.getUsage());
+            ps.setBigDecimal(5, f.anomaly.getExpectedUsage());
+            ps.setBigDecimal(6, f.anomaly.getDeviation());
+            ps.setString(7, truncate(f.anomaly.getMessage()));
+        });
+    }
+
+    /**
+     * 删除仪表时删除其异常待办
+     */
+    public int deleteForMeter(Long meterId) {
+        return jdbcTemplate.update("DELETE FROM meter_reading_flag WHERE meter_id = ?", meterId);
+    }
+
+    /**
+     * 分页查询异常待办（按ID倒序）
+     *
+     * @param status 处理状态，为空时默认待处理
+     */
+    public Map<String, Object> listFlags(String status, String flagType, int page, int size) {
+        String effectiveStatus = status == null || status.trim().isEmpty() ? STATUS_PENDING : status.trim();
+        StringBuilder where = new StringBuilder("WHERE f.status = ? ");
+        List<Object> args = new ArrayList<>();
+        args.add(effectiveStatus);
+        if (flagType != null && !flagType.trim().isEmpty()) {
+            where.append("AND f.flag_type = ? ");
+            args.add(flagType.trim());
+        }
+
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM meter_reading_flag f " + where, Long.class, args.toArray());
+
+        List<Object> pageArgs = new ArrayList<>(args);
+        pageArgs.add(size);
+        pageArgs.add((page - 1) * size);
+        List<Map<String, Object>> records = jdbcTemplate.queryForList(
+                "SELECT f.id, f.reading_id, f.meter_id, f.flag_type, f.usage_amount, f.expected_usage, f.deviation, " +
+                "f.message, f.status, f.handler_id, f.handle_remark, f.handled_at, f.created_at, " +
+                "m.meter_name, m.meter_code, m.category_name, m.house_id, r.reading_date, r.previous_reading, r.current_reading " +
+                "FROM meter_reading_flag f " +
+                "LEFT JOIN meter_info m ON m.id = f.meter_id " +
+                "LEFT JOIN meter_reading r ON r.id = f.reading_id " +
+                where + "ORDER BY f.id DESC LIMIT ? OFFSET ?", pageArgs.toArray());
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("records", records);
+        data.put("total", total != null ? total : 0L);
+        data.put("page", page);
+        data.put("size", size);
+        return data;
+    }
+
+    /**
+     * 处理异常待办
+     *
+     * @return 是否更新成功（已处理过的待办不再更新）
+     */
+    public boolean handle(Long flagId, Long staffId, String status, String remark) {
+        return jdbcTemplate.update("UPDATE meter_reading_flag SET status = ?, handler_id = ?, handle_remark = ?, handled_at = NOW() " +
+                "WHERE id = ? AND status = ?", status, staffId, truncate(remark), flagId, STATUS_PENDING) > 0;
+    }
+
+    private static String truncate(String text) {
+        return text != null && text.length() > 255 ? text.substring(0, 255) : text;
+    }
+
+    /**
+     * 待登记的导入读数
+     */
+    public static class FlaggedReading {
+        final Long readingId;
+        final Long meterId;
+        final MeterAnomalyDetector.Anomaly anomaly;
+
+        public FlaggedReading(Long readingId, Long meterId, MeterAnomalyDetector.Anomaly anomaly) {
+            this.readingId = readingId;
+            this.meterId = meterId;
+            this.anomaly = anomaly;
+        }
+    }
+}
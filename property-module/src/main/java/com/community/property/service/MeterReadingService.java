@@ -9,4 +9,9 @@ public interface MeterReadingService {
      */
     Map<String, Object> addMeterReadingWithImage(Long meterId, Double currentReading, Double usageAmount,
         Long readerId, String readerName, String categoryName, MultipartFile readingImageFile) throws Exception;
+
+    /**
+     * 批量导入抄表记录（xlsx/csv，首行为表头），返回逐行错误报告
+     */
+    Map<String, Object> importMeterReadings(MultipartFile file, Long staffId, String charset) throws Exception;
 }
@@ -0,0 +1,260 @@
+package com.community.property.service;
+
+import com.community.property.config.MeterTelemetryProperties;
+import com.community.property.dto.MeterTelemetryReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 智能仪表数据上报服务
+ * 上报只写内存：每个仪表保留最近 N 个采样（基本类型环形缓冲），最新读数按仪表合并，
+ * 定时批量更新 meter_info.current_reading / last_comm_time，不按上报逐条写库；在线状态由 DeviceLivenessMonitor 维护
+ */
+@Slf4j
+@Service
+public class MeterTelemetryService {
+
+    private static final String UPDATE_METER_SQL =
+            "UPDATE meter_info SET current_reading = ?, last_comm_time = ?, " +
+            "power_status = COALESCE(?, power_status) WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterTelemetryProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DeviceLivenessMonitor deviceLivenessMonitor;
+
+    /** 仪表ID -> 最近采样 */
+    private final ConcurrentHashMap<Long, SampleRing> rings = new ConcurrentHashMap<>();
+
+    /** 通信地址 -> 仪表ID */
+    private final ConcurrentHashMap<String, Long> addressIndex = new ConcurrentHashMap<>();
+
+    /** 本轮写库前查无此表的仪表ID/通信地址，避免未知设备每次上报都查库 */
+    private final Set<Object> unknown = ConcurrentHashMap.newKeySet();
+
+    /** 待写库的最新读数（同一仪表只保留采集时间最新的一条） */
+    private final ConcurrentHashMap<Long, PendingUpdate> pending = new ConcurrentHashMap<>();
+
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() {
+        acceptedCounter = meterRegistry.counter("meter.telemetry.reports", "result", "accepted");
+        rejectedCounter = meterRegistry.counter("meter.telemetry.reports", "result", "rejected");
+        flushTimer = meterRegistry.timer("meter.telemetry.flush");
+        Gauge.builder("meter.telemetry.pending", pending, Map::size).register(meterRegistry);
+
+        jdbcTemplate.query("SELECT id, comm_address FROM meter_info", rs -> {
+            long id = rs.getLong("id");
+            rings.put(id, new SampleRing(properties.getRingSize()));
+            String address = rs.getString("comm_address");
+            if (address != null && !address.trim().isEmpty()) {
+                addressIndex.put(address.trim(), id);
+            }
+        });
+    }
+
+    /**
+     * 接收一批上报
+     *
+     * @return {accepted, rejected}
+     */
+    public Map<String, Object> ingest(List<MeterTelemetryReport> reports) {
+        long now = System.currentTimeMillis();
+        int accepted = 0;
+        int rejected = 0;
+        for (MeterTelemetryReport report : reports) {
+            Long meterId = report != null && report.getReading() != null ? resolve(report) : null;
+            if (meterId == null || report.getReading().isNaN() || report.getReading().isInfinite()) {
+                rejected++;
+                continue;
+            }
+            long time = report.getTimestamp() != null ? report.getTimestamp() : now;
+            double reading = report.getReading();
+
+            rings.get(meterId).add(time, reading);
+            PendingUpdate update = new PendingUpdate(reading, time, report.getPowerStatus());
+            pending.merge(meterId, update, (old, cur) -> cur.time >= old.time ? cur : old);
+            deviceLivenessMonitor.meterHeartbeat(meterId);
+            accepted++;
+        }
+        acceptedCounter.increment(accepted);
+        rejectedCounter.increment(rejected);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accepted", accepted);
+        result.put("rejected", rejected);
+        return result;
+    }
+
+    /**
+     * 查询仪表最近的上报采样（按时间倒序）
+     */
+    public List<Map<String, Object>> getRecentSamples(Long meterId, int limit) {
+        SampleRing ring = rings.get(meterId);
+        if (ring == null) {
+            return Collections.emptyList();
+        }
+        return ring.snapshot(limit);
+    }
+
+    /**
+     * 合并写库
+     */
+    @Scheduled(fixedDelayString = "${meter.telemetry.flush-interval-ms:5000}")
+    public void flush() {
+        unknown.clear();
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> {
+            // 写库成功后才移除，且只移除写入的那一条：写库期间到达的更新、写库失败的更新留到下一轮
+            List<Map.Entry<Long, PendingUpdate>> updates = new ArrayList<>(pending.size());
+            for (Map.Entry<Long, PendingUpdate> entry : pending.entrySet()) {
+                updates.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            }
+            int batchSize = Math.max(1, properties.getBatchSize());
+            for (int from = 0; from < updates.size(); from += batchSize) {
+                List<Map.Entry<Long, PendingUpdate>> batch = updates.subList(from, Math.min(updates.size(), from + batchSize));
+                List<Object[]> args = new ArrayList<>(batch.size());
+                for (Map.Entry<Long, PendingUpdate> entry : batch) {
+                    PendingUpdate update = entry.getValue();
+                    args.add(new Object[]{
+                            BigDecimal.valueOf(update.reading),
+                            Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(update.time), ZoneId.systemDefault())),
+                            update.powerStatus,
+                            entry.getKey()});
+                }
+                try {
+                    jdbcTemplate.batchUpdate(UPDATE_METER_SQL, args);
+                } catch (Exception e) {
+                    log.warn("仪表上报写库失败，下次重试: {} 个仪表", batch.size(), e);
+                    continue;
+                }
+                for (Map.Entry<Long, PendingUpdate> entry : batch) {
+                    pending.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 按仪表ID或通信地址找到仪表；首次出现的仪表查库一次
+     */
+    private Long resolve(MeterTelemetryReport report) {
+        if (report.getMeterId() != null) {
+            Long meterId = report.getMeterId();
+            if (rings.containsKey(meterId)) {
+                return meterId;
+            }
+            if (unknown.contains(meterId)) {
+                return null;
+            }
+            Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM meter_info WHERE id = ?", Integer.class, meterId);
+            if (count == null || count == 0) {
+                unknown.add(meterId);
+                return null;
+            }
+            rings.computeIfAbsent(meterId, id -> new SampleRing(properties.getRingSize()));
+            return meterId;
+        }
+
+        String address = report.getCommAddress() != null ? report.getCommAddress().trim() : "";
+        if (address.isEmpty()) {
+            return null;
+        }
+        Long meterId = addressIndex.get(address);
+        if (meterId != null || unknown.contains(address)) {
+            return meterId;
+        }
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM meter_info WHERE comm_address = ? LIMIT 1", Long.class, address);
+        if (ids.isEmpty()) {
+            unknown.add(address);
+            return null;
+        }
+        meterId = ids.get(0);
+        rings.computeIfAbsent(meterId, id -> new SampleRing(properties.getRingSize()));
+        addressIndex.put(address, meterId);
+        return meterId;
+    }
+
+    private static final class PendingUpdate {
+        final double reading;
+        final long time;
+        final Integer powerStatus;
+
+        PendingUpdate(double reading, long time, Integer powerStatus) {
+            this.reading = reading;
+            this.time = time;
+            this.powerStatus = powerStatus;
+        }
+    }
+
+    /**
+     * 定长环形缓冲，时间和读数分别存放在 long[] / double[] 中
+     */
+    private static final class SampleRing {
+        private final long[] times;
+        private final double[] values;
+        private int next;
+        private int count;
+
+        SampleRing(int capacity) {
+            times = new long[Math.max(1, capacity)];
+            values = new double[Math.max(1, capacity)];
+        }
+
+        synchronized void add(long time, double value) {
+            times[next] = time;
+            values[next] = value;
+            next = (next + 1) % times.length;
+            if (count < times.length) {
+                count++;
+            }
+        }
+
+        synchronized List<Map<String, Object>> snapshot(int limit) {
+            int n = Math.min(count, Math.max(0, limit));
+            List<Map<String, Object>> samples = new ArrayList<>(n);
+            for (int i = 1; i <= n; i++) {
+                int idx = (next - i + times.length) % times.length;
+                Map<String, Object> sample = new LinkedHashMap<>();
+                sample.put("timestamp", times[idx]);
+                sample.put("reading", values[idx]);
+                samples.add(sample);
+            }
+            return samples;
+        }
+    }
+}
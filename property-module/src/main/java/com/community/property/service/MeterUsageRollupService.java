@@ -0,0 +1,285 @@
+package com.community.property.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 仪表用量汇总服务
+ * 抄表记录写入时按 仪表/房屋/楼栋/社区 × 日/月/年 增量累加到 meter_usage_rollup（见 sql/meter_usage_rollup.sql），
+ * 趋势图按周期读取汇总行，不再扫描 meter_reading
+ */
+@Service
+public class MeterUsageRollupService {
+
+    public static final String SCOPE_METER = "meter";
+    public static final String SCOPE_HOUSE = "house";
+    public static final String SCOPE_BUILDING = "building";
+    public static final String SCOPE_COMMUNITY = "community";
+
+    public static final String GRANULARITY_DAY = "day";
+    public static final String GRANULARITY_MONTH = "month";
+    public static final String GRANULARITY_YEAR = "year";
+
+    private static final List<String> GRANULARITIES = List.of(GRANULARITY_DAY, GRANULARITY_MONTH, GRANULARITY_YEAR);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO meter_usage_rollup (scope_type, scope_id, category_name, granularity, period_start, usage_amount, reading_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE usage_amount = usage_amount + VALUES(usage_amount), " +
+            "reading_count = reading_count + VALUES(reading_count)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 累加单条抄表记录
+     */
+    public int applyReading(Long meterId, LocalDate readingDate, BigDecimal usageAmount) {
+        return applyReadings(Collections.singletonList(new ReadingUsage(meterId, readingDate, usageAmount)));
+    }
+
+    /**
+     * 累加一批抄表记录：先在内存中按汇总键合并，再一次批量 upsert
+     *
+     * @return 写入的汇总行数
+     */
+    public int applyReadings(List<ReadingUsage> readings) {
+        return apply(readings, 1);
+    }
+
+    /**
+     * 删除仪表前扣除其全部抄表记录在房屋/楼栋/社区汇总中的用量和次数，并删除仪表维度的汇总行
+     * （须在删除抄表记录之前、同一事务中调用）
+     */
+    public void removeMeter(Long meterId) {
+        List<ReadingUsage> readings = jdbcTemplate.query(
+                "SELECT reading_date, usage_amount FROM meter_reading WHERE meter_id = ? AND reading_date IS NOT NULL",
+                (rs, i) -> new ReadingUsage(meterId, rs.getDate("reading_date").toLocalDate(), rs.getBigDecimal("usage_amount")),
+                meterId);
+        apply(readings, -1);
+        jdbcTemplate.update("DELETE FROM meter_usage_rollup WHERE scope_type = ? AND scope_id = ?", SCOPE_METER, meterId);
+    }
+
+    /**
+     * @param sign 1 累加，-1 扣除
+     */
+    private int apply(List<ReadingUsage> readings, int sign) {
+        if (readings == null || readings.isEmpty()) {
+            return 0;
+        }
+        Map<Long, MeterScope> scopes = loadScopes(readings.stream()
+                .map(r -> r.meterId).filter(Objects::nonNull).collect(Collectors.toSet()));
+
+        Map<RollupKey, long[]> counts = new LinkedHashMap<>();
+        Map<RollupKey, BigDecimal> sums = new HashMap<>();
+        for (ReadingUsage r : readings) {
+            MeterScope scope = scopes.get(r.meterId);
+            if (scope == null || r.readingDate == null) {
+                continue;
+            }
+            BigDecimal usage = r.usageAmount != null ? r.usageAmount : BigDecimal.ZERO;
+            for (String granularity : GRANULARITIES) {
+                LocalDate periodStart = periodStart(granularity, r.readingDate);
+                addTo(counts, sums, new RollupKey(SCOPE_METER, r.meterId, scope.categoryName, granularity, periodStart), usage);
+                addTo(counts, sums, new RollupKey(SCOPE_HOUSE, scope.houseId, scope.categoryName, granularity, periodStart), usage);
+                addTo(counts, sums, new RollupKey(SCOPE_BUILDING, scope.buildingId, scope.categoryName, granularity, periodStart), usage);
+                addTo(counts, sums, new RollupKey(SCOPE_COMMUNITY, scope.communityId, scope.categoryName, granularity, periodStart), usage);
+            }
+        }
+        if (counts.isEmpty()) {
+            return 0;
+        }
+
+        List<RollupKey> keys = new ArrayList<>(counts.keySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, keys, keys.size(), (ps, k) -> {
+            ps.setString(1, k.scopeType);
+            ps.setLong(2, k.scopeId);
+            ps.setString(3, k.categoryName);
+            ps.setString(4, k.granularity);
+            ps.setDate(5, Date.valueOf(k.periodStart));
+            ps.setBigDecimal(6, sign < 0 ? sums.get(k).negate() : sums.get(k));
+            ps.setLong(7, sign * counts.get(k)[0]);
+        });
+        return keys.size();
+    }
+
+    /**
+     * 查询用量趋势：最近 periods 个周期（含当前周期），缺失的周期补0
+     *
+     * @param categoryName 仪表分类，为空时合计所有分类
+     * @return [{periodStart, period, usageAmount, readingCount}]，按时间升序
+     */
+    public List<Map<String, Object>> getTrend(String scopeType, Long scopeId, String categoryName,
+                                              String granularity, int periods) {
+        LocalDate end = periodStart(granularity, LocalDate.now());
+        LocalDate start = step(granularity, end, -(periods - 1));
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT period_start, SUM(usage_amount) AS usage_amount, SUM(reading_count) AS reading_count " +
+                "FROM meter_usage_rollup WHERE scope_type = ? AND scope_id = ? AND granularity = ? " +
+                "AND period_start BETWEEN ? AND ? ");
+        List<Object> args = new ArrayList<>(Arrays.asList(scopeType, scopeId, granularity, Date.valueOf(start), Date.valueOf(end)));
+        if (categoryName != null && !categoryName.trim().isEmpty()) {
+            sql.append("AND category_name = ? ");
+            args.add(categoryName.trim());
+        }
+        sql.append("GROUP BY period_start");
+
+        Map<LocalDate, Map<String, Object>> rows = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql.toString(), args.toArray())) {
+            rows.put(((Date) row.get("period_start")).toLocalDate(), row);
+        }
+
+        List<Map<String, Object>> trend = new ArrayList<>(periods);
+        for (LocalDate p = start; !p.isAfter(end); p = step(granularity, p, 1)) {
+            Map<String, Object> row = rows.get(p);
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("periodStart", p.toString());
+            point.put("period", label(granularity, p));
+            point.put("usageAmount", row != null ? row.get("usage_amount") : BigDecimal.ZERO);
+            point.put("readingCount", row != null ? ((Number) row.get("reading_count")).longValue() : 0L);
+            trend.add(point);
+        }
+        return trend;
+    }
+
+    public static boolean isValidScope(String scopeType) {
+        return SCOPE_METER.equals(scopeType) || SCOPE_HOUSE.equals(scopeType)
+                || SCOPE_BUILDING.equals(scopeType) || SCOPE_COMMUNITY.equals(scopeType);
+    }
+
+    public static boolean isValidGranularity(String granularity) {
+        return GRANULARITIES.contains(granularity);
+    }
+
+    /**
+     * 一次查询取出仪表所属房屋、楼栋、社区和分类
+     */
+    private Map<Long, MeterScope> loadScopes(Set<Long> meterIds) {
+        if (meterIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String placeholders = meterIds.stream().map(id -> "?").collect(Collectors.joining(","));
+        Map<Long, MeterScope> scopes = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT m.id, m.house_id, COALESCE(m.building_id, h.building_id) AS building_id, " +
+                "COALESCE(m.community_id, h.community_id) AS community_id, IFNULL(m.category_name, '') AS category_name " +
+                "FROM meter_info m LEFT JOIN house h ON h.id = m.house_id " +
+                "WHERE m.id IN (" + placeholders + ")",
+                rs -> {
+                    MeterScope s = new MeterScope();
+                    s.houseId = rs.getObject("house_id", Long.class);
+                    s.buildingId = rs.getObject("building_id", Long.class);
+                    s.communityId = rs.getObject("community_id", Long.class);
+                    s.categoryName = rs.getString("category_name");
+                    scopes.put(rs.getLong("id"), s);
+                },
+                meterIds.toArray());
+        return scopes;
+    }
+
+    private static void addTo(Map<RollupKey, long[]> counts, Map<RollupKey, BigDecimal> sums, RollupKey key, BigDecimal usage) {
+        if (key.scopeId == null) {
+            return;
+        }
+        counts.computeIfAbsent(key, k -> new long[1])[0]++;
+        sums.merge(key, usage, BigDecimal::add);
+    }
+
+    private static LocalDate periodStart(String granularity, LocalDate date) {
+        switch (granularity) {
+            case GRANULARITY_DAY:
+                return date;
+            case GRANULARITY_YEAR:
+                return date.withDayOfYear(1);
+            default:
+                return date.withDayOfMonth(1);
+        }
+    }
+
+    private static LocalDate step(String granularity, LocalDate date, int n) {
+        switch (granularity) {
+            case GRANULARITY_DAY:
+                return date.plusDays(n);
+            case GRANULARITY_YEAR:
+                return date.plusYears(n);
+            default:
+                return date.plusMonths(n);
+        }
+    }
+
+    private static String label(String granularity, LocalDate periodStart) {
+        switch (granularity) {
+            case GRANULARITY_DAY:
+                return periodStart.toString();
+            case GRANULARITY_YEAR:
+                return String.valueOf(periodStart.getYear());
+            default:
+                return periodStart.toString().substring(0, 7);
+        }
+    }
+
+    /**
+     * 待汇总的抄表记录
+     */
+    public static class ReadingUsage {
+        final Long meterId;
+        final LocalDate readingDate;
+        final BigDecimal usageAmount;
+
+        public ReadingUsage(Long meterId, LocalDate readingDate, BigDecimal usageAmount) {
+            this.meterId = meterId;
+            this.readingDate = readingDate;
+            this.usageAmount = usageAmount;
+        }
+    }
+
+    private static class MeterScope {
+        Long houseId;
+        Long buildingId;
+        Long communityId;
+        String categoryName;
+    }
+
+    private static final class RollupKey {
+        final String scopeType;
+        final Long scopeId;
+        final String categoryName;
+        final String granularity;
+        final LocalDate periodStart;
+
+        RollupKey(String scopeType, Long scopeId, String categoryName, String granularity, LocalDate periodStart) {
+            this.scopeType = scopeType;
+            this.scopeId = scopeId;
+            this.categoryName = categoryName;
+            this.granularity = granularity;
+            this.periodStart = periodStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RollupKey)) {
+                return false;
+            }
+            RollupKey k = (RollupKey) o;
+            return scopeType.equals(k.scopeType) && Objects.equals(scopeId, k.scopeId)
+                    && categoryName.equals(k.categoryName) && granularity.equals(k.granularity)
+                    && periodStart.equals(k.periodStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scopeType, scopeId, categoryName, granularity, periodStart);
+        }
+    }
+}
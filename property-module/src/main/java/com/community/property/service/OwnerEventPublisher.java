@@ -0,0 +1,114 @@
+package com.community.property.service;
+
+import com.community.property.config.OwnerEventProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业主端事件发布
+ * 工单状态变化、新公告、申请审核结果发布到 Redis 频道，业主端订阅后通过 SSE 推送给在线业主，小程序不必轮询列表接口。
+ * 在事务内调用时提交后才发布；由单个后台线程发送，Redis 慢或不可用时不阻塞业务请求
+ */
+@Slf4j
+@Service
+public class OwnerEventPublisher {
+
+    public static final String TYPE_ISSUE = "issue";
+    public static final String TYPE_NOTICE = "notice";
+    public static final String TYPE_APPLICATION = "application";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OwnerEventProperties properties;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), r -> {
+                    Thread thread = new Thread(r, "owner-event-publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (r, pool) -> log.warn("业主端事件队列已满，丢弃事件"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 发给指定业主
+     */
+    public void publishToOwner(Long ownerId, String type, Map<String, Object> data) {
+        if (ownerId != null) {
+            publish(ownerId, null, type, data);
+        }
+    }
+
+    /**
+     * 发给社区内的全部业主
+     */
+    public void publishToCommunity(Long communityId, String type, Map<String, Object> data) {
+        if (communityId != null) {
+            publish(null, communityId, type, data);
+        }
+    }
+
+    private void publish(Long ownerId, Long communityId, String type, Map<String, Object> data) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("ownerId", ownerId);
+        event.put("communityId", communityId);
+        event.put("type", type);
+        event.put("data", data);
+        event.put("ts", System.currentTimeMillis());
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(event);
+        } catch (Exception e) {
+            log.warn("业主端事件序列化失败: {}", type, e);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(message);
+                }
+            });
+        } else {
+            send(message);
+        }
+    }
+
+    private void send(String message) {
+        executor.execute(() -> {
+            try {
+                stringRedisTemplate.convertAndSend(properties.getChannel(), message);
+            } catch (Exception e) {
+                log.warn("业主端事件发布失败: {}", e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,282 @@
+package com.community.property.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 车位状态索引
+ * 按停车场、按车位状态各维护一个以车位ID为下标的位图，车位数、空闲车位列表直接由位图计算，不再 COUNT + LIMIT/OFFSET 查表。
+ * 启动时全量加载；本进程的新增/分配/释放车位在事务提交后更新，其他进程（业主端）的修改按 updated_at 增量同步。
+ * updated_at 取语句执行时间，提交较晚的事务可能写入比已同步水位更早的时间，因此每次同步向前重叠 sync-overlap-ms
+ * 业主端 owner-module 有一份相同位图结构的只读副本（两个应用各自打包、没有公共模块），修改位图逻辑时两份需同步修改
+ */
+@Slf4j
+@Service
+public class ParkingAvailabilityIndex {
+
+    public static final String STATUS_FREE = "空闲";
+
+    private static final String SELECT_SPACES_SQL = "SELECT id, parking_lot_id, space_status, updated_at FROM parking_space";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** 增量同步向前重叠的时长（毫秒），需大于写事务从执行 UPDATE 到提交的最长时间 */
+    @Value("${parking.index.sync-overlap-ms:60000}")
+    private long syncOverlapMs;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 停车场ID -> 该停车场的位图 */
+    private final Map<Long, StatusBits> lots = new HashMap<>();
+
+    /** 所有停车场合计 */
+    private final StatusBits global = new StatusBits();
+
+    /** 车位ID -> 当前所在停车场和状态 */
+    private final Map<Integer, SpaceRef> spaces = new HashMap<>();
+
+    /** 已同步到的最大 updated_at */
+    private volatile Timestamp watermark;
+
+    @PostConstruct
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            lots.clear();
+            spaces.clear();
+            global.clear();
+            watermark = null;
+            jdbcTemplate.query(SELECT_SPACES_SQL, rs -> {
+                apply(rs.getLong("id"), rs.getObject("parking_lot_id", Long.class),
+                        rs.getString("space_status"), rs.getTimestamp("updated_at"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("车位状态索引已加载: {} 个车位, {} 个停车场, {} ms", spaces.size(), lots.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 增量同步其他进程的修改（按 updated_at，从水位向前重叠一段时间，重复应用无副作用）
+     */
+    @Scheduled(fixedDelayString = "${parking.index.refresh-interval-ms:5000}", initialDelayString = "${parking.index.refresh-interval-ms:5000}")
+    public void refresh() {
+        Timestamp since = watermark;
+        if (since == null) {
+            rebuild();
+            return;
+        }
+        List<Object[]> changed = new ArrayList<>();
+        jdbcTemplate.query(SELECT_SPACES_SQL + " WHERE updated_at >= ?", rs -> {
+            changed.add(new Object[]{rs.getLong("id"), rs.getObject("parking_lot_id", Long.class),
+                    rs.getString("space_status"), rs.getTimestamp("updated_at")});
+        }, new Timestamp(since.getTime() - syncOverlapMs));
+        if (changed.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : changed) {
+                apply((Long) row[0], (Long) row[1], (String) row[2], (Timestamp) row[3]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 本进程修改车位后更新，处于事务中时在提交后更新（回滚则不更新）
+     */
+    public void update(Long spaceId, Long parkingLotId, String spaceStatus) {
+        if (spaceId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyLocal(spaceId, parkingLotId, spaceStatus);
+                }
+            });
+        } else {
+            applyLocal(spaceId, parkingLotId, spaceStatus);
+        }
+    }
+
+    private void applyLocal(Long spaceId, Long parkingLotId, String spaceStatus) {
+        lock.writeLock().lock();
+        try {
+            apply(spaceId, parkingLotId, spaceStatus, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 车位数
+     *
+     * @param parkingLotId 为空时统计所有停车场
+     * @param spaceStatus  为空时统计所有状态
+     */
+    public long count(Long parkingLotId, String spaceStatus) {
+        lock.readLock().lock();
+        try {
+            StatusBits bits = parkingLotId == null ? global : lots.get(parkingLotId);
+            return bits == null ? 0 : bits.get(spaceStatus).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 停车场各状态车位数
+     */
+    public Map<String, Long> countByStatus(Long parkingLotId) {
+        lock.readLock().lock();
+        try {
+            StatusBits bits = parkingLotId == null ? global : lots.get(parkingLotId);
+            Map<String, Long> counts = new LinkedHashMap<>();
+            if (bits != null) {
+                counts.put("total", (long) bits.all.cardinality());
+                bits.byStatus.forEach((status, set) -> counts.put(status, (long) set.cardinality()));
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所有停车场的空闲车位数
+     *
+     * @return 停车场ID -> 空闲数
+     */
+    public Map<Long, Long> freeCountByLot() {
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> counts = new LinkedHashMap<>();
+            lots.forEach((lotId, bits) -> counts.put(lotId, (long) bits.get(STATUS_FREE).cardinality()));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按车位ID顺序取一页车位ID
+     *
+     * @param descending 是否按ID倒序
+     */
+    public List<Long> page(Long parkingLotId, String spaceStatus, int offset, int limit, boolean descending) {
+        lock.readLock().lock();
+        try {
+            StatusBits bits = parkingLotId == null ? global : lots.get(parkingLotId);
+            if (bits == null || limit <= 0) {
+                return Collections.emptyList();
+            }
+            BitSet set = bits.get(spaceStatus);
+            List<Long> ids = new ArrayList<>(limit);
+            int skipped = 0;
+            int i = descending ? set.previousSetBit(set.length() - 1) : set.nextSetBit(0);
+            while (i >= 0 && ids.size() < limit) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    ids.add((long) i);
+                }
+                i = descending ? set.previousSetBit(i - 1) : set.nextSetBit(i + 1);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 更新一个车位（调用方持有写锁）
+     */
+    private void apply(long id, Long parkingLotId, String spaceStatus, Timestamp updatedAt) {
+        if (updatedAt != null && (watermark == null || updatedAt.after(watermark))) {
+            watermark = updatedAt;
+        }
+        if (id > Integer.MAX_VALUE) {
+            return;
+        }
+        int bit = (int) id;
+        SpaceRef old = spaces.get(bit);
+        if (old != null) {
+            global.remove(bit, old.status);
+            StatusBits oldLot = lots.get(old.parkingLotId);
+            if (oldLot != null) {
+                oldLot.remove(bit, old.status);
+            }
+        }
+        SpaceRef ref = new SpaceRef(parkingLotId, spaceStatus);
+        spaces.put(bit, ref);
+        global.add(bit, spaceStatus);
+        if (parkingLotId != null) {
+            lots.computeIfAbsent(parkingLotId, key -> new StatusBits()).add(bit, spaceStatus);
+        }
+    }
+
+    private static final class SpaceRef {
+        final Long parkingLotId;
+        final String status;
+
+        SpaceRef(Long parkingLotId, String status) {
+            this.parkingLotId = parkingLotId;
+            this.status = status;
+        }
+    }
+
+    /**
+     * 一组车位的位图：全部 + 每个状态一个
+     */
+    private static final class StatusBits {
+        final BitSet all = new BitSet();
+        final Map<String, BitSet> byStatus = new LinkedHashMap<>();
+
+        BitSet get(String status) {
+            if (status == null || status.isEmpty()) {
+                return all;
+            }
+            BitSet set = byStatus.get(status);
+            return set != null ? set : new BitSet(0);
+        }
+
+        void add(int bit, String status) {
+            all.set(bit);
+            if (status != null) {
+                byStatus.computeIfAbsent(status, key -> new BitSet()).set(bit);
+            }
+        }
+
+        void remove(int bit, String status) {
+            all.clear(bit);
+            if (status != null) {
+                BitSet set = byStatus.get(status);
+                if (set != null) {
+                    set.clear(bit);
+                }
+            }
+        }
+
+        void clear() {
+            all.clear();
+            byStatus.clear();
+        }
+    }
+}
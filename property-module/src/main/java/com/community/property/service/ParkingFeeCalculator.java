@@ -0,0 +1,141 @@
+package com.community.property.service;
+
+import com.community.property.entity.ParkingLot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * 停车场计费规则
+ * 由 ParkingLot 的计费字段编译而成，不可变；金额统一换算成分（long）计算，计费过程不创建对象，可被多线程共享。
+ * <p>
+ * 规则：
+ * <ul>
+ *     <li>停车时长不超过免费时长时不收费，超出后从入场开始计费</li>
+ *     <li>按时计费：首段时长内收首段费用，之后每个单位时长（不足按一个计）收单位费用</li>
+ *     <li>按次计费：每个计费周期收一次首段费用</li>
+ *     <li>以24小时为一个计费周期，每个周期单独计费、单独按每日封顶费用封顶</li>
+ * </ul>
+ */
+public final class ParkingFeeCalculator {
+
+    public static final String METHOD_FREE = "免费";
+    public static final String METHOD_PER_ENTRY = "按次";
+
+    /** 计费周期（分钟） */
+    static final int CYCLE_MINUTES = 24 * 60;
+
+    private static final int MODE_FREE = 0;
+    private static final int MODE_PER_ENTRY = 1;
+    private static final int MODE_TIMED = 2;
+
+    private final Long parkingLotId;
+    private final LocalDateTime version;
+    private final int mode;
+    private final int freeMinutes;
+    private final int firstMinutes;
+    private final long firstFeeCents;
+    private final int unitMinutes;
+    private final long unitFeeCents;
+    /** 每个周期的封顶金额，没有封顶时为 Long.MAX_VALUE */
+    private final long cycleCapCents;
+    /** 完整一个周期的费用（已封顶） */
+    private final long fullCycleCents;
+
+    private ParkingFeeCalculator(ParkingLot lot) {
+        this.parkingLotId = lot.getId();
+        this.version = lot.getUpdatedAt();
+        this.freeMinutes = nonNegative(lot.getFreeDuration());
+        this.firstMinutes = nonNegative(lot.getFirstDuration());
+        this.firstFeeCents = toCents(lot.getFirstFee());
+        this.unitMinutes = nonNegative(lot.getUnitDuration());
+        this.unitFeeCents = toCents(lot.getUnitFee());
+        long cap = toCents(lot.getDailyMaxFee());
+        this.cycleCapCents = cap > 0 ? cap : Long.MAX_VALUE;
+
+        String method = lot.getChargeMethod() != null ? lot.getChargeMethod().trim() : "";
+        if (METHOD_FREE.equals(method) || (firstFeeCents == 0 && unitFeeCents == 0)) {
+            this.mode = MODE_FREE;
+        } else if (METHOD_PER_ENTRY.equals(method)) {
+            this.mode = MODE_PER_ENTRY;
+        } else {
+            this.mode = MODE_TIMED;
+        }
+        this.fullCycleCents = cycleFee(CYCLE_MINUTES);
+    }
+
+    /**
+     * 编译停车场计费规则
+     */
+    public static ParkingFeeCalculator compile(ParkingLot lot) {
+        return new ParkingFeeCalculator(lot);
+    }
+
+    public Long getParkingLotId() {
+        return parkingLotId;
+    }
+
+    /**
+     * 编译时停车场的更新时间，用于判断规则是否已变更
+     */
+    public LocalDateTime getVersion() {
+        return version;
+    }
+
+    /**
+     * 计算停车费用
+     *
+     * @param minutes 停车时长（分钟）
+     * @return 费用（分）
+     */
+    public long feeCents(long minutes) {
+        if (minutes <= freeMinutes || mode == MODE_FREE) {
+            return 0;
+        }
+        long fullCycles = minutes / CYCLE_MINUTES;
+        int remainder = (int) (minutes % CYCLE_MINUTES);
+        return fullCycles * fullCycleCents + cycleFee(remainder);
+    }
+
+    /**
+     * 计算停车费用
+     *
+     * @param minutes 停车时长（分钟）
+     * @return 费用（元，两位小数）
+     */
+    public BigDecimal fee(long minutes) {
+        return BigDecimal.valueOf(feeCents(minutes), 2);
+    }
+
+    /**
+     * 一个计费周期内停车 minutes 分钟的费用（已封顶）
+     */
+    private long cycleFee(int minutes) {
+        if (minutes <= 0) {
+            return 0;
+        }
+        long fee;
+        if (mode == MODE_PER_ENTRY) {
+            fee = firstFeeCents;
+        } else {
+            fee = firstFeeCents;
+            if (minutes > firstMinutes && unitMinutes > 0) {
+                long units = (minutes - firstMinutes + unitMinutes - 1) / unitMinutes;
+                fee += units * unitFeeCents;
+            }
+        }
+        return Math.min(fee, cycleCapCents);
+    }
+
+    private static int nonNegative(Integer value) {
+        return value != null && value > 0 ? value : 0;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            return 0;
+        }
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
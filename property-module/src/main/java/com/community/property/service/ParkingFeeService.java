@@ -0,0 +1,243 @@
+package com.community.property.service;
+
+import com.community.property.dto.ParkingSettlementRequest;
+import com.community.property.entity.ParkingLot;
+import com.community.property.mapper.ParkingLotMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 停车计费服务
+ * 每个停车场的计费规则编译成 ParkingFeeCalculator 后缓存，停车场 updated_at 变化时重新编译；
+ * 批量结算一次查出整批停车记录，在内存中计费后批量回写 parking_record
+ */
+@Slf4j
+@Service
+public class ParkingFeeService {
+
+    /** 单条 SQL 的 IN 参数个数上限 */
+    private static final int QUERY_CHUNK = 1000;
+
+    private static final String UPDATE_RECORD_SQL =
+            "UPDATE parking_record SET exit_time = ?, duration_minutes = ?, parking_fee = ? " +
+            "WHERE id = ? AND parking_fee IS NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ParkingLotMapper parkingLotMapper;
+
+    /** 停车场ID -> 编译后的计费规则 */
+    private final ConcurrentHashMap<Long, ParkingFeeCalculator> calculators = new ConcurrentHashMap<>();
+
+    /**
+     * 获取停车场的计费规则（缓存中没有或停车场已更新时重新编译）
+     *
+     * @return 停车场不存在时返回 null
+     */
+    public ParkingFeeCalculator getCalculator(Long parkingLotId) {
+        List<Timestamp> versions = jdbcTemplate.queryForList(
+                "SELECT updated_at FROM parking_lot WHERE id = ?", Timestamp.class, parkingLotId);
+        if (versions.isEmpty()) {
+            calculators.remove(parkingLotId);
+            return null;
+        }
+        ParkingFeeCalculator calculator = calculators.get(parkingLotId);
+        if (calculator != null && Objects.equals(calculator.getVersion(), toLocalDateTime(versions.get(0)))) {
+            return calculator;
+        }
+        ParkingLot lot = parkingLotMapper.selectById(parkingLotId);
+        if (lot == null) {
+            return null;
+        }
+        calculator = ParkingFeeCalculator.compile(lot);
+        calculators.put(parkingLotId, calculator);
+        return calculator;
+    }
+
+    /**
+     * 试算停车费用
+     *
+     * @return 停车场不存在时返回 null
+     */
+    public BigDecimal quote(Long parkingLotId, long minutes) {
+        ParkingFeeCalculator calculator = getCalculator(parkingLotId);
+        return calculator != null ? calculator.fee(minutes) : null;
+    }
+
+    /**
+     * 批量结算出场记录：计算停车时长和停车费用并回写
+     * 已有停车费用的记录视为已结算，不重复计费；请求和记录都没有出场时间的车辆仍在场内，不结算。
+     * 回写带 parking_fee IS NULL 条件，并发结算时只有更新成功的记录计入结果
+     *
+     * @return {settled, skipped, totalFee, records, skippedRecords}
+     */
+    @Transactional
+    public Map<String, Object> settle(List<ParkingSettlementRequest.Item> items) {
+        Map<Long, LocalDateTime> requestedExit = new LinkedHashMap<>();
+        for (ParkingSettlementRequest.Item item : items) {
+            if (item != null && item.getRecordId() != null) {
+                requestedExit.put(item.getRecordId(), item.getExitTime());
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(requestedExit.keySet());
+        Map<Long, RecordRow> rows = loadRecords(ids);
+        refreshCalculators(rows.values());
+
+        List<Map<String, Object>> settled = new ArrayList<>();
+        List<Map<String, Object>> skipped = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Long> updateCents = new ArrayList<>();
+        for (Long id : ids) {
+            RecordRow row = rows.get(id);
+            String reason = null;
+            LocalDateTime exitTime = null;
+            ParkingFeeCalculator calculator = null;
+            if (row == null) {
+                reason = "记录不存在";
+            } else if (row.settled) {
+                reason = "已结算";
+            } else if (row.entryTime == null) {
+                reason = "缺少入场时间";
+            } else if ((calculator = calculators.get(row.parkingLotId)) == null) {
+                reason = "停车场不存在";
+            } else {
+                exitTime = requestedExit.get(id) != null ? requestedExit.get(id) : row.exitTime;
+                if (exitTime == null) {
+                    reason = "车辆未出场";
+                } else if (exitTime.isBefore(row.entryTime)) {
+                    reason = "出场时间早于入场时间";
+                }
+            }
+            if (reason != null) {
+                skipped.add(skippedItem(id, reason));
+                continue;
+            }
+
+            long minutes = Duration.between(row.entryTime, exitTime).toMinutes();
+            long cents = calculator.feeCents(minutes);
+            BigDecimal fee = BigDecimal.valueOf(cents, 2);
+            updates.add(new Object[]{Timestamp.valueOf(exitTime), (int) Math.min(minutes, Integer.MAX_VALUE), fee, id});
+            updateCents.add(cents);
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("recordId", id);
+            item.put("exitTime", exitTime);
+            item.put("durationMinutes", minutes);
+            item.put("parkingFee", fee);
+            settled.add(item);
+        }
+
+        // 只有回写成功（影响 1 行）的记录才算结算成功，其余已被并发结算
+        List<Map<String, Object>> applied = new ArrayList<>(settled.size());
+        long totalCents = 0;
+        for (int from = 0; from < updates.size(); from += QUERY_CHUNK) {
+            int to = Math.min(updates.size(), from + QUERY_CHUNK);
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_RECORD_SQL, updates.subList(from, to));
+            for (int i = from; i < to; i++) {
+                if (counts[i - from] == 1) {
+                    applied.add(settled.get(i));
+                    totalCents += updateCents.get(i);
+                } else {
+                    skipped.add(skippedItem((Long) updates.get(i)[3], "已结算"));
+                }
+            }
+        }
+        settled = applied;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settled", settled.size());
+        result.put("skipped", skipped.size());
+        result.put("totalFee", BigDecimal.valueOf(totalCents, 2));
+        result.put("records", settled);
+        result.put("skippedRecords", skipped);
+        return result;
+    }
+
+    private static Map<String, Object> skippedItem(Long recordId, String reason) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("recordId", recordId);
+        item.put("reason", reason);
+        return item;
+    }
+
+    /**
+     * 分批查询停车记录，同时带出停车场的更新时间
+     */
+    private Map<Long, RecordRow> loadRecords(List<Long> ids) {
+        Map<Long, RecordRow> rows = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += QUERY_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + QUERY_CHUNK));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query(
+                    "SELECT r.id, r.parking_lot_id, r.entry_time, r.exit_time, r.parking_fee, pl.updated_at AS lot_updated_at " +
+                    "FROM parking_record r LEFT JOIN parking_lot pl ON pl.id = r.parking_lot_id " +
+                    "WHERE r.id IN (" + placeholders + ")",
+                    rs -> {
+                        RecordRow row = new RecordRow();
+                        row.parkingLotId = rs.getObject("parking_lot_id", Long.class);
+                        row.entryTime = toLocalDateTime(rs.getTimestamp("entry_time"));
+                        row.exitTime = toLocalDateTime(rs.getTimestamp("exit_time"));
+                        row.settled = rs.getBigDecimal("parking_fee") != null;
+                        row.lotUpdatedAt = toLocalDateTime(rs.getTimestamp("lot_updated_at"));
+                        rows.put(rs.getLong("id"), row);
+                    },
+                    chunk.toArray());
+        }
+        return rows;
+    }
+
+    /**
+     * 编译缓存中没有或已过期（停车场 updated_at 变化）的计费规则，一次查出所需的停车场
+     */
+    private void refreshCalculators(Collection<RecordRow> rows) {
+        Set<Long> stale = new HashSet<>();
+        for (RecordRow row : rows) {
+            if (row.parkingLotId == null) {
+                continue;
+            }
+            ParkingFeeCalculator calculator = calculators.get(row.parkingLotId);
+            if (calculator == null || !Objects.equals(calculator.getVersion(), row.lotUpdatedAt)) {
+                stale.add(row.parkingLotId);
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        Set<Long> found = new HashSet<>();
+        for (ParkingLot lot : parkingLotMapper.selectBatchIds(stale)) {
+            calculators.put(lot.getId(), ParkingFeeCalculator.compile(lot));
+            found.add(lot.getId());
+        }
+        for (Long lotId : stale) {
+            if (!found.contains(lotId)) {
+                calculators.remove(lotId);
+            }
+        }
+        log.info("停车场计费规则已编译: {}", found);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static final class RecordRow {
+        Long parkingLotId;
+        LocalDateTime entryTime;
+        LocalDateTime exitTime;
+        LocalDateTime lotUpdatedAt;
+        boolean settled;
+    }
+}
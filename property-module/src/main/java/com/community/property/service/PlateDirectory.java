@@ -0,0 +1,181 @@
+package com.community.property.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 车牌表
+ * 车牌 -> 车辆/业主/固定车位 的内存映射，道闸事件按车牌识别车辆时不查库。
+ * 本进程的车辆增删改（VehicleServiceImpl）在事务提交后刷新对应车辆，业主端的修改由定时全量重新加载同步
+ */
+@Slf4j
+@Service
+public class PlateDirectory {
+
+    private static final String SELECT_VEHICLES_SQL =
+            "SELECT v.id, v.plate_number, v.vehicle_type, v.owner_id, v.fixed_space_id, ps.parking_lot_id AS fixed_lot_id, " +
+            "o.name AS owner_name, o.phone AS owner_phone " +
+            "FROM vehicle v LEFT JOIN owner o ON o.id = v.owner_id LEFT JOIN parking_space ps ON ps.id = v.fixed_space_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** 规范化车牌 -> 车辆 */
+    private volatile Map<String, PlateInfo> plates = new ConcurrentHashMap<>();
+
+    /** 车辆ID -> 规范化车牌，车牌修改或车辆删除时找到旧车牌 */
+    private volatile Map<Long, String> platesByVehicle = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 全量重新加载（构建新表后整体替换，加载期间查询不受影响；与单车刷新互斥，避免刷新结果被旧快照覆盖）
+     */
+    @Scheduled(fixedDelayString = "${parking.gate.plate-reload-interval-ms:600000}",
+            initialDelayString = "${parking.gate.plate-reload-interval-ms:600000}")
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        Map<String, PlateInfo> nextPlates = new ConcurrentHashMap<>();
+        Map<Long, String> nextByVehicle = new ConcurrentHashMap<>();
+        jdbcTemplate.query(SELECT_VEHICLES_SQL, rs -> {
+            PlateInfo info = toPlateInfo(rs.getLong("id"), rs.getString("plate_number"), rs.getString("vehicle_type"),
+                    rs.getObject("owner_id", Long.class), rs.getObject("fixed_space_id", Long.class),
+                    rs.getObject("fixed_lot_id", Long.class), rs.getString("owner_name"), rs.getString("owner_phone"));
+            if (info != null) {
+                nextPlates.put(info.plateKey, info);
+                nextByVehicle.put(info.vehicleId, info.plateKey);
+            }
+        });
+        plates = nextPlates;
+        platesByVehicle = nextByVehicle;
+        log.info("车牌表已加载: {} 辆车, {} ms", nextPlates.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 按车牌查找登记车辆
+     *
+     * @return 非登记车辆返回 null
+     */
+    public PlateInfo lookup(String plateNumber) {
+        String key = normalize(plateNumber);
+        return key != null ? plates.get(key) : null;
+    }
+
+    /**
+     * 车辆新增、修改或删除后刷新该车辆，处于事务中时在提交后刷新（回滚则不刷新）
+     */
+    public void refreshVehicle(Long vehicleId) {
+        if (vehicleId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadVehicle(vehicleId);
+                }
+            });
+        } else {
+            reloadVehicle(vehicleId);
+        }
+    }
+
+    private synchronized void reloadVehicle(Long vehicleId) {
+        String oldKey = platesByVehicle.remove(vehicleId);
+        if (oldKey != null) {
+            plates.remove(oldKey);
+        }
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(SELECT_VEHICLES_SQL + " WHERE v.id = ?", vehicleId);
+        if (rows.isEmpty()) {
+            return;
+        }
+        Map<String, Object> row = rows.get(0);
+        PlateInfo info = toPlateInfo(vehicleId, (String) row.get("plate_number"), (String) row.get("vehicle_type"),
+                toLong(row.get("owner_id")), toLong(row.get("fixed_space_id")), toLong(row.get("fixed_lot_id")),
+                (String) row.get("owner_name"), (String) row.get("owner_phone"));
+        if (info != null) {
+            plates.put(info.plateKey, info);
+            platesByVehicle.put(vehicleId, info.plateKey);
+        }
+    }
+
+    /**
+     * 车牌规范化：去空白、中间的点和横线，字母转大写
+     */
+    public static String normalize(String plateNumber) {
+        if (plateNumber == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(plateNumber.length());
+        for (int i = 0; i < plateNumber.length(); i++) {
+            char c = plateNumber.charAt(i);
+            if (!Character.isWhitespace(c) && c != '·' && c != '-' && c != '.') {
+                sb.append(c);
+            }
+        }
+        return sb.length() > 0 ? sb.toString().toUpperCase(Locale.ROOT) : null;
+    }
+
+    private static PlateInfo toPlateInfo(Long vehicleId, String plateNumber, String vehicleType, Long ownerId,
+                                         Long fixedSpaceId, Long fixedLotId, String ownerName, String ownerPhone) {
+        String key = normalize(plateNumber);
+        if (key == null) {
+            return null;
+        }
+        return new PlateInfo(key, vehicleId, plateNumber, vehicleType, ownerId, ownerName, ownerPhone, fixedSpaceId, fixedLotId);
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    /**
+     * 登记车辆数
+     */
+    public int size() {
+        return plates.size();
+    }
+
+    /**
+     * 登记车辆信息（不可变）
+     */
+    public static final class PlateInfo {
+        final String plateKey;
+        public final Long vehicleId;
+        public final String plateNumber;
+        public final String vehicleType;
+        public final Long ownerId;
+        public final String ownerName;
+        public final String ownerPhone;
+        public final Long fixedSpaceId;
+        /** 固定车位所在停车场 */
+        public final Long fixedLotId;
+
+        PlateInfo(String plateKey, Long vehicleId, String plateNumber, String vehicleType, Long ownerId,
+                  String ownerName, String ownerPhone, Long fixedSpaceId, Long fixedLotId) {
+            this.plateKey = plateKey;
+            this.vehicleId = vehicleId;
+            this.plateNumber = plateNumber;
+            this.vehicleType = vehicleType;
+            this.ownerId = ownerId;
+            this.ownerName = ownerName;
+            this.ownerPhone = ownerPhone;
+            this.fixedSpaceId = fixedSpaceId;
+            this.fixedLotId = fixedLotId;
+        }
+    }
+}
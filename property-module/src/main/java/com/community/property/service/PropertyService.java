@@ -161,6 +161,16 @@ public interface PropertyService {
      */
     Map<String, Object> listAllParkingSpaces(Integer page, Integer size, String status);
 
+    /**
+     * 分配车位给业主（审核通过申请或直接分配）
+     */
+    Map<String, Object> assignParkingSpace(Long spaceId, Long ownerId, Long vehicleId);
+
+    /**
+     * 释放车位（解除业主和车辆关联，恢复空闲）
+     */
+    Map<String, Object> releaseParkingSpace(Long spaceId);
+
     // ==================== 为业主关联房屋 ====================
     
     /**
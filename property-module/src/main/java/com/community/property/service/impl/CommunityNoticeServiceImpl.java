@@ -4,6 +4,7 @@ import com.community.property.mapper.CommunityNoticeMapper;
 import com.community.property.entity.CommunityNotice;
 import com.community.property.service.CommunityNoticeService;
 import com.community.property.service.ImageService;
+import com.community.property.service.OwnerEventPublisher;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +26,9 @@ public class CommunityNoticeServiceImpl implements CommunityNoticeService {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private OwnerEventPublisher ownerEventPublisher;
+
     private static final ObjectMapper objectMapper = new ObjectMapper();
     
     @Override
@@ -167,6 +171,7 @@ public class CommunityNoticeServiceImpl implements CommunityNoticeService {
             }
 
             communityNoticeMapper.insert(notice);
+            publishNoticeEvent(notice, "created");
 
             response.put("success", true);
             response.put("message", "公告添加成功");
@@ -251,6 +256,9 @@ public class CommunityNoticeServiceImpl implements CommunityNoticeService {
 
             // 保存到数据库
             int result = communityNoticeMapper.updateById(notice);
+            if (result > 0) {
+                publishNoticeEvent(notice, "updated");
+            }
 
             response.put("success", result > 0);
             response.put("message", result > 0 ? "公告更新成功" : "公告更新失败");
@@ -289,6 +297,7 @@ public class CommunityNoticeServiceImpl implements CommunityNoticeService {
 
             // 删除公告记录
             communityNoticeMapper.deleteById(noticeId);
+            publishNoticeEvent(notice, "deleted");
         } catch (Exception e) {
             System.err.println("删除公告失败: " + e.getMessage());
             throw new RuntimeException("删除公告失败: " + e.getMessage());
@@ -308,5 +317,17 @@ public class CommunityNoticeServiceImpl implements CommunityNoticeService {
             throw new RuntimeException("更新公告图片失败: " + e.getMessage());
         }
     }
-}
 
+    /**
+     * 通知社区业主公告变化
+     */
+    private void publishNoticeEvent(CommunityNotice notice, String action) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("action", action);
+        data.put("noticeId", notice.getId());
+        data.put("title", notice.getTitle());
+        data.put("noticeType", notice.getNoticeType());
+        data.put("isUrgent", notice.getIsUrgent());
+        ownerEventPublisher.publishToCommunity(notice.getCommunityId(), OwnerEventPublisher.TYPE_NOTICE, data);
+    }
+}
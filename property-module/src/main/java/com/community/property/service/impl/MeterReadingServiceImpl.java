@@ -1,32 +1,116 @@
 package com.community.property.service.impl;
 
+import com.community.property.config.MeterImportProperties;
 import com.community.property.entity.MeterReading;
 import com.community.property.mapper.MeterReadingMapper;
+import com.community.property.service.MeterAnomalyDetector;
+import com.community.property.service.MeterBillService;
+import com.community.property.service.MeterReadingFlagService;
+import com.community.property.service.MeterUsageRollupService;
 import com.community.property.service.MeterReadingService;
 import com.community.property.service.ImageService;
+import com.community.property.utils.SheetRowReader;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 抄表记录服务实现类
  */
+@Slf4j
 @Service
 public class MeterReadingServiceImpl implements MeterReadingService {
 
+    private static final String INSERT_READING_SQL =
+            "INSERT INTO meter_reading (meter_id, previous_reading, current_reading, usage_amount, unit, " +
+            "reading_date, reading_time, reader_id, reader_name, category_name, reading_type, reading_status, " +
+            "abnormal_reason, remark) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** 表头名称 -> 字段 */
+    private static final Map<String, String> HEADER_ALIASES = new HashMap<>();
+
+    static {
+        HEADER_ALIASES.put("仪表ID", "meterId");
+        HEADER_ALIASES.put("仪表编码", "meterCode");
+        HEADER_ALIASES.put("上次读数", "previousReading");
+        HEADER_ALIASES.put("本次读数", "currentReading");
+        HEADER_ALIASES.put("当前读数", "currentReading");
+        HEADER_ALIASES.put("用量", "usageAmount");
+        HEADER_ALIASES.put("计量单位", "unit");
+        HEADER_ALIASES.put("抄表日期", "readingDate");
+        HEADER_ALIASES.put("抄表时间", "readingTime");
+        HEADER_ALIASES.put("抄表人工号", "readerWorkNo");
+        HEADER_ALIASES.put("工号", "readerWorkNo");
+        HEADER_ALIASES.put("抄表类型", "readingType");
+        HEADER_ALIASES.put("抄表状态", "readingStatus");
+        HEADER_ALIASES.put("异常原因", "abnormalReason");
+        HEADER_ALIASES.put("备注", "remark");
+    }
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("yyyy-M-d"),
+            DateTimeFormatter.ofPattern("yyyy/M/d"),
+            DateTimeFormatter.ofPattern("yyyy.M.d"),
+            DateTimeFormatter.ofPattern("yyyyMMdd"),
+            DateTimeFormatter.ofPattern("M/d/yy")
+    );
+
     @Autowired
     private MeterReadingMapper meterReadingMapper;
 
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterImportProperties importProperties;
+
+    @Autowired
+    private MeterBillService meterBillService;
+
+    @Autowired
+    private MeterUsageRollupService meterUsageRollupService;
+
+    @Autowired
+    private MeterAnomalyDetector meterAnomalyDetector;
+
+    @Autowired
+    private MeterReadingFlagService meterReadingFlagService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
     @Transactional
     public Map<String, Object> addMeterReadingWithImage(Long meterId, Double currentReading, Double usageAmount,
@@ -54,10 +138,26 @@ public class MeterReadingServiceImpl implements MeterReadingService {
         meterReading.setReadingType("手动");
         meterReading.setReadingStatus("正常");
 
+        // 异常检测（上次读数取内存中的最近读数）
+        MeterAnomalyDetector.Anomaly anomaly = meterAnomalyDetector.check(
+                meterId, null, meterReading.getCurrentReading(), meterReading.getUsageAmount());
+        if (anomaly != null) {
+            if (anomaly.isAbnormal()) {
+                meterReading.setReadingStatus("异常");
+            } else if (meterReading.getUsageAmount() == null || meterReading.getUsageAmount().signum() < 0) {
+                meterReading.setUsageAmount(anomaly.getUsage());
+            }
+            meterReading.setAbnormalReason(anomaly.getMessage());
+        }
+
         // 保存到数据库
         int result = meterReadingMapper.insert(meterReading);
 
         if (result > 0) {
+            meterBillService.createForReading(meterReading.getId());
+            meterUsageRollupService.applyReading(meterId, meterReading.getReadingDate(), meterReading.getUsageAmount());
+            meterAnomalyDetector.record(meterId, meterReading.getCurrentReading(), meterReading.getUsageAmount(), anomaly);
+            meterReadingFlagService.enqueue(meterReading.getId(), meterId, anomaly);
             response.put("success", true);
             response.put("message", "抄表记录添加成功");
             response.put("data", meterReading);
@@ -67,4 +167,572 @@ public class MeterReadingServiceImpl implements MeterReadingService {
         }
         return response;
     }
+
+    /**
+     * 批量导入抄表记录
+     * 1. 文件先落到临时文件，再逐行流式解析（xlsx 走 SAX，csv 逐行读）
+     * 2. 仪表、抄表人、每个仪表的最近读数一次性预加载到内存，逐行校验时不再查库
+     * 3. 校验通过的行按 batchSize 分批 JDBC 批量写入；每批写入前一次查询排除库中同仪表同日期的重复记录
+     * 4. 每批的读数、账单、用量汇总、异常待办在同一事务中写入；整批失败时逐行各自一个事务重试，
+     *    任何一行都不会只有读数没有账单，失败行不影响其他行，返回逐行错误报告
+     * 5. 仪表的最近读数只随已提交的行推进；默认以文件中上一行为上次读数的行，在上一行未导入时一并判为失败
+     */
+    @Override
+    public Map<String, Object> importMeterReadings(MultipartFile file, Long staffId, String charset) throws Exception {
+        Map<String, Object> response = new HashMap<>();
+        if (file == null || file.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "请上传导入文件");
+            return response;
+        }
+
+        long start = System.currentTimeMillis();
+        String fileName = file.getOriginalFilename();
+        String suffix = fileName != null && fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
+        Charset csvCharset = charset != null && !charset.trim().isEmpty() ? Charset.forName(charset.trim()) : StandardCharsets.UTF_8;
+
+        ImportContext context = new ImportContext(staffId);
+        File temp = File.createTempFile("meter_import_", suffix);
+        try {
+            file.transferTo(temp);
+            SheetRowReader.read(temp, fileName, csvCharset, context::handleRow);
+            context.flush();
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return response;
+        } finally {
+            if (!temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+
+        if (context.columns == null) {
+            response.put("success", false);
+            response.put("message", "文件中没有表头");
+            return response;
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("totalRows", context.totalRows);
+        report.put("successCount", context.successCount);
+        report.put("failedCount", context.failedCount);
+        report.put("elapsedMs", System.currentTimeMillis() - start);
+        report.put("errors", context.errors);
+        report.put("errorsTruncated", context.failedCount > context.errors.size());
+        log.info("抄表导入完成: 文件={}, 总行数={}, 成功={}, 失败={}, 耗时={}ms", fileName,
+                context.totalRows, context.successCount, context.failedCount, report.get("elapsedMs"));
+
+        response.put("success", true);
+        response.put("message", "导入完成：成功 " + context.successCount + " 条，失败 " + context.failedCount + " 条");
+        response.put("data", report);
+        return response;
+    }
+
+    /**
+     * 一次导入的状态（预加载的仪表、抄表人，以及待写入的批次）
+     */
+    private final class ImportContext {
+
+        private final Long staffId;
+        private final Map<Long, MeterRef> metersById = new HashMap<>();
+        private final Map<String, MeterRef> metersByCode = new HashMap<>();
+        private final Map<Long, String> staffNames = new HashMap<>();
+        private final Map<String, Long> staffByWorkNo = new HashMap<>();
+        /** 文件内已出现的 仪表ID|抄表日期 */
+        private final Set<String> seenKeys = new HashSet<>();
+        private final List<PendingRow> pending = new ArrayList<>();
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+
+        private Map<String, Integer> columns;
+        private int totalRows;
+        private int successCount;
+        private int failedCount;
+
+        ImportContext(Long staffId) {
+            this.staffId = staffId;
+            preload();
+        }
+
+        private void preload() {
+            jdbcTemplate.query("SELECT id, meter_code, category_name, unit, initial_reading FROM meter_info", rs -> {
+                MeterRef meter = new MeterRef();
+                meter.id = rs.getLong("id");
+                meter.categoryName = rs.getString("category_name");
+                meter.unit = rs.getString("unit");
+                meter.lastReading = rs.getBigDecimal("initial_reading");
+                metersById.put(meter.id, meter);
+                String code = rs.getString("meter_code");
+                if (code != null) {
+                    metersByCode.put(code.trim(), meter);
+                }
+            });
+
+            // 每个仪表最近一条读数作为默认的上次读数
+            jdbcTemplate.query("SELECT r.meter_id, r.current_reading FROM meter_reading r " +
+                    "JOIN (SELECT meter_id, MAX(id) AS max_id FROM meter_reading GROUP BY meter_id) t ON r.id = t.max_id", rs -> {
+                MeterRef meter = metersById.get(rs.getLong("meter_id"));
+                if (meter != null && rs.getBigDecimal("current_reading") != null) {
+                    meter.lastReading = rs.getBigDecimal("current_reading");
+                }
+            });
+
+            jdbcTemplate.query("SELECT id, work_no, name FROM staff", rs -> {
+                long id = rs.getLong("id");
+                staffNames.put(id, rs.getString("name"));
+                String workNo = rs.getString("work_no");
+                if (workNo != null) {
+                    staffByWorkNo.put(workNo.trim(), id);
+                }
+            });
+        }
+
+        void handleRow(int rowNum, List<String> cells) {
+            if (isBlank(cells)) {
+                return;
+            }
+            if (columns == null) {
+                columns = parseHeader(cells);
+                return;
+            }
+
+            totalRows++;
+            if (totalRows > importProperties.getMaxRows()) {
+                if (totalRows == importProperties.getMaxRows() + 1) {
+                    addError(rowNum, "超过单次导入上限 " + importProperties.getMaxRows() + " 行，之后的行未导入");
+                } else {
+                    failedCount++;
+                }
+                return;
+            }
+
+            try {
+                PendingRow row = parseRow(rowNum, cells);
+                pending.add(row);
+                if (pending.size() >= importProperties.getBatchSize()) {
+                    flush();
+                }
+            } catch (RowException e) {
+                addError(rowNum, e.getMessage());
+            }
+        }
+
+        private Map<String, Integer> parseHeader(List<String> cells) {
+            Map<String, Integer> result = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                String field = HEADER_ALIASES.get(cells.get(i).replace("*", "").trim());
+                if (field != null) {
+                    result.putIfAbsent(field, i);
+                }
+            }
+            if (!result.containsKey("meterId") && !result.containsKey("meterCode")) {
+                throw new IllegalArgumentException("表头缺少“仪表ID”或“仪表编码”列");
+            }
+            if (!result.containsKey("currentReading") || !result.containsKey("readingDate")) {
+                throw new IllegalArgumentException("表头缺少“本次读数”或“抄表日期”列");
+            }
+            return result;
+        }
+
+        private PendingRow parseRow(int rowNum, List<String> cells) {
+            MeterRef meter = resolveMeter(cells);
+
+            BigDecimal current = parseDecimal(cell(cells, "currentReading"), "本次读数");
+            if (current == null) {
+                throw new RowException("本次读数不能为空");
+            }
+
+            LocalDate date = parseDate(cell(cells, "readingDate"));
+            String key = meter.id + "|" + date;
+            if (seenKeys.contains(key)) {
+                throw new RowException("文件中该仪表在 " + date + " 已有读数");
+            }
+
+            // 文件中该仪表上一条尚未写入的行
+            PendingRow prior = meter.lastRow != null && !meter.lastRow.failed && !meter.lastRow.persisted ? meter.lastRow : null;
+            PendingRow dependsOn = null;
+            BigDecimal previous = parseDecimal(cell(cells, "previousReading"), "上次读数");
+            if (previous == null) {
+                if (prior != null) {
+                    previous = prior.currentReading;
+                    dependsOn = prior;
+                } else {
+                    previous = meter.lastReading != null ? meter.lastReading : BigDecimal.ZERO;
+                }
+            }
+
+            String status = defaultIfBlank(cell(cells, "readingStatus"), "正常");
+            BigDecimal usage = parseDecimal(cell(cells, "usageAmount"), "用量");
+            MeterAnomalyDetector.Anomaly anomaly = meterAnomalyDetector.check(meter.id, previous, current, usage);
+            boolean rollover = anomaly != null && !anomaly.isAbnormal();
+            if (current.compareTo(previous) < 0 && "正常".equals(status) && !rollover) {
+                throw new RowException("本次读数 " + current.toPlainString() + " 小于上次读数 " + previous.toPlainString());
+            }
+
+            if (usage == null) {
+                usage = rollover ? anomaly.getUsage() : current.subtract(previous);
+            }
+            if (usage.signum() < 0 && "正常".equals(status)) {
+                throw new RowException("用量不能为负数");
+            }
+
+            Long readerId = staffId;
+            String workNo = cell(cells, "readerWorkNo");
+            if (!workNo.isEmpty()) {
+                readerId = staffByWorkNo.get(workNo);
+                if (readerId == null) {
+                    throw new RowException("抄表人工号不存在: " + workNo);
+                }
+            }
+
+            PendingRow row = new PendingRow();
+            row.rowNum = rowNum;
+            row.meterId = meter.id;
+            row.previousReading = previous;
+            row.currentReading = current;
+            row.usageAmount = usage;
+            row.unit = defaultIfBlank(cell(cells, "unit"), meter.unit);
+            row.readingDate = date;
+            row.readingTime = parseTime(date, cell(cells, "readingTime"));
+            row.readerId = readerId;
+            row.readerName = readerId != null ? staffNames.getOrDefault(readerId, "") : "";
+            row.categoryName = meter.categoryName != null ? meter.categoryName : "";
+            row.readingType = defaultIfBlank(cell(cells, "readingType"), "手动");
+            row.readingStatus = status;
+            row.abnormalReason = emptyToNull(cell(cells, "abnormalReason"));
+            row.remark = emptyToNull(cell(cells, "remark"));
+            row.anomaly = anomaly;
+            row.dependsOn = dependsOn;
+            if (anomaly != null) {
+                if (anomaly.isAbnormal()) {
+                    row.readingStatus = "异常";
+                }
+                if (row.abnormalReason == null) {
+                    row.abnormalReason = anomaly.getMessage();
+                }
+            }
+
+            seenKeys.add(key);
+            // 同一文件中同一仪表的下一行默认以本行读数为上次读数（本行提交后才更新 lastReading）
+            meter.lastRow = row;
+            return row;
+        }
+
+        private MeterRef resolveMeter(List<String> cells) {
+            String idText = cell(cells, "meterId");
+            if (!idText.isEmpty()) {
+                try {
+                    MeterRef meter = metersById.get(Long.parseLong(idText));
+                    if (meter != null) {
+                        return meter;
+                    }
+                } catch (NumberFormatException e) {
+                    throw new RowException("仪表ID格式错误: " + idText);
+                }
+                throw new RowException("仪表不存在: " + idText);
+            }
+            String code = cell(cells, "meterCode");
+            if (code.isEmpty()) {
+                throw new RowException("仪表ID和仪表编码不能同时为空");
+            }
+            MeterRef meter = metersByCode.get(code);
+            if (meter == null) {
+                throw new RowException("仪表编码不存在: " + code);
+            }
+            return meter;
+        }
+
+        /**
+         * 写入当前批次
+         */
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<PendingRow> rows = excludeExisting(new ArrayList<>(pending));
+            pending.clear();
+            List<PendingRow> batch = new ArrayList<>(rows.size());
+            for (PendingRow r : rows) {
+                if (!failIfPriorFailed(r)) {
+                    batch.add(r);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(batch));
+                for (PendingRow r : batch) {
+                    committed(r);
+                }
+                return;
+            } catch (Exception e) {
+                log.warn("抄表导入批量写入失败，改为逐行写入: {} 行", batch.size(), e);
+            }
+            // 逐行写入，找出失败的行
+            for (PendingRow r : batch) {
+                if (failIfPriorFailed(r)) {
+                    continue;
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(List.of(r)));
+                    committed(r);
+                } catch (Exception e) {
+                    fail(r, "写入失败: " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * 一批读数及其账单、用量汇总、异常待办（在调用方的事务中执行）
+         */
+        private void persist(List<PendingRow> batch) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_READING_SQL, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    PendingRow r = batch.get(i);
+                    ps.setLong(1, r.meterId);
+                    ps.setBigDecimal(2, r.previousReading);
+                    ps.setBigDecimal(3, r.currentReading);
+                    ps.setBigDecimal(4, r.usageAmount);
+                    ps.setString(5, r.unit);
+                    ps.setDate(6, Date.valueOf(r.readingDate));
+                    ps.setTimestamp(7, Timestamp.valueOf(r.readingTime));
+                    ps.setObject(8, r.readerId);
+                    ps.setString(9, r.readerName);
+                    ps.setString(10, r.categoryName);
+                    ps.setString(11, r.readingType);
+                    ps.setString(12, r.readingStatus);
+                    ps.setString(13, r.abnormalReason);
+                    ps.setString(14, r.remark);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            }, keyHolder);
+            // 回填主键，账单和异常待办只针对本批写入的读数
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (keys.size() != batch.size()) {
+                throw new IllegalStateException("抄表记录主键回填数量不符: " + keys.size() + "/" + batch.size());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).readingId = ((Number) keys.get(i).values().iterator().next()).longValue();
+            }
+
+            // 本批抄表记录一次性生成账单
+            meterBillService.createForReadings(batch.stream().map(r -> r.readingId).collect(Collectors.toList()));
+
+            // 本批用量累加到日/月/年汇总
+            meterUsageRollupService.applyReadings(batch.stream()
+                    .map(r -> new MeterUsageRollupService.ReadingUsage(r.meterId, r.readingDate, r.usageAmount))
+                    .collect(Collectors.toList()));
+
+            // 本批异常读数登记待办
+            meterReadingFlagService.enqueueAll(batch.stream()
+                    .filter(r -> r.anomaly != null)
+                    .map(r -> new MeterReadingFlagService.FlaggedReading(r.readingId, r.meterId, r.anomaly))
+                    .collect(Collectors.toList()));
+        }
+
+        /**
+         * 行已提交：推进仪表的最近读数
+         */
+        private void committed(PendingRow r) {
+            r.persisted = true;
+            // 已处理完的行不再引用上一行，避免同一仪表的行在整个导入期间连成链
+            r.dependsOn = null;
+            successCount++;
+            metersById.get(r.meterId).lastReading = r.currentReading;
+            meterAnomalyDetector.record(r.meterId, r.currentReading, r.usageAmount, r.anomaly);
+        }
+
+        /**
+         * 上次读数取自文件中上一行、而上一行未导入时，本行也判为失败
+         */
+        private boolean failIfPriorFailed(PendingRow r) {
+            if (r.failed) {
+                return true;
+            }
+            if (r.dependsOn != null && r.dependsOn.failed) {
+                fail(r, "上次读数取自第 " + r.dependsOn.rowNum + " 行，该行未导入");
+                return true;
+            }
+            return false;
+        }
+
+        private void fail(PendingRow r, String message) {
+            r.failed = true;
+            r.dependsOn = null;
+            addError(r.rowNum, message);
+        }
+
+        /**
+         * 排除库中已存在同仪表同日期读数的行（每批一次查询）
+         */
+        private List<PendingRow> excludeExisting(List<PendingRow> batch) {
+            Set<Long> meterIds = batch.stream().map(r -> r.meterId).collect(Collectors.toSet());
+            LocalDate minDate = batch.stream().map(r -> r.readingDate).min(LocalDate::compareTo).orElseThrow();
+            LocalDate maxDate = batch.stream().map(r -> r.readingDate).max(LocalDate::compareTo).orElseThrow();
+
+            String placeholders = meterIds.stream().map(id -> "?").collect(Collectors.joining(","));
+            List<Object> args = new ArrayList<>(meterIds);
+            args.add(Date.valueOf(minDate));
+            args.add(Date.valueOf(maxDate));
+
+            Set<String> existing = new HashSet<>();
+            jdbcTemplate.query("SELECT meter_id, reading_date FROM meter_reading WHERE meter_id IN (" + placeholders + ") " +
+                    "AND reading_date BETWEEN ? AND ?", rs -> {
+                existing.add(rs.getLong("meter_id") + "|" + rs.getDate("reading_date").toLocalDate());
+            }, args.toArray());
+
+            if (existing.isEmpty()) {
+                return batch;
+            }
+            List<PendingRow> result = new ArrayList<>(batch.size());
+            for (PendingRow r : batch) {
+                if (existing.contains(r.meterId + "|" + r.readingDate)) {
+                    fail(r, "该仪表在 " + r.readingDate + " 已有抄表记录");
+                } else {
+                    result.add(r);
+                }
+            }
+            return result;
+        }
+
+        private void addError(int rowNum, String message) {
+            failedCount++;
+            if (errors.size() < importProperties.getMaxErrors()) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("row", rowNum);
+                error.put("message", message);
+                errors.add(error);
+            }
+        }
+
+        private String cell(List<String> cells, String field) {
+            Integer index = columns.get(field);
+            if (index == null || index >= cells.size()) {
+                return "";
+            }
+            String value = cells.get(index);
+            return value == null ? "" : value.trim();
+        }
+    }
+
+    private static BigDecimal parseDecimal(String text, String label) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new RowException(label + "格式错误: " + text);
+        }
+    }
+
+    private static LocalDate parseDate(String text) {
+        if (text == null || text.isEmpty()) {
+            throw new RowException("抄表日期不能为空");
+        }
+        // 去掉可能带上的时间部分
+        String value = text.contains(" ") ? text.substring(0, text.indexOf(' ')) : text;
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (Exception ignored) {
+                // 尝试下一种格式
+            }
+        }
+        throw new RowException("抄表日期格式错误: " + text);
+    }
+
+    /**
+     * 抄表时间可选，支持 HH:mm / HH:mm:ss，为空时取当前时间（与单条录入一致）
+     */
+    private static LocalDateTime parseTime(LocalDate date, String text) {
+        if (text == null || text.isEmpty()) {
+            return LocalDateTime.now();
+        }
+        try {
+            String value = text.contains(" ") ? text.substring(text.lastIndexOf(' ') + 1) : text;
+            String[] parts = value.split(":");
+            int hour = Integer.parseInt(parts[0]);
+            int minute = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            int second = parts.length > 2 ? (int) Double.parseDouble(parts[2]) : 0;
+            return LocalDateTime.of(date, LocalTime.of(hour, minute, second));
+        } catch (Exception e) {
+            throw new RowException("抄表时间格式错误: " + text);
+        }
+    }
+
+    private static boolean isBlank(List<String> cells) {
+        for (String cell : cells) {
+            if (cell != null && !cell.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String defaultIfBlank(String value, String defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * 预加载的仪表信息
+     */
+    private static final class MeterRef {
+        long id;
+        String categoryName;
+        String unit;
+        /** 已提交的最近读数 */
+        BigDecimal lastReading;
+        /** 文件中该仪表最近一条校验通过的行 */
+        PendingRow lastRow;
+    }
+
+    /**
+     * 校验通过、待写入的行
+     */
+    private static final class PendingRow {
+        int rowNum;
+        long meterId;
+        BigDecimal previousReading;
+        BigDecimal currentReading;
+        BigDecimal usageAmount;
+        String unit;
+        LocalDate readingDate;
+        LocalDateTime readingTime;
+        Long readerId;
+        String readerName;
+        String categoryName;
+        String readingType;
+        String readingStatus;
+        String abnormalReason;
+        String remark;
+        MeterAnomalyDetector.Anomaly anomaly;
+        /** 写入后回填的抄表记录ID */
+        Long readingId;
+        /** 上次读数取自文件中的该行 */
+        PendingRow dependsOn;
+        boolean persisted;
+        boolean failed;
+    }
+
+    /**
+     * 单行校验失败
+     */
+    private static final class RowException extends RuntimeException {
+        RowException(String message) {
+            super(message);
+        }
+    }
 }
@@ -4,13 +4,15 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.community.property.mapper.OwnerIssueMapper;
 import com.community.property.mapper.IssueFollowUpMapper;
-import com.community.property.mapper.OwnerMapper;
 import com.community.property.mapper.StaffMapper;
 import com.community.property.entity.*;
 import com.community.property.dto.IssueDetailVO;
 import com.community.property.dto.IssueFollowUpRequest;
+import com.community.property.service.IssueDetailLoader;
+import com.community.property.service.IssueDispatchService;
+import com.community.property.service.IssueSlaService;
+import com.community.property.service.OwnerEventPublisher;
 import com.community.property.service.PropertyIssueService;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,10 +31,19 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
     private IssueFollowUpMapper issueFollowUpMapper;
 
     @Autowired
-    private OwnerMapper ownerMapper;
+    private StaffMapper staffMapper;
 
     @Autowired
-    private StaffMapper staffMapper;
+    private IssueDispatchService issueDispatchService;
+
+    @Autowired
+    private IssueDetailLoader issueDetailLoader;
+
+    @Autowired
+    private IssueSlaService issueSlaService;
+
+    @Autowired
+    private OwnerEventPublisher ownerEventPublisher;
 
     @Override
     public Map<String, Object> listAllIssues(Integer page, Integer size, String status) {
@@ -106,38 +117,7 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
 
     @Override
     public IssueDetailVO getIssueDetail(Long issueId) {
-        OwnerIssue issue = getById(issueId);
-        if (issue == null) {
-            return null;
-        }
-
-        IssueDetailVO vo = new IssueDetailVO();
-        BeanUtils.copyProperties(issue, vo);
-
-        // 获取业主信息
-        Owner owner = ownerMapper.selectById(issue.getOwnerId());
-        if (owner != null) {
-            vo.setOwnerName(owner.getName());
-            vo.setOwnerPhone(owner.getPhone());
-        }
-
-        // 获取处理员工信息
-        if (issue.getProcessorStaffId() != null) {
-            Staff processor = staffMapper.selectById(issue.getProcessorStaffId());
-            if (processor != null) {
-                vo.setProcessorName(processor.getName());
-                vo.setProcessorPhone(processor.getPhone());
-            }
-        }
-
-        // 获取跟进记录
-        QueryWrapper<IssueFollowUp> followUpQuery = new QueryWrapper<>();
-        followUpQuery.eq("issue_id", issueId);
-        followUpQuery.orderByAsc("created_at");
-        List<IssueFollowUp> followUps = issueFollowUpMapper.selectList(followUpQuery);
-        vo.setFollowUps(followUps);
-
-        return vo;
+        return issueDetailLoader.load(issueId);
     }
 
     @Override
@@ -162,10 +142,14 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
 
             // 更新问题分配信息
             issue.setAssignedStaffId(staffId);
+            issue.setAssignedDepartmentId(staff.getDepartmentId());
             issue.setAssignedTime(LocalDateTime.now());
             issue.setAssignedRemark(remark);
             issue.setWorkStatus("已分配");
             updateById(issue);
+            publishIssueEvent(issue);
+            issueDispatchService.onAssigned(issueId, staffId, staff.getDepartmentId(), issue.getUrgencyLevel(),
+                    issue.getWorkStatus(), issue.getExpectedResolveTime());
 
             // 创建跟进记录
             IssueFollowUp followUp = new IssueFollowUp();
@@ -217,6 +201,8 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
             issue.setProcessPlan(planDescription);
             issue.setResponseTime(LocalDateTime.now());
             updateById(issue);
+            publishIssueEvent(issue);
+            issueDispatchService.onProcessing(issueId);
 
             // 创建跟进记录
             IssueFollowUp followUp = new IssueFollowUp();
@@ -265,6 +251,7 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
             issue.setProcessEndTime(LocalDateTime.now());
             issue.setProcessImages(images);
             updateById(issue);
+            publishIssueEvent(issue);
 
             // 创建跟进记录
             IssueFollowUp followUp = new IssueFollowUp();
@@ -323,6 +310,7 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
                 issue.setResultImages(resultImages);
             }
             updateById(issue);
+            publishIssueEvent(issue);
 
             // 创建跟进记录
             IssueFollowUp followUp = new IssueFollowUp();
@@ -443,6 +431,9 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
             // 标记为已解决，等待管理员确认
             issue.setWorkStatus("已完成");
             updateById(issue);
+            publishIssueEvent(issue);
+            issueDispatchService.onCompleted(issueId);
+            issueSlaService.untrack(issueId);
 
             response.put("success", true);
             response.put("message", "问题已标记为已解决");
@@ -477,9 +468,13 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
 
             // 更新分配
             issue.setAssignedStaffId(newStaffId);
+            issue.setAssignedDepartmentId(newStaff.getDepartmentId());
             issue.setAssignedTime(LocalDateTime.now());
             issue.setAssignedRemark(remark);
             updateById(issue);
+            publishIssueEvent(issue);
+            issueDispatchService.onAssigned(issueId, newStaffId, newStaff.getDepartmentId(), issue.getUrgencyLevel(),
+                    issue.getWorkStatus(), issue.getExpectedResolveTime());
 
             // 创建跟进记录
             IssueFollowUp followUp = new IssueFollowUp();
@@ -558,4 +553,16 @@ public class PropertyIssueServiceImpl extends ServiceImpl<OwnerIssueMapper, Owne
         map.put("contactPhone", issue.getContactPhone());
         return map;
     }
+
+    /**
+     * 通知业主工单状态变化
+     */
+    private void publishIssueEvent(OwnerIssue issue) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("issueId", issue.getId());
+        data.put("issueTitle", issue.getIssueTitle());
+        data.put("issueStatus", issue.getIssueStatus());
+        data.put("workStatus", issue.getWorkStatus());
+        ownerEventPublisher.publishToOwner(issue.getOwnerId(), OwnerEventPublisher.TYPE_ISSUE, data);
+    }
 }
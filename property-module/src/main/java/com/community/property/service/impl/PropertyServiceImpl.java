@@ -1,14 +1,24 @@
 package com.community.property.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.community.property.mapper.*;
 import com.community.property.entity.*;
 import com.community.property.dto.StaffProfileUpdateRequest;
+import com.community.property.service.AccessDecisionService;
+import com.community.property.service.OwnerEventPublisher;
+import com.community.property.service.MeterAnomalyDetector;
+import com.community.property.service.MeterBillService;
+import com.community.property.service.MeterReadingFlagService;
+import com.community.property.service.MeterUsageRollupService;
+import com.community.property.service.ParkingAvailabilityIndex;
+import com.community.property.service.PlateDirectory;
 import com.community.property.service.PropertyService;
 import com.community.property.service.ImageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
@@ -64,6 +74,30 @@ public class PropertyServiceImpl implements PropertyService {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private MeterBillService meterBillService;
+
+    @Autowired
+    private MeterUsageRollupService meterUsageRollupService;
+
+    @Autowired
+    private MeterAnomalyDetector meterAnomalyDetector;
+
+    @Autowired
+    private ParkingAvailabilityIndex parkingAvailabilityIndex;
+
+    @Autowired
+    private AccessDecisionService accessDecisionService;
+
+    @Autowired
+    private OwnerEventPublisher ownerEventPublisher;
+
+    @Autowired
+    private MeterReadingFlagService meterReadingFlagService;
+
+    @Autowired
+    private PlateDirectory plateDirectory;
+
     // ==================== 员工个人信息相关 ====================
 
     @Override
@@ -574,13 +608,35 @@ public class PropertyServiceImpl implements PropertyService {
                 reading.setReadingImage(imagePath);
             }
 
+            // 异常检测：突增、倒退、超量程标记为异常读数；表盘翻转按量程折算用量
+            MeterAnomalyDetector.Anomaly anomaly = meterAnomalyDetector.check(
+                    meterId, reading.getPreviousReading(), reading.getCurrentReading(), reading.getUsageAmount());
+            if (anomaly != null) {
+                if (anomaly.isAbnormal()) {
+                    reading.setReadingStatus("异常");
+                } else if (reading.getUsageAmount().signum() < 0) {
+                    reading.setUsageAmount(anomaly.getUsage());
+                }
+                if (reading.getAbnormalReason() == null || reading.getAbnormalReason().trim().isEmpty()) {
+                    reading.setAbnormalReason(anomaly.getMessage());
+                }
+            }
+
             meterReadingMapper.insert(reading);
 
+            // 按仪表配置生成账单（同一事务）
+            meterBillService.createForReading(reading.getId());
+            meterUsageRollupService.applyReading(meterId, reading.getReadingDate(), reading.getUsageAmount());
+            meterAnomalyDetector.record(meterId, reading.getCurrentReading(), reading.getUsageAmount(), anomaly);
+            meterReadingFlagService.enqueue(reading.getId(), meterId, anomaly);
+
             response.put("success", true);
             response.put("message", "读数添加成功");
             response.put("data", reading);
             return response;
         } catch (Exception e) {
+            // 读数、账单、用量汇总、异常待办同一事务：任一步失败整体回滚，不留下没有账单的读数
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.put("success", false);
             response.put("message", "添加失败: " + e.getMessage());
             return response;
@@ -758,6 +814,11 @@ public class PropertyServiceImpl implements PropertyService {
                 return response;
             }
 
+            // 扣除用量汇总（按抄表记录计算，须在删除抄表记录之前），删除未缴账单和异常待办
+            meterUsageRollupService.removeMeter(meterId);
+            meterBillService.deleteUnpaidForMeter(meterId);
+            meterReadingFlagService.deleteForMeter(meterId);
+
             // 删除相关的抄表记录
             QueryWrapper<MeterReading> readingWrapper = new QueryWrapper<>();
             readingWrapper.eq("meter_id", meterId);
@@ -770,6 +831,8 @@ public class PropertyServiceImpl implements PropertyService {
             response.put("message", "仪表删除成功");
             return response;
         } catch (Exception e) {
+            // 以返回值报告失败，需手动标记回滚，避免只删除了一部分
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             response.put("success", false);
             response.put("message", "删除失败: " + e.getMessage());
             return response;
@@ -878,6 +941,7 @@ public class PropertyServiceImpl implements PropertyService {
             vehicle.setRegisterDate(LocalDate.now());
 
             vehicleMapper.insert(vehicle);
+            plateDirectory.refreshVehicle(vehicle.getId());
 
             response.put("success", true);
             response.put("message", "车辆添加成功");
@@ -1112,6 +1176,7 @@ public class PropertyServiceImpl implements PropertyService {
             space.setRemark(remark);
 
             parkingSpaceMapper.insert(space);
+            parkingAvailabilityIndex.update(space.getId(), space.getParkingLotId(), space.getSpaceStatus());
 
             response.put("success", true);
             response.put("message", "车位添加成功");
@@ -1184,7 +1249,8 @@ public class PropertyServiceImpl implements PropertyService {
             
             queryWrapper.orderByAsc("space_no");
 
-            long total = parkingSpaceMapper.selectCount(queryWrapper);
+            // 总数取自车位状态索引，不再 COUNT 全表
+            long total = parkingAvailabilityIndex.count(null, status != null && !status.trim().isEmpty() ? status : null);
 
             int offset = (page - 1) * size;
             queryWrapper.last("LIMIT " + size + " OFFSET " + offset);
@@ -1221,6 +1287,101 @@ public class PropertyServiceImpl implements PropertyService {
         }
     }
 
+    @Override
+    @Transactional
+    public Map<String, Object> assignParkingSpace(Long spaceId, Long ownerId, Long vehicleId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ParkingSpace space = parkingSpaceMapper.selectById(spaceId);
+            if (space == null) {
+                response.put("success", false);
+                response.put("message", "车位不存在");
+                return response;
+            }
+            if (ownerId == null) {
+                ownerId = space.getOwnerId();
+            }
+            if (ownerId == null) {
+                response.put("success", false);
+                response.put("message", "业主ID为必需");
+                return response;
+            }
+            if (!"空闲".equals(space.getSpaceStatus()) && !Objects.equals(space.getOwnerId(), ownerId)) {
+                response.put("success", false);
+                response.put("message", "车位当前状态为" + space.getSpaceStatus() + "，不能分配");
+                return response;
+            }
+
+            UpdateWrapper<ParkingSpace> wrapper = new UpdateWrapper<>();
+            wrapper.eq("id", spaceId)
+                    .set("owner_id", ownerId)
+                    .set("vehicle_id", vehicleId != null ? vehicleId : space.getVehicleId())
+                    .set("space_status", "已租")
+                    .set("remark", stripApplyMark(space.getRemark()))
+                    .setSql("updated_at = NOW()");
+            parkingSpaceMapper.update(null, wrapper);
+            parkingAvailabilityIndex.update(spaceId, space.getParkingLotId(), "已租");
+
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("category", "parking");
+            event.put("spaceId", spaceId);
+            event.put("spaceNo", space.getSpaceNo());
+            event.put("status", "已租");
+            ownerEventPublisher.publishToOwner(ownerId, OwnerEventPublisher.TYPE_APPLICATION, event);
+
+            response.put("success", true);
+            response.put("message", "车位分配成功");
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "分配失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    @Override
+    @Transactional
+    public Map<String, Object> releaseParkingSpace(Long spaceId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ParkingSpace space = parkingSpaceMapper.selectById(spaceId);
+            if (space == null) {
+                response.put("success", false);
+                response.put("message", "车位不存在");
+                return response;
+            }
+
+            UpdateWrapper<ParkingSpace> wrapper = new UpdateWrapper<>();
+            wrapper.eq("id", spaceId)
+                    .set("owner_id", null)
+                    .set("vehicle_id", null)
+                    .set("space_status", "空闲")
+                    .set("remark", stripApplyMark(space.getRemark()))
+                    .setSql("updated_at = NOW()");
+            parkingSpaceMapper.update(null, wrapper);
+            parkingAvailabilityIndex.update(spaceId, space.getParkingLotId(), "空闲");
+
+            response.put("success", true);
+            response.put("message", "车位已释放");
+            return response;
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "释放失败: " + e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * 去掉业主申请时加在备注后的"[申请] 待管理员审核"标记
+     */
+    private static String stripApplyMark(String remark) {
+        if (remark == null) {
+            return null;
+        }
+        String cleaned = remark.replace("[申请] 待管理员审核", "").trim();
+        return cleaned.isEmpty() ? null : cleaned;
+    }
+
     // ==================== 房屋关联相关 ====================
 
     @Override
@@ -1250,6 +1411,7 @@ public class PropertyServiceImpl implements PropertyService {
             houseOwner.setStatus("正常");
 
             houseOwnerMapper.insert(houseOwner);
+            accessDecisionService.refreshOwner(ownerId);
 
             response.put("success", true);
             response.put("message", "房屋关联成功");
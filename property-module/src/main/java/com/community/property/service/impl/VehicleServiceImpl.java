@@ -4,6 +4,8 @@ import com.community.property.entity.Vehicle;
 import com.community.property.mapper.VehicleMapper;
 import com.community.property.service.VehicleService;
 import com.community.property.service.ImageService;
+import com.community.property.service.PlateDirectory;
+import com.community.property.service.OwnerEventPublisher;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +15,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +40,12 @@ public class VehicleServiceImpl implements VehicleService {
     @Autowired
     private ParkingSpaceMapper parkingSpaceMapper;
 
+    @Autowired
+    private PlateDirectory plateDirectory;
+
+    @Autowired
+    private OwnerEventPublisher ownerEventPublisher;
+
     @Override
     public Map<String, Object> getVehicleDetail(Long vehicleId) {
         Map<String, Object> response = new HashMap<>();
@@ -108,6 +117,7 @@ public class VehicleServiceImpl implements VehicleService {
                 response.put("message", "车辆不存在");
                 return response;
             }
+            String previousStatus = vehicle.getStatus();
 
             // 更新基本字段
             if (plateNumber != null && !plateNumber.isEmpty()) {
@@ -148,6 +158,10 @@ public class VehicleServiceImpl implements VehicleService {
             }
 
             int result = vehicleMapper.updateById(vehicle);
+            plateDirectory.refreshVehicle(vehicleId);
+            if (result > 0) {
+                publishReviewEvent(vehicle, previousStatus);
+            }
 
             response.put("success", result > 0);
             response.put("message", result > 0 ? "车辆信息更新成功" : "车辆信息更新失败");
@@ -208,6 +222,7 @@ public class VehicleServiceImpl implements VehicleService {
             }
 
             vehicleMapper.insert(vehicle);
+            plateDirectory.refreshVehicle(vehicle.getId());
 
             response.put("success", true);
             response.put("message", "车辆添加成功");
@@ -237,6 +252,7 @@ public class VehicleServiceImpl implements VehicleService {
                 response.put("message", "车辆不存在");
                 return response;
             }
+            String previousStatus = vehicle.getStatus();
 
             // 处理驾照照片（单一图片，VARCHAR字段）
             if (driverLicenseImageToDelete != null && !driverLicenseImageToDelete.isEmpty()) {
@@ -282,6 +298,8 @@ public class VehicleServiceImpl implements VehicleService {
 
             // 保存到数据库
             vehicleMapper.updateById(vehicle);
+            plateDirectory.refreshVehicle(vehicleId);
+            publishReviewEvent(vehicle, previousStatus);
 
             response.put("success", true);
             response.put("message", "车辆信息更新成功");
@@ -323,6 +341,7 @@ public class VehicleServiceImpl implements VehicleService {
             vehicle.setRemark(remark);
 
             vehicleMapper.insert(vehicle);
+            plateDirectory.refreshVehicle(vehicle.getId());
 
             response.put("success", true);
             response.put("message", "车辆创建成功");
@@ -406,6 +425,7 @@ public class VehicleServiceImpl implements VehicleService {
 
             // 删除车辆记录
             int result = vehicleMapper.deleteById(vehicleId);
+            plateDirectory.refreshVehicle(vehicleId);
 
             response.put("success", result > 0);
             response.put("message", result > 0 ? "车辆删除成功" : "车辆删除失败");
@@ -416,4 +436,19 @@ public class VehicleServiceImpl implements VehicleService {
             return response;
         }
     }
+
+    /**
+     * 车辆登记申请审核后通知业主
+     */
+    private void publishReviewEvent(Vehicle vehicle, String previousStatus) {
+        if (!"申请".equals(previousStatus) || previousStatus.equals(vehicle.getStatus())) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("category", "vehicle");
+        data.put("vehicleId", vehicle.getId());
+        data.put("plateNumber", vehicle.getPlateNumber());
+        data.put("status", vehicle.getStatus());
+        ownerEventPublisher.publishToOwner(vehicle.getOwnerId(), OwnerEventPublisher.TYPE_APPLICATION, data);
+    }
 }
@@ -0,0 +1,164 @@
+package com.community.property.utils;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 表格逐行读取工具
+ * xlsx 使用 POI SAX 事件模型（XSSFSheetXMLHandler），csv 逐行解析，均不把整张表加载到内存
+ */
+public final class SheetRowReader {
+
+    private SheetRowReader() {
+    }
+
+    /**
+     * 行回调
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+
+        /**
+         * @param rowNum 行号（从1开始，与表格中显示的行号一致）
+         * @param cells  单元格文本（按列对齐，空单元格为空字符串）
+         */
+        void handle(int rowNum, List<String> cells) throws Exception;
+    }
+
+    /**
+     * 按文件名后缀选择解析方式，只读取第一个工作表
+     */
+    public static void read(File file, String fileName, Charset csvCharset, RowHandler handler) throws Exception {
+        String name = fileName == null ? "" : fileName.toLowerCase();
+        if (name.endsWith(".xlsx")) {
+            readXlsx(file, handler);
+        } else if (name.endsWith(".csv")) {
+            readCsv(file, csvCharset, handler);
+        } else {
+            throw new IllegalArgumentException("仅支持 .xlsx 或 .csv 文件");
+        }
+    }
+
+    private static void readXlsx(File file, RowHandler handler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, null, strings, new RowCollector(handler), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        }
+    }
+
+    private static void readCsv(File file, Charset charset, RowHandler handler) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), charset)) {
+            String line;
+            int rowNum = 0;
+            while ((line = reader.readLine()) != null) {
+                rowNum++;
+                if (rowNum == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                    line = line.substring(1);
+                }
+                handler.handle(rowNum, parseCsvLine(line));
+            }
+        }
+    }
+
+    /**
+     * 解析一行CSV（支持双引号包裹和 "" 转义，不支持字段内换行）
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        cells.add(current.toString().trim());
+        return cells;
+    }
+
+    /**
+     * 把 SAX 单元格事件汇总成按列对齐的行
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+
+        RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            try {
+                handler.handle(rowNum + 1, new ArrayList<>(cells));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < col) {
+                cells.add("");
+            }
+            cells.add(formattedValue == null ? "" : formattedValue.trim());
+        }
+    }
+}
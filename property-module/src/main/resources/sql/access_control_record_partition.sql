@@ -0,0 +1,20 @@
+-- 门禁记录按月分区
+-- 按 access_time 按月 RANGE 分区：按时间范围查询只扫描相关分区，过期数据按分区归档/删除（AccessEventPartitionManager 定时维护）
+-- 分区表的主键/唯一键必须包含分区列，因此主键改为 (id, access_time)；分区表不支持外键
+ALTER TABLE access_control_record
+    MODIFY COLUMN access_time DATETIME NOT NULL COMMENT '出入时间',
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, access_time),
+    ADD INDEX idx_person_time (person_id, person_type, access_time),
+    ADD INDEX idx_device_time (device_id, access_time);
+
+-- p_history 存放启用分区前的历史数据，p_future 兜底尚未预建分区的月份
+-- 之后的月份分区由 AccessEventPartitionManager 从 p_future 中拆出
+ALTER TABLE access_control_record
+    PARTITION BY RANGE (TO_DAYS(access_time)) (
+        PARTITION p_history VALUES LESS THAN (TO_DAYS('2026-10-01')),
+        PARTITION p202610 VALUES LESS THAN (TO_DAYS('2026-11-01')),
+        PARTITION p202611 VALUES LESS THAN (TO_DAYS('2026-12-01')),
+        PARTITION p202612 VALUES LESS THAN (TO_DAYS('2027-01-01')),
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
@@ -0,0 +1,17 @@
+-- 访客门禁授权
+-- 物业登记的访客通行证，与门禁记录（按月分区、按保留期删除）分开存放，授权在有效期内不受分区维护影响
+-- 通行证ID即访客刷卡验证时的人员ID
+CREATE TABLE IF NOT EXISTS access_visitor_grant (
+    id                BIGINT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    device_id         BIGINT         NOT NULL COMMENT '门禁设备ID',
+    community_id      BIGINT         DEFAULT NULL COMMENT '社区ID',
+    visitor_name      VARCHAR(50)    NOT NULL COMMENT '访客姓名',
+    visitor_phone     VARCHAR(20)    DEFAULT NULL COMMENT '访客手机号',
+    permission_type   VARCHAR(20)    DEFAULT NULL COMMENT '权限类型',
+    valid_start_time  DATETIME       NOT NULL COMMENT '生效时间',
+    valid_end_time    DATETIME       NOT NULL COMMENT '失效时间',
+    approved_by       BIGINT         DEFAULT NULL COMMENT '审批人ID（物业登记即审批）',
+    created_at        DATETIME       DEFAULT CURRENT_TIMESTAMP,
+    KEY idx_valid_end (valid_end_time),
+    KEY idx_device (device_id, valid_end_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='访客门禁授权';
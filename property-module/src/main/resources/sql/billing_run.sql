@@ -0,0 +1,37 @@
+-- 车位月租账单
+-- 由月末账单任务按月生成，同一车位同一账期只有一条
+CREATE TABLE IF NOT EXISTS parking_bill (
+    id                BIGINT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    parking_space_id  BIGINT         NOT NULL COMMENT '车位ID',
+    parking_lot_id    BIGINT         NOT NULL COMMENT '停车场ID',
+    community_id      BIGINT         DEFAULT NULL COMMENT '社区ID',
+    owner_id          BIGINT         NOT NULL COMMENT '业主ID',
+    vehicle_id        BIGINT         DEFAULT NULL COMMENT '车辆ID',
+    space_no          VARCHAR(50)    DEFAULT NULL COMMENT '车位号',
+    full_space_no     VARCHAR(100)   DEFAULT NULL COMMENT '完整车位号',
+    lot_name          VARCHAR(100)   DEFAULT NULL COMMENT '停车场名称',
+    plate_number      VARCHAR(20)    DEFAULT NULL COMMENT '车牌号',
+    billing_period    CHAR(7)        NOT NULL COMMENT '账期(yyyy-MM)',
+    amount            DECIMAL(15, 2) NOT NULL DEFAULT 0 COMMENT '应缴金额',
+    pay_status        VARCHAR(10)    NOT NULL DEFAULT '未缴' COMMENT '缴费状态:未缴/已缴',
+    paid_at           DATETIME       DEFAULT NULL COMMENT '缴费时间',
+    created_at        DATETIME       DEFAULT CURRENT_TIMESTAMP,
+    updated_at        DATETIME       DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_space_period (parking_space_id, billing_period),
+    KEY idx_owner_status (owner_id, pay_status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='车位月租账单';
+
+-- 月末账单任务检查点
+-- 每个分区（社区+楼栋的仪表账单、社区的车位账单）完成后记录一行，任务中断后重跑时跳过已完成分区
+CREATE TABLE IF NOT EXISTS billing_run_checkpoint (
+    id              BIGINT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    billing_period  CHAR(7)        NOT NULL COMMENT '账期(yyyy-MM)',
+    partition_key   VARCHAR(64)    NOT NULL COMMENT '分区标识',
+    bill_type       VARCHAR(10)    NOT NULL COMMENT '账单类型:meter/parking',
+    community_id    BIGINT         DEFAULT NULL COMMENT '社区ID',
+    building_id     BIGINT         DEFAULT NULL COMMENT '楼栋ID',
+    bill_count      INT            NOT NULL DEFAULT 0 COMMENT '生成账单数',
+    amount          DECIMAL(15, 2) NOT NULL DEFAULT 0 COMMENT '账单金额合计',
+    finished_at     DATETIME       NOT NULL COMMENT '完成时间',
+    UNIQUE KEY uk_period_partition (billing_period, partition_key)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='月末账单任务检查点';
@@ -0,0 +1,62 @@
+-- 仪表账单台账
+-- 每条抄表记录在录入时按仪表配置（meter_info.config_id）计算一次费用并写入本表，
+-- 业主端缴费卡片直接读取未缴账单，不再在查询时多表关联计算
+-- 房屋、楼栋、社区等展示字段在生成账单时一并冗余保存
+CREATE TABLE IF NOT EXISTS meter_bill (
+    id                 BIGINT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    reading_id         BIGINT         NOT NULL COMMENT '抄表记录ID',
+    meter_id           BIGINT         NOT NULL COMMENT '仪表ID',
+    config_id          BIGINT         NOT NULL COMMENT '仪表配置ID',
+    community_id       BIGINT         DEFAULT NULL COMMENT '社区ID',
+    building_id        BIGINT         DEFAULT NULL COMMENT '楼栋ID',
+    house_id           BIGINT         NOT NULL COMMENT '房屋ID',
+    meter_name         VARCHAR(100)   DEFAULT NULL COMMENT '仪表名称',
+    meter_code         VARCHAR(100)   DEFAULT NULL COMMENT '仪表编码',
+    category_name      VARCHAR(50)    DEFAULT NULL COMMENT '分类名称',
+    meter_type         VARCHAR(50)    DEFAULT NULL COMMENT '仪表种类',
+    unit               VARCHAR(20)    DEFAULT NULL COMMENT '计量单位',
+    room_no            VARCHAR(50)    DEFAULT NULL COMMENT '房号',
+    full_room_no       VARCHAR(100)   DEFAULT NULL COMMENT '完整房号',
+    building_no        VARCHAR(50)    DEFAULT NULL COMMENT '楼栋号',
+    building_name      VARCHAR(100)   DEFAULT NULL COMMENT '楼栋名称',
+    community_name     VARCHAR(100)   DEFAULT NULL COMMENT '社区名称',
+    billing_period     CHAR(7)        NOT NULL COMMENT '账期(yyyy-MM)',
+    reading_date       DATE           NOT NULL COMMENT '抄表日期',
+    reading_time       DATETIME       DEFAULT NULL COMMENT '抄表时间',
+    reading_status     VARCHAR(20)    DEFAULT NULL COMMENT '抄表状态',
+    previous_reading   DECIMAL(15, 2) DEFAULT NULL COMMENT '上次读数',
+    current_reading    DECIMAL(15, 2) DEFAULT NULL COMMENT '本次读数',
+    usage_amount       DECIMAL(15, 2) NOT NULL DEFAULT 0 COMMENT '用量',
+    unit_price         DECIMAL(10, 4) NOT NULL DEFAULT 0 COMMENT '单价',
+    calculation_method VARCHAR(50)    DEFAULT NULL COMMENT '计算方式',
+    amount             DECIMAL(15, 2) NOT NULL DEFAULT 0 COMMENT '应缴金额',
+    pay_status         VARCHAR(10)    NOT NULL DEFAULT '未缴' COMMENT '缴费状态:未缴/已缴',
+    paid_at            DATETIME       DEFAULT NULL COMMENT '缴费时间',
+    created_at         DATETIME       DEFAULT CURRENT_TIMESTAMP,
+    updated_at         DATETIME       DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_reading (reading_id),
+    KEY idx_house_status (house_id, pay_status, reading_date),
+    KEY idx_period (billing_period, community_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='仪表账单台账';
+
+-- 历史数据回填：为尚未处理的抄表记录生成账单
+INSERT IGNORE INTO meter_bill (reading_id, meter_id, config_id, community_id, building_id, house_id,
+    meter_name, meter_code, category_name, meter_type, unit, room_no, full_room_no, building_no, building_name,
+    community_name, billing_period, reading_date, reading_time, reading_status, previous_reading, current_reading,
+    usage_amount, unit_price, calculation_method, amount)
+SELECT r.id, m.id, mc.id, m.community_id, h.building_id, m.house_id,
+    m.meter_name, m.meter_code, m.category_name, m.meter_type, COALESCE(r.unit, mc.unit, m.unit),
+    h.room_no, h.full_room_no, b.building_no, b.building_name,
+    c.community_name, DATE_FORMAT(r.reading_date, '%Y-%m'), r.reading_date, r.reading_time, r.reading_status,
+    r.previous_reading, r.current_reading,
+    IFNULL(r.usage_amount, 0), IFNULL(mc.unit_price, 0), mc.calculation_method,
+    ROUND(IFNULL(r.usage_amount, 0) * IFNULL(mc.unit_price, 0), 2)
+FROM meter_reading r
+INNER JOIN meter_info m ON m.id = r.meter_id
+INNER JOIN meter_config mc ON mc.id = m.config_id
+INNER JOIN house h ON h.id = m.house_id
+LEFT JOIN building b ON b.id = h.building_id
+LEFT JOIN community_info c ON c.id = h.community_id
+WHERE IFNULL(r.processed, 0) = 0
+  AND m.meter_status = '正常'
+  AND mc.status = '启用';
@@ -0,0 +1,21 @@
+-- 抄表异常待办
+-- 抄表记录写入时由异常检测（用量突增、读数倒退、表盘翻转、超过量程）生成，物业人员按状态处理
+-- flag_type: SPIKE / NEGATIVE / ROLLOVER / OVER_MAX；status: 待处理 / 已处理 / 已忽略
+CREATE TABLE IF NOT EXISTS meter_reading_flag (
+    id               BIGINT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    reading_id       BIGINT         NOT NULL COMMENT '抄表记录ID',
+    meter_id         BIGINT         NOT NULL COMMENT '仪表ID',
+    flag_type        VARCHAR(20)    NOT NULL COMMENT '异常类型',
+    usage_amount     DECIMAL(15, 2) DEFAULT NULL COMMENT '本次用量',
+    expected_usage   DECIMAL(15, 2) DEFAULT NULL COMMENT '预期用量（EWMA均值）',
+    deviation        DECIMAL(10, 2) DEFAULT NULL COMMENT '偏离标准差倍数',
+    message          VARCHAR(255)   DEFAULT NULL COMMENT '异常说明',
+    status           VARCHAR(10)    NOT NULL DEFAULT '待处理' COMMENT '处理状态',
+    handler_id       BIGINT         DEFAULT NULL COMMENT '处理人ID',
+    handle_remark    VARCHAR(255)   DEFAULT NULL COMMENT '处理说明',
+    handled_at       DATETIME       DEFAULT NULL COMMENT '处理时间',
+    created_at       DATETIME       DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_reading_type (reading_id, flag_type),
+    KEY idx_status (status, id),
+    KEY idx_meter (meter_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='抄表异常待办';
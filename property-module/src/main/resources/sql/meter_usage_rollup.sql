@@ -0,0 +1,46 @@
+-- 仪表用量汇总（日/月/年 × 仪表/房屋/楼栋/社区）
+-- 抄表记录写入时增量累加（INSERT ... ON DUPLICATE KEY UPDATE），趋势图直接读取汇总行
+-- scope_type: meter / house / building / community；granularity: day / month / year
+-- period_start: 周期起始日（日=当天，月=当月1日，年=当年1月1日）
+CREATE TABLE IF NOT EXISTS meter_usage_rollup (
+    id             BIGINT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    scope_type     VARCHAR(10)    NOT NULL COMMENT '汇总维度',
+    scope_id       BIGINT         NOT NULL COMMENT '维度ID（仪表/房屋/楼栋/社区ID）',
+    category_name  VARCHAR(50)    NOT NULL DEFAULT '' COMMENT '仪表分类',
+    granularity    VARCHAR(5)     NOT NULL COMMENT '时间粒度',
+    period_start   DATE           NOT NULL COMMENT '周期起始日',
+    usage_amount   DECIMAL(18, 2) NOT NULL DEFAULT 0 COMMENT '用量合计',
+    reading_count  INT            NOT NULL DEFAULT 0 COMMENT '抄表次数',
+    updated_at     DATETIME       DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_scope_period (scope_type, scope_id, category_name, granularity, period_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='仪表用量汇总';
+
+-- 历史数据回填（仅在汇总表为空时执行一次）
+INSERT INTO meter_usage_rollup (scope_type, scope_id, category_name, granularity, period_start, usage_amount, reading_count)
+SELECT t.scope_type, t.scope_id, t.category_name, t.granularity, t.period_start, SUM(t.usage_amount), COUNT(*)
+FROM (
+    SELECT s.scope_type,
+           CASE s.scope_type WHEN 'meter' THEN x.meter_id WHEN 'house' THEN x.house_id
+                             WHEN 'building' THEN x.building_id ELSE x.community_id END AS scope_id,
+           x.category_name,
+           g.granularity,
+           CASE g.granularity WHEN 'day' THEN x.reading_date
+                              WHEN 'month' THEN DATE_FORMAT(x.reading_date, '%Y-%m-01')
+                              ELSE DATE_FORMAT(x.reading_date, '%Y-01-01') END AS period_start,
+           x.usage_amount
+    FROM (
+        SELECT r.reading_date, IFNULL(r.usage_amount, 0) AS usage_amount, IFNULL(m.category_name, '') AS category_name,
+               m.id AS meter_id, m.house_id,
+               COALESCE(m.building_id, h.building_id) AS building_id,
+               COALESCE(m.community_id, h.community_id) AS community_id
+        FROM meter_reading r
+        INNER JOIN meter_info m ON m.id = r.meter_id
+        LEFT JOIN house h ON h.id = m.house_id
+        WHERE r.reading_date IS NOT NULL
+    ) x
+    CROSS JOIN (SELECT 'meter' AS scope_type UNION ALL SELECT 'house' UNION ALL SELECT 'building' UNION ALL SELECT 'community') s
+    CROSS JOIN (SELECT 'day' AS granularity UNION ALL SELECT 'month' UNION ALL SELECT 'year') g
+) t
+WHERE t.scope_id IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM meter_usage_rollup LIMIT 1)
+GROUP BY t.scope_type, t.scope_id, t.category_name, t.granularity, t.period_start;
@@ -0,0 +1,5 @@
+-- 工单 SLA 升级
+-- sla_level 记录已触发的升级级别（0 正常 / 1 临近超期已预警 / 2 已超期），服务重启后不重复预警
+ALTER TABLE owner_issue
+    ADD COLUMN sla_level TINYINT NOT NULL DEFAULT 0 COMMENT 'SLA级别:0正常/1临近超期/2已超期',
+    ADD COLUMN sla_escalated_time DATETIME DEFAULT NULL COMMENT '最近一次SLA升级时间';
@@ -0,0 +1,4 @@
+-- 道闸场内车辆
+-- 入场即写入未出场记录（exit_time 为空），出场时按 停车场 + 车牌 + 入场时间 回写出场信息，需要对应的索引
+ALTER TABLE parking_record
+    ADD INDEX idx_lot_plate_entry (parking_lot_id, plate_number, entry_time);
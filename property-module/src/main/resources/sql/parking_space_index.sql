@@ -0,0 +1,5 @@
+-- 车位状态索引增量同步
+-- 业主端、物业端的车位状态索引按 updated_at 增量同步对方的修改，需要数据库在更新时自动刷新 updated_at
+ALTER TABLE parking_space
+    MODIFY COLUMN updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    ADD INDEX idx_updated_at (updated_at);
@@ -0,0 +1,100 @@
+package com.community.property.service;
+
+import com.community.property.entity.ParkingLot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 停车计费基准：编译后的规则按分计费，与每次按 BigDecimal 现算的旧方式对比
+ * 运行：在 IDE 中执行 main，或 mvn test-compile 后以测试类路径运行本类
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParkingFeeCalculatorBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private ParkingLot lot;
+    private ParkingFeeCalculator calculator;
+    /** 停车时长样本（分钟），覆盖免费时长内、首段内、跨多个周期 */
+    private long[] minutes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        lot = new ParkingLot();
+        lot.setId(1L);
+        lot.setChargeMethod("按时");
+        lot.setFreeDuration(15);
+        lot.setFirstDuration(60);
+        lot.setFirstFee(new BigDecimal("5.00"));
+        lot.setUnitDuration(30);
+        lot.setUnitFee(new BigDecimal("2.00"));
+        lot.setDailyMaxFee(new BigDecimal("20.00"));
+        calculator = ParkingFeeCalculator.compile(lot);
+        minutes = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            minutes[i] = ThreadLocalRandom.current().nextLong(0, 5 * 24 * 60);
+        }
+    }
+
+    @Benchmark
+    public long compiledCents() {
+        return calculator.feeCents(nextMinutes());
+    }
+
+    @Benchmark
+    public BigDecimal compiledDecimal() {
+        return calculator.fee(nextMinutes());
+    }
+
+    @Benchmark
+    public BigDecimal recompilePerCall() {
+        return ParkingFeeCalculator.compile(lot).fee(nextMinutes());
+    }
+
+    /**
+     * 对照：每次按 BigDecimal 逐段计算（计费规则编译前的做法）
+     */
+    @Benchmark
+    public BigDecimal bigDecimalBaseline() {
+        long total = nextMinutes();
+        if (total <= lot.getFreeDuration()) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal fee = BigDecimal.ZERO;
+        for (long remaining = total; remaining > 0; remaining -= ParkingFeeCalculator.CYCLE_MINUTES) {
+            long cycle = Math.min(remaining, ParkingFeeCalculator.CYCLE_MINUTES);
+            BigDecimal cycleFee = lot.getFirstFee();
+            if (cycle > lot.getFirstDuration()) {
+                long units = (cycle - lot.getFirstDuration() + lot.getUnitDuration() - 1) / lot.getUnitDuration();
+                cycleFee = cycleFee.add(lot.getUnitFee().multiply(BigDecimal.valueOf(units)));
+            }
+            fee = fee.add(cycleFee.min(lot.getDailyMaxFee()));
+        }
+        return fee;
+    }
+
+    private long nextMinutes() {
+        next = (next + 1) & (SAMPLES - 1);
+        return minutes[next];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ParkingFeeCalculatorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
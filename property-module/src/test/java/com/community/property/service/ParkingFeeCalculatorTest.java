@@ -0,0 +1,109 @@
+package com.community.property.service;
+
+import com.community.property.entity.ParkingLot;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 停车场计费规则测试：免费时长、首段/单位计费、24小时周期、每日封顶、按次计费
+ */
+class ParkingFeeCalculatorTest {
+
+    private static final int DAY = 24 * 60;
+
+    /** 免费15分钟，首60分钟5元，之后每30分钟2元，每日封顶20元 */
+    private static ParkingFeeCalculator timed() {
+        return ParkingFeeCalculator.compile(lot("按时", 15, 60, "5.00", 30, "2.00", "20.00"));
+    }
+
+    @Test
+    void freeMinutesAreFreeAndThenChargedFromEntry() {
+        ParkingFeeCalculator calculator = timed();
+        assertEquals(0, calculator.feeCents(0));
+        assertEquals(0, calculator.feeCents(15));
+        assertEquals(500, calculator.feeCents(16));
+    }
+
+    @Test
+    void unitsAfterFirstPeriodRoundUp() {
+        ParkingFeeCalculator calculator = timed();
+        assertEquals(500, calculator.feeCents(60));
+        assertEquals(700, calculator.feeCents(61));
+        assertEquals(700, calculator.feeCents(90));
+        assertEquals(900, calculator.feeCents(91));
+    }
+
+    @Test
+    void dailyCapAppliesPerCycle() {
+        ParkingFeeCalculator calculator = timed();
+        // 500 + 7 × 200 = 1900，未到封顶
+        assertEquals(1900, calculator.feeCents(270));
+        // 500 + 8 × 200 = 2100，封顶 2000
+        assertEquals(2000, calculator.feeCents(271));
+        assertEquals(2000, calculator.feeCents(DAY));
+    }
+
+    @Test
+    void cycleBoundaryStartsNewCycle() {
+        ParkingFeeCalculator calculator = timed();
+        // 第二个周期从首段重新计费
+        assertEquals(2000 + 500, calculator.feeCents(DAY + 1));
+        assertEquals(2000 + 700, calculator.feeCents(DAY + 61));
+        assertEquals(2 * 2000, calculator.feeCents(2 * DAY));
+        assertEquals(3 * 2000, calculator.feeCents(3 * DAY));
+    }
+
+    @Test
+    void noCapWhenDailyMaxIsEmpty() {
+        ParkingFeeCalculator calculator = ParkingFeeCalculator.compile(lot("按时", 0, 60, "5.00", 30, "2.00", null));
+        // 500 + 46 × 200
+        assertEquals(9700, calculator.feeCents(DAY));
+    }
+
+    @Test
+    void perEntryChargesOncePerCycle() {
+        ParkingFeeCalculator calculator = ParkingFeeCalculator.compile(lot("按次", 15, 0, "10.00", 0, null, null));
+        assertEquals(0, calculator.feeCents(15));
+        assertEquals(1000, calculator.feeCents(16));
+        assertEquals(1000, calculator.feeCents(DAY));
+        assertEquals(2000, calculator.feeCents(DAY + 1));
+    }
+
+    @Test
+    void perEntryIsCappedByDailyMax() {
+        ParkingFeeCalculator calculator = ParkingFeeCalculator.compile(lot("按次", 0, 0, "10.00", 0, null, "8.00"));
+        assertEquals(800, calculator.feeCents(1));
+        assertEquals(1600, calculator.feeCents(DAY + 1));
+    }
+
+    @Test
+    void freeLotAndZeroTariffChargeNothing() {
+        assertEquals(0, ParkingFeeCalculator.compile(lot("免费", 0, 60, "5.00", 30, "2.00", null)).feeCents(3 * DAY));
+        assertEquals(0, ParkingFeeCalculator.compile(lot("按时", 0, 60, null, 30, null, null)).feeCents(3 * DAY));
+    }
+
+    @Test
+    void amountsAreRoundedToCents() {
+        ParkingFeeCalculator calculator = ParkingFeeCalculator.compile(lot("按时", 0, 60, "1.005", 30, "0.334", null));
+        // 101 + 1 × 33
+        assertEquals(134, calculator.feeCents(61));
+        assertEquals(new BigDecimal("1.34"), calculator.fee(61));
+    }
+
+    private static ParkingLot lot(String chargeMethod, int freeDuration, int firstDuration, String firstFee,
+                                  int unitDuration, String unitFee, String dailyMaxFee) {
+        ParkingLot lot = new ParkingLot();
+        lot.setId(1L);
+        lot.setChargeMethod(chargeMethod);
+        lot.setFreeDuration(freeDuration);
+        lot.setFirstDuration(firstDuration);
+        lot.setFirstFee(firstFee != null ? new BigDecimal(firstFee) : null);
+        lot.setUnitDuration(unitDuration);
+        lot.setUnitFee(unitFee != null ? new BigDecimal(unitFee) : null);
+        lot.setDailyMaxFee(dailyMaxFee != null ? new BigDecimal(dailyMaxFee) : null);
+        return lot;
+    }
+}